@@ -0,0 +1,65 @@
+package io.nadkarni.streamsproducer.embedded;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Starts an in-process Kafka broker and points the application at it, for offline use
+ * such as producer tuning on a laptop.
+ *
+ * <p>Only compiled with the {@code embedded-broker} Maven profile, which adds
+ * {@code spring-kafka-test} to the classpath, and only active when the
+ * {@code embeddedBroker} property is {@code true}:</p>
+ * <pre>
+ * mvn -P embedded-broker spring-boot:run -Dspring-boot.run.arguments="--embeddedBroker=true --tune=true"
+ * </pre>
+ *
+ * <p>The broker is started before the application context, so every producer, consumer
+ * and admin client created from the {@code spring.kafka} properties connects to it. It
+ * listens on {@code embeddedBrokerPort}, or a free port when that is 0, and is stopped
+ * when the JVM exits. One broker is started per JVM even if the environment is prepared
+ * more than once.</p>
+ *
+ * <p>An embedded broker shares the CPU, memory and disk of the producer and has no
+ * replication, so absolute numbers are lower than against a real cluster. It is suited
+ * to comparing settings with each other, not to sizing a cluster.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class EmbeddedBrokerEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    private static EmbeddedKafkaBroker broker;
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.getProperty("embeddedBroker", Boolean.class, false)) {
+            return;
+        }
+        String brokers = start(environment.getProperty("embeddedBrokerPort", Integer.class, 0),
+                environment.getProperty("numPartitions", Integer.class, 1));
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.kafka.bootstrap-servers", brokers);
+        properties.put("spring.kafka.producer.bootstrap-servers", brokers);
+        properties.put("spring.kafka.consumer.bootstrap-servers", brokers);
+        properties.put("replicationFactor", 1);
+        environment.getPropertySources().addFirst(new MapPropertySource("embeddedBroker", properties));
+    }
+
+    private static synchronized String start(int port, int partitions) {
+        if (broker == null) {
+            EmbeddedKafkaBroker started = new EmbeddedKafkaBroker(1, false, partitions).kafkaPorts(port);
+            started.afterPropertiesSet();
+            Runtime.getRuntime().addShutdownHook(new Thread(started::destroy, "embedded-broker-shutdown"));
+            broker = started;
+        }
+        return broker.getBrokersAsString();
+    }
+}
@@ -0,0 +1,121 @@
+package io.nadkarni.streamsproducer.benchmark;
+
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Broker-free {@link KafkaTemplate}s for the benchmarks.
+ *
+ * <ul>
+ *   <li>{@link #mockProducer(String, int)} - a template over Kafka's {@link MockProducer}, which
+ *       runs the real serializers and the {@link DefaultPartitioner} and completes every
+ *       send immediately</li>
+ *   <li>{@link NoOpKafkaTemplate} - a template whose sends complete immediately without
+ *       serializing or partitioning, isolating the cost of the caller's loop</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class BenchmarkTemplates {
+
+    private BenchmarkTemplates() {
+    }
+
+    /**
+     * Creates a {@link MockProducer} for a topic with the given number of partitions, using
+     * the {@link PassThroughSerializer} configured in application.yaml.
+     *
+     * @param topic      topic name
+     * @param partitions number of partitions
+     * @return the producer; call {@link MockProducer#clear()} regularly to drop its history
+     */
+    static ReusableMockProducer mockProducer(String topic, int partitions) {
+        return new ReusableMockProducer(cluster(topic, partitions));
+    }
+
+    /**
+     * Creates single-broker cluster metadata for a topic with the given number of partitions.
+     *
+     * @param topic      topic name
+     * @param partitions number of partitions
+     * @return the cluster metadata
+     */
+    static Cluster cluster(String topic, int partitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> infos = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            infos.add(new PartitionInfo(topic, p, node, new Node[]{node}, new Node[]{node}));
+        }
+        return new Cluster("benchmark", Collections.singletonList(node), infos,
+                Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * {@link MockProducer} that ignores {@code close()}, because {@link KafkaTemplate} closes
+     * the producer it obtained after every non-transactional send.
+     */
+    static final class ReusableMockProducer extends MockProducer<Object, Object> {
+
+        private ReusableMockProducer(Cluster cluster) {
+            super(cluster, true, new DefaultPartitioner(), new PassThroughSerializer(), new PassThroughSerializer());
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+
+    /**
+     * Template whose sends complete immediately with a fixed result and which reports five
+     * partitions for any topic.
+     */
+    static final class NoOpKafkaTemplate extends KafkaTemplate<Object, Object> {
+
+        private final RecordMetadata metadata = new RecordMetadata(new TopicPartition("benchmark", 0),
+                0, 0, 0, 0L, 0, 0);
+
+        NoOpKafkaTemplate() {
+            super(() -> {
+                throw new UnsupportedOperationException("No-op template has no producer");
+            });
+        }
+
+        @Override
+        protected ListenableFuture<SendResult<Object, Object>> doSend(ProducerRecord<Object, Object> record) {
+            SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+            future.set(new SendResult<>(record, metadata));
+            return future;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public List<PartitionInfo> partitionsFor(String topic) {
+            return cluster(topic, 5).partitionsForTopic(topic);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package io.nadkarni.streamsproducer.benchmark;
+
+import io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder;
+import io.nadkarni.streamsproducer.partitioning.PartitionPlan;
+import io.nadkarni.streamsproducer.partitioning.PartitionSelector;
+import io.nadkarni.streamsproducer.partitioning.Partitioning;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of choosing one record's partition with each {@link Partitioning} strategy,
+ * against Kafka's default partitioner for keyed and keyless records.
+ *
+ * <p>Keys cycle through {@value #KEYS} sequential key numbers, all covered by the
+ * partition table. The difference between {@code defaultPartitioner} and the other
+ * benchmarks is the CPU time saved per record by choosing the partition in the send
+ * loop.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionerBenchmark {
+
+    private static final String TOPIC = "strings";
+    private static final int KEYS = 1 << 20;
+    private static final int RECORD_SIZE = 20;
+
+    @Param({"5", "100"})
+    public int partitions;
+
+    private final DefaultPartitioner partitioner = new DefaultPartitioner();
+
+    private Cluster cluster;
+    private byte[][] keyBytes;
+    private PartitionSelector table;
+    private PartitionSelector sticky;
+    private PartitionSelector loadAware;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        cluster = BenchmarkTemplates.cluster(TOPIC, partitions);
+        AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+        keyBytes = new byte[KEYS][];
+        for (int key = 0; key < KEYS; key++) {
+            keyBytes[key] = encoder.key(key).clone();
+        }
+        table = PartitionPlan.create(Partitioning.TABLE, partitions, KEYS, KEYS, 16384).selector(0);
+        sticky = PartitionPlan.create(Partitioning.STICKY, partitions, KEYS, KEYS, 16384).selector(0);
+        loadAware = PartitionPlan.create(Partitioning.LOAD_AWARE, partitions, KEYS, KEYS, 16384).selector(0);
+    }
+
+    /**
+     * Returns the next key number.
+     */
+    private int next() {
+        int value = counter;
+        counter = (value + 1) & (KEYS - 1);
+        return value;
+    }
+
+    /**
+     * murmur2 of the serialized key, as done by the producer for keyed records.
+     */
+    @Benchmark
+    public int defaultPartitioner() {
+        return partitioner.partition(TOPIC, null, keyBytes[next()], null, null, cluster);
+    }
+
+    /**
+     * The default partitioner's sticky placement of records without a key.
+     */
+    @Benchmark
+    public int defaultPartitionerKeyless() {
+        return partitioner.partition(TOPIC, null, null, null, null, cluster);
+    }
+
+    /**
+     * The same placement as {@code defaultPartitioner}, read from the precomputed table.
+     */
+    @Benchmark
+    public int tablePartitioning() {
+        return table.partition(next(), RECORD_SIZE);
+    }
+
+    /**
+     * Batch-filling round-robin placement.
+     */
+    @Benchmark
+    public int stickyPartitioning() {
+        return sticky.partition(next(), RECORD_SIZE);
+    }
+
+    /**
+     * Batch-filling placement that picks the least-loaded partition for every batch.
+     */
+    @Benchmark
+    public int loadAwarePartitioning() {
+        return loadAware.partition(next(), RECORD_SIZE);
+    }
+}
@@ -0,0 +1,109 @@
+package io.nadkarni.streamsproducer.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.Producer;
+import io.nadkarni.streamsproducer.SendMode;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoints;
+import io.nadkarni.streamsproducer.chunking.MessageChunker;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.fanout.FanOutProperties;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import io.nadkarni.streamsproducer.sessions.SessionSimulator;
+import io.nadkarni.streamsproducer.spool.RecordSpools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks complete {@link Producer#send()} runs of {@value #BATCH} records.
+ *
+ * <p>This covers everything the production loop does per record, including the
+ * per-message logging, the in-flight window and the final flush, against either a
+ * {@code MockProducer}-backed template or a no-op template. ops/sec is records/sec.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProducerRunBenchmark {
+
+    private static final String TOPIC = "strings";
+    private static final int PARTITIONS = 5;
+    private static final int BATCH = 1000;
+
+    @Param({"mock", "noop"})
+    public String template;
+
+    @Param({"string", "ascii", "compact"})
+    public String encoding;
+
+    private BenchmarkTemplates.ReusableMockProducer mockProducer;
+    private Producer producer;
+
+    @Setup
+    public void setUp() {
+        KafkaTemplate<Object, Object> kafkaTemplate;
+        if ("mock".equals(template)) {
+            mockProducer = BenchmarkTemplates.mockProducer(TOPIC, PARTITIONS);
+            kafkaTemplate = new KafkaTemplate<>(() -> mockProducer);
+        } else {
+            kafkaTemplate = new BenchmarkTemplates.NoOpKafkaTemplate();
+        }
+        SendLatencyRecorders latencyRecorders = new SendLatencyRecorders(new SimpleMeterRegistry());
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        producer = new Producer(kafkaTemplate, new ParallelProducerEngine(kafkaTemplate, null, null),
+                new SessionSimulator(kafkaTemplate),
+                new FanOutProducer(kafkaTemplate, new FanOutProperties(), null, workloadFactory, latencyRecorders),
+                latencyRecorders, workloadFactory, new RecordSpools(new SimpleMeterRegistry()),
+                new RunCheckpoints(), new MessageChunker());
+        ReflectionTestUtils.setField(producer, "topicName", TOPIC);
+        ReflectionTestUtils.setField(producer, "numEvents", BATCH);
+        ReflectionTestUtils.setField(producer, "sendMode", SendMode.PIPELINED);
+        ReflectionTestUtils.setField(producer, "maxInFlightRecords", 10_000);
+        ReflectionTestUtils.setField(producer, "maxInFlightBytes", 16 << 20);
+        ReflectionTestUtils.setField(producer, "drainTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.valueOf(encoding.toUpperCase()));
+    }
+
+    /**
+     * Drops the records retained by the MockProducer before each run.
+     */
+    @Setup(Level.Invocation)
+    public void clearHistory() {
+        if (mockProducer != null) {
+            mockProducer.clear();
+        }
+    }
+
+    /**
+     * Runs {@link Producer#send()} for {@value #BATCH} records.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void producerSend() {
+        producer.send();
+    }
+}
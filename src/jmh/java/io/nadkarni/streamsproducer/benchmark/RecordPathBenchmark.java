@@ -0,0 +1,163 @@
+package io.nadkarni.streamsproducer.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.Producer;
+import io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-benchmarks for the individual steps a record goes through before it reaches the
+ * producer's batch: construction, serialization, partitioning and per-message logging,
+ * plus the latency recording done in the completion callback.
+ *
+ * <p>Each benchmark handles one record per operation, so ops/sec is records/sec for that
+ * step alone. Run with {@code -prof gc} (the profile's default) to see bytes allocated
+ * per record.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordPathBenchmark {
+
+    private static final String TOPIC = "strings";
+    private static final int PARTITIONS = 5;
+
+    /**
+     * Same logger name as the producer so the benchmark logging configuration applies.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(Producer.class);
+
+    private final StringSerializer stringSerializer = new StringSerializer();
+    private final PassThroughSerializer passThroughSerializer = new PassThroughSerializer();
+    private final AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+    private final DefaultPartitioner partitioner = new DefaultPartitioner();
+    private final SendLatencyRecorder latency = new SendLatencyRecorder(new SimpleMeterRegistry(), TOPIC);
+
+    private Cluster cluster;
+    private int counter;
+    private String stringKey;
+    private String stringValue;
+    private byte[] keyBytes;
+    private byte[] valueBytes;
+
+    @Setup
+    public void setUp() {
+        cluster = BenchmarkTemplates.cluster(TOPIC, PARTITIONS);
+        counter = 1_000_000;
+        stringKey = Integer.toString(counter);
+        stringValue = "Message " + stringKey;
+        keyBytes = stringSerializer.serialize(TOPIC, stringKey);
+        valueBytes = stringSerializer.serialize(TOPIC, stringValue);
+    }
+
+    /**
+     * Returns the next sequence number, wrapping before it would become negative.
+     */
+    private int next() {
+        int value = counter;
+        counter = (value + 1) & Integer.MAX_VALUE;
+        return value;
+    }
+
+    /**
+     * Record construction as done by the original loop: boxed counter and two Strings.
+     */
+    @Benchmark
+    public void stringConstruction(Blackhole blackhole) {
+        Integer ii = next();
+        blackhole.consume(ii.toString());
+        blackhole.consume("Message " + ii.toString());
+    }
+
+    /**
+     * Record construction with the {@link AsciiRecordEncoder}.
+     */
+    @Benchmark
+    public void asciiConstruction(Blackhole blackhole) {
+        long seq = next();
+        blackhole.consume(encoder.key(seq));
+        blackhole.consume(encoder.value(seq));
+    }
+
+    /**
+     * Key and value serialization with {@link StringSerializer}.
+     */
+    @Benchmark
+    public void stringSerialization(Blackhole blackhole) {
+        blackhole.consume(stringSerializer.serialize(TOPIC, stringKey));
+        blackhole.consume(stringSerializer.serialize(TOPIC, stringValue));
+    }
+
+    /**
+     * Key and value serialization of pre-encoded bytes with {@link PassThroughSerializer}.
+     */
+    @Benchmark
+    public void passThroughSerialization(Blackhole blackhole) {
+        blackhole.consume(passThroughSerializer.serialize(TOPIC, keyBytes));
+        blackhole.consume(passThroughSerializer.serialize(TOPIC, valueBytes));
+    }
+
+    /**
+     * Partition selection by the default partitioner (murmur2 of the serialized key).
+     */
+    @Benchmark
+    public int defaultPartitioner() {
+        return partitioner.partition(TOPIC, stringKey, keyBytes, stringValue, valueBytes, cluster);
+    }
+
+    /**
+     * Recording one acknowledgement in the overall and per-partition latency histograms.
+     */
+    @Benchmark
+    public void latencyRecording() {
+        int seq = next();
+        latency.record(seq % PARTITIONS, System.nanoTime() - (seq & 0xFFFF) * 1000L);
+    }
+
+    /**
+     * The per-message {@code logger.info("Sending " + ii)} of the original loop, written to a
+     * no-op appender.
+     */
+    @Benchmark
+    public void perMessageInfoLog() {
+        Integer ii = next();
+        logger.info("Sending " + ii);
+    }
+
+    /**
+     * The guarded DEBUG log used by the ASCII path when DEBUG is disabled.
+     */
+    @Benchmark
+    public void perMessageGuardedDebugLog() {
+        long seq = next();
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sending " + seq);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package io.nadkarni.streamsproducer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded window of records that have been handed to Kafka but not yet acknowledged.
+ *
+ * <p>The window is limited both by record count and by an estimate of the serialized
+ * record size. A sender calls {@link #acquire(int)} before each send and the completion
+ * callback calls {@link #release(int)} once the broker acknowledges (or rejects) the
+ * record. When either limit is reached {@link #acquire(int)} blocks, which applies
+ * backpressure to the generating loop instead of letting it silently fill the client's
+ * {@code buffer.memory}.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>The window is backed by two non-fair {@link Semaphore}s and may be shared by any
+ * number of sending threads and callback threads.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class InFlightWindow {
+
+    /**
+     * Permits for the number of outstanding records.
+     */
+    private final Semaphore records;
+
+    /**
+     * Permits for the number of outstanding bytes.
+     */
+    private final Semaphore bytes;
+
+    /**
+     * The configured record limit.
+     */
+    private final int maxRecords;
+
+    /**
+     * The configured byte limit.
+     */
+    private final int maxBytes;
+
+    /**
+     * Creates a window with the given limits.
+     *
+     * @param maxRecords maximum number of unacknowledged records, must be positive
+     * @param maxBytes   maximum number of unacknowledged bytes, must be positive
+     * @throws IllegalArgumentException if either limit is not positive
+     */
+    public InFlightWindow(int maxRecords, int maxBytes) {
+        if (maxRecords <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("In-flight limits must be positive: records="
+                    + maxRecords + ", bytes=" + maxBytes);
+        }
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.records = new Semaphore(maxRecords);
+        this.bytes = new Semaphore(maxBytes);
+    }
+
+    /**
+     * Reserves room for one record of the given size, blocking while the window is full.
+     *
+     * <p>A record larger than the byte limit is clamped to the limit so that it can
+     * still be sent once the window has fully drained.</p>
+     *
+     * @param size estimated serialized size of the record in bytes
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public void acquire(int size) throws InterruptedException {
+        records.acquire();
+        try {
+            bytes.acquire(clamp(size));
+        } catch (InterruptedException e) {
+            records.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves room for one record without blocking.
+     *
+     * @param size estimated serialized size of the record in bytes
+     * @return {@code true} if the record fits in the window, {@code false} otherwise
+     */
+    public boolean tryAcquire(int size) {
+        if (!records.tryAcquire()) {
+            return false;
+        }
+        if (!bytes.tryAcquire(clamp(size))) {
+            records.release();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserves room for one record, waiting at most the given time for the window to
+     * have room.
+     *
+     * @param size    estimated serialized size of the record in bytes
+     * @param timeout maximum time to wait
+     * @param unit    unit of {@code timeout}
+     * @return {@code true} if the record fits in the window, {@code false} if the timeout
+     *         elapsed first
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean tryAcquire(int size, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!records.tryAcquire(timeout, unit)) {
+            return false;
+        }
+        boolean acquired = false;
+        try {
+            acquired = bytes.tryAcquire(clamp(size), Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+            return acquired;
+        } finally {
+            if (!acquired) {
+                records.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the room reserved by a previous {@link #acquire(int)} with the same size.
+     *
+     * @param size the size that was passed to {@link #acquire(int)}
+     */
+    public void release(int size) {
+        bytes.release(clamp(size));
+        records.release();
+    }
+
+    /**
+     * Waits until every reserved record has been released.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of {@code timeout}
+     * @return {@code true} if the window drained, {@code false} if the timeout elapsed first
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean awaitEmpty(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!records.tryAcquire(maxRecords, timeout, unit)) {
+            return false;
+        }
+        try {
+            long remaining = deadline - System.nanoTime();
+            if (!bytes.tryAcquire(maxBytes, Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            bytes.release(maxBytes);
+            return true;
+        } finally {
+            records.release(maxRecords);
+        }
+    }
+
+    /**
+     * Returns the number of records currently in flight.
+     *
+     * @return outstanding record count
+     */
+    public int inFlightRecords() {
+        return maxRecords - records.availablePermits();
+    }
+
+    /**
+     * Returns the estimated number of bytes currently in flight.
+     *
+     * @return outstanding byte count
+     */
+    public int inFlightBytes() {
+        return maxBytes - bytes.availablePermits();
+    }
+
+    private int clamp(int size) {
+        return Math.max(0, Math.min(size, maxBytes));
+    }
+}
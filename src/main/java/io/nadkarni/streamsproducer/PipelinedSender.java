@@ -0,0 +1,340 @@
+package io.nadkarni.streamsproducer;
+
+import io.nadkarni.streamsproducer.checkpoint.CheckpointLane;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.partitioning.PartitionCounts;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends records through a {@link KafkaTemplate} while keeping them inside an
+ * {@link InFlightWindow}.
+ *
+ * <p>This is the per-record half of the pipelined send mode: room is reserved in the
+ * window before each send, and a completion callback releases it and updates the
+ * run's {@link SendStatistics}. Several senders, for example one per worker thread,
+ * may share a window and a statistics instance.</p>
+ *
+ * <h3>Latency:</h3>
+ * <p>When a {@link SendLatencyRecorder} is supplied, every acknowledged record's latency is
+ * recorded from its intended send time. Callers that pace their sends pass the time the
+ * record was scheduled for; otherwise the time is taken on entry to
+ * {@link #send(String, Integer, Object, Object, int)}, before waiting for the window, so
+ * time spent blocked on a full window counts towards the latency.</p>
+ *
+ * <h3>Partitions:</h3>
+ * <p>When {@link PartitionCounts} are supplied, every acknowledged record is counted for the
+ * partition it was written to, and records sent to an explicit partition are tracked as
+ * unacknowledged bytes of that partition until they complete.</p>
+ *
+ * <h3>Checkpoints:</h3>
+ * <p>When a {@link CheckpointLane} is supplied, every record takes the lane's next ordinal.
+ * Its callback completes the ordinal if the record is acknowledged and fails it otherwise,
+ * as does a template that rejects the record, so that a resumed run sends the record again.
+ * {@link #send(String, Integer, Object, Object, int, long)} first waits while the lane is at
+ * its duplicate bound. Records sent through
+ * {@link #sendReserved} by subclasses are numbered the same way, but do not wait.</p>
+ *
+ * @param <K> the record key type
+ * @param <V> the record value type
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class PipelinedSender<K, V> {
+
+    private final KafkaTemplate<K, V> kafkaTemplate;
+    private final InFlightWindow window;
+    private final SendStatistics statistics;
+    private final SendLatencyRecorder latency;
+    private final PartitionCounts partitionCounts;
+    private final CheckpointLane checkpoint;
+
+    /**
+     * Creates a sender that does not record latency.
+     *
+     * @param kafkaTemplate template used to send records
+     * @param window        window bounding the number of unacknowledged records
+     * @param statistics    counters updated as records are sent and completed
+     */
+    public PipelinedSender(KafkaTemplate<K, V> kafkaTemplate, InFlightWindow window, SendStatistics statistics) {
+        this(kafkaTemplate, window, statistics, null);
+    }
+
+    /**
+     * Creates a sender.
+     *
+     * @param kafkaTemplate template used to send records
+     * @param window        window bounding the number of unacknowledged records
+     * @param statistics    counters updated as records are sent and completed
+     * @param latency       histograms updated as records are acknowledged, or {@code null}
+     */
+    public PipelinedSender(KafkaTemplate<K, V> kafkaTemplate, InFlightWindow window, SendStatistics statistics,
+                           SendLatencyRecorder latency) {
+        this(kafkaTemplate, window, statistics, latency, null);
+    }
+
+    /**
+     * Creates a sender that also counts records per partition.
+     *
+     * @param kafkaTemplate   template used to send records
+     * @param window          window bounding the number of unacknowledged records
+     * @param statistics      counters updated as records are sent and completed
+     * @param latency         histograms updated as records are acknowledged, or {@code null}
+     * @param partitionCounts per-partition counts updated as records are sent and completed,
+     *                        or {@code null}
+     */
+    public PipelinedSender(KafkaTemplate<K, V> kafkaTemplate, InFlightWindow window, SendStatistics statistics,
+                           SendLatencyRecorder latency, PartitionCounts partitionCounts) {
+        this(kafkaTemplate, window, statistics, latency, partitionCounts, null);
+    }
+
+    /**
+     * Creates a sender whose acknowledgements advance a checkpoint.
+     *
+     * @param kafkaTemplate   template used to send records
+     * @param window          window bounding the number of unacknowledged records
+     * @param statistics      counters updated as records are sent and completed
+     * @param latency         histograms updated as records are acknowledged, or {@code null}
+     * @param partitionCounts per-partition counts updated as records are sent and completed,
+     *                        or {@code null}
+     * @param checkpoint      lane of the run's checkpoint owned by this sender, or {@code null}
+     */
+    public PipelinedSender(KafkaTemplate<K, V> kafkaTemplate, InFlightWindow window, SendStatistics statistics,
+                           SendLatencyRecorder latency, PartitionCounts partitionCounts, CheckpointLane checkpoint) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.window = window;
+        this.statistics = statistics;
+        this.latency = latency;
+        this.partitionCounts = partitionCounts;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Sends one record, blocking first while the window is full.
+     *
+     * @param topic     destination topic
+     * @param partition destination partition, or {@code null} to use the configured partitioner
+     * @param key       record key
+     * @param value     record value
+     * @param size      estimated serialized size of key and value in bytes
+     * @throws InterruptedException if interrupted while waiting for room in the window
+     */
+    public void send(String topic, Integer partition, K key, V value, int size) throws InterruptedException {
+        send(topic, partition, key, value, size, System.nanoTime());
+    }
+
+    /**
+     * Sends one record that was scheduled for the given time, blocking first while the
+     * window is full or the checkpoint lane is at its duplicate bound.
+     *
+     * @param topic         destination topic
+     * @param partition     destination partition, or {@code null} to use the configured partitioner
+     * @param key           record key
+     * @param value         record value
+     * @param size          estimated serialized size of key and value in bytes
+     * @param intendedNanos intended send time as a {@link System#nanoTime()} value
+     * @throws InterruptedException if interrupted while waiting for room in the window or
+     *                              for a checkpoint
+     */
+    public void send(String topic, Integer partition, K key, V value, int size, long intendedNanos)
+            throws InterruptedException {
+        if (checkpoint != null) {
+            checkpoint.awaitRoom();
+        }
+        window.acquire(size);
+        sendReserved(topic, partition, key, value, size, intendedNanos);
+    }
+
+    /**
+     * Sends one complete record, with its headers, as
+     * {@link #send(String, Integer, Object, Object, int, long)} sends a key and value.
+     * Records sent this way do not go through {@link #sendReserved} and so are not
+     * intercepted by subclasses.
+     *
+     * @param record        record to send
+     * @param size          estimated serialized size of key and value in bytes
+     * @param intendedNanos intended send time as a {@link System#nanoTime()} value
+     * @throws InterruptedException if interrupted while waiting for room in the window or
+     *                              for a checkpoint
+     */
+    public void send(ProducerRecord<K, V> record, int size, long intendedNanos) throws InterruptedException {
+        if (checkpoint != null) {
+            checkpoint.awaitRoom();
+        }
+        window.acquire(size);
+        dispatch(record, record.topic(), record.partition(), record.key(), record.value(), size, intendedNanos);
+    }
+
+    /**
+     * Sends one record for which room has already been reserved in the window. The room
+     * is released when the record completes, or here if the template rejects it.
+     *
+     * @param topic         destination topic
+     * @param partition     destination partition, or {@code null} to use the configured partitioner
+     * @param key           record key
+     * @param value         record value
+     * @param size          the size reserved in the window
+     * @param intendedNanos intended send time as a {@link System#nanoTime()} value
+     */
+    protected void sendReserved(String topic, Integer partition, K key, V value, int size, long intendedNanos) {
+        dispatch(null, topic, partition, key, value, size, intendedNanos);
+    }
+
+    /**
+     * Hands a reserved record to the template, as a whole record if there is one.
+     */
+    private void dispatch(ProducerRecord<K, V> record, String topic, Integer partition, K key, V value, int size,
+                          long intendedNanos) {
+        boolean tracked = partitionCounts != null && partition != null;
+        if (tracked) {
+            partitionCounts.sent(partition, size);
+        }
+        Object retained = record == null ? retain(partition, key, value, intendedNanos) : null;
+        long ordinal = checkpoint == null ? -1 : checkpoint.nextOrdinal();
+        try {
+            ListenableFuture<SendResult<K, V>> future = record == null
+                    ? kafkaTemplate.send(topic, partition, key, value) : kafkaTemplate.send(record);
+            future.addCallback(new Completion(size, intendedNanos, tracked ? partition : -1, ordinal, retained));
+        } catch (RuntimeException e) {
+            if (tracked) {
+                partitionCounts.completed(partition, size);
+            }
+            if (ordinal >= 0) {
+                checkpoint.fail(ordinal);
+            }
+            window.release(size);
+            throw e;
+        }
+        statistics.recordSent(size);
+    }
+
+    /**
+     * Keeps what a subclass needs to take over a record sent through {@link #sendReserved}
+     * if it fails. Called before the record is handed to the template, on the sending
+     * thread.
+     *
+     * @param partition     destination partition, or {@code null}
+     * @param key           record key, which the caller may reuse after the send
+     * @param value         record value, which the caller may reuse after the send
+     * @param intendedNanos intended send time as a {@link System#nanoTime()} value
+     * @return the state passed to {@link #recover(Object, Throwable)}, or {@code null} to
+     *         count every failure of the record
+     */
+    protected Object retain(Integer partition, K key, V value, long intendedNanos) {
+        return null;
+    }
+
+    /**
+     * Offers a failed record to the subclass before it is counted as failed. Called on the
+     * producer's I/O thread while the record still holds its room in the window.
+     *
+     * @param retained state returned by {@link #retain} for the record
+     * @param failure  the failure of the send
+     * @return {@code true} if the subclass sends the record again, so that it is not
+     *         counted as failed
+     */
+    protected boolean recover(Object retained, Throwable failure) {
+        return false;
+    }
+
+    /**
+     * Flushes the template so that buffered records are sent without waiting for {@code linger.ms}.
+     */
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+
+    /**
+     * Flushes the template and waits for every record in the window to complete.
+     *
+     * @param timeoutMs maximum time to wait in milliseconds
+     * @return {@code true} if every record completed in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean drain(long timeoutMs) throws InterruptedException {
+        flush();
+        return window.awaitEmpty(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the window shared by this sender
+     */
+    public InFlightWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * Completion callback for a single record.
+     */
+    private final class Completion implements ListenableFutureCallback<SendResult<K, V>> {
+
+        private final int size;
+        private final long intendedNanos;
+
+        /**
+         * Partition counted as unacknowledged in {@link #partitionCounts}, or -1.
+         */
+        private final int tracked;
+
+        /**
+         * Ordinal of the record in {@link #checkpoint}, or -1.
+         */
+        private final long ordinal;
+
+        /**
+         * State kept by {@link #retain} for {@link #recover}, or {@code null}.
+         */
+        private final Object retained;
+
+        private Completion(int size, long intendedNanos, int tracked, long ordinal, Object retained) {
+            this.size = size;
+            this.intendedNanos = intendedNanos;
+            this.tracked = tracked;
+            this.ordinal = ordinal;
+            this.retained = retained;
+        }
+
+        @Override
+        public void onSuccess(SendResult<K, V> result) {
+            if (latency != null || partitionCounts != null) {
+                RecordMetadata metadata = result == null ? null : result.getRecordMetadata();
+                int partition = metadata == null ? -1 : metadata.partition();
+                if (latency != null) {
+                    latency.record(partition, intendedNanos);
+                }
+                if (partitionCounts != null) {
+                    partitionCounts.acknowledged(partition, size);
+                    if (tracked >= 0) {
+                        partitionCounts.completed(tracked, size);
+                    }
+                }
+            }
+            statistics.recordAcked();
+            if (ordinal >= 0) {
+                checkpoint.complete(ordinal);
+            }
+            window.release(size);
+        }
+
+        @Override
+        public void onFailure(Throwable failure) {
+            if (tracked >= 0) {
+                partitionCounts.completed(tracked, size);
+            }
+            if (retained == null || !recover(retained, failure)) {
+                statistics.recordFailed(failure);
+            }
+            if (ordinal >= 0) {
+                checkpoint.fail(ordinal);
+            }
+            window.release(size);
+        }
+    }
+}
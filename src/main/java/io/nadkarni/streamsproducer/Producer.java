@@ -1,11 +1,44 @@
 package io.nadkarni.streamsproducer;
 
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoint;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoints;
+import io.nadkarni.streamsproducer.chunking.MessageChunker;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.encoding.RecordSizeReport;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.engine.RecordBuilder;
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.pacing.LoadProfile;
+import io.nadkarni.streamsproducer.pacing.RatePacer;
+import io.nadkarni.streamsproducer.pacing.RateReporter;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.partitioning.PartitionCounts;
+import io.nadkarni.streamsproducer.partitioning.PartitionPlan;
+import io.nadkarni.streamsproducer.partitioning.PartitionSelector;
+import io.nadkarni.streamsproducer.partitioning.Partitioning;
+import io.nadkarni.streamsproducer.payload.Workload;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import io.nadkarni.streamsproducer.replay.CaptureReader;
+import io.nadkarni.streamsproducer.replay.CaptureReplayer;
+import io.nadkarni.streamsproducer.sessions.SessionSimulator;
+import io.nadkarni.streamsproducer.spool.RecordSpools;
+import io.nadkarni.streamsproducer.spool.SpoolingSender;
+import io.nadkarni.streamsproducer.tuning.ProducerTuner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
 
 /**
  * Kafka message producer service responsible for sending string messages to a Kafka topic.
@@ -19,14 +52,56 @@ import org.springframework.stereotype.Service;
  *   <li><strong>Key:</strong> Sequential integers starting from 0 (e.g., "0", "1", "2", ...)</li>
  *   <li><strong>Value:</strong> Formatted strings (e.g., "Message 0", "Message 1", "Message 2", ...)</li>
  * </ul>
+ * <p>This is the {@code sequential} payload generator. The pipelined mode can instead send
+ * random bytes, templated JSON or the output of a custom {@code PayloadGenerator}, with
+ * keys drawn from a configurable number of distinct keys, see {@link WorkloadFactory}.</p>
  *
  * <h3>Configuration:</h3>
  * <p>The service is configured through application properties:</p>
  * <ul>
  *   <li>{@code topic} - The Kafka topic name to send messages to</li>
  *   <li>{@code numberOfEvents} - The total number of messages to produce</li>
+ *   <li>{@code sendMode} - {@code pipelined} (bounded asynchronous sends) or
+ *       {@code fire-and-forget} (the original unbounded loop), see {@link SendMode}</li>
+ *   <li>{@code maxInFlightRecords} / {@code maxInFlightBytes} - Size of the in-flight
+ *       window used by the pipelined mode</li>
+ *   <li>{@code drainTimeoutMs} - How long the pipelined mode waits for outstanding
+ *       acknowledgements after the last send</li>
+ *   <li>{@code recordEncoding} - {@code ascii} (records written as bytes into reused
+ *       buffers), {@code compact} (a binary format with varint keys and
+ *       dictionary-compressed values) or {@code string}, see {@link RecordEncoding}</li>
+ *   <li>{@code targetRate} / {@code loadProfile} - Pace the pipelined mode at a fixed rate
+ *       or along a step, ramp or burst profile, see {@link LoadProfile}</li>
+ *   <li>{@code runDuration} - Stop after this long even if {@code numberOfEvents} has not
+ *       been reached</li>
+ *   <li>{@code payloadGenerator}, {@code payloadSize}, {@code payloadTemplate},
+ *       {@code payloadCorpusSize}, {@code keyCardinality}, {@code keySkew} - Record
+ *       payloads and keys of the pipelined mode</li>
+ *   <li>{@code replayFile} / {@code replaySpeed} - Replay a capture file instead of
+ *       generating records, see {@link CaptureReplayer}</li>
+ *   <li>{@code transactional}, {@code transactionRecords}, {@code transactionTime} -
+ *       Idempotent, transactional sends in batched commits, see
+ *       {@link ParallelProducerEngine}</li>
+ *   <li>{@code partitioning} / {@code partitionTableMaxKeys} - How the pipelined mode
+ *       places records on partitions, see {@link Partitioning}</li>
+ *   <li>{@code sessions}, {@code sessionThreads}, {@code sessionThinkTime} - Simulate
+ *       independent clients instead of one sequence, see {@link SessionSimulator}</li>
+ *   <li>{@code fanOut} - Send to several weighted topics with their own payloads instead
+ *       of {@code topic}, see {@link FanOutProducer}</li>
+ *   <li>{@code spoolDir} - Spool records to local disk while the brokers do not keep up,
+ *       see {@link RecordSpools}</li>
+ *   <li>{@code checkpointFile}, {@code checkpointInterval},
+ *       {@code checkpointMaxDuplicates} - Resume an interrupted run after its acknowledged
+ *       records, see {@link RunCheckpoints}</li>
+ *   <li>{@code chunkBytes} - Split values larger than this into chunks of this size, see
+ *       {@link MessageChunker}</li>
  * </ul>
  *
+ * <h3>Metrics:</h3>
+ * <p>The pipelined mode records send-to-acknowledgement latency, measured from each record's
+ * intended send time, in the topic's {@link SendLatencyRecorder}, which publishes
+ * percentiles per partition and overall as Micrometer gauges.</p>
+ *
  * <h3>Logging:</h3>
  * <p>The service provides comprehensive logging to track message production progress,
  * including the total number of messages to be sent and individual message confirmations.</p>
@@ -55,12 +130,166 @@ public class Producer {
     @Value("${numberOfEvents}")
     private Integer numEvents;
 
+    /**
+     * How records are handed to Kafka.
+     * Configured via the {@code sendMode} property in application.yaml.
+     * Default value: pipelined
+     */
+    @Value("${sendMode:pipelined}")
+    private SendMode sendMode;
+
+    /**
+     * Maximum number of records sent but not yet acknowledged in pipelined mode.
+     * Configured via the {@code maxInFlightRecords} property in application.yaml.
+     * Default value: 10,000
+     */
+    @Value("${maxInFlightRecords:10000}")
+    private int maxInFlightRecords;
+
+    /**
+     * Maximum number of estimated key and value bytes sent but not yet acknowledged
+     * in pipelined mode.
+     * Configured via the {@code maxInFlightBytes} property in application.yaml.
+     * Default value: 16 MiB
+     */
+    @Value("${maxInFlightBytes:16777216}")
+    private int maxInFlightBytes;
+
+    /**
+     * Maximum time in milliseconds to wait for outstanding acknowledgements once every
+     * record has been sent in pipelined mode.
+     * Configured via the {@code drainTimeoutMs} property in application.yaml.
+     * Default value: 120,000
+     */
+    @Value("${drainTimeoutMs:120000}")
+    private long drainTimeoutMs;
+
+    /**
+     * How the pipelined mode builds each record.
+     * Configured via the {@code recordEncoding} property in application.yaml.
+     * Default value: ascii
+     */
+    @Value("${recordEncoding:ascii}")
+    private RecordEncoding recordEncoding;
+
+    /**
+     * Constant target rate in records per second for the pipelined mode; 0 sends as fast
+     * as possible. Ignored when {@code loadProfile} is set.
+     * Configured via the {@code targetRate} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${targetRate:0}")
+    private double targetRate;
+
+    /**
+     * Rate profile for the pipelined mode, e.g. {@code 10000:30s,20000:30s}.
+     * Configured via the {@code loadProfile} property in application.yaml.
+     * Default value: empty (use {@code targetRate})
+     */
+    @Value("${loadProfile:}")
+    private String loadProfile = "";
+
+    /**
+     * Maximum number of records a paced run may fall behind schedule before tokens are
+     * discarded; 0 keeps every record's intended send time.
+     * Configured via the {@code pacingBurst} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${pacingBurst:0}")
+    private long pacingBurst;
+
+    /**
+     * Maximum run time of the pipelined mode; 0 means no time limit.
+     * Configured via the {@code runDuration} property in application.yaml.
+     * Default value: 0s
+     */
+    @Value("${runDuration:0s}")
+    private Duration runDuration = Duration.ZERO;
+
+    /**
+     * Capture file replayed by the pipelined mode instead of generated records.
+     * Configured via the {@code replayFile} property in application.yaml.
+     * Default value: empty (generate records)
+     */
+    @Value("${replayFile:}")
+    private String replayFile = "";
+
+    /**
+     * Factor applied to the original timing of a replayed capture; 0 ignores the timing.
+     * Configured via the {@code replaySpeed} property in application.yaml.
+     * Default value: 1 (real time)
+     */
+    @Value("${replaySpeed:1}")
+    private double replaySpeed = 1;
+
+    /**
+     * How the pipelined mode chooses the partition of each record.
+     * Configured via the {@code partitioning} property in application.yaml.
+     * Default value: default (the producer's partitioner)
+     */
+    @Value("${partitioning:default}")
+    private Partitioning partitioning = Partitioning.DEFAULT;
+
+    /**
+     * Maximum number of keys whose partitions are precomputed by the table partitioning;
+     * keys beyond it are hashed per record.
+     * Configured via the {@code partitionTableMaxKeys} property in application.yaml.
+     * Default value: 16,777,216
+     */
+    @Value("${partitionTableMaxKeys:16777216}")
+    private int partitionTableMaxKeys = 1 << 24;
+
     /**
      * Spring Kafka template for sending messages to Kafka topics.
-     * Configured to use String serializers for both keys and values.
+     * Configured to use the {@link PassThroughSerializer} for both keys and values, so it
+     * accepts both {@code String} and pre-encoded {@code byte[]} records.
      * Handles connection management, serialization, and error handling automatically.
      */
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+
+    /**
+     * Multi-threaded engine used in pipelined mode when more than one producer thread
+     * is configured.
+     */
+    private final ParallelProducerEngine parallelEngine;
+
+    /**
+     * Simulator of independent clients used in pipelined mode when {@code sessions} is set.
+     */
+    private final SessionSimulator sessionSimulator;
+
+    /**
+     * Sender of the weighted multi-topic workload used in pipelined mode when
+     * {@code fanOut.topics} is set.
+     */
+    private final FanOutProducer fanOutProducer;
+
+    /**
+     * Per-topic latency histograms updated by the pipelined mode.
+     */
+    private final SendLatencyRecorders latencyRecorders;
+
+    /**
+     * Source of the generated payloads used by the pipelined mode.
+     */
+    private final WorkloadFactory workloadFactory;
+
+    /**
+     * Opens the on-disk spool of the single-threaded pipelined mode when {@code spoolDir}
+     * is set.
+     */
+    private final RecordSpools spools;
+
+    /**
+     * Opens the checkpoint of the pipelined mode when {@code checkpointFile} is set.
+     */
+    private final RunCheckpoints checkpoints;
+
+    /**
+     * Splits large values of the single-threaded pipelined mode when {@code chunkBytes} is
+     * set.
+     */
+    private final MessageChunker chunker;
 
     /**
      * Logger instance for tracking message production progress and debugging.
@@ -74,19 +303,37 @@ public class Producer {
      * the properties defined in application.yaml, including bootstrap servers,
      * key/value serializers, and other producer configurations.</p>
      *
-     * @param kafkaTemplate The Spring Kafka template for message production,
-     *                     configured with String key and value serializers
+     * @param kafkaTemplate    The Spring Kafka template for message production,
+     *                         configured with pass-through key and value serializers
+     * @param parallelEngine   The multi-threaded engine used when {@code producerThreads} &gt; 1
+     * @param sessionSimulator The client simulator used when {@code sessions} is set
+     * @param fanOutProducer   The multi-topic sender used when {@code fanOut.topics} is set
+     * @param latencyRecorders The per-topic latency histograms updated by the pipelined mode
+     * @param workloadFactory  The source of generated payloads for the pipelined mode
+     * @param spools           The on-disk spools used when {@code spoolDir} is set
+     * @param checkpoints      The run checkpoints used when {@code checkpointFile} is set
+     * @param chunker          The splitter of large values used when {@code chunkBytes} is set
      */
     @Autowired
-    public Producer(KafkaTemplate<String, String> kafkaTemplate) {
+    public Producer(KafkaTemplate<Object, Object> kafkaTemplate, ParallelProducerEngine parallelEngine,
+                    SessionSimulator sessionSimulator, FanOutProducer fanOutProducer,
+                    SendLatencyRecorders latencyRecorders, WorkloadFactory workloadFactory, RecordSpools spools,
+                    RunCheckpoints checkpoints, MessageChunker chunker) {
         this.kafkaTemplate = kafkaTemplate;
+        this.parallelEngine = parallelEngine;
+        this.sessionSimulator = sessionSimulator;
+        this.fanOutProducer = fanOutProducer;
+        this.latencyRecorders = latencyRecorders;
+        this.workloadFactory = workloadFactory;
+        this.spools = spools;
+        this.checkpoints = checkpoints;
+        this.chunker = chunker;
     }
 
     /**
      * Sends a configured number of sequential messages to the specified Kafka topic.
      *
-     * <p>This method produces messages in a simple loop, sending each message synchronously
-     * to the Kafka topic. Each message consists of:</p>
+     * <p>Each message consists of:</p>
      * <ul>
      *   <li><strong>Key:</strong> String representation of the message index (0, 1, 2, ...)</li>
      *   <li><strong>Value:</strong> Formatted message string ("Message 0", "Message 1", ...)</li>
@@ -97,25 +344,500 @@ public class Producer {
      *
      * <h3>Message Distribution:</h3>
      * <p>Messages are distributed across topic partitions based on the key hash,
-     * ensuring even distribution when multiple partitions are configured.</p>
+     * ensuring even distribution when multiple partitions are configured. With another
+     * {@code partitioning} the pipelined mode chooses each partition itself, from a
+     * precomputed table of the same placement or by filling one partition's batch at a
+     * time. Acknowledged records and bytes per partition are logged with the run
+     * summary.</p>
+     *
+     * <h3>Send Modes:</h3>
+     * <p>In {@link SendMode#PIPELINED} mode the returned futures are tracked: sends block
+     * while the in-flight window is full, completion callbacks count acknowledgements and
+     * failures, and the method only returns after a final flush. The reported throughput
+     * is therefore acknowledged records per second. In {@link SendMode#FIRE_AND_FORGET}
+     * mode the futures are ignored, as in the original implementation.</p>
+     *
+     * <p>When {@code producerThreads} is greater than one, the pipelined mode hands the run
+     * to the {@link ParallelProducerEngine}, which splits the keys across worker threads.
+     * It does the same, for any number of threads, when {@code transactional} is enabled:
+     * each worker then commits its records in transactions of {@code transactionRecords}
+     * records or {@code transactionTime}, for exactly-once delivery.</p>
+     *
+     * <h3>Sessions:</h3>
+     * <p>With {@code sessions} set, the pipelined mode hands the run to the
+     * {@link SessionSimulator} instead: that many clients, each with its own key and event
+     * counter, send after their own think times. The rate then follows from the number of
+     * sessions and the think time, so {@code targetRate} and {@code loadProfile} are
+     * ignored, as are {@code producerThreads} and {@code transactional}.</p>
+     *
+     * <h3>Fan-Out:</h3>
+     * <p>With {@code fanOut.topics} set, the pipelined mode hands the run to the
+     * {@link FanOutProducer} instead of sending to {@code topic}: every topic gets its
+     * weighted share of {@code numberOfEvents}, with its own payloads, through the one
+     * auto-configured producer. Pacing and the run limit apply to all topics together;
+     * {@code sessions}, {@code partitioning}, {@code producerThreads} and
+     * {@code transactional} are ignored. Latency is reported per topic.</p>
+     *
+     * <h3>Encoding:</h3>
+     * <p>With {@link RecordEncoding#ASCII} the pipelined mode counts with a primitive
+     * {@code long} and writes each record into reused byte arrays, so no objects are
+     * created per record by the generator itself. Per-message progress is then logged at
+     * DEBUG level rather than INFO to keep the loop allocation-free. {@link RecordEncoding#COMPACT}
+     * does the same in the binary {@code CompactRecordFormat}, which takes fewer bytes per
+     * record on the wire; consumers read it with the {@code CompactRecordDeserializer}. The
+     * run summary reports key and value bytes per record against the string format, and the
+     * bytes sent to the brokers when they were sent through the auto-configured producer.</p>
+     *
+     * <h3>Payloads:</h3>
+     * <p>With a {@code payloadGenerator} other than {@code sequential}, the values are
+     * generated into a corpus before the run starts and cycled through while sending, so
+     * value generation costs nothing at send time. Keys follow {@code keyCardinality} and
+     * {@code keySkew}. Generated records are {@code byte[]} and ignore
+     * {@code recordEncoding}.</p>
+     *
+     * <h3>Replay:</h3>
+     * <p>With {@code replayFile} set, the pipelined mode sends the records of that capture
+     * file in order on a single thread, read through a memory-mapped window. With
+     * {@code replaySpeed} above 0 the records keep their original inter-arrival times
+     * scaled by the speed; with 0 they are paced like generated records. The run ends at
+     * the end of the file unless {@code numberOfEvents} or {@code runDuration} ends it
+     * first.</p>
+     *
+     * <h3>Checkpoints:</h3>
+     * <p>With {@code checkpointFile} set, the pipelined mode keeps, for the single thread or
+     * each worker, the highest sequence below which every record has been acknowledged, and
+     * a background thread writes these watermarks to the small memory-mapped file every
+     * {@code checkpointInterval}. When the same run is started again after a crash or a
+     * stop, each thread skips the records below its watermark and the log reports how many
+     * were skipped and the most that can be sent twice, which
+     * {@code checkpointMaxDuplicates} bounds. Transactional, session, fan-out, replay and
+     * spooled runs are not checkpointed, nor are chunked ones.</p>
+     *
+     * <h3>Large Messages:</h3>
+     * <p>With {@code chunkBytes} set, the single-threaded pipelined mode sends generated
+     * values larger than {@code chunkBytes} as several records of at most that size, each a
+     * view of its range of the value, with headers that let a {@code ChunkReassembler} put
+     * them back together; see {@link MessageChunker}. Every chunk counts as a record in the
+     * statistics, the in-flight window and the latency percentiles.</p>
+     *
+     * <h3>Pacing:</h3>
+     * <p>When {@code targetRate} or {@code loadProfile} is set, the pipelined mode releases
+     * records through a {@link RatePacer} and logs intended versus achieved rate every
+     * second. The run stops when {@code numberOfEvents} records have been sent, when
+     * {@code runDuration} has elapsed, or when the profile ends, whichever comes first.</p>
+     *
+     * <h3>Latency:</h3>
+     * <p>The pipelined mode measures each record's latency from the time it was intended to
+     * be sent: its slot in the pacing schedule, or the moment the loop reached it in an
+     * unpaced run. Stalls of the generator therefore show up in the percentiles instead of
+     * being hidden by coordinated omission. The overall percentiles are logged with the run
+     * summary.</p>
      *
      * <h3>Error Handling:</h3>
      * <p>The KafkaTemplate handles retries and error scenarios automatically based on
-     * the producer configuration. Failed messages will be retried according to the
-     * configured retry policy.</p>
-     *
-     * <h3>Performance Considerations:</h3>
-     * <p>This implementation sends messages synchronously in a loop. For high-throughput
-     * scenarios, consider implementing asynchronous sending with callbacks or batching.</p>
+     * the producer configuration. Records that still fail are counted and the first
+     * failure is logged in the run summary.</p>
      *
+     * @return statistics for the run
      * @throws org.springframework.kafka.KafkaException if there are issues connecting to Kafka
      *         or sending messages after all retry attempts are exhausted
      */
-    public void send() {
-        logger.info("Sending: " + numEvents);
-        for (Integer ii = 0; ii < numEvents; ii++) {
+    public SendStatistics send() {
+        return send(0, numEvents);
+    }
+
+    /**
+     * Sends a range of the sequence numbers, and therefore keys, of the configured run, as
+     * {@link #send()} does for all of them. The instances of a coordinated group each send
+     * their own range; see {@link #sendsKeyShards()} for the runs that can be divided.
+     *
+     * @param firstRecord sequence number of the first record
+     * @param records     number of records to send
+     * @return statistics for the run
+     * @throws IllegalArgumentException if the range does not start at 0 and the run cannot
+     *                                  be divided
+     */
+    public SendStatistics send(long firstRecord, long records) {
+        if (firstRecord != 0 && !sendsKeyShards()) {
+            throw new IllegalArgumentException("Sessions, fan-out and replay runs cannot send a range of records");
+        }
+        logger.info("Sending: " + records + (firstRecord > 0 ? " from " + firstRecord : ""));
+        SendStatistics statistics = new SendStatistics();
+        SendLatencyRecorder latency = latencyRecorders.forTopic(topicName);
+        PartitionCounts partitionCounts = null;
+        double wireBefore = outgoingBytes();
+        statistics.start();
+        if (sendMode == SendMode.FIRE_AND_FORGET) {
+            sendFireAndForget(statistics, firstRecord, records);
+        } else {
+            latency.reset();
+            partitionCounts = sendPipelined(statistics, latency, new RunLimit(firstRecord, records,
+                    runDuration.toNanos()));
+        }
+        statistics.finish();
+        logger.info(statistics.summary());
+        if (sendMode != SendMode.FIRE_AND_FORGET) {
+            if (!isFanOut()) {
+                logger.info(latency.summary());
+            }
+            logger.info(recordSizeReport(statistics, wireBefore).summary());
+        }
+        if (partitionCounts != null && partitionCounts.partitions() > 0) {
+            logger.info(partitionCounts.summary());
+        }
+        if (statistics.getFirstFailure() != null) {
+            logger.warn("First send failure", statistics.getFirstFailure());
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns whether the configured run sends the numbered "Message N" records that a
+     * {@code StreamsVerifier} can check: the {@code sequential} generator, without sessions,
+     * fan-out or a replay file.
+     *
+     * @return {@code true} if every record value carries its sequence number
+     */
+    public boolean sendsSequence() {
+        if (sendMode == SendMode.FIRE_AND_FORGET) {
+            return true;
+        }
+        return !StringUtils.hasText(replayFile) && !sessionSimulator.isEnabled() && !fanOutProducer.isEnabled()
+                && WorkloadFactory.SEQUENTIAL.equals(workloadFactory.defaults().getPayloadGenerator());
+    }
+
+    /**
+     * Returns whether the configured run is sent by one thread, so that each partition
+     * receives its sequence numbers in increasing order unless the client reorders them.
+     *
+     * @return {@code true} unless {@code producerThreads} is above one in pipelined mode
+     */
+    public boolean sendsInOrder() {
+        return sendMode == SendMode.FIRE_AND_FORGET || !parallelEngine.isParallel();
+    }
+
+    /**
+     * Returns whether the configured run can be divided into ranges of sequence numbers, so
+     * that instances sending different ranges send different records: every run except
+     * those of sessions, fan-out and replay, which have sequences of their own.
+     *
+     * @return {@code true} if {@link #send(long, long)} sends the given range
+     */
+    public boolean sendsKeyShards() {
+        return sendMode == SendMode.FIRE_AND_FORGET || !StringUtils.hasText(replayFile)
+                && !sessionSimulator.isEnabled() && !fanOutProducer.isEnabled();
+    }
+
+    /**
+     * @return the configured {@code numberOfEvents}
+     */
+    public long getNumberOfEvents() {
+        return numEvents;
+    }
+
+    /**
+     * Returns whether the configured run is sent to the fan-out topics rather than
+     * {@code topic}, so that callers preparing the run know which topics it writes.
+     *
+     * @return {@code true} if the pipelined mode sends the fan-out topics
+     */
+    public boolean sendsFanOut() {
+        return isFanOut();
+    }
+
+    /**
+     * @return {@code true} if the pipelined mode sends the fan-out topics rather than
+     *         {@code topic}; a replay file takes precedence
+     */
+    private boolean isFanOut() {
+        return sendMode != SendMode.FIRE_AND_FORGET && fanOutProducer.isEnabled()
+                && !StringUtils.hasText(replayFile);
+    }
+
+    /**
+     * Original send loop: the futures returned by the template are ignored.
+     *
+     * @param statistics  counters for the run
+     * @param firstRecord sequence number of the first record
+     * @param records     number of records to send
+     */
+    private void sendFireAndForget(SendStatistics statistics, long firstRecord, long records) {
+        for (Long ii = firstRecord; ii < firstRecord + records; ii++) {
             this.kafkaTemplate.send(topicName, ii.toString(), "Message " + ii.toString());
+            statistics.recordSent();
             logger.info("Sending " + ii);
         }
     }
+
+    /**
+     * Pipelined send loop bounded by an {@link InFlightWindow}.
+     *
+     * @param statistics counters for the run
+     * @param latency    latency histograms for the topic
+     * @param limit      sequence numbers and duration of the run
+     * @return the per-partition counts of the run
+     */
+    private PartitionCounts sendPipelined(SendStatistics statistics, SendLatencyRecorder latency, RunLimit limit) {
+        InFlightWindow window = new InFlightWindow(maxInFlightRecords, maxInFlightBytes);
+        boolean replay = StringUtils.hasText(replayFile);
+        boolean fanOut = isFanOut();
+        Workload workload = replay || fanOut ? null : workloadFactory.create(null);
+        boolean sessions = sessionSimulator.isEnabled() && !replay && !fanOut;
+        if (fanOut) {
+            warnIgnoredByFanOut();
+        }
+        PartitionPlan plan = fanOut ? null : createPartitionPlan(workload, replay, sessions);
+        PartitionCounts partitionCounts = plan == null ? null : plan.getCounts();
+        RatePacer pacer = sessions ? null : createPacer();
+        if (sessions && (targetRate > 0 || StringUtils.hasText(loadProfile))) {
+            logger.warn("Sessions set their own pace; targetRate and loadProfile are ignored");
+        }
+        boolean spooled = spools.isEnabled() && !fanOut && !sessions
+                && (replay || !(parallelEngine.isParallel() || parallelEngine.isTransactional()));
+        if (spools.isEnabled() && !spooled) {
+            logger.warn("Only the single-threaded pipelined mode spools records; spoolDir is ignored");
+        }
+        boolean chunked = chunker.isEnabled() && workload != null && !sessions && !spooled
+                && !parallelEngine.isParallel() && !parallelEngine.isTransactional();
+        if (chunker.isEnabled() && !chunked) {
+            logger.warn("Only single-threaded runs of generated payloads that are not spooled chunk large values; "
+                    + "chunkBytes is ignored");
+        }
+        boolean checkpointed = checkpoints.isEnabled() && !fanOut && !sessions && !replay && !spooled && !chunked
+                && !parallelEngine.isTransactional();
+        if (checkpoints.isEnabled() && !checkpointed) {
+            logger.warn("Transactional, session, fan-out, replay, spooled and chunked runs are not checkpointed; "
+                    + "checkpointFile is ignored");
+        }
+        SpoolingSender spooling = null;
+        RunCheckpoint checkpoint = null;
+        limit.start();
+        if (pacer != null) {
+            pacer.start();
+        }
+        try (RateReporter reporter = pacer == null ? null : new RateReporter(pacer, statistics)) {
+            if (fanOut) {
+                fanOutProducer.send(limit, pacer, recordEncoding, window, statistics, drainTimeoutMs);
+                return null;
+            }
+            if (sessions) {
+                sessionSimulator.send(topicName, limit, workload, window, statistics, latency, plan, drainTimeoutMs);
+                return partitionCounts;
+            }
+            if ((parallelEngine.isParallel() || parallelEngine.isTransactional()) && !replay) {
+                parallelEngine.send(topicName, limit, pacer, recordEncoding, workload, window, statistics, latency,
+                        plan, drainTimeoutMs, checkpointed ? checkpoints : null);
+                return partitionCounts;
+            }
+            PipelinedSender<Object, Object> sender;
+            if (spooled) {
+                PassThroughSerializer.checkConfigured(kafkaTemplate);
+                spooling = spools.open(topicName, kafkaTemplate, window, statistics, latency, partitionCounts);
+                sender = spooling;
+            } else if (checkpointed) {
+                checkpoint = checkpoints.open(runIdentity(limit), 1, limit.getMaxRecords());
+                sender = new PipelinedSender<>(kafkaTemplate, window, statistics, latency, partitionCounts,
+                        checkpoint.lane(0));
+            } else {
+                sender = new PipelinedSender<>(kafkaTemplate, window, statistics, latency, partitionCounts);
+            }
+            long first = limit.getFirstRecord() + (checkpoint == null ? 0 : checkpoint.lane(0).getResumeOrdinal());
+            PartitionSelector selector = plan.selector(0);
+            if (replay) {
+                replay(sender, limit, pacer);
+            } else {
+                if (chunked) {
+                    PassThroughSerializer.checkConfiguredForChunks(kafkaTemplate);
+                } else if (workload != null || recordEncoding != RecordEncoding.STRING) {
+                    PassThroughSerializer.checkConfigured(kafkaTemplate);
+                }
+                RecordBuilder builder = RecordBuilder.create(recordEncoding, workload, 0);
+                boolean logEach = workload == null && recordEncoding == RecordEncoding.STRING;
+                for (long seq = first; limit.allows(seq); seq++) {
+                    long intended = pacer == null ? System.nanoTime() : pacer.acquire();
+                    if (pacer != null && intended == RatePacer.FINISHED) {
+                        break;
+                    }
+                    builder.build(seq);
+                    Integer partition = selector == null ? null
+                            : selector.partition(builder.getKeyNumber(), builder.getSize());
+                    if (chunked) {
+                        chunker.send(sender, topicName, partition, (byte[]) builder.getKey(),
+                                (byte[]) builder.getValue(), intended);
+                    } else {
+                        sender.send(topicName, partition, builder.getKey(), builder.getValue(), builder.getSize(),
+                                intended);
+                    }
+                    if (logEach) {
+                        logger.info("Sending " + seq);
+                    } else if (logger.isDebugEnabled()) {
+                        logger.debug("Sending " + seq);
+                    }
+                }
+            }
+            if (!sender.drain(drainTimeoutMs)) {
+                logger.warn("Timed out after " + drainTimeoutMs + " ms with "
+                        + window.inFlightRecords() + " records still unacknowledged");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted with " + window.inFlightRecords() + " records in flight");
+        } finally {
+            if (spooling != null) {
+                closeSpool(spooling);
+            }
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        }
+        return partitionCounts;
+    }
+
+    /**
+     * Describes the single-threaded run whose records a checkpoint covers.
+     *
+     * @param limit sequence numbers of the run
+     * @return the identity of the run
+     */
+    private String runIdentity(RunLimit limit) {
+        return "topic " + topicName + ", records " + limit.getFirstRecord() + ".."
+                + (limit.getFirstRecord() + limit.getMaxRecords() - 1) + ", single thread";
+    }
+
+    /**
+     * Closes the spool of a run that ended early; after a drain this does nothing. The
+     * spool's records stay on disk for the next run.
+     *
+     * @param spooling sender of the run
+     */
+    private void closeSpool(SpoolingSender spooling) {
+        boolean interrupted = Thread.interrupted();
+        try {
+            spooling.close();
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Logs the settings a fan-out run does not apply.
+     */
+    private void warnIgnoredByFanOut() {
+        if (sessionSimulator.isEnabled()) {
+            logger.warn("Fan-out sends a weighted sequence to each topic; sessions is ignored");
+        }
+        if (partitioning != Partitioning.DEFAULT) {
+            logger.warn("Fan-out leaves placement to the producer's partitioner; partitioning "
+                    + partitioning + " is ignored");
+        }
+        if (parallelEngine.isParallel() || parallelEngine.isTransactional()) {
+            logger.warn("Fan-out runs on fanOut.threads; producerThreads and transactional are ignored");
+        }
+    }
+
+    /**
+     * Builds the record size report of a pipelined run. Wire bytes are only reported when
+     * every record went through the auto-configured producer.
+     *
+     * @param statistics counters of the finished run
+     * @param wireBefore the producer's outgoing bytes before the run, or -1
+     * @return the report
+     */
+    private RecordSizeReport recordSizeReport(SendStatistics statistics, double wireBefore) {
+        boolean replay = StringUtils.hasText(replayFile);
+        boolean engine = (parallelEngine.isParallel() || parallelEngine.isTransactional())
+                && !replay && !sessionSimulator.isEnabled() && !isFanOut();
+        double wireAfter = outgoingBytes();
+        double wire = wireBefore < 0 || wireAfter < 0 || (engine && !parallelEngine.usesSharedProducer())
+                ? -1 : wireAfter - wireBefore;
+        return new RecordSizeReport(recordEncoding, statistics.getSent(), statistics.getSentBytes(),
+                sendsSequence(), wire, statistics.getElapsedMillis());
+    }
+
+    /**
+     * Reads the auto-configured producer's total outgoing bytes.
+     *
+     * @return the byte count, or -1 if the producer does not report it
+     */
+    private double outgoingBytes() {
+        try {
+            return ProducerTuner.outgoingBytes(kafkaTemplate);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Builds the partitioning of a pipelined run. The table of the {@code table} strategy
+     * covers the run's key numbers: the session numbers when simulating sessions,
+     * otherwise {@code numberOfEvents} for unique keys or {@code keyCardinality}.
+     *
+     * @param workload generated payloads, or {@code null} for the original records
+     * @param replay   whether the run replays a capture, which keeps the default partitioner
+     * @param sessions whether the run simulates sessions
+     * @return the plan
+     */
+    private PartitionPlan createPartitionPlan(Workload workload, boolean replay, boolean sessions) {
+        Partitioning strategy = partitioning;
+        if (replay && strategy != Partitioning.DEFAULT) {
+            logger.warn("Replay keeps the captured keys' placement; partitioning " + strategy + " is ignored");
+            strategy = Partitioning.DEFAULT;
+        }
+        int partitions = kafkaTemplate.partitionsFor(topicName).size();
+        long cardinality = workload == null ? 0 : workload.getKeys().getCardinality();
+        long keys = sessions ? sessionSimulator.getSessions() : cardinality > 0 ? cardinality : numEvents;
+        PartitionPlan plan = PartitionPlan.create(strategy, partitions, keys,
+                partitionTableMaxKeys, PartitionPlan.batchSize(kafkaTemplate));
+        if (strategy != Partitioning.DEFAULT) {
+            logger.info("Using " + plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Sends the records of the configured capture file.
+     *
+     * @param sender sender bounding the records in flight
+     * @param limit  stop condition
+     * @param pacer  pacer used when {@code replaySpeed} is 0, or {@code null}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void replay(PipelinedSender<Object, Object> sender, RunLimit limit, RatePacer pacer)
+            throws InterruptedException {
+        PassThroughSerializer.checkConfigured(kafkaTemplate);
+        if (parallelEngine.isParallel()) {
+            logger.warn("Replaying on a single thread to keep the order of the capture; producerThreads is ignored");
+        }
+        if (parallelEngine.isTransactional()) {
+            logger.warn("Replay does not use transactions; transactional is ignored");
+        }
+        try (CaptureReader reader = CaptureReader.open(Paths.get(replayFile))) {
+            logger.info("Replaying " + reader.size() / 1024 + " KiB from " + replayFile
+                    + (replaySpeed > 0 ? " at " + replaySpeed + "x the original timing" : ""));
+            new CaptureReplayer(topicName, replaySpeed).replay(reader, sender, limit, pacer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay " + replayFile, e);
+        }
+    }
+
+    /**
+     * Builds the pacer for the configured {@code loadProfile} or {@code targetRate}.
+     *
+     * @return the pacer, or {@code null} if the run is not paced
+     */
+    private RatePacer createPacer() {
+        LoadProfile profile;
+        if (StringUtils.hasText(loadProfile)) {
+            profile = LoadProfile.parse(loadProfile);
+        } else if (targetRate > 0) {
+            profile = LoadProfile.constant(targetRate);
+        } else {
+            return null;
+        }
+        return new RatePacer(profile, pacingBurst, runDuration.toNanos());
+    }
 }
@@ -0,0 +1,27 @@
+package io.nadkarni.streamsproducer;
+
+/**
+ * Strategy used by {@link Producer} to hand records to Kafka.
+ *
+ * <p>Selected through the {@code sendMode} property in application.yaml.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public enum SendMode {
+
+    /**
+     * Original behaviour: every record is passed to the {@code KafkaTemplate} and the
+     * returned future is ignored. Nothing bounds the number of outstanding records and
+     * the run ends as soon as the last record is buffered.
+     */
+    FIRE_AND_FORGET,
+
+    /**
+     * Records are sent asynchronously through a bounded {@link InFlightWindow}. Completion
+     * callbacks count acknowledgements and failures, and the run only ends after a final
+     * flush once every record has been acknowledged or has failed.
+     */
+    PIPELINED
+}
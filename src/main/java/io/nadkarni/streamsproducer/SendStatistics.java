@@ -0,0 +1,163 @@
+package io.nadkarni.streamsproducer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing the progress and outcome of a single production run.
+ *
+ * <p>Records are counted three times: when they are handed to the Kafka client
+ * ({@link #recordSent()}), and when their completion callback reports either an
+ * acknowledgement ({@link #recordAcked()}) or a failure ({@link #recordFailed(Throwable)}).
+ * Throughput is reported in <em>acknowledged</em> records per second, so a run is only
+ * as fast as the broker confirmed it to be.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>All counters are {@link LongAdder}s so that many sending threads and the client's
+ * I/O thread can update them without contention.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class SendStatistics {
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder sentBytes = new LongAdder();
+    private final LongAdder acked = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile long firstAckNanos;
+
+    /**
+     * Marks the start of the timed run.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        endNanos = 0;
+        firstAckNanos = 0;
+    }
+
+    /**
+     * Marks the end of the timed run, normally after the final flush has completed.
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * Counts one record handed to the Kafka client.
+     */
+    public void recordSent() {
+        sent.increment();
+    }
+
+    /**
+     * Counts one record handed to the Kafka client along with its key and value bytes.
+     *
+     * @param bytes size of the record's key and value
+     */
+    public void recordSent(int bytes) {
+        sent.increment();
+        sentBytes.add(bytes);
+    }
+
+    /**
+     * Counts one record acknowledged by the broker.
+     */
+    public void recordAcked() {
+        acked.increment();
+        if (firstAckNanos == 0) {
+            firstAckNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Counts one record that could not be delivered.
+     *
+     * @param cause the reason reported by the client; the first one is retained
+     */
+    public void recordFailed(Throwable cause) {
+        failed.increment();
+        firstFailure.compareAndSet(null, cause);
+    }
+
+    /**
+     * @return number of records handed to the client
+     */
+    public long getSent() {
+        return sent.sum();
+    }
+
+    /**
+     * @return key and value bytes of the records handed to the client, for the records
+     *         counted with {@link #recordSent(int)}
+     */
+    public long getSentBytes() {
+        return sentBytes.sum();
+    }
+
+    /**
+     * @return number of records acknowledged by the broker
+     */
+    public long getAcked() {
+        return acked.sum();
+    }
+
+    /**
+     * Returns when the first record of the run was acknowledged. Concurrent first
+     * acknowledgements may each set it, so it is accurate to within their spread.
+     *
+     * @return the {@link System#nanoTime()} of the first acknowledgement, or 0 if none
+     */
+    public long getFirstAckNanos() {
+        return firstAckNanos;
+    }
+
+    /**
+     * @return number of records that failed
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * @return the first failure reported during the run, or {@code null} if none
+     */
+    public Throwable getFirstFailure() {
+        return firstFailure.get();
+    }
+
+    /**
+     * Returns the elapsed time of the run; while the run is in progress this is the time
+     * since {@link #start()}.
+     *
+     * @return elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * @return acknowledged records per second over the elapsed time
+     */
+    public double getAckedPerSecond() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0.0 : getAcked() * 1000.0 / elapsed;
+    }
+
+    /**
+     * Formats a one-line summary suitable for logging at the end of a run.
+     *
+     * @return human readable summary
+     */
+    public String summary() {
+        return String.format("Acknowledged %d of %d records (%d failed) in %d ms: %.1f records/sec",
+                getAcked(), getSent(), getFailed(), getElapsedMillis(), getAckedPerSecond());
+    }
+}
@@ -1,5 +1,18 @@
 package io.nadkarni.streamsproducer;
 
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.fanout.TopicSpec;
+import io.nadkarni.streamsproducer.group.GroupMember;
+import io.nadkarni.streamsproducer.group.GroupShard;
+import io.nadkarni.streamsproducer.group.LoadGroup;
+import io.nadkarni.streamsproducer.launch.HeadlessConfiguration;
+import io.nadkarni.streamsproducer.launch.StartupClock;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.replay.TopicCapture;
+import io.nadkarni.streamsproducer.tuning.ProducerTuner;
+import io.nadkarni.streamsproducer.verification.StreamsVerifier;
+import io.nadkarni.streamsproducer.warmup.PartitionPlanner;
+import io.nadkarni.streamsproducer.warmup.StartupWarmUp;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +22,11 @@ import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Paths;
 
 /**
  * Main Spring Boot application class for the Kafka Producer demonstration.
@@ -26,6 +44,22 @@ import org.springframework.context.annotation.Bean;
  *   <li>Configurable number of messages to produce</li>
  *   <li>Simple string message format with sequential keys and values</li>
  *   <li>Comprehensive logging of message production progress</li>
+ *   <li>Run-control REST API ({@code /runs}) for starting, changing and stopping further
+ *       runs while the application keeps its producers warm</li>
+ *   <li>Capture of a topic into a file that the producer can replay
+ *       ({@code captureFile})</li>
+ *   <li>Producer configuration tuning over a grid of batching, compression and
+ *       acknowledgement settings ({@code tune})</li>
+ *   <li>Verification of the startup run by a Kafka Streams topology that counts missing,
+ *       duplicated and out-of-order records ({@code verify})</li>
+ *   <li>Weighted fan-out to several provisioned topics from one producer
+ *       ({@code fanOut})</li>
+ *   <li>Warm-up of topic metadata and broker connections before the startup run, and a
+ *       partition-count planner for a target rate ({@code warmUp}, {@code partitionPlanner})</li>
+ *   <li>Lean headless launch without a web server and with lazy beans ({@code headless}
+ *       profile), reporting the time from JVM launch to the first acknowledged record</li>
+ *   <li>Coordinated runs of several instances, each sending its own range of the keys
+ *       ({@code groupSize})</li>
  * </ul>
  *
  * <h3>Configuration Properties:</h3>
@@ -33,6 +67,19 @@ import org.springframework.context.annotation.Bean;
  *   <li>{@code topic} - Name of the Kafka topic to create and produce to</li>
  *   <li>{@code numPartitions} - Number of partitions for the topic</li>
  *   <li>{@code replicationFactor} - Replication factor for the topic</li>
+ *   <li>{@code runOnStartup} - Whether the configured run is executed at startup</li>
+ *   <li>{@code captureFile} / {@code captureMaxRecords} - Capture the topic into a file
+ *       instead of sending at startup</li>
+ *   <li>{@code tune} - Run the producer tuner instead of sending at startup</li>
+ *   <li>{@code verify} - Consume and check the startup run while it is sent</li>
+ *   <li>{@code fanOut} - Topics, weights, payloads and partition counts of a multi-topic
+ *       run, created at startup</li>
+ *   <li>{@code warmUp} - Wait for the topic and the producer's metadata before the
+ *       startup run</li>
+ *   <li>{@code partitionPlanner} - Recommend or apply the partition count a target rate
+ *       needs</li>
+ *   <li>{@code groupSize} / {@code groupId} - Join a group of instances that send the
+ *       startup run together</li>
  * </ul>
  *
  * @author Utkarsh Nadkarni
@@ -73,19 +120,119 @@ public class StreamsProducerApplication implements ApplicationRunner {
     @Value(("${replicationFactor}"))
     private Short replicationFactor;
 
+    /**
+     * Whether the configured run is executed once the application has started. When
+     * disabled, runs are only started through the run-control API.
+     * Configured via the {@code runOnStartup} property in application.yaml.
+     * Default value: true
+     */
+    @Value("${runOnStartup:true}")
+    private boolean runOnStartup;
+
+    /**
+     * File the topic is captured into at startup, instead of running the producer.
+     * Configured via the {@code captureFile} property in application.yaml.
+     * Default value: empty (no capture)
+     */
+    @Value("${captureFile:}")
+    private String captureFile = "";
+
+    /**
+     * Maximum number of records captured; 0 captures the whole topic.
+     * Configured via the {@code captureMaxRecords} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${captureMaxRecords:0}")
+    private long captureMaxRecords;
+
+    /**
+     * Whether the producer tuner runs at startup instead of the configured run.
+     * Configured via the {@code tune} property in application.yaml.
+     * Default value: false
+     */
+    @Value("${tune:false}")
+    private boolean tune;
+
     /**
      * The Producer service responsible for sending messages to Kafka.
      * Injected via constructor dependency injection.
      */
     private final Producer producer;
 
+    /**
+     * The service that writes a topic into a capture file.
+     */
+    private final TopicCapture topicCapture;
+
+    /**
+     * The service that sweeps producer settings.
+     */
+    private final ProducerTuner producerTuner;
+
+    /**
+     * The service that consumes and checks the startup run.
+     */
+    private final StreamsVerifier streamsVerifier;
+
+    /**
+     * The service that provisions and sends the fan-out topics.
+     */
+    private final FanOutProducer fanOutProducer;
+
+    /**
+     * The service that readies the topic and the producer before the startup run.
+     */
+    private final StartupWarmUp startupWarmUp;
+
+    /**
+     * The service that checks the topic's partition count against the target rate.
+     */
+    private final PartitionPlanner partitionPlanner;
+
+    /**
+     * The service that joins this instance to a coordinated group.
+     */
+    private final LoadGroup loadGroup;
+
+    /**
+     * The per-topic latency histograms reported to the group.
+     */
+    private final SendLatencyRecorders latencyRecorders;
+
+    /**
+     * The environment, whose active profiles select the headless mode.
+     */
+    private final Environment environment;
+
     /**
      * Constructor for dependency injection.
      *
-     * @param producer The Producer service that will handle message production to Kafka
+     * @param producer        The Producer service that will handle message production to Kafka
+     * @param topicCapture    The service that captures a topic for later replay
+     * @param producerTuner   The service that sweeps producer settings
+     * @param streamsVerifier The service that verifies delivery of the startup run
+     * @param fanOutProducer  The service that provisions and sends the fan-out topics
+     * @param startupWarmUp   The service that readies the topic and the producer before the startup run
+     * @param partitionPlanner The service that checks the topic's partition count against the target rate
+     * @param loadGroup       The service that joins this instance to a coordinated group
+     * @param latencyRecorders The per-topic latency histograms reported to the group
+     * @param environment     The environment whose active profiles select the headless mode
      */
-    public StreamsProducerApplication(Producer producer) {
+    public StreamsProducerApplication(Producer producer, TopicCapture topicCapture, ProducerTuner producerTuner,
+                                      StreamsVerifier streamsVerifier, FanOutProducer fanOutProducer,
+                                      StartupWarmUp startupWarmUp, PartitionPlanner partitionPlanner,
+                                      LoadGroup loadGroup, SendLatencyRecorders latencyRecorders,
+                                      Environment environment) {
         this.producer = producer;
+        this.topicCapture = topicCapture;
+        this.producerTuner = producerTuner;
+        this.streamsVerifier = streamsVerifier;
+        this.fanOutProducer = fanOutProducer;
+        this.startupWarmUp = startupWarmUp;
+        this.partitionPlanner = partitionPlanner;
+        this.loadGroup = loadGroup;
+        this.latencyRecorders = latencyRecorders;
+        this.environment = environment;
     }
 
     /**
@@ -128,13 +275,124 @@ public class StreamsProducerApplication implements ApplicationRunner {
      * is fully initialized. It triggers the message production process by calling the
      * {@link Producer#send()} method.</p>
      *
-     * <p>The application will terminate after all messages have been sent successfully.</p>
+     * <p>The application keeps running after the startup run so that further runs can be
+     * started through the run-control API ({@code /runs}) with warm producers.</p>
+     *
+     * <p>When {@code captureFile} is set, the topic is captured into that file instead,
+     * ready to be replayed with {@code replayFile}. When {@code tune} is enabled, the
+     * {@link ProducerTuner} runs its trials against the topic instead.</p>
+     *
+     * <p>When {@code verify} is enabled, the {@link StreamsVerifier} consumes the topic
+     * while the startup run is sent and reports afterwards whether every record arrived
+     * exactly once, and at what rate and latency.</p>
+     *
+     * <p>When {@code fanOut.topics} is set, those topics are created, or given more
+     * partitions, first, and the startup run is sent to them instead of {@code topic}.</p>
+     *
+     * <p>When {@code warmUp} is enabled, the startup run waits for its topics to be led and
+     * known to the producer, and sends any {@code warmUpRecords}, before it starts. The
+     * {@link PartitionPlanner} checks the topic's partition count before the run when
+     * {@code plannerPartitionRate} is set, and after it from the measured rate otherwise.</p>
+     *
+     * <p>When {@code groupSize} is set, this instance first joins its group through the
+     * {@link LoadGroup}, sends only its own range of the keys once every member is ready,
+     * and logs the group's cluster-wide throughput and latency afterwards. Only the first
+     * member runs the {@link PartitionPlanner}, before the run, and verification is
+     * skipped.</p>
+     *
+     * <p>After the startup run, the time from JVM launch until the context was ready and
+     * until the first record was acknowledged is logged. In the {@code headless} profile
+     * there is no run-control API, and the application exits after the startup run.</p>
      *
      * @param args Application arguments passed from the command line
      * @throws Exception If any error occurs during message production
      */
     @Override
     public void run(ApplicationArguments args) throws Exception {
-        producer.send();
+        long readyMillis = StartupClock.millisSinceLaunch(System.nanoTime());
+        if (fanOutProducer.isEnabled()) {
+            fanOutProducer.provision();
+        }
+        if (tune) {
+            producerTuner.tune();
+        } else if (StringUtils.hasText(captureFile)) {
+            topicCapture.capture(topicName, Paths.get(captureFile), captureMaxRecords);
+        } else if (runOnStartup) {
+            GroupMember member = null;
+            if (loadGroup.isEnabled()) {
+                if (!producer.sendsKeyShards()) {
+                    throw new IllegalStateException("A group divides the keys of the run; sessions, fan-out and "
+                            + "replay runs cannot be sent by a group");
+                }
+                member = loadGroup.join(producer.getNumberOfEvents());
+            }
+            try {
+                sendStartupRun(readyMillis, member);
+            } finally {
+                if (member != null) {
+                    member.close();
+                }
+            }
+        } else if (environment.acceptsProfiles(Profiles.of(HeadlessConfiguration.PROFILE))) {
+            logger.info("runOnStartup is disabled and the headless mode has no /runs API; context ready after "
+                    + readyMillis + " ms");
+        } else {
+            logger.info("runOnStartup is disabled; waiting for runs to be started through /runs");
+        }
+    }
+
+    /**
+     * Sends the startup run, or this member's range of it, with the configured warm-up,
+     * planning and verification.
+     *
+     * @param readyMillis milliseconds from JVM launch until the context was ready
+     * @param member      this instance's membership in a group, or {@code null}
+     */
+    private void sendStartupRun(long readyMillis, GroupMember member) throws Exception {
+        boolean verifying = streamsVerifier.isEnabled() && producer.sendsSequence() && member == null;
+        if (streamsVerifier.isEnabled() && !verifying) {
+            logger.warn(member != null
+                    ? "Verification covers the records of a single instance; verify is ignored in a group"
+                    : "Verification needs the numbered records of the sequential generator; verify is ignored");
+        }
+        boolean fanOut = producer.sendsFanOut();
+        boolean planning = partitionPlanner.isEnabled() && !fanOut
+                && (member == null || member.getShard().getIndex() == 0);
+        if (partitionPlanner.isEnabled() && fanOut) {
+            logger.info("The partition planner covers topic only; it is skipped for the fan-out topics");
+        }
+        int plannedPartitions = planning ? partitionPlanner.planBeforeRun(topicName) : 0;
+        if (startupWarmUp.isEnabled()) {
+            if (fanOut) {
+                for (TopicSpec topic : fanOutProducer.getTopics()) {
+                    startupWarmUp.warmUp(topic.getName(), topic.getPartitions());
+                }
+            } else {
+                startupWarmUp.warmUp(topicName, Math.max(numPartitions, plannedPartitions));
+            }
+        }
+        if (verifying) {
+            streamsVerifier.start(topicName, producer.sendsInOrder());
+        }
+        SendStatistics statistics;
+        if (member != null) {
+            member.awaitStart();
+            GroupShard shard = member.getShard();
+            statistics = producer.send(shard.getFirst(), shard.getCount());
+        } else {
+            statistics = producer.send();
+        }
+        if (verifying) {
+            streamsVerifier.finish(statistics);
+        }
+        if (statistics.getFirstAckNanos() != 0) {
+            logger.info(StartupClock.report(readyMillis, StartupClock.millisSinceLaunch(
+                    statistics.getFirstAckNanos())));
+        }
+        if (member != null) {
+            logger.info(member.finish(statistics, latencyRecorders.forTopic(topicName).overallHistogram()).summary());
+        } else if (planning) {
+            partitionPlanner.planAfterRun(topicName, statistics);
+        }
     }
 }
@@ -0,0 +1,212 @@
+package io.nadkarni.streamsproducer.checkpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Small memory-mapped file holding the watermarks of a checkpointed run.
+ *
+ * <p>All numbers are big-endian. A header is followed by two slots of the same size, which
+ * are written in turn:</p>
+ * <pre>
+ * header:  int32 magic ("SPCK")  int32 version (1)  int32 lanes  int32 reserved
+ * slot:    int32 crc32c(rest of slot)  int32 complete  int64 sequence  int64 fingerprint  int64 writtenMillis
+ *          lanes x (int64 watermark  int64 frontier)
+ * </pre>
+ * <ul>
+ *   <li>{@code complete} - 1 once every record of the run has been acknowledged</li>
+ *   <li>{@code sequence} - number of the write; the valid slot with the higher one is
+ *       current</li>
+ *   <li>{@code fingerprint} - identifies the run the watermarks belong to</li>
+ *   <li>{@code watermark} - every record of the lane below it is acknowledged</li>
+ *   <li>{@code frontier} - records of the lane sent when the slot was written</li>
+ * </ul>
+ * <p>A write that is cut short by a crash fails its slot's checksum, and the other slot,
+ * which holds the previous write, is read instead. Each write is forced to the device, so
+ * the file is never further behind than one write.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class CheckpointFile implements Closeable {
+
+    /**
+     * The ASCII bytes {@code SPCK}.
+     */
+    static final int MAGIC = 0x5350434B;
+
+    /**
+     * Version written by this release.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    /**
+     * Size of a slot without its lanes.
+     */
+    private static final int SLOT_OVERHEAD = 2 * Integer.BYTES + 3 * Long.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapping;
+    private final int lanes;
+    private final CRC32C checksum = new CRC32C();
+
+    private CheckpointFile(FileChannel channel, int lanes) throws IOException {
+        this.channel = channel;
+        this.lanes = lanes;
+        this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(lanes));
+    }
+
+    /**
+     * Reads the current slot of a checkpoint file.
+     *
+     * @param path location of the file
+     * @return the last complete write, or {@code null} if the file does not exist, is empty
+     *         or holds no complete write
+     * @throws IOException           if the file cannot be read
+     * @throws IllegalStateException if the file is not a checkpoint file of this version
+     */
+    static State read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalStateException(path + " is not a checkpoint file");
+        }
+        int lanes = buffer.getInt(8);
+        if (lanes <= 0 || buffer.remaining() < fileSize(lanes)) {
+            return null;
+        }
+        State first = readSlot(buffer, HEADER_SIZE, lanes);
+        State second = readSlot(buffer, HEADER_SIZE + slotSize(lanes), lanes);
+        if (first == null || (second != null && second.sequence > first.sequence)) {
+            return second;
+        }
+        return first;
+    }
+
+    /**
+     * Opens a checkpoint file for writing, creating it if needed. The slots of a file with
+     * the same number of lanes are kept until they are overwritten; any other file is
+     * cleared first.
+     *
+     * @param path  location of the file
+     * @param lanes number of lanes of the run
+     * @return the open file
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static CheckpointFile open(Path path, int lanes) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            if (channel.size() != fileSize(lanes)) {
+                channel.truncate(0);
+            }
+            CheckpointFile file = new CheckpointFile(channel, lanes);
+            file.mapping.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, lanes);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the watermarks into the slot selected by the sequence number and forces the
+     * file to the device.
+     *
+     * @param sequence    number of the write, one higher than the previous one
+     * @param fingerprint identity of the run
+     * @param complete    whether every record of the run has been acknowledged
+     * @param watermarks  watermark of each lane
+     * @param frontiers   records sent by each lane
+     */
+    void write(long sequence, long fingerprint, boolean complete, long[] watermarks, long[] frontiers) {
+        int position = HEADER_SIZE + (int) (sequence & 1) * slotSize(lanes);
+        ByteBuffer slot = mapping.duplicate();
+        slot.position(position + Integer.BYTES);
+        slot.putInt(complete ? 1 : 0).putLong(sequence).putLong(fingerprint).putLong(System.currentTimeMillis());
+        for (int lane = 0; lane < lanes; lane++) {
+            slot.putLong(watermarks[lane]).putLong(frontiers[lane]);
+        }
+        slot.limit(slot.position()).position(position + Integer.BYTES);
+        checksum.reset();
+        checksum.update(slot);
+        mapping.putInt(position, (int) checksum.getValue());
+        mapping.force();
+    }
+
+    /**
+     * Closes the file; its mapping is released once it is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static State readSlot(ByteBuffer buffer, int position, int lanes) {
+        ByteBuffer slot = buffer.duplicate();
+        slot.limit(position + slotSize(lanes)).position(position + Integer.BYTES);
+        CRC32C crc = new CRC32C();
+        crc.update(slot.duplicate());
+        if (buffer.getInt(position) != (int) crc.getValue()) {
+            return null;
+        }
+        State state = new State(lanes);
+        state.complete = slot.getInt() == 1;
+        state.sequence = slot.getLong();
+        state.fingerprint = slot.getLong();
+        state.writtenMillis = slot.getLong();
+        for (int lane = 0; lane < lanes; lane++) {
+            state.watermarks[lane] = slot.getLong();
+            state.frontiers[lane] = slot.getLong();
+        }
+        return state;
+    }
+
+    private static int slotSize(int lanes) {
+        return SLOT_OVERHEAD + lanes * 2 * Long.BYTES;
+    }
+
+    private static int fileSize(int lanes) {
+        return HEADER_SIZE + 2 * slotSize(lanes);
+    }
+
+    /**
+     * Contents of one slot.
+     */
+    static final class State {
+
+        long sequence;
+        long fingerprint;
+        long writtenMillis;
+        boolean complete;
+        final long[] watermarks;
+        final long[] frontiers;
+
+        State(int lanes) {
+            watermarks = new long[lanes];
+            frontiers = new long[lanes];
+        }
+
+        int lanes() {
+            return watermarks.length;
+        }
+    }
+}
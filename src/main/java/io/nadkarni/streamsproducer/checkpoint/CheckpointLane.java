@@ -0,0 +1,203 @@
+package io.nadkarni.streamsproducer.checkpoint;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Acknowledgement watermark of the records one sender sends in a checkpointed run.
+ *
+ * <p>The sender numbers its records with consecutive ordinals, its first record being
+ * ordinal 0 of the run. Records are acknowledged out of order, so acknowledged ordinals
+ * ahead of the watermark are kept in a bitmap ring; the watermark is the lowest ordinal not
+ * yet acknowledged, and every ordinal below it has been acknowledged.</p>
+ *
+ * <h3>Failures:</h3>
+ * <p>A failed record pins the watermark at its ordinal: the watermark may still reach it,
+ * but never passes it, so a resumed run starts with that record and sends it again. The run
+ * goes on after a failure, as its statistics do, but the lane no longer waits for room,
+ * since every record after the failed one is sent again by a resumed run anyway.</p>
+ *
+ * <h3>Bounded Duplicates:</h3>
+ * <p>The sender may run at most {@code maxDuplicates} records ahead of the watermark last
+ * written to the checkpoint file; when it gets there, {@link #awaitRoom()} asks for a write
+ * and waits for it. Only records sent after that watermark are sent again by a resumed
+ * run, so a crash sends at most {@code maxDuplicates} records of each lane twice, unless a
+ * record of the lane failed.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>One thread sends. Completions may arrive on any thread and are serialized on the
+ * lane, which only the producer's I/O threads contend for.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class CheckpointLane {
+
+    /**
+     * How long a sender waits between checks for a written checkpoint.
+     */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RunCheckpoint checkpoint;
+    private final long resumeOrdinal;
+    private final long maxDuplicates;
+    private final long[] completed;
+    private final long mask;
+
+    /**
+     * Ordinal of the next record to send; written by the sending thread only.
+     */
+    private volatile long frontier;
+
+    /**
+     * Lowest ordinal not yet acknowledged.
+     */
+    private volatile long watermark;
+
+    /**
+     * Lowest failed ordinal, beyond which the watermark does not advance, or
+     * {@link Long#MAX_VALUE}; guarded by {@code this}.
+     */
+    private long pinned = Long.MAX_VALUE;
+
+    /**
+     * Number of failed records.
+     */
+    private volatile long failed;
+
+    /**
+     * Watermark of the last checkpoint written.
+     */
+    private volatile long persisted;
+
+    /**
+     * Creates a lane that continues after the given ordinal.
+     *
+     * @param checkpoint    checkpoint the lane belongs to
+     * @param resumeOrdinal watermark recovered from the checkpoint file, or 0
+     * @param maxDuplicates maximum number of records sent beyond the written watermark
+     */
+    CheckpointLane(RunCheckpoint checkpoint, long resumeOrdinal, long maxDuplicates) {
+        this.checkpoint = checkpoint;
+        this.resumeOrdinal = resumeOrdinal;
+        this.maxDuplicates = maxDuplicates;
+        long bits = Long.highestOneBit(Math.max(Long.SIZE, maxDuplicates - 1) << 1);
+        this.completed = new long[(int) (bits / Long.SIZE)];
+        this.mask = bits - 1;
+        this.frontier = resumeOrdinal;
+        this.watermark = resumeOrdinal;
+        this.persisted = resumeOrdinal;
+    }
+
+    /**
+     * Waits until the sender may send another record without exceeding the duplicate
+     * bound. Returns at once after a record of the lane has failed.
+     *
+     * @throws InterruptedException  if interrupted while waiting for a checkpoint write
+     * @throws IllegalStateException if the checkpoint can no longer be written
+     */
+    public void awaitRoom() throws InterruptedException {
+        while (frontier - persisted >= maxDuplicates && failed == 0) {
+            checkpoint.requestWrite();
+            LockSupport.parkNanos(this, PARK_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Takes the ordinal of the record about to be sent.
+     *
+     * @return the ordinal, to be passed to {@link #complete(long)} once the record is
+     *         acknowledged or to {@link #fail(long)} if it fails
+     */
+    public long nextOrdinal() {
+        long ordinal = frontier;
+        frontier = ordinal + 1;
+        return ordinal;
+    }
+
+    /**
+     * Marks a record as acknowledged, and advances the watermark over every acknowledged
+     * ordinal that follows it, up to the first failed one.
+     *
+     * @param ordinal ordinal taken for the record
+     */
+    public synchronized void complete(long ordinal) {
+        if (ordinal > pinned) {
+            return;
+        }
+        if (ordinal != watermark) {
+            completed[(int) ((ordinal & mask) >>> 6)] |= 1L << ordinal;
+            return;
+        }
+        long next = ordinal + 1;
+        while (next < pinned) {
+            int word = (int) ((next & mask) >>> 6);
+            long bit = 1L << next;
+            if ((completed[word] & bit) == 0) {
+                break;
+            }
+            completed[word] &= ~bit;
+            next++;
+        }
+        watermark = next;
+    }
+
+    /**
+     * Marks a record as failed, pinning the watermark at its ordinal.
+     *
+     * @param ordinal ordinal taken for the record
+     */
+    public synchronized void fail(long ordinal) {
+        failed++;
+        if (ordinal < pinned) {
+            pinned = ordinal;
+        }
+    }
+
+    /**
+     * @return the number of this lane's records acknowledged by earlier runs, which the
+     *         sender skips
+     */
+    public long getResumeOrdinal() {
+        return resumeOrdinal;
+    }
+
+    /**
+     * @return the lowest ordinal not yet acknowledged
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return the number of this lane's records that failed in this run
+     */
+    public long getFailedRecords() {
+        return failed;
+    }
+
+    /**
+     * @return the ordinal of the next record to send
+     */
+    public long getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * @return the watermark of the last checkpoint written
+     */
+    long getPersisted() {
+        return persisted;
+    }
+
+    /**
+     * Records that a checkpoint holding the given watermark has been written.
+     */
+    void persisted(long watermark) {
+        persisted = watermark;
+    }
+}
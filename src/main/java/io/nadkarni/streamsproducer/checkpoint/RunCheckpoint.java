@@ -0,0 +1,246 @@
+package io.nadkarni.streamsproducer.checkpoint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Checkpoint of one run: a {@link CheckpointLane} per sender, and a background thread
+ * that writes their watermarks to the {@link CheckpointFile}.
+ *
+ * <p>Records are never written one by one. The writer wakes every
+ * {@code checkpointInterval}, or earlier when a lane has reached its duplicate bound, and
+ * writes one slot of a few bytes per lane if a watermark moved. {@link #close()} writes a
+ * last checkpoint, marked complete once every record of the run has been acknowledged and
+ * none has failed, so that the next run starts over instead of resuming.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class RunCheckpoint implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunCheckpoint.class);
+
+    private final Path path;
+    private final long fingerprint;
+    private final long records;
+    private final long maxDuplicates;
+    private final long intervalNanos;
+    private final CheckpointFile file;
+    private final CheckpointLane[] lanes;
+    private final long[] watermarks;
+    private final long[] frontiers;
+    private final Thread writer;
+
+    /**
+     * Number of the last write; guarded by {@code this}.
+     */
+    private long sequence;
+
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    /**
+     * Creates the checkpoint of a run and writes its first slot.
+     *
+     * @param path          location of the checkpoint file
+     * @param fingerprint   identity of the run
+     * @param records       number of records of the run
+     * @param file          open checkpoint file
+     * @param sequence      number of the last write in the file, or 0
+     * @param resume        watermark of each lane recovered from the file, or {@code null}
+     * @param lanes         number of senders of the run
+     * @param maxDuplicates maximum number of records per lane sent beyond the written watermark
+     * @param interval      time between writes
+     */
+    RunCheckpoint(Path path, long fingerprint, long records, CheckpointFile file, long sequence, long[] resume,
+                  int lanes, long maxDuplicates, Duration interval) {
+        this.path = path;
+        this.fingerprint = fingerprint;
+        this.records = records;
+        this.maxDuplicates = maxDuplicates;
+        this.intervalNanos = interval.toNanos();
+        this.file = file;
+        this.sequence = sequence;
+        this.lanes = new CheckpointLane[lanes];
+        for (int lane = 0; lane < lanes; lane++) {
+            this.lanes[lane] = new CheckpointLane(this, resume == null ? 0 : resume[lane], maxDuplicates);
+        }
+        this.watermarks = new long[lanes];
+        this.frontiers = new long[lanes];
+        write(false);
+        this.writer = new Thread(this::runWriter, "checkpoint-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Starts the background writer.
+     */
+    void start() {
+        writer.start();
+    }
+
+    /**
+     * @param lane index of the sender, from 0
+     * @return the lane of that sender
+     */
+    public CheckpointLane lane(int lane) {
+        return lanes[lane];
+    }
+
+    /**
+     * @return the number of lanes
+     */
+    public int getLanes() {
+        return lanes.length;
+    }
+
+    /**
+     * @return the records of all lanes acknowledged by earlier runs, which this run skips
+     */
+    public long getResumedRecords() {
+        long resumed = 0;
+        for (CheckpointLane lane : lanes) {
+            resumed += lane.getResumeOrdinal();
+        }
+        return resumed;
+    }
+
+    /**
+     * @return the records of all lanes acknowledged in order so far, including those of
+     *         earlier runs
+     */
+    public long getAcknowledgedRecords() {
+        long acknowledged = 0;
+        for (CheckpointLane lane : lanes) {
+            acknowledged += lane.getWatermark();
+        }
+        return acknowledged;
+    }
+
+    /**
+     * @return the records of all lanes that failed in this run
+     */
+    public long getFailedRecords() {
+        long failed = 0;
+        for (CheckpointLane lane : lanes) {
+            failed += lane.getFailedRecords();
+        }
+        return failed;
+    }
+
+    /**
+     * @return the maximum number of records a run resumed from this checkpoint can send
+     *         twice, if none of its records failed
+     */
+    public long getDuplicateBound() {
+        return lanes.length * maxDuplicates;
+    }
+
+    /**
+     * Wakes the writer so that it writes the watermarks now.
+     *
+     * @throws IllegalStateException if an earlier write failed
+     */
+    void requestWrite() {
+        RuntimeException failed = failure;
+        if (failed != null) {
+            throw new IllegalStateException("Cannot write the checkpoint " + path, failed);
+        }
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Stops the writer and writes the final checkpoint, then closes the file. Call it once
+     * the run's records have been drained.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            if (failure == null) {
+                long acknowledged = getAcknowledgedRecords();
+                long failed = getFailedRecords();
+                boolean complete = acknowledged >= records && failed == 0;
+                write(complete);
+                logger.info("Checkpoint " + path + ": " + acknowledged + " of " + records
+                        + " records acknowledged in order" + (failed > 0 ? ", " + failed + " failed" : "")
+                        + (complete ? "; the run is complete" : "; the next run resumes after them"));
+            }
+        } finally {
+            try {
+                file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot close the checkpoint " + path, e);
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void runWriter() {
+        while (!closed) {
+            LockSupport.parkNanos(this, intervalNanos);
+            if (closed) {
+                return;
+            }
+            try {
+                if (moved()) {
+                    write(false);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+                logger.error("Cannot write the checkpoint " + path + "; the run stops", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the watermark of any lane moved since the last write
+     */
+    private boolean moved() {
+        for (CheckpointLane lane : lanes) {
+            if (lane.getWatermark() != lane.getPersisted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the current watermarks. Each watermark is read before its frontier, so that
+     * the frontier written is never behind it.
+     */
+    private synchronized void write(boolean complete) {
+        for (int lane = 0; lane < lanes.length; lane++) {
+            watermarks[lane] = lanes[lane].getWatermark();
+            frontiers[lane] = lanes[lane].getFrontier();
+        }
+        file.write(++sequence, fingerprint, complete, watermarks, frontiers);
+        for (int lane = 0; lane < lanes.length; lane++) {
+            lanes[lane].persisted(watermarks[lane]);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package io.nadkarni.streamsproducer.checkpoint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Opens the {@link RunCheckpoint} of a pipelined run, resuming from the checkpoint file of
+ * an earlier run that did not complete.
+ *
+ * <p>A run is identified by a description of everything that decides which records each
+ * sender sends, such as the topic, the range of sequence numbers, the number of workers
+ * and the sharding. A checkpoint file left by an incomplete run with another identity is
+ * refused rather than overwritten; one left by a complete run is reused.</p>
+ *
+ * <h3>Configuration:</h3>
+ * <ul>
+ *   <li>{@code checkpointFile} - Location of the checkpoint file; empty (the default)
+ *       disables checkpointing</li>
+ *   <li>{@code checkpointInterval} - Time between writes of the checkpoint</li>
+ *   <li>{@code checkpointMaxDuplicates} - Maximum number of records per sender that a
+ *       resumed run can send twice</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class RunCheckpoints {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunCheckpoints.class);
+
+    /**
+     * Largest {@code checkpointMaxDuplicates}, which keeps a lane's bitmap below 128 MiB.
+     */
+    static final long MAX_DUPLICATES_LIMIT = 1L << 30;
+
+    /**
+     * Location of the checkpoint file; empty disables checkpointing.
+     * Configured via the {@code checkpointFile} property in application.yaml.
+     * Default value: "" (disabled)
+     */
+    @Value("${checkpointFile:}")
+    private String checkpointFile = "";
+
+    /**
+     * Time between writes of the checkpoint.
+     * Configured via the {@code checkpointInterval} property in application.yaml.
+     * Default value: 1s
+     */
+    @Value("${checkpointInterval:1s}")
+    private Duration checkpointInterval = Duration.ofSeconds(1);
+
+    /**
+     * Maximum number of records a sender may send beyond the last watermark written, and
+     * so the most records of each sender a resumed run can send twice.
+     * Configured via the {@code checkpointMaxDuplicates} property in application.yaml.
+     * Default value: 1,000,000
+     */
+    @Value("${checkpointMaxDuplicates:1000000}")
+    private long maxDuplicates = 1_000_000;
+
+    /**
+     * @return {@code true} if {@code checkpointFile} is set
+     */
+    public boolean isEnabled() {
+        return StringUtils.hasText(checkpointFile);
+    }
+
+    /**
+     * Opens the checkpoint of a run. If the checkpoint file holds an incomplete earlier
+     * attempt at the same run, every lane resumes after its acknowledged records, and the
+     * number of records skipped and the bound on duplicates are logged.
+     *
+     * @param run     identity of the run
+     * @param lanes   number of senders, each with its own lane
+     * @param records number of records of the whole run
+     * @return the checkpoint; the caller closes it once the run has drained
+     * @throws IllegalArgumentException if the checkpoint settings are invalid
+     * @throws IllegalStateException    if the file belongs to another, incomplete run
+     * @throws UncheckedIOException     if the file cannot be read or written
+     */
+    public RunCheckpoint open(String run, int lanes, long records) {
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("A checkpoint needs at least one lane: " + lanes);
+        }
+        if (checkpointInterval.isNegative() || checkpointInterval.isZero()) {
+            throw new IllegalArgumentException("checkpointInterval must be positive: " + checkpointInterval);
+        }
+        if (maxDuplicates <= 0 || maxDuplicates > MAX_DUPLICATES_LIMIT) {
+            throw new IllegalArgumentException("checkpointMaxDuplicates must be between 1 and "
+                    + MAX_DUPLICATES_LIMIT + ": " + maxDuplicates);
+        }
+        Path path = Paths.get(checkpointFile);
+        long fingerprint = UUID.nameUUIDFromBytes(run.getBytes(StandardCharsets.UTF_8)).getMostSignificantBits();
+        try {
+            CheckpointFile.State state = CheckpointFile.read(path);
+            long[] resume = null;
+            if (state != null && state.complete) {
+                logger.info("Checkpoint " + path + " records a complete run; starting over");
+            } else if (state != null) {
+                if (state.fingerprint != fingerprint || state.lanes() != lanes) {
+                    throw new IllegalStateException("Checkpoint " + path + " belongs to another run, not to " + run
+                            + "; delete it to start this run from the beginning");
+                }
+                resume = state.watermarks;
+            }
+            CheckpointFile file = CheckpointFile.open(path, lanes);
+            RunCheckpoint checkpoint;
+            try {
+                checkpoint = new RunCheckpoint(path, fingerprint, records, file, state == null ? 0 : state.sequence,
+                        resume, lanes, maxDuplicates, checkpointInterval);
+            } catch (RuntimeException e) {
+                file.close();
+                throw e;
+            }
+            if (resume != null) {
+                logResume(path, run, state, checkpoint);
+            }
+            checkpoint.start();
+            return checkpoint;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the checkpoint " + path, e);
+        }
+    }
+
+    private void logResume(Path path, String run, CheckpointFile.State state, RunCheckpoint checkpoint) {
+        long unacknowledged = 0;
+        for (int lane = 0; lane < state.lanes(); lane++) {
+            unacknowledged += state.frontiers[lane] - state.watermarks[lane];
+        }
+        logger.info("Resuming " + run + " from checkpoint " + path + " written at "
+                + Instant.ofEpochMilli(state.writtenMillis) + ": skipping " + checkpoint.getResumedRecords()
+                + " records acknowledged in order. " + unacknowledged + " records after them were sent but "
+                + "not yet acknowledged then; at most " + checkpoint.getDuplicateBound()
+                + " records (checkpointMaxDuplicates per sender) may be sent twice");
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Checkpoints of the acknowledged records of a pipelined run, from which a restarted run
+ * resumes.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.checkpoint.RunCheckpoints} - Opens the checkpoint
+ *       of a run and resumes an incomplete earlier attempt at it</li>
+ *   <li>{@link io.nadkarni.streamsproducer.checkpoint.RunCheckpoint} - Lanes of one run and
+ *       the background thread that writes their watermarks</li>
+ *   <li>{@link io.nadkarni.streamsproducer.checkpoint.CheckpointLane} - Contiguously
+ *       acknowledged watermark of one sender, with a bound on the records sent beyond it</li>
+ *   <li>{@code CheckpointFile} - Memory-mapped file of two checksummed slots written in
+ *       turn</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.checkpoint;
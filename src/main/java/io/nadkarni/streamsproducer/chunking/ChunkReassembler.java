@@ -0,0 +1,268 @@
+package io.nadkarni.streamsproducer.chunking;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Puts the values split by a {@link MessageChunker} back together on the consumer side,
+ * within a fixed amount of memory.
+ *
+ * <p>Records are passed in the order they are consumed. A record without chunk headers is
+ * returned as it is; a chunk is copied into the buffer of its message, and the whole value
+ * is returned with the chunk that completes it once its CRC32C matches. Chunks may arrive
+ * in any order and more than once: each message keeps a bitmap of the chunks it has, and
+ * repeated chunks are ignored.</p>
+ *
+ * <h3>Bounded Memory:</h3>
+ * <p>A message's buffer is allocated at its first chunk, at the full size of the value, and
+ * the buffers of incomplete messages together never exceed {@code maxBytes}. When a new
+ * message would exceed it, the messages whose first chunk arrived earliest are evicted
+ * until it fits; so are messages incomplete for longer than {@code maxAge}. Messages
+ * larger than {@code maxBytes} are rejected chunk by chunk. Chunks of an evicted message
+ * that arrive later start it again, and are evicted in turn if the rest never comes.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Not thread-safe; use one instance per consumer. The chunks of a message share its
+ * partition, so consumers of different partitions never need each other's chunks.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ChunkReassembler {
+
+    private final long maxBytes;
+    private final long maxAgeNanos;
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * Incomplete messages by identifier, the earliest started first.
+     */
+    private final LinkedHashMap<ByteBuffer, Partial> partials = new LinkedHashMap<>();
+
+    /**
+     * Bytes allocated to incomplete messages.
+     */
+    private long buffered;
+
+    private long completed;
+    private long evicted;
+    private long checksumFailures;
+    private long rejected;
+
+    /**
+     * Creates a reassembler.
+     *
+     * @param maxBytes most bytes held for incomplete messages
+     * @param maxAge   longest a message may stay incomplete, or {@link Duration#ZERO} for no limit
+     * @throws IllegalArgumentException if {@code maxBytes} is not positive or {@code maxAge}
+     *                                  is negative
+     */
+    public ChunkReassembler(long maxBytes, Duration maxAge) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        if (maxAge.isNegative()) {
+            throw new IllegalArgumentException("maxAge must not be negative: " + maxAge);
+        }
+        this.maxBytes = maxBytes;
+        this.maxAgeNanos = maxAge.isZero() ? Long.MAX_VALUE : maxAge.toNanos();
+    }
+
+    /**
+     * Accepts one consumed record.
+     *
+     * @param record record whose value was deserialized as {@code byte[]}
+     * @return the record's value if it is not a chunk, the whole value if it completes a
+     *         message, or {@code null} otherwise
+     */
+    public byte[] accept(ConsumerRecord<?, byte[]> record) {
+        return accept(record.headers(), record.value(), System.nanoTime());
+    }
+
+    /**
+     * Accepts one record value and its headers.
+     *
+     * @param headers   headers of the record
+     * @param value     value of the record
+     * @param nowNanos  current {@link System#nanoTime()}, which ages incomplete messages
+     * @return the value if it is not a chunk, the whole value if it completes a message, or
+     *         {@code null} otherwise
+     */
+    byte[] accept(Headers headers, byte[] value, long nowNanos) {
+        Header id = headers.lastHeader(MessageChunker.ID_HEADER);
+        if (id == null) {
+            return value;
+        }
+        expire(nowNanos);
+        int index = intHeader(headers, MessageChunker.INDEX_HEADER);
+        int count = intHeader(headers, MessageChunker.COUNT_HEADER);
+        int size = intHeader(headers, MessageChunker.SIZE_HEADER);
+        Header checksumHeader = headers.lastHeader(MessageChunker.CHECKSUM_HEADER);
+        byte[] checksumBytes = checksumHeader == null ? null : checksumHeader.value();
+        int length = value == null ? -1 : value.length;
+        if (index < 0 || count <= 0 || index >= count || size < 0 || length < 0 || length > size
+                || checksumBytes == null || checksumBytes.length != Integer.BYTES) {
+            rejected++;
+            return null;
+        }
+        if (size > maxBytes) {
+            rejected++;
+            return null;
+        }
+        int checksum = ByteBuffer.wrap(checksumBytes).getInt();
+        long offset = index == count - 1 ? size - length : (long) index * length;
+        if (offset < 0 || offset + length > size) {
+            rejected++;
+            return null;
+        }
+        ByteBuffer key = ByteBuffer.wrap(id.value());
+        Partial partial = partials.get(key);
+        if (partial == null) {
+            evictFor(size);
+            partial = new Partial(count, size, checksum, nowNanos);
+            partials.put(key, partial);
+            buffered += size;
+        } else if (partial.count != count || partial.value.length != size || partial.checksum != checksum) {
+            rejected++;
+            return null;
+        }
+        if (!partial.receive(index)) {
+            return null;
+        }
+        System.arraycopy(value, 0, partial.value, (int) offset, length);
+        if (partial.missing > 0) {
+            return null;
+        }
+        partials.remove(key);
+        buffered -= size;
+        crc.reset();
+        crc.update(partial.value, 0, size);
+        if ((int) crc.getValue() != partial.checksum) {
+            checksumFailures++;
+            return null;
+        }
+        completed++;
+        return partial.value;
+    }
+
+    /**
+     * @return the number of messages put back together
+     */
+    public long getCompleted() {
+        return completed;
+    }
+
+    /**
+     * @return the number of incomplete messages evicted for memory or age
+     */
+    public long getEvicted() {
+        return evicted;
+    }
+
+    /**
+     * @return the number of complete messages dropped because their checksum did not match
+     */
+    public long getChecksumFailures() {
+        return checksumFailures;
+    }
+
+    /**
+     * @return the number of chunks dropped because they were malformed, did not match
+     *         earlier chunks of their message or belonged to a message above {@code maxBytes}
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the number of incomplete messages held
+     */
+    public int getIncomplete() {
+        return partials.size();
+    }
+
+    /**
+     * @return the bytes held for incomplete messages
+     */
+    public long getBufferedBytes() {
+        return buffered;
+    }
+
+    private void expire(long nowNanos) {
+        Iterator<Partial> iterator = partials.values().iterator();
+        while (iterator.hasNext()) {
+            Partial oldest = iterator.next();
+            if (nowNanos - oldest.startNanos < maxAgeNanos) {
+                return;
+            }
+            iterator.remove();
+            buffered -= oldest.value.length;
+            evicted++;
+        }
+    }
+
+    private void evictFor(int size) {
+        Iterator<Map.Entry<ByteBuffer, Partial>> iterator = partials.entrySet().iterator();
+        while (buffered + size > maxBytes && iterator.hasNext()) {
+            buffered -= iterator.next().getValue().value.length;
+            iterator.remove();
+            evicted++;
+        }
+    }
+
+    /**
+     * @return the non-negative int32 header, or -1 if it is missing or malformed
+     */
+    private static int intHeader(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        byte[] value = header == null ? null : header.value();
+        if (value == null || value.length != Integer.BYTES) {
+            return -1;
+        }
+        return ByteBuffer.wrap(value).getInt();
+    }
+
+    /**
+     * Chunks received so far of one message.
+     */
+    private static final class Partial {
+
+        final int count;
+        final int checksum;
+        final long startNanos;
+        final byte[] value;
+        final long[] received;
+        int missing;
+
+        Partial(int count, int size, int checksum, long startNanos) {
+            this.count = count;
+            this.checksum = checksum;
+            this.startNanos = startNanos;
+            this.value = new byte[size];
+            this.received = new long[(count + Long.SIZE - 1) / Long.SIZE];
+            this.missing = count;
+        }
+
+        /**
+         * @return {@code true} if the chunk had not been received before
+         */
+        boolean receive(int index) {
+            long bit = 1L << index;
+            if ((received[index >>> 6] & bit) != 0) {
+                return false;
+            }
+            received[index >>> 6] |= bit;
+            missing--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package io.nadkarni.streamsproducer.chunking;
+
+import io.nadkarni.streamsproducer.PipelinedSender;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Splits record values larger than {@code chunkBytes} into chunks that each fit in a
+ * request, so that large messages can be sent without raising {@code max.request.size} and
+ * the brokers' {@code message.max.bytes} for every client.
+ *
+ * <p>Each chunk is a {@link ByteBuffer} view of its range of the original value rather than
+ * a copy of it. The chunks of a message are sent in order with the message's key, and to
+ * the partition chosen for the whole message if there is one, so they land on one partition
+ * in order and a consumer can put them back together with a {@link ChunkReassembler}.
+ * Values up to {@code chunkBytes} are sent as they are, without headers.</p>
+ *
+ * <h3>Headers:</h3>
+ * <p>Every chunk carries these headers, all numbers big-endian:</p>
+ * <ul>
+ *   <li>{@value #ID_HEADER} - 16 bytes identifying the message, the same for all its chunks</li>
+ *   <li>{@value #INDEX_HEADER} - int32 position of the chunk in the message, from 0</li>
+ *   <li>{@value #COUNT_HEADER} - int32 number of chunks of the message</li>
+ *   <li>{@value #SIZE_HEADER} - int32 length of the whole value</li>
+ *   <li>{@value #CHECKSUM_HEADER} - int32 CRC32C of the whole value</li>
+ * </ul>
+ * <p>Every chunk but the last holds exactly {@code chunkBytes}, so a chunk's offset in the
+ * value follows from its index and length.</p>
+ *
+ * <h3>Configuration:</h3>
+ * <ul>
+ *   <li>{@code chunkBytes} - Largest value sent as one record, and the size of the chunks of
+ *       larger ones; 0 (the default) disables chunking</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class MessageChunker {
+
+    /**
+     * Header holding the message identifier.
+     */
+    public static final String ID_HEADER = "chunk.id";
+
+    /**
+     * Header holding the index of the chunk.
+     */
+    public static final String INDEX_HEADER = "chunk.index";
+
+    /**
+     * Header holding the number of chunks.
+     */
+    public static final String COUNT_HEADER = "chunk.count";
+
+    /**
+     * Header holding the length of the whole value.
+     */
+    public static final String SIZE_HEADER = "chunk.size";
+
+    /**
+     * Header holding the CRC32C of the whole value.
+     */
+    public static final String CHECKSUM_HEADER = "chunk.checksum";
+
+    /**
+     * Largest value sent as one record, and the size of the chunks of larger values; 0
+     * disables chunking.
+     * Configured via the {@code chunkBytes} property in application.yaml.
+     * Default value: 0 (disabled)
+     */
+    @Value("${chunkBytes:0}")
+    private int chunkBytes;
+
+    /**
+     * First half of every message identifier, distinguishing this instance's messages from
+     * those of other instances and earlier runs.
+     */
+    private final long instance = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * Second half of the next message identifier.
+     */
+    private final AtomicLong messages = new AtomicLong();
+
+    /**
+     * @return {@code true} if {@code chunkBytes} is set
+     * @throws IllegalArgumentException if {@code chunkBytes} is negative
+     */
+    public boolean isEnabled() {
+        if (chunkBytes < 0) {
+            throw new IllegalArgumentException("chunkBytes must not be negative: " + chunkBytes);
+        }
+        return chunkBytes > 0;
+    }
+
+    /**
+     * @return the configured {@code chunkBytes}
+     */
+    public int getChunkBytes() {
+        return chunkBytes;
+    }
+
+    /**
+     * @param valueLength length of a record value
+     * @return the number of records the value is sent in: 1 up to {@code chunkBytes}, the
+     *         number of chunks above it
+     */
+    public int chunks(int valueLength) {
+        if (chunkBytes <= 0 || valueLength <= chunkBytes) {
+            return 1;
+        }
+        return (int) ((valueLength + (long) chunkBytes - 1) / chunkBytes);
+    }
+
+    /**
+     * Sends one record, split into chunks if its value is larger than {@code chunkBytes}.
+     * Each chunk takes its own room in the sender's window, so a message larger than the
+     * window is sent as the window drains rather than all at once.
+     *
+     * @param sender        sender of the run
+     * @param topic         destination topic
+     * @param partition     destination partition, or {@code null} to use the configured partitioner
+     * @param key           record key, shared by every chunk
+     * @param value         record value
+     * @param intendedNanos intended send time of the record as a {@link System#nanoTime()} value
+     * @return the number of records sent
+     * @throws IllegalArgumentException if the value has to be split but neither a key nor a
+     *                                  partition keeps its chunks together
+     * @throws InterruptedException     if interrupted while waiting for room in the window
+     */
+    public int send(PipelinedSender<Object, Object> sender, String topic, Integer partition, byte[] key, byte[] value,
+                    long intendedNanos) throws InterruptedException {
+        int keyLength = key == null ? 0 : key.length;
+        int count = chunks(value.length);
+        if (count == 1) {
+            sender.send(topic, partition, key, value, keyLength + value.length, intendedNanos);
+            return 1;
+        }
+        if (key == null && partition == null) {
+            throw new IllegalArgumentException("A chunked record needs a key or a partition to keep its chunks "
+                    + "on one partition");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(value, 0, value.length);
+        byte[] id = ByteBuffer.allocate(2 * Long.BYTES).putLong(instance).putLong(messages.getAndIncrement()).array();
+        byte[] total = intBytes(count);
+        byte[] size = intBytes(value.length);
+        byte[] checksum = intBytes((int) crc.getValue());
+        for (int index = 0; index < count; index++) {
+            int offset = index * chunkBytes;
+            int length = Math.min(chunkBytes, value.length - offset);
+            RecordHeaders headers = new RecordHeaders();
+            headers.add(ID_HEADER, id);
+            headers.add(INDEX_HEADER, intBytes(index));
+            headers.add(COUNT_HEADER, total);
+            headers.add(SIZE_HEADER, size);
+            headers.add(CHECKSUM_HEADER, checksum);
+            sender.send(new ProducerRecord<>(topic, partition, key, ByteBuffer.wrap(value, offset, length), headers),
+                    keyLength + length, intendedNanos);
+        }
+        return count;
+    }
+
+    private static byte[] intBytes(int value) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+    }
+}
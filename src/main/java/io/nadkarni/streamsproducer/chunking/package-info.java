@@ -0,0 +1,19 @@
+/**
+ * Chunking of record values larger than a request may hold, and their reassembly by
+ * consumers within bounded memory.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.chunking.MessageChunker} - Sends large values as
+ *       views of the original buffer, in chunks with reassembly headers that share a
+ *       partition</li>
+ *   <li>{@link io.nadkarni.streamsproducer.chunking.ChunkReassembler} - Puts chunked values
+ *       back together on the consumer side, evicting incomplete messages beyond a memory
+ *       bound or age</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.chunking;
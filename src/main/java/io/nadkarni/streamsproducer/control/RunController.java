@@ -0,0 +1,139 @@
+package io.nadkarni.streamsproducer.control;
+
+import io.nadkarni.streamsproducer.engine.RunSpec;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+/**
+ * REST API for controlling load runs without restarting the application.
+ *
+ * <h3>Endpoints:</h3>
+ * <ul>
+ *   <li>{@code POST /runs} - Start a run; the body is a {@link RunSpec}, e.g.
+ *       {@code {"topic":"orders","numberOfEvents":1000000,"targetRate":20000,"producerThreads":4}}</li>
+ *   <li>{@code GET /runs} - Status of the current or most recent run on every topic</li>
+ *   <li>{@code GET /runs/{topic}} - Status of one run</li>
+ *   <li>{@code PATCH /runs/{topic}} - Change {@code targetRate} and/or {@code producerThreads}
+ *       of a running run, see {@link RunUpdate}</li>
+ *   <li>{@code DELETE /runs/{topic}} - Stop a run</li>
+ * </ul>
+ *
+ * <h3>Errors:</h3>
+ * <p>Invalid parameters are answered with 400, unknown topics with 404, and requests that
+ * conflict with the state of a run (a second run on the same topic, changing a finished
+ * run) with 409.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/runs")
+public class RunController {
+
+    private final RunManager runManager;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param runManager the service that owns the runs
+     */
+    public RunController(RunManager runManager) {
+        this.runManager = runManager;
+    }
+
+    /**
+     * Starts a run.
+     *
+     * @param spec run parameters; missing parameters are taken from the configuration
+     * @return status of the started run
+     */
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public RunStatus start(@RequestBody(required = false) RunSpec spec) {
+        return RunStatus.of(runManager.start(spec));
+    }
+
+    /**
+     * @return status of the current or most recent run on every topic
+     */
+    @GetMapping
+    public List<RunStatus> list() {
+        return runManager.list().stream().map(RunStatus::of).collect(Collectors.toList());
+    }
+
+    /**
+     * @param topic topic of the run
+     * @return status of the current or most recent run on the topic
+     */
+    @GetMapping("/{topic}")
+    public RunStatus status(@PathVariable String topic) {
+        return RunStatus.of(runManager.get(topic));
+    }
+
+    /**
+     * Changes the rate and/or worker count of a running run.
+     *
+     * @param topic  topic of the run
+     * @param update new values
+     * @return status after the change
+     */
+    @PatchMapping("/{topic}")
+    public RunStatus update(@PathVariable String topic, @RequestBody RunUpdate update) {
+        return RunStatus.of(runManager.update(topic, update));
+    }
+
+    /**
+     * Stops a run.
+     *
+     * @param topic topic of the run
+     * @return status after stopping
+     * @throws InterruptedException if interrupted while waiting for the run to end
+     */
+    @DeleteMapping("/{topic}")
+    public RunStatus stop(@PathVariable String topic) throws InterruptedException {
+        return RunStatus.of(runManager.stop(topic));
+    }
+
+    /**
+     * Maps invalid parameters to 400.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public Map<String, String> badRequest(IllegalArgumentException e) {
+        return Collections.singletonMap("error", e.getMessage());
+    }
+
+    /**
+     * Maps unknown topics to 404.
+     */
+    @ExceptionHandler(NoSuchElementException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public Map<String, String> notFound(NoSuchElementException e) {
+        return Collections.singletonMap("error", e.getMessage());
+    }
+
+    /**
+     * Maps requests that conflict with the state of a run to 409.
+     */
+    @ExceptionHandler(IllegalStateException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Map<String, String> conflict(IllegalStateException e) {
+        return Collections.singletonMap("error", e.getMessage());
+    }
+}
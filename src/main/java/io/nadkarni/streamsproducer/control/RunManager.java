@@ -0,0 +1,255 @@
+package io.nadkarni.streamsproducer.control;
+
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.LoadRun;
+import io.nadkarni.streamsproducer.engine.ProducerPool;
+import io.nadkarni.streamsproducer.engine.RunSpec;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.payload.Workload;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts, changes and stops {@link LoadRun}s inside the running application.
+ *
+ * <p>Runs are identified by their topic: at most one run per topic is in progress at a
+ * time, while runs against different topics execute concurrently. A finished run stays
+ * available for status queries until the next run on the same topic replaces it.</p>
+ *
+ * <h3>Defaults:</h3>
+ * <p>Parameters missing from a start request are taken from the same application
+ * properties that configure the startup run ({@code topic}, {@code numberOfEvents},
+ * {@code targetRate}, {@code producerThreads}, the payload properties and so on).</p>
+ *
+ * <h3>Warm Producers:</h3>
+ * <p>Every run sends through the auto-configured template or the {@link ProducerPool}, and
+ * neither is closed between runs, so only the first run pays for producer start-up,
+ * connection set-up and metadata fetches. Likewise the {@link WorkloadFactory} keeps the
+ * last payload corpus, so repeated runs with the same payload parameters do not generate
+ * it again.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class RunManager {
+
+    /**
+     * Default topic. Configured via the {@code topic} property in application.yaml.
+     */
+    @Value("${topic}")
+    private String topic;
+
+    /**
+     * Default record count. Configured via the {@code numberOfEvents} property in application.yaml.
+     */
+    @Value("${numberOfEvents}")
+    private long numberOfEvents;
+
+    /**
+     * Default constant rate. Configured via the {@code targetRate} property in application.yaml.
+     */
+    @Value("${targetRate:0}")
+    private double targetRate;
+
+    /**
+     * Default rate profile. Configured via the {@code loadProfile} property in application.yaml.
+     */
+    @Value("${loadProfile:}")
+    private String loadProfile = "";
+
+    /**
+     * Default pacing burst. Configured via the {@code pacingBurst} property in application.yaml.
+     */
+    @Value("${pacingBurst:0}")
+    private long pacingBurst;
+
+    /**
+     * Default run duration. Configured via the {@code runDuration} property in application.yaml.
+     */
+    @Value("${runDuration:0s}")
+    private String runDuration = "0s";
+
+    /**
+     * Default number of workers. Configured via the {@code producerThreads} property in application.yaml.
+     */
+    @Value("${producerThreads:1}")
+    private int producerThreads;
+
+    /**
+     * Default producer sharing. Configured via the {@code producerPerWorker} property in application.yaml.
+     */
+    @Value("${producerPerWorker:false}")
+    private boolean producerPerWorker;
+
+    /**
+     * Default record encoding. Configured via the {@code recordEncoding} property in application.yaml.
+     */
+    @Value("${recordEncoding:ascii}")
+    private RecordEncoding recordEncoding = RecordEncoding.ASCII;
+
+    /**
+     * Default in-flight record limit. Configured via the {@code maxInFlightRecords} property in application.yaml.
+     */
+    @Value("${maxInFlightRecords:10000}")
+    private int maxInFlightRecords;
+
+    /**
+     * Default in-flight byte limit. Configured via the {@code maxInFlightBytes} property in application.yaml.
+     */
+    @Value("${maxInFlightBytes:16777216}")
+    private int maxInFlightBytes;
+
+    /**
+     * Default drain timeout. Configured via the {@code drainTimeoutMs} property in application.yaml.
+     */
+    @Value("${drainTimeoutMs:120000}")
+    private long drainTimeoutMs;
+
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final ProducerPool producerPool;
+    private final SendLatencyRecorders latencyRecorders;
+    private final WorkloadFactory workloadFactory;
+    private final Map<String, LoadRun> runs = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaTemplate    the auto-configured template shared by workers by default
+     * @param producerPool     source of per-worker templates
+     * @param latencyRecorders per-topic latency histograms
+     * @param workloadFactory  source of generated payloads
+     */
+    public RunManager(KafkaTemplate<Object, Object> kafkaTemplate, ProducerPool producerPool,
+                      SendLatencyRecorders latencyRecorders, WorkloadFactory workloadFactory) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.producerPool = producerPool;
+        this.latencyRecorders = latencyRecorders;
+        this.workloadFactory = workloadFactory;
+    }
+
+    /**
+     * Starts a run.
+     *
+     * @param request run parameters; unset parameters are taken from the configuration
+     * @return the started run
+     * @throws IllegalArgumentException if the parameters are invalid
+     * @throws IllegalStateException    if a run on the same topic is still in progress
+     */
+    public synchronized LoadRun start(RunSpec request) {
+        RunSpec spec = (request == null ? new RunSpec() : request).withDefaults(defaults());
+        spec.validate();
+        LoadRun existing = runs.get(spec.getTopic());
+        if (existing != null && isActive(existing)) {
+            throw new IllegalStateException("A run on topic '" + spec.getTopic() + "' is already "
+                    + existing.getState());
+        }
+        Workload workload = workloadFactory.create(spec.getPayload());
+        LoadRun run = new LoadRun(spec, kafkaTemplate, producerPool, latencyRecorders.forTopic(spec.getTopic()),
+                workload);
+        run.start();
+        runs.put(spec.getTopic(), run);
+        return run;
+    }
+
+    /**
+     * Changes the rate and/or the worker count of a running run.
+     *
+     * @param topic  topic of the run
+     * @param update new values; unset values are left unchanged
+     * @return the run
+     * @throws NoSuchElementException if there is no run on the topic
+     * @throws IllegalStateException  if the run is no longer running
+     */
+    public LoadRun update(String topic, RunUpdate update) {
+        LoadRun run = get(topic);
+        if (update.getTargetRate() != null) {
+            run.setTargetRate(update.getTargetRate());
+        }
+        if (update.getProducerThreads() != null) {
+            run.resize(update.getProducerThreads());
+        }
+        return run;
+    }
+
+    /**
+     * Stops a run and waits briefly for its outstanding records to complete.
+     *
+     * @param topic topic of the run
+     * @return the run
+     * @throws NoSuchElementException if there is no run on the topic
+     * @throws InterruptedException   if interrupted while waiting
+     */
+    public LoadRun stop(String topic) throws InterruptedException {
+        LoadRun run = get(topic);
+        run.stop();
+        run.awaitTermination(1, TimeUnit.SECONDS);
+        return run;
+    }
+
+    /**
+     * Returns the current or most recent run on a topic.
+     *
+     * @param topic topic of the run
+     * @return the run
+     * @throws NoSuchElementException if there is no run on the topic
+     */
+    public LoadRun get(String topic) {
+        LoadRun run = runs.get(topic);
+        if (run == null) {
+            throw new NoSuchElementException("No run on topic '" + topic + "'");
+        }
+        return run;
+    }
+
+    /**
+     * @return the current or most recent run on every topic
+     */
+    public List<LoadRun> list() {
+        return new ArrayList<>(runs.values());
+    }
+
+    /**
+     * Stops every run when the application shuts down.
+     */
+    @PreDestroy
+    public void stopAll() {
+        runs.values().forEach(LoadRun::stop);
+    }
+
+    private static boolean isActive(LoadRun run) {
+        return run.getState() == LoadRun.State.RUNNING || run.getState() == LoadRun.State.DRAINING;
+    }
+
+    /**
+     * @return a specification holding the configured default for every parameter
+     */
+    private RunSpec defaults() {
+        RunSpec defaults = new RunSpec();
+        defaults.setTopic(topic);
+        defaults.setNumberOfEvents(numberOfEvents);
+        defaults.setTargetRate(targetRate);
+        defaults.setLoadProfile(loadProfile);
+        defaults.setPacingBurst(pacingBurst);
+        defaults.setRunDuration(runDuration);
+        defaults.setProducerThreads(producerThreads);
+        defaults.setProducerPerWorker(producerPerWorker);
+        defaults.setRecordEncoding(recordEncoding);
+        defaults.setMaxInFlightRecords(maxInFlightRecords);
+        defaults.setMaxInFlightBytes(maxInFlightBytes);
+        defaults.setDrainTimeoutMs(drainTimeoutMs);
+        defaults.setPayload(workloadFactory.defaults());
+        return defaults;
+    }
+}
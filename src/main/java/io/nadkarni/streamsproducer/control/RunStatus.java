@@ -0,0 +1,137 @@
+package io.nadkarni.streamsproducer.control;
+
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.engine.LoadRun;
+import io.nadkarni.streamsproducer.engine.RunSpec;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Point-in-time view of a {@link LoadRun}, returned by the run-control API.
+ *
+ * <p>Latencies are in milliseconds, measured from each record's intended send time.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class RunStatus {
+
+    private final String topic;
+    private final LoadRun.State state;
+    private final RunSpec spec;
+    private final int workers;
+    private final double targetRate;
+    private final int partitions;
+    private final long sent;
+    private final long acked;
+    private final long failed;
+    private final int inFlight;
+    private final long elapsedMs;
+    private final double ackedPerSecond;
+    private final double latencyP50Ms;
+    private final double latencyP99Ms;
+    private final double latencyP999Ms;
+    private final double latencyMaxMs;
+    private final String error;
+
+    private RunStatus(LoadRun run) {
+        SendStatistics statistics = run.getStatistics();
+        Histogram latency = run.getLatency().overallHistogram();
+        this.topic = run.getSpec().getTopic();
+        this.state = run.getState();
+        this.spec = run.getSpec();
+        this.workers = run.getWorkerCount();
+        this.targetRate = run.getTargetRate();
+        this.partitions = run.getPartitions();
+        this.sent = statistics.getSent();
+        this.acked = statistics.getAcked();
+        this.failed = statistics.getFailed();
+        this.inFlight = run.getInFlightRecords();
+        this.elapsedMs = statistics.getElapsedMillis();
+        this.ackedPerSecond = statistics.getAckedPerSecond();
+        this.latencyP50Ms = latency.getValueAtPercentile(50) / 1000.0;
+        this.latencyP99Ms = latency.getValueAtPercentile(99) / 1000.0;
+        this.latencyP999Ms = latency.getValueAtPercentile(99.9) / 1000.0;
+        this.latencyMaxMs = latency.getMaxValue() / 1000.0;
+        Throwable failure = run.getFailure() != null ? run.getFailure() : statistics.getFirstFailure();
+        this.error = failure == null ? null : failure.toString();
+    }
+
+    /**
+     * Takes a snapshot of a run.
+     *
+     * @param run the run
+     * @return its current status
+     */
+    public static RunStatus of(LoadRun run) {
+        return new RunStatus(run);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public LoadRun.State getState() {
+        return state;
+    }
+
+    public RunSpec getSpec() {
+        return spec;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getAcked() {
+        return acked;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public double getAckedPerSecond() {
+        return ackedPerSecond;
+    }
+
+    public double getLatencyP50Ms() {
+        return latencyP50Ms;
+    }
+
+    public double getLatencyP99Ms() {
+        return latencyP99Ms;
+    }
+
+    public double getLatencyP999Ms() {
+        return latencyP999Ms;
+    }
+
+    public double getLatencyMaxMs() {
+        return latencyMaxMs;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,37 @@
+package io.nadkarni.streamsproducer.control;
+
+/**
+ * Changes to apply to a running load run; unset properties are left unchanged.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class RunUpdate {
+
+    /**
+     * New constant rate in records per second; 0 removes pacing.
+     */
+    private Double targetRate;
+
+    /**
+     * New number of workers.
+     */
+    private Integer producerThreads;
+
+    public Double getTargetRate() {
+        return targetRate;
+    }
+
+    public void setTargetRate(Double targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    public Integer getProducerThreads() {
+        return producerThreads;
+    }
+
+    public void setProducerThreads(Integer producerThreads) {
+        this.producerThreads = producerThreads;
+    }
+}
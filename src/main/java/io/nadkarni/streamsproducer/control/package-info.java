@@ -0,0 +1,16 @@
+/**
+ * Run-control REST API for managing load runs inside a running application.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.control.RunController} - {@code /runs} endpoints</li>
+ *   <li>{@link io.nadkarni.streamsproducer.control.RunManager} - Owns the runs, one per topic</li>
+ *   <li>{@link io.nadkarni.streamsproducer.control.RunStatus} - Progress snapshot of a run</li>
+ *   <li>{@link io.nadkarni.streamsproducer.control.RunUpdate} - Rate and worker count changes</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.control;
@@ -0,0 +1,124 @@
+package io.nadkarni.streamsproducer.encoding;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes the sequential "N" / "Message N" records directly into ASCII bytes.
+ *
+ * <p>The original send loop boxes an {@code Integer}, builds two {@code String}s per
+ * record, and then {@code StringSerializer} encodes each of them into a fresh
+ * {@code byte[]}. This encoder writes the decimal digits of a primitive {@code long}
+ * straight into reused arrays instead. The bytes are identical to what
+ * {@code StringSerializer} produces for {@code Long.toString(n)} and
+ * {@code "Message " + n}, so consumers see no difference.</p>
+ *
+ * <h3>Buffer Reuse:</h3>
+ * <p>Kafka serializers must return an array whose length is exactly the record size,
+ * so the encoder keeps one array per possible digit count (1 to 19) for keys and
+ * another for values. After warm-up no array is allocated per record.
+ * {@code KafkaProducer.send()} serializes and copies the record into its batch before
+ * returning, so an array can be overwritten as soon as the send call returns. The
+ * {@code ProducerRecord} kept by the send result therefore does not show the original
+ * bytes, which does not matter for the send path.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Not thread-safe. Use one encoder per sending thread.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class AsciiRecordEncoder {
+
+    /**
+     * The fixed value prefix, {@code "Message "}.
+     */
+    private static final byte[] VALUE_PREFIX = "Message ".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Number of decimal digits in {@link Long#MAX_VALUE}.
+     */
+    private static final int MAX_DIGITS = 19;
+
+    /**
+     * Key arrays indexed by digit count.
+     */
+    private final byte[][] keys = new byte[MAX_DIGITS + 1][];
+
+    /**
+     * Value arrays indexed by digit count.
+     */
+    private final byte[][] values = new byte[MAX_DIGITS + 1][];
+
+    /**
+     * Encodes the key for sequence number {@code seq}.
+     *
+     * @param seq non-negative sequence number
+     * @return the ASCII digits of {@code seq}, in an array reused by the next call with
+     *         the same number of digits
+     * @throws IllegalArgumentException if {@code seq} is negative
+     */
+    public byte[] key(long seq) {
+        int digits = digits(seq);
+        byte[] key = keys[digits];
+        if (key == null) {
+            key = new byte[digits];
+            keys[digits] = key;
+        }
+        writeDigits(seq, key, digits);
+        return key;
+    }
+
+    /**
+     * Encodes the value for sequence number {@code seq}.
+     *
+     * @param seq non-negative sequence number
+     * @return the ASCII bytes of {@code "Message " + seq}, in an array reused by the next
+     *         call with the same number of digits
+     * @throws IllegalArgumentException if {@code seq} is negative
+     */
+    public byte[] value(long seq) {
+        int digits = digits(seq);
+        byte[] value = values[digits];
+        if (value == null) {
+            value = new byte[VALUE_PREFIX.length + digits];
+            System.arraycopy(VALUE_PREFIX, 0, value, 0, VALUE_PREFIX.length);
+            values[digits] = value;
+        }
+        writeDigits(seq, value, value.length);
+        return value;
+    }
+
+    /**
+     * Returns the number of decimal digits needed to print {@code value}.
+     *
+     * @param value non-negative value
+     * @return digit count between 1 and 19
+     * @throws IllegalArgumentException if {@code value} is negative
+     */
+    public static int digits(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Sequence numbers must not be negative: " + value);
+        }
+        long limit = 10;
+        for (int digits = 1; digits < MAX_DIGITS; digits++) {
+            if (value < limit) {
+                return digits;
+            }
+            limit *= 10;
+        }
+        return MAX_DIGITS;
+    }
+
+    /**
+     * Writes the digits of {@code value} right-aligned so that the last digit lands at
+     * {@code end - 1}.
+     */
+    private static void writeDigits(long value, byte[] target, int end) {
+        int position = end;
+        do {
+            target[--position] = (byte) ('0' + (int) (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+}
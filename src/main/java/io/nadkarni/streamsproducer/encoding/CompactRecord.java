@@ -0,0 +1,57 @@
+package io.nadkarni.streamsproducer.encoding;
+
+/**
+ * A value read by the {@link CompactRecordDeserializer}: the header fields and the
+ * reassembled text.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class CompactRecord {
+
+    private final int schemaId;
+    private final long timestamp;
+    private final String value;
+    private final long number;
+
+    CompactRecord(int schemaId, long timestamp, String value, long number) {
+        this.schemaId = schemaId;
+        this.timestamp = timestamp;
+        this.value = value;
+        this.number = number;
+    }
+
+    /**
+     * @return the schema id from the header
+     */
+    public int getSchemaId() {
+        return schemaId;
+    }
+
+    /**
+     * @return the produce time from the header in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the value as the string it was encoded from, e.g. {@code "Message 42"}
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return the number the value ends with if it was encoded as one, e.g. 42, otherwise -1
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
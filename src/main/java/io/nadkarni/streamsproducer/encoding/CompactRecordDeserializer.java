@@ -0,0 +1,120 @@
+package io.nadkarni.streamsproducer.encoding;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Deserializer reading keys and values written in the {@link CompactRecordFormat}, by the
+ * {@link CompactRecordSerializer} or a {@link CompactRecordEncoder}.
+ *
+ * <p>As a key deserializer it returns a {@code Long}; as a value deserializer a
+ * {@link CompactRecord}. It accepts the {@value CompactRecordSerializer#DICTIONARY_CONFIG}
+ * property, which must list the same prefixes as the producer's.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class CompactRecordDeserializer implements Deserializer<Object> {
+
+    private boolean isKey;
+    private RecordDictionary dictionary = RecordDictionary.DEFAULT;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        this.isKey = isKey;
+        dictionary = CompactRecordSerializer.dictionary(configs);
+    }
+
+    /**
+     * Deserializes a key or value.
+     *
+     * @param topic the source topic (unused)
+     * @param data  the encoded bytes
+     * @return a {@code Long} key, a {@link CompactRecord} value, or {@code null}
+     * @throws SerializationException if the bytes are not in the compact format
+     */
+    @Override
+    public Object deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        Reader reader = new Reader(data);
+        if (isKey) {
+            long key = CompactRecordFormat.unZigZag(reader.varint());
+            reader.checkEnd();
+            return key;
+        }
+        return value(reader);
+    }
+
+    private CompactRecord value(Reader reader) {
+        if (reader.data.length == 0 || reader.data[0] != CompactRecordFormat.MAGIC) {
+            throw new SerializationException("Not a compact record value: missing magic byte");
+        }
+        reader.position = 1;
+        long schemaId = reader.varint();
+        if (schemaId < 0 || schemaId > Integer.MAX_VALUE) {
+            throw new SerializationException("Schema id out of range: " + Long.toUnsignedString(schemaId));
+        }
+        long timestamp = reader.varint();
+        long prefixId = reader.varint();
+        if (prefixId < 0 || prefixId > Integer.MAX_VALUE) {
+            throw new SerializationException("Unknown dictionary entry " + Long.toUnsignedString(prefixId));
+        }
+        String prefix = prefixId == 0 ? "" : dictionary.prefix((int) prefixId);
+        long tag = reader.varint();
+        long number = -1;
+        String suffix;
+        if ((tag & 1) != 0) {
+            number = tag >>> 1;
+            suffix = Long.toString(number);
+        } else {
+            long length = tag >>> 1;
+            if (length > reader.data.length - reader.position) {
+                throw new SerializationException("Truncated compact record value");
+            }
+            suffix = new String(reader.data, reader.position, (int) length, StandardCharsets.UTF_8);
+            reader.position += (int) length;
+        }
+        reader.checkEnd();
+        return new CompactRecord((int) schemaId, timestamp, prefix.isEmpty() ? suffix : prefix + suffix, number);
+    }
+
+    /**
+     * Position within one encoded key or value.
+     */
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        private Reader(byte[] data) {
+            this.data = data;
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= data.length) {
+                    throw new SerializationException("Truncated varint in compact record");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Varint longer than 64 bits in compact record");
+        }
+
+        private void checkEnd() {
+            if (position != data.length) {
+                throw new SerializationException((data.length - position) + " trailing bytes in compact record");
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.nadkarni.streamsproducer.encoding;
+
+/**
+ * Layout and primitives of the compact binary record format.
+ *
+ * <h3>Keys:</h3>
+ * <p>A key is a number written as a zig-zag varint: {@code (n << 1) ^ (n >> 63)} in groups
+ * of seven bits, least significant group first, with the high bit of every byte but the
+ * last set. Key {@code 12345} takes 3 bytes instead of 5 ASCII digits.</p>
+ *
+ * <h3>Values:</h3>
+ * <pre>
+ * magic      1 byte   {@link #MAGIC}, never the first byte of a UTF-8 string
+ * schema id  varint   identifies the producer's record schema
+ * timestamp  varint   produce time in epoch milliseconds
+ * prefix id  varint   entry of the shared {@link RecordDictionary}, 0 for none
+ * suffix tag varint   (n &lt;&lt; 1) | 1 for a decimal number n, or (length &lt;&lt; 1)
+ *                     followed by that many UTF-8 bytes
+ * </pre>
+ * <p>{@code "Message 12345"} therefore becomes its dictionary id and a 3-byte number.
+ * Producers and consumers must share the dictionary; the format carries only its ids.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class CompactRecordFormat {
+
+    /**
+     * First byte of every compact value. {@code 0xC1} cannot start a UTF-8 sequence, so
+     * compact values are never mistaken for text.
+     */
+    public static final byte MAGIC = (byte) 0xC1;
+
+    /**
+     * Schema id written by producers that do not configure one.
+     */
+    public static final int DEFAULT_SCHEMA_ID = 1;
+
+    /**
+     * Maximum length of a varint holding 64 bits.
+     */
+    public static final int MAX_VARINT_SIZE = 10;
+
+    private CompactRecordFormat() {
+    }
+
+    /**
+     * Maps signed values to unsigned ones so that small magnitudes stay small.
+     *
+     * @param value any value
+     * @return the zig-zag encoding of {@code value}
+     */
+    public static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Reverses {@link #zigZag(long)}.
+     *
+     * @param value a zig-zag encoded value
+     * @return the original signed value
+     */
+    public static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeVarint(long, byte[], int)} needs for a value.
+     *
+     * @param value value treated as unsigned
+     * @return size between 1 and {@link #MAX_VARINT_SIZE}
+     */
+    public static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Writes a value as an unsigned varint.
+     *
+     * @param value    value treated as unsigned
+     * @param target   array to write to
+     * @param position index of the first byte
+     * @return index after the last byte written
+     */
+    public static int writeVarint(long value, byte[] target, int position) {
+        while ((value & ~0x7FL) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Reads the sequence number of a compact {@code "Message N"} value without decoding the
+     * rest of it.
+     *
+     * @param value an encoded value
+     * @return {@code N}, or -1 if the value is not a well-formed compact value with the
+     *         {@link RecordDictionary#MESSAGE_PREFIX_ID} prefix and a numeric suffix
+     */
+    public static long messageNumber(byte[] value) {
+        if (value == null || value.length == 0 || value[0] != MAGIC) {
+            return -1;
+        }
+        int position = 1;
+        long tag = 0;
+        for (int field = 0; field < 4; field++) {
+            long fieldValue = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (position >= value.length || shift >= 64) {
+                    return -1;
+                }
+                b = value[position++];
+                fieldValue |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            if (field == 2 && fieldValue != RecordDictionary.MESSAGE_PREFIX_ID) {
+                return -1;
+            }
+            tag = fieldValue;
+        }
+        return position == value.length && (tag & 1) != 0 ? tag >>> 1 : -1;
+    }
+}
@@ -0,0 +1,189 @@
+package io.nadkarni.streamsproducer.encoding;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Serializer writing keys and values in the {@link CompactRecordFormat}.
+ *
+ * <p>As a key serializer it writes numbers, and strings holding a decimal number, as
+ * zig-zag varints. As a value serializer it writes strings with the format's header,
+ * stamped with the current time, and the longest matching {@link RecordDictionary} prefix
+ * replaced by its id; a decimal remainder is written as a number. In both roles
+ * {@code byte[]} passes through untouched, so records that a {@link CompactRecordEncoder}
+ * already encoded are not copied again, and {@code null} stays {@code null}.</p>
+ *
+ * <h3>Configuration:</h3>
+ * <ul>
+ *   <li>{@value #SCHEMA_ID_CONFIG} - schema id written into values, default
+ *       {@value CompactRecordFormat#DEFAULT_SCHEMA_ID}</li>
+ *   <li>{@value #DICTIONARY_CONFIG} - list of prefixes appended to the dictionary after
+ *       {@code "Message "}; consumers must configure the same list</li>
+ * </ul>
+ *
+ * <h3>Buffer Reuse:</h3>
+ * <p>Values are assembled in a per-thread scratch buffer that grows to the largest record,
+ * and copied once into an array of the exact size that Kafka requires.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class CompactRecordSerializer implements Serializer<Object> {
+
+    /**
+     * Property holding the schema id written into values.
+     */
+    public static final String SCHEMA_ID_CONFIG = "compact.schema.id";
+
+    /**
+     * Property holding the prefixes appended to the dictionary, as a list or a
+     * comma-separated string.
+     */
+    public static final String DICTIONARY_CONFIG = "compact.dictionary";
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private boolean isKey;
+    private int schemaId = CompactRecordFormat.DEFAULT_SCHEMA_ID;
+    private RecordDictionary dictionary = RecordDictionary.DEFAULT;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        this.isKey = isKey;
+        Object schema = configs.get(SCHEMA_ID_CONFIG);
+        if (schema != null) {
+            schemaId = Integer.parseInt(schema.toString().trim());
+            if (schemaId < 0) {
+                throw new IllegalArgumentException(SCHEMA_ID_CONFIG + " must not be negative: " + schemaId);
+            }
+        }
+        dictionary = dictionary(configs);
+    }
+
+    /**
+     * Serializes a key or value.
+     *
+     * @param topic the destination topic (unused)
+     * @param data  the key or value
+     * @return the encoded bytes, {@code data} itself for a {@code byte[]}, or {@code null}
+     * @throws SerializationException for a type the role does not support, or a key string
+     *                                that is not a decimal number
+     */
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        if (isKey) {
+            return key(data);
+        }
+        if (data instanceof CharSequence) {
+            return value(data.toString(), System.currentTimeMillis());
+        }
+        throw new SerializationException("Cannot serialize value " + data.getClass().getName()
+                + "; expected byte[] or CharSequence");
+    }
+
+    private static byte[] key(Object data) {
+        long number;
+        if (data instanceof Long || data instanceof Integer || data instanceof Short || data instanceof Byte) {
+            number = ((Number) data).longValue();
+        } else if (data instanceof CharSequence) {
+            try {
+                number = Long.parseLong(data.toString());
+            } catch (NumberFormatException e) {
+                throw new SerializationException("Compact keys must be decimal numbers: " + data);
+            }
+        } else {
+            throw new SerializationException("Cannot serialize key " + data.getClass().getName()
+                    + "; expected byte[], an integral Number or a decimal CharSequence");
+        }
+        long zigZag = CompactRecordFormat.zigZag(number);
+        byte[] key = new byte[CompactRecordFormat.varintSize(zigZag)];
+        CompactRecordFormat.writeVarint(zigZag, key, 0);
+        return key;
+    }
+
+    /**
+     * Encodes a value.
+     *
+     * @param value           the text of the value
+     * @param timestampMillis produce time written into the header
+     * @return the encoded value
+     */
+    byte[] value(String value, long timestampMillis) {
+        int prefixId = dictionary.match(value);
+        String remainder = prefixId == 0 ? value : value.substring(dictionary.prefix(prefixId).length());
+        long number = number(remainder);
+        byte[] text = number < 0 ? remainder.getBytes(StandardCharsets.UTF_8) : null;
+        long tag = text == null ? (number << 1) | 1 : (long) text.length << 1;
+        int size = 1 + CompactRecordFormat.varintSize(schemaId) + CompactRecordFormat.varintSize(timestampMillis)
+                + CompactRecordFormat.varintSize(prefixId) + CompactRecordFormat.varintSize(tag)
+                + (text == null ? 0 : text.length);
+        byte[] buffer = SCRATCH.get();
+        if (buffer.length < size) {
+            buffer = new byte[Math.max(size, buffer.length * 2)];
+            SCRATCH.set(buffer);
+        }
+        buffer[0] = CompactRecordFormat.MAGIC;
+        int position = CompactRecordFormat.writeVarint(schemaId, buffer, 1);
+        position = CompactRecordFormat.writeVarint(timestampMillis, buffer, position);
+        position = CompactRecordFormat.writeVarint(prefixId, buffer, position);
+        position = CompactRecordFormat.writeVarint(tag, buffer, position);
+        if (text != null) {
+            System.arraycopy(text, 0, buffer, position, text.length);
+        }
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Parses a remainder written the way {@link Long#toString(long)} writes a non-negative
+     * number, so that it can be restored exactly.
+     *
+     * @return the number, or -1 if the remainder has any other form
+     */
+    static long number(String remainder) {
+        int length = remainder.length();
+        if (length == 0 || length > 18 || (length > 1 && remainder.charAt(0) == '0')) {
+            return -1;
+        }
+        long number = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = remainder.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    /**
+     * Builds the dictionary configured by {@value #DICTIONARY_CONFIG}.
+     *
+     * @param configs serializer or deserializer configuration
+     * @return the dictionary, {@link RecordDictionary#DEFAULT} if none is configured
+     */
+    static RecordDictionary dictionary(Map<String, ?> configs) {
+        Object entries = configs.get(DICTIONARY_CONFIG);
+        if (entries == null) {
+            return RecordDictionary.DEFAULT;
+        }
+        if (entries instanceof List) {
+            return RecordDictionary.of(((List<?>) entries).stream().map(String::valueOf)
+                    .collect(Collectors.toList()));
+        }
+        String list = entries.toString();
+        return list.isEmpty() ? RecordDictionary.DEFAULT : RecordDictionary.of(Arrays.asList(list.split(",")));
+    }
+}
@@ -0,0 +1,145 @@
+package io.nadkarni.streamsproducer.encoding;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Serializer that passes pre-encoded {@code byte[]} keys and values through untouched and
+ * encodes anything else as a UTF-8 string.
+ *
+ * <p>Configured as both key and value serializer in application.yaml. Records produced
+ * by the {@link AsciiRecordEncoder} are handed to the client without another copy. The
+ * original {@code String} records still serialize to exactly the bytes that
+ * {@code StringSerializer} produced, so the legacy send paths keep working through the
+ * same auto-configured {@code KafkaTemplate}.</p>
+ *
+ * <p>A {@link ByteBuffer} is serialized as its remaining bytes. The chunks of the
+ * {@code MessageChunker} are views of a range of one large value; since a serializer has to
+ * return a {@code byte[]}, each is copied here, once and only for the length of the
+ * chunk. A buffer that covers the whole of its array is passed through like a
+ * {@code byte[]}.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class PassThroughSerializer implements Serializer<Object> {
+
+    /**
+     * Returns {@code data} itself if it is a {@code byte[]}, the remaining bytes if it is a
+     * {@link ByteBuffer}, its UTF-8 encoding if it is a {@link CharSequence}, or
+     * {@code null} for a {@code null} key or value.
+     *
+     * @param topic the destination topic (unused)
+     * @param data  the key or value to serialize
+     * @return the serialized bytes
+     * @throws SerializationException for any other type
+     */
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data == null) {
+            return null;
+        }
+        if (data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        if (data instanceof ByteBuffer) {
+            return bytes((ByteBuffer) data);
+        }
+        if (data instanceof CharSequence) {
+            return data.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        throw new SerializationException("Cannot serialize " + data.getClass().getName()
+                + "; expected byte[], ByteBuffer or CharSequence");
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int from = buffer.arrayOffset() + buffer.position();
+            if (from == 0 && buffer.remaining() == array.length) {
+                return array;
+            }
+            return Arrays.copyOfRange(array, from, from + buffer.remaining());
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Verifies that a template's producer is configured to pass {@code byte[]} keys and
+     * values through, with this serializer, the {@link CompactRecordSerializer} or Kafka's
+     * {@link ByteArraySerializer}.
+     *
+     * <p>Serializers that are not visible in the factory's configuration properties
+     * (for example instances passed to the factory constructor) are not checked.</p>
+     *
+     * @param kafkaTemplate the template that will send pre-encoded records
+     * @throws IllegalStateException if a key or value serializer would reject {@code byte[]}
+     */
+    public static void checkConfigured(KafkaTemplate<?, ?> kafkaTemplate) {
+        Map<String, Object> config = configuration(kafkaTemplate);
+        if (config == null) {
+            return;
+        }
+        checkSerializer(config.get(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG), "key");
+        checkSerializer(config.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG), "value");
+    }
+
+    /**
+     * Verifies, as {@link #checkConfigured(KafkaTemplate)} does, that a template can send
+     * {@code byte[]} records, and also that its value serializer is this one, the only one
+     * that accepts the {@link ByteBuffer} chunks of large values.
+     *
+     * @param kafkaTemplate the template that will send chunked records
+     * @throws IllegalStateException if a serializer would reject {@code byte[]} keys or
+     *                               {@code ByteBuffer} values
+     */
+    public static void checkConfiguredForChunks(KafkaTemplate<?, ?> kafkaTemplate) {
+        checkConfigured(kafkaTemplate);
+        Map<String, Object> config = configuration(kafkaTemplate);
+        Object serializer = config == null ? null : config.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG);
+        if (serializer == null) {
+            return;
+        }
+        String name = serializer instanceof Class ? ((Class<?>) serializer).getName() : serializer.toString();
+        if (!name.equals(PassThroughSerializer.class.getName())) {
+            throw new IllegalStateException("chunkBytes sends chunks of large values as ByteBuffer views but the "
+                    + "value serializer is " + name + "; configure " + PassThroughSerializer.class.getName()
+                    + " or set chunkBytes=0");
+        }
+    }
+
+    private static Map<String, Object> configuration(KafkaTemplate<?, ?> kafkaTemplate) {
+        ProducerFactory<?, ?> factory = kafkaTemplate.getProducerFactory();
+        try {
+            return factory == null ? null : factory.getConfigurationProperties();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static void checkSerializer(Object serializer, String role) {
+        if (serializer == null) {
+            return;
+        }
+        String name = serializer instanceof Class ? ((Class<?>) serializer).getName() : serializer.toString();
+        if (!name.equals(PassThroughSerializer.class.getName())
+                && !name.equals(CompactRecordSerializer.class.getName())
+                && !name.equals(ByteArraySerializer.class.getName())) {
+            throw new IllegalStateException("recordEncoding=ascii or compact and generated payloads send byte[] records but the "
+                    + role + " serializer is " + name + "; configure " + PassThroughSerializer.class.getName()
+                    + " or use recordEncoding=string with payloadGenerator=sequential");
+        }
+    }
+}
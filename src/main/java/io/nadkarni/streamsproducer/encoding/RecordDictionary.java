@@ -0,0 +1,104 @@
+package io.nadkarni.streamsproducer.encoding;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Shared dictionary of value prefixes for the compact record format.
+ *
+ * <p>Entry ids start at 1; id 0 means no prefix. Entry 1 is always {@code "Message "}, the
+ * prefix of the sequential records, so that the {@link CompactRecordEncoder} and every
+ * dictionary agree on it. Further entries are appended in the configured order; since only
+ * the ids travel with the records, producers and consumers must append the same entries in
+ * the same order, and may only ever append to a dictionary in use.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Immutable.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class RecordDictionary {
+
+    /**
+     * Id of the {@code "Message "} prefix.
+     */
+    public static final int MESSAGE_PREFIX_ID = 1;
+
+    /**
+     * The dictionary holding only {@code "Message "}.
+     */
+    public static final RecordDictionary DEFAULT = new RecordDictionary(Collections.emptyList());
+
+    private final List<String> prefixes;
+
+    private RecordDictionary(List<String> extra) {
+        List<String> entries = new ArrayList<>(extra.size() + 1);
+        entries.add("Message ");
+        for (String prefix : extra) {
+            if (prefix == null || prefix.isEmpty()) {
+                throw new IllegalArgumentException("Dictionary prefixes must not be empty");
+            }
+            entries.add(prefix);
+        }
+        this.prefixes = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Creates a dictionary of {@code "Message "} followed by the given prefixes.
+     *
+     * @param prefixes further prefixes, taking ids 2, 3, ...
+     * @return the dictionary
+     * @throws IllegalArgumentException if a prefix is empty
+     */
+    public static RecordDictionary of(List<String> prefixes) {
+        return prefixes.isEmpty() ? DEFAULT : new RecordDictionary(prefixes);
+    }
+
+    /**
+     * Finds the longest entry that {@code value} starts with.
+     *
+     * @param value the value to compress
+     * @return the entry's id, or 0 if no entry matches
+     */
+    public int match(String value) {
+        int best = 0;
+        int bestLength = 0;
+        for (int i = 0; i < prefixes.size(); i++) {
+            String prefix = prefixes.get(i);
+            if (prefix.length() > bestLength && value.startsWith(prefix)) {
+                best = i + 1;
+                bestLength = prefix.length();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param id an entry id
+     * @return the entry's prefix
+     * @throws SerializationException if there is no such entry
+     */
+    public String prefix(int id) {
+        checkId(id);
+        return prefixes.get(id - 1);
+    }
+
+    /**
+     * @return number of entries
+     */
+    public int size() {
+        return prefixes.size();
+    }
+
+    private void checkId(int id) {
+        if (id < 1 || id > prefixes.size()) {
+            throw new SerializationException("Unknown dictionary entry " + id + "; the dictionary has "
+                    + prefixes.size() + " entries");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.nadkarni.streamsproducer.encoding;
+
+/**
+ * How the pipelined send paths build each "N" / "Message N" record.
+ *
+ * <p>Selected through the {@code recordEncoding} property in application.yaml. The string
+ * and ASCII encodings put identical bytes on the wire; the compact encoding trades
+ * readability for size.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public enum RecordEncoding {
+
+    /**
+     * Keys and values are {@code String}s, encoded by the configured serializer.
+     */
+    STRING,
+
+    /**
+     * Keys and values are written as ASCII bytes into reused arrays by an
+     * {@link AsciiRecordEncoder} and passed through by the {@link PassThroughSerializer}.
+     */
+    ASCII,
+
+    /**
+     * Keys and values are written in the binary {@link CompactRecordFormat} into reused
+     * arrays by a {@link CompactRecordEncoder} and passed through by the
+     * {@link PassThroughSerializer}. Consumers read them with the
+     * {@link CompactRecordDeserializer}.
+     */
+    COMPACT;
+
+    /**
+     * @return {@code true} if records are handed to the client as pre-encoded {@code byte[]},
+     *         which the configured serializers must pass through
+     */
+    public boolean isPreEncoded() {
+        return this != STRING;
+    }
+}
@@ -0,0 +1,115 @@
+package io.nadkarni.streamsproducer.encoding;
+
+/**
+ * Bytes per record of a run, next to what the same records take in the string format, and
+ * the bytes the producer actually sent to the brokers.
+ *
+ * <p>The payload is the key and value bytes handed to the client. For the sequential
+ * records the string format's size follows from the record count alone:
+ * {@code "N"} plus {@code "Message N"} is {@code 8 + 2 * digits(N)} bytes. Wire bytes
+ * come from the producer's {@code outgoing-byte-total} metric and so include batch and
+ * request headers and any {@code compression.type}.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class RecordSizeReport {
+
+    private final RecordEncoding encoding;
+    private final long records;
+    private final long payloadBytes;
+    private final long stringFormatBytes;
+    private final double wireBytes;
+    private final long elapsedMillis;
+
+    /**
+     * Creates a report.
+     *
+     * @param encoding      encoding of the run
+     * @param records       records sent
+     * @param payloadBytes  key and value bytes of those records
+     * @param sequential    whether the records were the sequential "N" / "Message N" ones,
+     *                      which can be compared with the string format
+     * @param wireBytes     bytes the producer sent to the brokers, or a negative value if
+     *                      not measured
+     * @param elapsedMillis duration of the run
+     */
+    public RecordSizeReport(RecordEncoding encoding, long records, long payloadBytes, boolean sequential,
+                            double wireBytes, long elapsedMillis) {
+        this.encoding = encoding;
+        this.records = records;
+        this.payloadBytes = payloadBytes;
+        this.stringFormatBytes = sequential ? stringFormatBytes(records) : -1;
+        this.wireBytes = wireBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Returns the size of the sequential records {@code 0} to {@code records - 1} in the
+     * string format.
+     *
+     * @param records number of records
+     * @return their key and value bytes
+     */
+    public static long stringFormatBytes(long records) {
+        long bytes = 8 * records;
+        long low = 0;
+        long high = 10;
+        for (int digits = 1; low < records; digits++) {
+            long count = Math.min(records, high) - low;
+            bytes += 2L * digits * count;
+            low = high;
+            high = high > Long.MAX_VALUE / 10 ? Long.MAX_VALUE : high * 10;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return key and value bytes per record
+     */
+    public double getPayloadBytesPerRecord() {
+        return records == 0 ? 0 : (double) payloadBytes / records;
+    }
+
+    /**
+     * @return key and value bytes per record in the string format, or -1 if the records
+     *         cannot be compared
+     */
+    public double getStringFormatBytesPerRecord() {
+        return stringFormatBytes < 0 || records == 0 ? -1 : (double) stringFormatBytes / records;
+    }
+
+    /**
+     * @return bytes sent to the brokers per record, or -1 if not measured
+     */
+    public double getWireBytesPerRecord() {
+        return wireBytes < 0 || records == 0 ? -1 : wireBytes / records;
+    }
+
+    /**
+     * @return bytes sent to the brokers per second, or -1 if not measured
+     */
+    public double getWireBytesPerSecond() {
+        return wireBytes < 0 || elapsedMillis == 0 ? -1 : wireBytes * 1000 / elapsedMillis;
+    }
+
+    /**
+     * Formats the report for the run summary.
+     *
+     * @return one line
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(String.format("Record size (%s): %.1f key and value bytes/record",
+                encoding.name().toLowerCase(), getPayloadBytesPerRecord()));
+        if (stringFormatBytes > 0 && encoding != RecordEncoding.STRING) {
+            summary.append(String.format(", %.1f in the string format (%.0f%%)", getStringFormatBytesPerRecord(),
+                    100.0 * payloadBytes / stringFormatBytes));
+        }
+        if (wireBytes >= 0) {
+            summary.append(String.format("; %.1f bytes/record and %.1f KiB/sec sent to the brokers",
+                    getWireBytesPerRecord(), getWireBytesPerSecond() / 1024));
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * Record encodings and serializers for the send paths.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder} - Writes the
+ *       "N" / "Message N" records as ASCII bytes into reused arrays</li>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.CompactRecordFormat} - Layout and varint
+ *       primitives of the compact binary format</li>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.CompactRecordEncoder} - Writes the
+ *       "N" / "Message N" records in the compact format into pooled arrays</li>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.CompactRecordSerializer} /
+ *       {@link io.nadkarni.streamsproducer.encoding.CompactRecordDeserializer} - Kafka
+ *       serializer pair for the compact format, reading values as
+ *       {@link io.nadkarni.streamsproducer.encoding.CompactRecord}s</li>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.RecordDictionary} - Shared value prefixes
+ *       of the compact format</li>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.PassThroughSerializer} - Sends
+ *       pre-encoded {@code byte[]} as-is and encodes strings as UTF-8</li>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.RecordEncoding} - Selects the string,
+ *       ASCII or compact encoding</li>
+ *   <li>{@link io.nadkarni.streamsproducer.encoding.RecordSizeReport} - Bytes per record of
+ *       a run against the string format, and bytes sent to the brokers</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.encoding;
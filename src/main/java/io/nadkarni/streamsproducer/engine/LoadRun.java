@@ -0,0 +1,442 @@
+package io.nadkarni.streamsproducer.engine;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.pacing.LoadProfile;
+import io.nadkarni.streamsproducer.pacing.RatePacer;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.payload.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A load run against one topic whose rate and worker count can be changed while it executes.
+ *
+ * <p>Unlike the {@link ParallelProducerEngine}, which divides a fixed key range between a
+ * fixed number of workers, the workers of a load run claim sequence numbers from a shared
+ * counter. Workers can therefore be added and retired at any time without leaving gaps or
+ * duplicates in the sequence numbers. Records keep the "N" / "Message N" format unless the
+ * run has a {@link Workload}, whose corpus is then shared by all workers.</p>
+ *
+ * <h3>Lifecycle:</h3>
+ * <ol>
+ *   <li>{@link #start()} fetches the topic metadata, starts the workers and a supervisor
+ *       thread</li>
+ *   <li>The run ends when {@code numberOfEvents} records have been sent, when
+ *       {@code runDuration} has elapsed, when the load profile ends, or when {@link #stop()}
+ *       is called</li>
+ *   <li>The supervisor then retires the workers, flushes the producers and waits for
+ *       outstanding acknowledgements before the run is marked finished</li>
+ * </ol>
+ *
+ * <h3>Changing the Run:</h3>
+ * <ul>
+ *   <li>{@link #setTargetRate(double)} replaces the pacer with one for the new constant
+ *       rate, starting now; the old pacer is stopped and its waiting workers woken up</li>
+ *   <li>{@link #resize(int)} starts additional workers, or retires workers after the record
+ *       they are currently sending</li>
+ * </ul>
+ *
+ * <h3>Producers:</h3>
+ * <p>Workers send through the shared auto-configured template, or with
+ * {@code producerPerWorker} through templates from the {@link ProducerPool}. Both are kept
+ * open after the run, so the next run starts with connected producers and cached
+ * metadata.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class LoadRun {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadRun.class);
+
+    /**
+     * Life-cycle states of a run.
+     */
+    public enum State {
+        /** Workers are sending. */
+        RUNNING,
+        /** The run has ended; outstanding records are being acknowledged. */
+        DRAINING,
+        /** Every limit has been reached and outstanding records have completed. */
+        FINISHED,
+        /** The run was stopped on request. */
+        STOPPED,
+        /** A worker failed with an unexpected exception. */
+        FAILED
+    }
+
+    private final RunSpec spec;
+    private final String topic;
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final ProducerPool producerPool;
+    private final SendLatencyRecorder latency;
+    private final Workload workload;
+    private final InFlightWindow window;
+    private final SendStatistics statistics = new SendStatistics();
+    private final RunLimit limit;
+    private final AtomicLong nextSeq = new AtomicLong();
+
+    /**
+     * Index of the next worker started, never reused within the run so that a replacement
+     * does not share the name, payload stream or pooled template of a retired worker.
+     */
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    /**
+     * Workers currently sending; guarded by {@code this}.
+     */
+    private final List<Worker> workers = new ArrayList<>();
+
+    /**
+     * Every worker started during the run, including retired ones; guarded by {@code this}.
+     */
+    private final List<Worker> started = new ArrayList<>();
+
+    /**
+     * Templates used by the workers, flushed at the end of the run; guarded by {@code this}.
+     */
+    private final Set<KafkaTemplate<Object, Object>> templates = new LinkedHashSet<>();
+
+    private volatile RatePacer pacer;
+    private volatile State state = State.RUNNING;
+    private volatile boolean stopRequested;
+    private volatile Throwable failure;
+    private volatile int partitions;
+    private long startNanos;
+
+    /**
+     * Creates a run; nothing is sent until {@link #start()}.
+     *
+     * @param spec          completed and validated run parameters
+     * @param kafkaTemplate the auto-configured template shared by workers by default
+     * @param producerPool  source of per-worker templates
+     * @param latency       latency histograms for the run's topic
+     * @param workload      generated payloads, or {@code null} for the original records
+     */
+    public LoadRun(RunSpec spec, KafkaTemplate<Object, Object> kafkaTemplate, ProducerPool producerPool,
+                   SendLatencyRecorder latency, Workload workload) {
+        this.spec = spec;
+        this.topic = spec.getTopic();
+        this.kafkaTemplate = kafkaTemplate;
+        this.producerPool = producerPool;
+        this.latency = latency;
+        this.workload = workload;
+        this.window = new InFlightWindow(spec.getMaxInFlightRecords(), spec.getMaxInFlightBytes());
+        this.limit = new RunLimit(spec.getNumberOfEvents(), spec.runDurationNanos());
+    }
+
+    /**
+     * Starts the workers and returns immediately.
+     */
+    public synchronized void start() {
+        partitions = kafkaTemplate.partitionsFor(topic).size();
+        latency.reset();
+        statistics.start();
+        limit.start();
+        startNanos = System.nanoTime();
+        pacer = createPacer();
+        logger.info("Starting run on '" + topic + "' with " + spec.getProducerThreads() + " workers, "
+                + (pacer == null ? "unpaced" : "paced") + ", numberOfEvents=" + spec.getNumberOfEvents()
+                + (workload == null ? "" : ", " + workload));
+        resize(spec.getProducerThreads());
+        Thread supervisor = new Thread(this::supervise, "run-" + topic);
+        supervisor.setDaemon(true);
+        supervisor.start();
+    }
+
+    /**
+     * Changes the target rate of a running run to a constant rate, replacing any load profile.
+     *
+     * @param recordsPerSecond new rate, or 0 to send as fast as the in-flight window allows
+     * @throws IllegalStateException if the run is no longer running
+     */
+    public synchronized void setTargetRate(double recordsPerSecond) {
+        checkRunning();
+        if (recordsPerSecond < 0) {
+            throw new IllegalArgumentException("targetRate must not be negative");
+        }
+        RatePacer next = null;
+        if (recordsPerSecond > 0) {
+            next = new RatePacer(LoadProfile.constant(recordsPerSecond), spec.getPacingBurst(), remainingNanos());
+            next.start();
+        }
+        RatePacer previous = pacer;
+        pacer = next;
+        if (previous != null) {
+            previous.stop();
+            workers.forEach(worker -> LockSupport.unpark(worker.thread));
+        }
+        logger.info("Run on '" + topic + "' retargeted to "
+                + (next == null ? "unpaced" : recordsPerSecond + " records/sec"));
+    }
+
+    /**
+     * Changes the number of workers of a running run.
+     *
+     * @param count new number of workers
+     * @throws IllegalStateException if the run is no longer running
+     */
+    public synchronized void resize(int count) {
+        checkRunning();
+        if (count < 1) {
+            throw new IllegalArgumentException("producerThreads must be at least 1");
+        }
+        while (workers.size() < count) {
+            int index = nextWorker.getAndIncrement();
+            KafkaTemplate<Object, Object> template = Boolean.TRUE.equals(spec.getProducerPerWorker())
+                    ? producerPool.template("worker-" + index) : kafkaTemplate;
+            if (spec.getRecordEncoding().isPreEncoded() || workload != null) {
+                PassThroughSerializer.checkConfigured(template);
+            }
+            templates.add(template);
+            Worker worker = new Worker(index, template);
+            workers.add(worker);
+            started.add(worker);
+            worker.thread.start();
+        }
+        while (workers.size() > count) {
+            workers.remove(workers.size() - 1).retire();
+        }
+    }
+
+    /**
+     * Ends the run early. Outstanding records are still flushed and acknowledged.
+     */
+    public void stop() {
+        stopRequested = true;
+        done.countDown();
+    }
+
+    /**
+     * Waits until the run has ended and its outstanding records have completed.
+     *
+     * @param timeout maximum time to wait
+     * @param unit    unit of {@code timeout}
+     * @return {@code true} if the run has terminated
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminated.await(timeout, unit);
+    }
+
+    /**
+     * Waits for the end of the run, then shuts it down in order.
+     */
+    private void supervise() {
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            stopRequested = true;
+        }
+        List<Worker> retiring;
+        synchronized (this) {
+            state = State.DRAINING;
+            RatePacer current = pacer;
+            if (current != null) {
+                current.stop();
+            }
+            workers.forEach(Worker::retire);
+            workers.clear();
+            retiring = new ArrayList<>(started);
+        }
+        try {
+            long drainTimeoutMs = spec.getDrainTimeoutMs();
+            for (Worker worker : retiring) {
+                if (stopRequested) {
+                    worker.thread.interrupt();
+                }
+                worker.thread.join(drainTimeoutMs);
+                worker.thread.interrupt();
+            }
+            synchronized (this) {
+                templates.forEach(KafkaTemplate::flush);
+            }
+            if (!window.awaitEmpty(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Run on '" + topic + "' timed out after " + drainTimeoutMs + " ms with "
+                        + window.inFlightRecords() + " records still unacknowledged");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            statistics.finish();
+            state = failure != null ? State.FAILED : stopRequested ? State.STOPPED : State.FINISHED;
+            logger.info("Run on '" + topic + "' " + state + ": " + statistics.summary());
+            logger.info(latency.summary());
+            if (failure != null) {
+                logger.warn("Run on '" + topic + "' failed", failure);
+            }
+            terminated.countDown();
+        }
+    }
+
+    private RatePacer createPacer() {
+        LoadProfile profile;
+        if (StringUtils.hasText(spec.getLoadProfile())) {
+            profile = LoadProfile.parse(spec.getLoadProfile());
+        } else if (spec.getTargetRate() > 0) {
+            profile = LoadProfile.constant(spec.getTargetRate());
+        } else {
+            return null;
+        }
+        RatePacer created = new RatePacer(profile, spec.getPacingBurst(), spec.runDurationNanos());
+        created.start();
+        return created;
+    }
+
+    /**
+     * @return time left before {@code runDuration} elapses, at least 1 ns, or 0 if unbounded
+     */
+    private long remainingNanos() {
+        long duration = spec.runDurationNanos();
+        return duration == 0 ? 0 : Math.max(1, duration - (System.nanoTime() - startNanos));
+    }
+
+    private void checkRunning() {
+        if (state != State.RUNNING) {
+            throw new IllegalStateException("Run on '" + topic + "' is " + state);
+        }
+    }
+
+    /**
+     * @return the parameters of the run
+     */
+    public RunSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * @return the current state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the number of workers currently sending
+     */
+    public synchronized int getWorkerCount() {
+        return workers.size();
+    }
+
+    /**
+     * @return the intended rate in records per second, or 0 if the run is not paced
+     */
+    public double getTargetRate() {
+        RatePacer current = pacer;
+        return current == null ? 0 : current.currentRate();
+    }
+
+    /**
+     * @return the number of partitions of the topic when the run started
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @return the number of records sent but not yet acknowledged
+     */
+    public int getInFlightRecords() {
+        return window.inFlightRecords();
+    }
+
+    /**
+     * @return the counters of the run
+     */
+    public SendStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return the latency histograms of the run's topic
+     */
+    public SendLatencyRecorder getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the exception that failed the run, or {@code null}
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * One sending thread with its own sender and record builder.
+     */
+    private final class Worker implements Runnable {
+
+        private final PipelinedSender<Object, Object> sender;
+        private final RecordBuilder builder;
+        private final Thread thread;
+        private volatile boolean retired;
+
+        private Worker(int index, KafkaTemplate<Object, Object> template) {
+            this.sender = new PipelinedSender<>(template, window, statistics, latency);
+            this.builder = RecordBuilder.create(spec.getRecordEncoding(), workload, index);
+            this.thread = new Thread(this, "run-" + topic + "-worker-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Makes the worker exit after the record it is currently sending.
+         */
+        private void retire() {
+            retired = true;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!retired) {
+                    RatePacer current = pacer;
+                    long intended = current == null ? System.nanoTime() : current.acquire();
+                    if (current != null && intended == RatePacer.FINISHED) {
+                        if (current == pacer) {
+                            done.countDown();
+                            return;
+                        }
+                        continue;
+                    }
+                    if (retired) {
+                        return;
+                    }
+                    long seq = nextSeq.getAndIncrement();
+                    if (!limit.allows(seq)) {
+                        done.countDown();
+                        return;
+                    }
+                    builder.build(seq);
+                    sender.send(topic, null, builder.key, builder.value, builder.size, intended);
+                }
+            } catch (InterruptedException e) {
+                // Stopped while waiting for the pacer or the in-flight window
+            } catch (RuntimeException e) {
+                if (!stopRequested) {
+                    failure = e;
+                    done.countDown();
+                }
+            }
+        }
+    }
+}
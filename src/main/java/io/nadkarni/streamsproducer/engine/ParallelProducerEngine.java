@@ -0,0 +1,656 @@
+package io.nadkarni.streamsproducer.engine;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoint;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoints;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.metrics.TransactionRecorder;
+import io.nadkarni.streamsproducer.metrics.TransactionRecorders;
+import io.nadkarni.streamsproducer.pacing.RatePacer;
+import io.nadkarni.streamsproducer.partitioning.PartitionPlan;
+import io.nadkarni.streamsproducer.partitioning.PartitionSelector;
+import io.nadkarni.streamsproducer.partitioning.Partitioning;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.payload.Workload;
+import org.apache.kafka.common.errors.ProducerFencedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded send engine that splits the key space across worker threads.
+ *
+ * <p>A single thread running the send loop becomes CPU bound on serialization and
+ * partitioning long before the brokers are saturated. This engine runs
+ * {@code producerThreads} workers, each sending a disjoint shard of the sequence numbers
+ * {@code [0, numberOfEvents)} in the same "N" / "Message N" format as {@code Producer}, or
+ * with keys and values from the run's {@link Workload}.</p>
+ *
+ * <h3>Producers:</h3>
+ * <ul>
+ *   <li><strong>Shared:</strong> all workers send through the auto-configured
+ *       {@link KafkaTemplate}, so they share one {@code KafkaProducer} and its batches</li>
+ *   <li><strong>Per worker:</strong> with {@code producerPerWorker} enabled each worker
+ *       obtains its own template from the {@link ProducerPool}, removing contention on the
+ *       producer's record accumulator</li>
+ * </ul>
+ *
+ * <h3>Sharding:</h3>
+ * <p>See {@link Sharding}. With {@link Sharding#PARTITION_AFFINE} the number of active
+ * workers is capped at the topic's partition count.</p>
+ *
+ * <h3>Partitioning:</h3>
+ * <p>With {@link Sharding#INTERLEAVED} each worker places its records through its own
+ * selector from the run's {@link PartitionPlan}, or leaves placement to the producer's
+ * partitioner for {@link Partitioning#DEFAULT}. Partition-affine sharding already fixes
+ * each record's partition, so it ignores the plan's strategy. Acknowledged records are
+ * counted per partition either way.</p>
+ *
+ * <h3>Encoding:</h3>
+ * <p>With {@link RecordEncoding#ASCII} every worker owns an {@code AsciiRecordEncoder}, and
+ * with {@link RecordEncoding#COMPACT} a {@code CompactRecordEncoder}, so records are written
+ * into per-thread reused arrays. With a workload every worker reads
+ * the shared corpus through its own cursor.</p>
+ *
+ * <h3>Flow Control:</h3>
+ * <p>All workers share the caller's {@link InFlightWindow}, {@link SendStatistics},
+ * {@link SendLatencyRecorder}, {@link RunLimit} and (for paced runs) {@link RatePacer}, so the in-flight limits, the stop
+ * condition and the target rate apply to the engine as a whole. Per-message logging is done at
+ * DEBUG level because a shared appender would otherwise serialize the workers.</p>
+ *
+ * <h3>Transactions:</h3>
+ * <p>With {@code transactional} enabled every worker sends through its own idempotent,
+ * transactional producer from the {@link ProducerPool}, whose {@code transactional.id} is
+ * derived from {@code transactionalIdPrefix}, the topic and the worker index. Workers
+ * therefore commit independently and scale like per-worker producers. A worker groups its
+ * records into transactions of up to {@code transactionRecords} records or
+ * {@code transactionTime}, whichever is reached first; a commit per record would make
+ * throughput a function of commit latency.</p>
+ * <p>Each transaction's records are kept in a {@code TransactionBatch} until it commits.
+ * When a transaction aborts, only that batch is sent again, in a new transaction, up to
+ * {@code transactionRetries} times; committed transactions are never repeated. A fenced
+ * producer, meaning another instance took over the same transactional id, ends the run.
+ * Commit latency, commit and abort counts and the share of worker time spent committing
+ * are recorded in the topic's {@link TransactionRecorder}. The {@link SendStatistics}
+ * count every attempt, so resent records are counted as sent again and the sends of an
+ * aborted transaction may count as failed.</p>
+ *
+ * <h3>Checkpoints:</h3>
+ * <p>When the caller passes its {@link RunCheckpoints}, every worker's sender advances its
+ * own lane of the run's {@link RunCheckpoint}. On a resumed run each worker first skips the
+ * records of its shard that its lane has recorded as acknowledged. A worker's shard depends
+ * on the number of workers, the sharding and, when partition-affine, the partition count,
+ * so these are part of the run's identity. Transactional runs are not checkpointed.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ParallelProducerEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelProducerEngine.class);
+
+    /**
+     * Number of worker threads.
+     * Configured via the {@code producerThreads} property in application.yaml.
+     * Default value: 1 (the engine is not used)
+     */
+    @Value("${producerThreads:1}")
+    private int producerThreads;
+
+    /**
+     * Whether each worker uses its own {@code KafkaProducer}.
+     * Configured via the {@code producerPerWorker} property in application.yaml.
+     * Default value: false
+     */
+    @Value("${producerPerWorker:false}")
+    private boolean producerPerWorker;
+
+    /**
+     * How keys are divided between workers.
+     * Configured via the {@code sharding} property in application.yaml.
+     * Default value: interleaved
+     */
+    @Value("${sharding:interleaved}")
+    private Sharding sharding;
+
+    /**
+     * Whether records are sent in idempotent, transactional batches.
+     * Configured via the {@code transactional} property in application.yaml.
+     * Default value: false
+     */
+    @Value("${transactional:false}")
+    private boolean transactional;
+
+    /**
+     * Maximum number of records per transaction.
+     * Configured via the {@code transactionRecords} property in application.yaml.
+     * Default value: 10,000
+     */
+    @Value("${transactionRecords:10000}")
+    private int transactionRecords = 10000;
+
+    /**
+     * Maximum time a transaction stays open for further records.
+     * Configured via the {@code transactionTime} property in application.yaml.
+     * Default value: 100ms
+     */
+    @Value("${transactionTime:100ms}")
+    private Duration transactionTime = Duration.ofMillis(100);
+
+    /**
+     * Number of times an aborted transaction is sent again before the run fails.
+     * Configured via the {@code transactionRetries} property in application.yaml.
+     * Default value: 3
+     */
+    @Value("${transactionRetries:3}")
+    private int transactionRetries = 3;
+
+    /**
+     * Start of every worker's {@code transactional.id}; instances producing at the same time
+     * must use different prefixes.
+     * Configured via the {@code transactionalIdPrefix} property in application.yaml.
+     * Default value: streams-producer-
+     */
+    @Value("${transactionalIdPrefix:streams-producer-}")
+    private String transactionalIdPrefix = "streams-producer-";
+
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final ProducerPool producerPool;
+    private final TransactionRecorders transactionRecorders;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaTemplate        the auto-configured template shared by workers by default
+     * @param producerPool         source of per-worker templates
+     * @param transactionRecorders per-topic commit metrics of the transactional mode
+     */
+    public ParallelProducerEngine(KafkaTemplate<Object, Object> kafkaTemplate, ProducerPool producerPool,
+                                  TransactionRecorders transactionRecorders) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.producerPool = producerPool;
+        this.transactionRecorders = transactionRecorders;
+    }
+
+    /**
+     * @return {@code true} if more than one worker thread is configured
+     */
+    public boolean isParallel() {
+        return producerThreads > 1;
+    }
+
+    /**
+     * @return {@code true} if records are sent in transactions, which the engine handles
+     *         for any number of workers
+     */
+    public boolean isTransactional() {
+        return transactional;
+    }
+
+    /**
+     * @return {@code true} if the workers send through the auto-configured template rather
+     *         than producers of their own
+     */
+    public boolean usesSharedProducer() {
+        return !producerPerWorker && !transactional;
+    }
+
+    /**
+     * Sends records using the configured number of workers until the limit is reached and
+     * waits for them to be acknowledged.
+     *
+     * @param topic          destination topic
+     * @param limit          stop condition; keys are {@code 0 .. maxRecords - 1}
+     * @param pacer          shared pacer for a paced run, or {@code null}
+     * @param encoding       how workers build each record without a workload
+     * @param workload       generated payloads, or {@code null} for the original records
+     * @param window         window shared by all workers
+     * @param statistics     counters shared by all workers
+     * @param latency        latency histograms shared by all workers, or {@code null}
+     * @param partitionPlan  partitioning of the run, shared by all workers
+     * @param drainTimeoutMs maximum time to wait for outstanding acknowledgements
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void send(String topic, RunLimit limit, RatePacer pacer, RecordEncoding encoding,
+                     Workload workload, InFlightWindow window, SendStatistics statistics, SendLatencyRecorder latency,
+                     PartitionPlan partitionPlan, long drainTimeoutMs)
+            throws InterruptedException {
+        send(topic, limit, pacer, encoding, workload, window, statistics, latency, partitionPlan, drainTimeoutMs, null);
+    }
+
+    /**
+     * Sends records as {@link #send(String, RunLimit, RatePacer, RecordEncoding, Workload,
+     * InFlightWindow, SendStatistics, SendLatencyRecorder, PartitionPlan, long)} does,
+     * checkpointing the acknowledged records of every worker and resuming after those of
+     * an earlier attempt at the same run.
+     *
+     * @param topic          destination topic
+     * @param limit          stop condition; keys are {@code 0 .. maxRecords - 1}
+     * @param pacer          shared pacer for a paced run, or {@code null}
+     * @param encoding       how workers build each record without a workload
+     * @param workload       generated payloads, or {@code null} for the original records
+     * @param window         window shared by all workers
+     * @param statistics     counters shared by all workers
+     * @param latency        latency histograms shared by all workers, or {@code null}
+     * @param partitionPlan  partitioning of the run, shared by all workers
+     * @param drainTimeoutMs maximum time to wait for outstanding acknowledgements
+     * @param checkpoints    opens the run's checkpoint, or {@code null} for none; ignored
+     *                       for transactional runs
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void send(String topic, RunLimit limit, RatePacer pacer, RecordEncoding encoding,
+                     Workload workload, InFlightWindow window, SendStatistics statistics, SendLatencyRecorder latency,
+                     PartitionPlan partitionPlan, long drainTimeoutMs, RunCheckpoints checkpoints)
+            throws InterruptedException {
+        int partitions = kafkaTemplate.partitionsFor(topic).size();
+        int workers = producerThreads;
+        boolean partitionAffine = sharding == Sharding.PARTITION_AFFINE;
+        if (partitionAffine && workers > partitions) {
+            logger.warn("Only " + partitions + " partitions for " + producerThreads
+                    + " partition-affine workers; using " + partitions + " workers");
+            workers = partitions;
+        }
+        if (partitionAffine && partitionPlan.getPartitioning() != Partitioning.DEFAULT) {
+            logger.warn("Partition-affine sharding places records itself; partitioning "
+                    + partitionPlan.getPartitioning() + " is ignored");
+        }
+        logger.info("Sending with " + workers + " workers, sharding=" + sharding
+                + (transactional ? ", transactions of up to " + transactionRecords + " records or "
+                + transactionTime.toMillis() + " ms" : ", producerPerWorker=" + producerPerWorker));
+
+        RunCheckpoint checkpoint = checkpoints == null || transactional ? null
+                : checkpoints.open(runIdentity(topic, limit, workers, partitions), workers, limit.getMaxRecords());
+        try {
+            sendShards(topic, limit, pacer, encoding, workload, window, statistics, latency, partitionPlan,
+                    drainTimeoutMs, workers, partitions, partitionAffine, checkpoint);
+        } finally {
+            if (checkpoint != null) {
+                checkpoint.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the workers and waits for their records to be acknowledged.
+     */
+    private void sendShards(String topic, RunLimit limit, RatePacer pacer, RecordEncoding encoding,
+                            Workload workload, InFlightWindow window, SendStatistics statistics,
+                            SendLatencyRecorder latency, PartitionPlan partitionPlan, long drainTimeoutMs, int workers,
+                            int partitions, boolean partitionAffine, RunCheckpoint checkpoint)
+            throws InterruptedException {
+        List<KafkaTemplate<Object, Object>> templates = new ArrayList<>(workers);
+        List<PipelinedSender<Object, Object>> senders = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            KafkaTemplate<Object, Object> template;
+            if (transactional) {
+                String prefix = transactionalIdPrefix + topic + "-" + w + "-";
+                template = producerPool.transactionalTemplate("transactional-" + topic + "-" + w, prefix);
+            } else {
+                template = producerPerWorker ? producerPool.template("worker-" + w) : kafkaTemplate;
+            }
+            if (encoding.isPreEncoded() || workload != null) {
+                PassThroughSerializer.checkConfigured(template);
+            }
+            templates.add(template);
+            senders.add(new PipelinedSender<>(template, window, statistics, latency, partitionPlan.getCounts(),
+                    checkpoint == null ? null : checkpoint.lane(w)));
+        }
+        TransactionRecorder transactions = transactional ? transactionRecorders.forTopic(topic) : null;
+        if (transactions != null) {
+            transactions.reset();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new WorkerThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                Shard shard = new Shard(w, workers, partitions, limit, pacer, partitionAffine,
+                        partitionAffine ? null : partitionPlan.selector(w));
+                long resumed = checkpoint == null ? 0 : checkpoint.lane(w).getResumeOrdinal();
+                PipelinedSender<Object, Object> sender = senders.get(w);
+                KafkaTemplate<Object, Object> template = templates.get(w);
+                futures.add(executor.submit(() -> {
+                    RecordBuilder builder = RecordBuilder.create(encoding, workload, shard.worker);
+                    if (transactions != null) {
+                        runTransactionalShard(topic, shard, builder, sender, template, transactions);
+                    } else {
+                        shard.skip(resumed);
+                        runShard(topic, shard, builder, sender);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Producer worker failed", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (transactions != null) {
+            // Every transaction flushed its records when it committed
+            logger.info(transactions.summary(statistics.getElapsedMillis(), workers));
+        } else if (producerPerWorker) {
+            senders.forEach(PipelinedSender::flush);
+        } else {
+            kafkaTemplate.flush();
+        }
+        if (!window.awaitEmpty(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+            logger.warn("Timed out after " + drainTimeoutMs + " ms with "
+                    + window.inFlightRecords() + " records still unacknowledged");
+        }
+    }
+
+    /**
+     * Describes the run whose records a checkpoint covers.
+     */
+    private String runIdentity(String topic, RunLimit limit, int workers, int partitions) {
+        return "topic " + topic + ", records " + limit.getFirstRecord() + ".."
+                + (limit.getFirstRecord() + limit.getMaxRecords() - 1) + ", " + workers + " workers, sharding "
+                + sharding + (sharding == Sharding.PARTITION_AFFINE ? " over " + partitions + " partitions" : "");
+    }
+
+    /**
+     * Sends every key belonging to one shard.
+     */
+    private void runShard(String topic, Shard shard, RecordBuilder builder,
+                          PipelinedSender<Object, Object> sender) throws InterruptedException {
+        while (shard.advance()) {
+            if (!sendOne(topic, shard, builder, sender)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends every key belonging to one shard in transactions of bounded size and duration.
+     */
+    private void runTransactionalShard(String topic, Shard shard, RecordBuilder builder,
+                                       PipelinedSender<Object, Object> sender, KafkaTemplate<Object, Object> template,
+                                       TransactionRecorder transactions) throws InterruptedException {
+        TransactionBatch batch = new TransactionBatch(transactionRecords);
+        do {
+            batch.clear();
+            for (int attempt = 0; ; attempt++) {
+                boolean resend = attempt > 0;
+                try {
+                    commit(template, batch, () -> {
+                        if (resend) {
+                            resendBatch(topic, batch, sender);
+                        } else {
+                            fillBatch(topic, shard, builder, batch, sender);
+                        }
+                    });
+                    if (batch.size() > 0) {
+                        transactions.recordCommit(batch.size(), System.nanoTime() - batch.sentNanos);
+                    }
+                    break;
+                } catch (RuntimeException e) {
+                    if (isFenced(e) || attempt >= transactionRetries) {
+                        throw e;
+                    }
+                    transactions.recordAbort(batch.size());
+                    logger.warn("Transaction of " + batch.size() + " records aborted; sending it again (retry "
+                            + (attempt + 1) + " of " + transactionRetries + ")", e);
+                }
+            }
+        } while (batch.more);
+    }
+
+    /**
+     * Sends the next records of the shard into an open transaction until the batch is full,
+     * its time is up or the shard has no more records. The batch is marked as having more
+     * records until the shard runs out, so a send that fails partway through the fill does
+     * not end the worker once the batch has been sent again.
+     */
+    private void fillBatch(String topic, Shard shard, RecordBuilder builder, TransactionBatch batch,
+                           PipelinedSender<Object, Object> sender) throws InterruptedException {
+        long deadline = System.nanoTime() + transactionTime.toNanos();
+        batch.more = true;
+        while (true) {
+            if (!shard.advance()) {
+                batch.more = false;
+                return;
+            }
+            long intended = shard.pacer == null ? System.nanoTime() : shard.pacer.acquire();
+            if (shard.pacer != null && intended == RatePacer.FINISHED) {
+                shard.limit.expire();
+                batch.more = false;
+                return;
+            }
+            builder.build(shard.seq);
+            Integer partition = shard.partitionOf(builder);
+            Object key = builder.retainedKey();
+            Object value = builder.retainedValue();
+            batch.add(partition, key, value, builder.size, intended);
+            sender.send(topic, partition, key, value, builder.size, intended);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Sending " + shard.seq);
+            }
+            if (batch.size() >= transactionRecords || System.nanoTime() - deadline >= 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sends the records of an aborted transaction again, with their original intended
+     * send times.
+     */
+    private static void resendBatch(String topic, TransactionBatch batch, PipelinedSender<Object, Object> sender)
+            throws InterruptedException {
+        for (int i = 0; i < batch.size(); i++) {
+            sender.send(topic, batch.partition(i), batch.key(i), batch.value(i), batch.recordSize(i),
+                    batch.intended(i));
+        }
+    }
+
+    /**
+     * Runs {@code body} in a transaction and commits it; the transaction is aborted if the
+     * body or the commit fails.
+     *
+     * @throws InterruptedException if the body was interrupted; the transaction is aborted
+     */
+    private static void commit(KafkaTemplate<Object, Object> template, TransactionBatch batch, TransactionBody body)
+            throws InterruptedException {
+        try {
+            template.executeInTransaction(operations -> {
+                try {
+                    body.run();
+                } catch (InterruptedException e) {
+                    throw new InterruptedTransaction(e);
+                }
+                batch.sentNanos = System.nanoTime();
+                return null;
+            });
+        } catch (InterruptedTransaction e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedException) e.getCause();
+        }
+    }
+
+    /**
+     * @return {@code true} if the producer was fenced by another one with the same
+     *         transactional id, which retrying would only fence in turn
+     */
+    private static boolean isFenced(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ProducerFencedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends one record, first waiting for the pacer if the run is paced.
+     *
+     * @return {@code false} if the pacer has finished and the run should stop
+     */
+    private boolean sendOne(String topic, Shard shard, RecordBuilder builder, PipelinedSender<Object, Object> sender)
+            throws InterruptedException {
+        long intended = shard.pacer == null ? System.nanoTime() : shard.pacer.acquire();
+        if (shard.pacer != null && intended == RatePacer.FINISHED) {
+            shard.limit.expire();
+            return false;
+        }
+        builder.build(shard.seq);
+        sender.send(topic, shard.partitionOf(builder), builder.key, builder.value, builder.size, intended);
+        if (logger.isDebugEnabled()) {
+            logger.debug("Sending " + shard.seq);
+        }
+        return true;
+    }
+
+    /**
+     * Position of one worker within the run.
+     */
+    private static final class Shard {
+
+        private final int worker;
+        private final int workers;
+        private final int partitions;
+        private final RunLimit limit;
+        private final RatePacer pacer;
+        private final boolean partitionAffine;
+        private final PartitionSelector selector;
+
+        /**
+         * Sequence number of the current record, or -1 before the first one.
+         */
+        private long seq = -1;
+
+        /**
+         * Partition of the current record, or {@code null} for the default partitioner.
+         */
+        private Integer partition;
+
+        private long base;
+        private int slot;
+
+        private Shard(int worker, int workers, int partitions, RunLimit limit, RatePacer pacer,
+                      boolean partitionAffine, PartitionSelector selector) {
+            this.worker = worker;
+            this.workers = workers;
+            this.partitions = partitions;
+            this.limit = limit;
+            this.pacer = pacer;
+            this.partitionAffine = partitionAffine;
+            this.selector = selector;
+        }
+
+        /**
+         * Chooses the partition of the record just built.
+         *
+         * @return the owned partition when partition-affine, the selector's choice, or
+         *         {@code null} for the producer's partitioner
+         */
+        private Integer partitionOf(RecordBuilder builder) {
+            return selector == null ? partition : Integer.valueOf(selector.partition(builder.keyNumber, builder.size));
+        }
+
+        /**
+         * Moves to the next record of the shard. Interleaved shards take every
+         * {@code workers}-th sequence number; partition-affine shards take, in each round of
+         * {@code partitions} sequence numbers, those of the partitions they own, starting
+         * from the round that holds the limit's first record.
+         *
+         * @return {@code false} once the run limit is reached
+         */
+        private boolean advance() {
+            if (partitionAffine) {
+                long first = limit.getFirstRecord();
+                do {
+                    if (seq < 0) {
+                        base = first - first % partitions;
+                        slot = worker;
+                    } else {
+                        slot += workers;
+                        if (slot >= partitions) {
+                            base += partitions;
+                            slot = worker;
+                        }
+                    }
+                    seq = base + slot;
+                } while (seq < first);
+                partition = slot;
+            } else {
+                seq = seq < 0 ? limit.getFirstRecord() + worker : seq + workers;
+            }
+            return limit.allows(seq);
+        }
+
+        /**
+         * Moves past the shard's first records without sending them, so that the next
+         * {@link #advance()} returns the record after them.
+         *
+         * @param records number of records to skip
+         */
+        private void skip(long records) {
+            long skipped = 0;
+            while (skipped < records && advance()) {
+                skipped++;
+            }
+        }
+    }
+
+    /**
+     * The sends of one transaction.
+     */
+    @FunctionalInterface
+    private interface TransactionBody {
+
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Carries an interrupt out of a transaction callback, which cannot throw checked
+     * exceptions, so that the transaction is aborted.
+     */
+    private static final class InterruptedTransaction extends RuntimeException {
+
+        private InterruptedTransaction(InterruptedException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Names worker threads so they can be identified in thread dumps and logs.
+     */
+    private static final class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "producer-worker-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package io.nadkarni.streamsproducer.engine;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns additional {@link KafkaTemplate}s, each backed by its own {@code KafkaProducer}.
+ *
+ * <p>The auto-configured {@code KafkaTemplate} is a single shared producer. Engines that
+ * need more than one producer, such as the {@link ParallelProducerEngine} when
+ * {@code producerPerWorker} is enabled, obtain named templates from this pool instead.
+ * Every template starts from the {@code spring.kafka.producer} properties in
+ * application.yaml and may override individual producer settings.</p>
+ *
+ * <h3>Transactions:</h3>
+ * <p>{@link #transactionalTemplate(String, String)} creates templates whose factory has a
+ * transaction id prefix, with idempotence enabled and {@code acks=all}. Each such factory
+ * caches a single transactional producer, so the prefix identifies one producer and a
+ * restarted instance using the same prefix fences its predecessor.</p>
+ *
+ * <h3>Lifecycle:</h3>
+ * <p>Templates are created on first use and cached by name, so producers, their
+ * connections and their metadata stay warm between runs. All producers are closed when
+ * the application context shuts down.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class ProducerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProducerPool.class);
+
+    /**
+     * Producer properties derived from the {@code spring.kafka} configuration.
+     */
+    private final KafkaProperties kafkaProperties;
+
+    /**
+     * Factories created by this pool, keyed by template name.
+     */
+    private final Map<String, DefaultKafkaProducerFactory<?, ?>> factories = new ConcurrentHashMap<>();
+
+    /**
+     * Templates created by this pool, keyed by template name.
+     */
+    private final Map<String, KafkaTemplate<?, ?>> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaProperties the Spring Boot Kafka properties bound from application.yaml
+     */
+    public ProducerPool(KafkaProperties kafkaProperties) {
+        this.kafkaProperties = kafkaProperties;
+    }
+
+    /**
+     * Returns the template with the given name, creating it with the configured producer
+     * properties on first use.
+     *
+     * @param name template name, unique within the pool
+     * @param <K>  the record key type
+     * @param <V>  the record value type
+     * @return the cached or newly created template
+     */
+    public <K, V> KafkaTemplate<K, V> template(String name) {
+        return template(name, Map.of());
+    }
+
+    /**
+     * Returns the template with the given name, creating it on first use with the
+     * configured producer properties plus {@code overrides}.
+     *
+     * <p>Overrides only take effect when the template is created; a later call with the
+     * same name returns the cached template regardless of the overrides passed.</p>
+     *
+     * @param name      template name, unique within the pool
+     * @param overrides producer properties that replace the configured values
+     * @param <K>       the record key type
+     * @param <V>       the record value type
+     * @return the cached or newly created template
+     */
+    public <K, V> KafkaTemplate<K, V> template(String name, Map<String, Object> overrides) {
+        return create(name, overrides, null);
+    }
+
+    /**
+     * Returns the transactional template with the given name, creating it on first use
+     * with the configured producer properties, idempotence enabled and {@code acks=all}.
+     *
+     * <p>Records must be sent inside {@link KafkaTemplate#executeInTransaction}; a
+     * producer whose transaction fails is closed and replaced by the factory, which fences
+     * any send still pending on it.</p>
+     *
+     * @param name                template name, unique within the pool
+     * @param transactionIdPrefix prefix of the producer's {@code transactional.id}, unique
+     *                            among the producers writing at the same time
+     * @param <K>                 the record key type
+     * @param <V>                 the record value type
+     * @return the cached or newly created template
+     */
+    public <K, V> KafkaTemplate<K, V> transactionalTemplate(String name, String transactionIdPrefix) {
+        Map<String, Object> overrides = new HashMap<>();
+        overrides.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        overrides.put(ProducerConfig.ACKS_CONFIG, "all");
+        return create(name, overrides, transactionIdPrefix);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, V> KafkaTemplate<K, V> create(String name, Map<String, Object> overrides, String transactionIdPrefix) {
+        return (KafkaTemplate<K, V>) templates.computeIfAbsent(name, n -> {
+            Map<String, Object> properties = new HashMap<>(kafkaProperties.buildProducerProperties());
+            properties.putAll(overrides);
+            DefaultKafkaProducerFactory<K, V> factory = new DefaultKafkaProducerFactory<>(properties);
+            if (transactionIdPrefix != null) {
+                factory.setTransactionIdPrefix(transactionIdPrefix);
+            }
+            factories.put(n, factory);
+            logger.info("Created producer '" + n + "'"
+                    + (transactionIdPrefix == null ? "" : " with transaction id prefix '" + transactionIdPrefix + "'"));
+            return new KafkaTemplate<>(factory);
+        });
+    }
+
+    /**
+     * Closes and forgets the template with the given name, if it exists.
+     *
+     * @param name template name
+     */
+    public void release(String name) {
+        templates.remove(name);
+        DefaultKafkaProducerFactory<?, ?> factory = factories.remove(name);
+        if (factory != null) {
+            factory.destroy();
+        }
+    }
+
+    /**
+     * Closes every producer created by this pool.
+     */
+    @PreDestroy
+    public void close() {
+        factories.keySet().forEach(this::release);
+    }
+}
@@ -0,0 +1,208 @@
+package io.nadkarni.streamsproducer.engine;
+
+import io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder;
+import io.nadkarni.streamsproducer.encoding.CompactRecordEncoder;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.payload.Workload;
+
+/**
+ * Builds the key and value for one sequence number; one instance per sending thread, the
+ * engine's workers, the fan-out workers and the single-threaded loop of {@code Producer} alike.
+ *
+ * <p>Without a {@link Workload} records keep the "N" / "Message N" format of
+ * {@code Producer}; with one, keys and values come from the workload's corpus and key
+ * model. The builder exposes the last record through fields rather than return values so
+ * that it can hand out reused arrays without allocating a holder per record.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public abstract class RecordBuilder {
+
+    Object key;
+    Object value;
+    int size;
+
+    /**
+     * Number the last key was built from, used to choose its partition.
+     */
+    long keyNumber;
+
+    /**
+     * Creates a builder for one worker.
+     *
+     * @param encoding how "N" / "Message N" records are built when there is no workload
+     * @param workload generated payloads, or {@code null} for the original records
+     * @param worker   index of the worker, selecting its random stream in the workload
+     * @return a new builder, to be confined to one thread
+     */
+    public static RecordBuilder create(RecordEncoding encoding, Workload workload, int worker) {
+        if (workload != null) {
+            return new WorkloadRecordBuilder(workload.cursor(worker));
+        }
+        switch (encoding) {
+            case ASCII:
+                return new AsciiRecordBuilder();
+            case COMPACT:
+                return new CompactRecordBuilder();
+            default:
+                return new StringRecordBuilder();
+        }
+    }
+
+    /**
+     * Builds the record for {@code seq} into {@link #key}, {@link #value}, {@link #size} and
+     * {@link #keyNumber}.
+     *
+     * @param seq non-negative sequence number
+     */
+    public abstract void build(long seq);
+
+    /**
+     * @return the last key, valid until the next {@link #build(long)}
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * @return the last value, valid until the next {@link #build(long)}
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return the size of the last key and value in bytes
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number the last key was built from, used to choose its partition
+     */
+    public long getKeyNumber() {
+        return keyNumber;
+    }
+
+    /**
+     * Returns the last key in a form that stays valid after the next {@link #build(long)},
+     * for records that may have to be sent again.
+     *
+     * @return the key, copied if the builder reuses its array
+     */
+    Object retainedKey() {
+        return key;
+    }
+
+    /**
+     * Returns the last value in a form that stays valid after the next {@link #build(long)}.
+     *
+     * @return the value, copied if the builder reuses its array
+     */
+    Object retainedValue() {
+        return value;
+    }
+
+    /**
+     * Builds {@code String} records, encoded later by the serializer.
+     */
+    private static final class StringRecordBuilder extends RecordBuilder {
+
+        @Override
+        public void build(long seq) {
+            String k = Long.toString(seq);
+            String v = "Message " + k;
+            key = k;
+            value = v;
+            size = k.length() + v.length();
+            keyNumber = seq;
+        }
+    }
+
+    /**
+     * Builds pre-encoded {@code byte[]} records in reused arrays.
+     */
+    private static final class AsciiRecordBuilder extends RecordBuilder {
+
+        private final AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+
+        @Override
+        public void build(long seq) {
+            byte[] k = encoder.key(seq);
+            byte[] v = encoder.value(seq);
+            key = k;
+            value = v;
+            size = k.length + v.length;
+            keyNumber = seq;
+        }
+
+        @Override
+        Object retainedKey() {
+            return ((byte[]) key).clone();
+        }
+
+        @Override
+        Object retainedValue() {
+            return ((byte[]) value).clone();
+        }
+    }
+
+    /**
+     * Builds {@code byte[]} records in the compact binary format in reused arrays.
+     */
+    private static final class CompactRecordBuilder extends RecordBuilder {
+
+        private final CompactRecordEncoder encoder = new CompactRecordEncoder();
+
+        @Override
+        public void build(long seq) {
+            byte[] k = encoder.key(seq);
+            byte[] v = encoder.value(seq, System.currentTimeMillis());
+            key = k;
+            value = v;
+            size = k.length + v.length;
+            keyNumber = seq;
+        }
+
+        @Override
+        Object retainedKey() {
+            return ((byte[]) key).clone();
+        }
+
+        @Override
+        Object retainedValue() {
+            return ((byte[]) value).clone();
+        }
+    }
+
+    /**
+     * Takes keys and values from a workload. Values are the corpus' own arrays, which are
+     * never modified; keys are reused.
+     */
+    private static final class WorkloadRecordBuilder extends RecordBuilder {
+
+        private final Workload.Cursor cursor;
+
+        private WorkloadRecordBuilder(Workload.Cursor cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void build(long seq) {
+            byte[] k = cursor.key(seq);
+            byte[] v = cursor.value(seq);
+            key = k;
+            value = v;
+            size = k.length + v.length;
+            keyNumber = cursor.keyNumber();
+        }
+
+        @Override
+        Object retainedKey() {
+            return ((byte[]) key).clone();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package io.nadkarni.streamsproducer.engine;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.pacing.LoadProfile;
+import io.nadkarni.streamsproducer.payload.PayloadSpec;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+/**
+ * Parameters of one load run started through the run-control API.
+ *
+ * <p>Every property is optional when a run is requested; unset properties are taken from
+ * the application configuration with {@link #withDefaults(RunSpec)}. The property names
+ * match the top-level properties in application.yaml, including the payload properties,
+ * which are held in a nested {@link PayloadSpec} but appear at the top level in JSON.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class RunSpec {
+
+    private String topic;
+    private Long numberOfEvents;
+    private Double targetRate;
+    private String loadProfile;
+    private Long pacingBurst;
+    private String runDuration;
+    private Integer producerThreads;
+    private Boolean producerPerWorker;
+    private RecordEncoding recordEncoding;
+    private Integer maxInFlightRecords;
+    private Integer maxInFlightBytes;
+    private Long drainTimeoutMs;
+
+    @JsonUnwrapped
+    private PayloadSpec payload;
+
+    /**
+     * Returns a copy of this specification in which every unset property is taken from
+     * {@code defaults}.
+     *
+     * @param defaults specification built from the application configuration
+     * @return the completed specification
+     */
+    public RunSpec withDefaults(RunSpec defaults) {
+        RunSpec spec = new RunSpec();
+        spec.topic = topic != null ? topic : defaults.topic;
+        spec.numberOfEvents = numberOfEvents != null ? numberOfEvents : defaults.numberOfEvents;
+        spec.targetRate = targetRate != null ? targetRate : defaults.targetRate;
+        spec.loadProfile = loadProfile != null ? loadProfile : defaults.loadProfile;
+        spec.pacingBurst = pacingBurst != null ? pacingBurst : defaults.pacingBurst;
+        spec.runDuration = runDuration != null ? runDuration : defaults.runDuration;
+        spec.producerThreads = producerThreads != null ? producerThreads : defaults.producerThreads;
+        spec.producerPerWorker = producerPerWorker != null ? producerPerWorker : defaults.producerPerWorker;
+        spec.recordEncoding = recordEncoding != null ? recordEncoding : defaults.recordEncoding;
+        spec.maxInFlightRecords = maxInFlightRecords != null ? maxInFlightRecords : defaults.maxInFlightRecords;
+        spec.maxInFlightBytes = maxInFlightBytes != null ? maxInFlightBytes : defaults.maxInFlightBytes;
+        spec.drainTimeoutMs = drainTimeoutMs != null ? drainTimeoutMs : defaults.drainTimeoutMs;
+        spec.payload = (payload != null ? payload : new PayloadSpec())
+                .withDefaults(defaults.payload != null ? defaults.payload : new PayloadSpec());
+        return spec;
+    }
+
+    /**
+     * Checks a completed specification.
+     *
+     * @throws IllegalArgumentException if a property is missing or out of range
+     */
+    public void validate() {
+        if (!StringUtils.hasText(topic)) {
+            throw new IllegalArgumentException("topic is required");
+        }
+        if (numberOfEvents == null || numberOfEvents < 0) {
+            throw new IllegalArgumentException("numberOfEvents must not be negative");
+        }
+        if (targetRate == null || targetRate < 0) {
+            throw new IllegalArgumentException("targetRate must not be negative");
+        }
+        if (producerThreads == null || producerThreads < 1) {
+            throw new IllegalArgumentException("producerThreads must be at least 1");
+        }
+        if (maxInFlightRecords == null || maxInFlightRecords < 1 || maxInFlightBytes == null || maxInFlightBytes < 1) {
+            throw new IllegalArgumentException("maxInFlightRecords and maxInFlightBytes must be positive");
+        }
+        if (StringUtils.hasText(loadProfile)) {
+            LoadProfile.parse(loadProfile);
+        }
+        runDurationNanos();
+    }
+
+    /**
+     * @return the run duration in nanoseconds, or 0 for no time limit
+     * @throws IllegalArgumentException if the duration cannot be parsed
+     */
+    public long runDurationNanos() {
+        if (!StringUtils.hasText(runDuration)) {
+            return 0;
+        }
+        Duration duration = DurationStyle.detectAndParse(runDuration);
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("runDuration must not be negative");
+        }
+        return duration.toNanos();
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public Long getNumberOfEvents() {
+        return numberOfEvents;
+    }
+
+    public void setNumberOfEvents(Long numberOfEvents) {
+        this.numberOfEvents = numberOfEvents;
+    }
+
+    public Double getTargetRate() {
+        return targetRate;
+    }
+
+    public void setTargetRate(Double targetRate) {
+        this.targetRate = targetRate;
+    }
+
+    public String getLoadProfile() {
+        return loadProfile;
+    }
+
+    public void setLoadProfile(String loadProfile) {
+        this.loadProfile = loadProfile;
+    }
+
+    public Long getPacingBurst() {
+        return pacingBurst;
+    }
+
+    public void setPacingBurst(Long pacingBurst) {
+        this.pacingBurst = pacingBurst;
+    }
+
+    public String getRunDuration() {
+        return runDuration;
+    }
+
+    public void setRunDuration(String runDuration) {
+        this.runDuration = runDuration;
+    }
+
+    public Integer getProducerThreads() {
+        return producerThreads;
+    }
+
+    public void setProducerThreads(Integer producerThreads) {
+        this.producerThreads = producerThreads;
+    }
+
+    public Boolean getProducerPerWorker() {
+        return producerPerWorker;
+    }
+
+    public void setProducerPerWorker(Boolean producerPerWorker) {
+        this.producerPerWorker = producerPerWorker;
+    }
+
+    public RecordEncoding getRecordEncoding() {
+        return recordEncoding;
+    }
+
+    public void setRecordEncoding(RecordEncoding recordEncoding) {
+        this.recordEncoding = recordEncoding;
+    }
+
+    public Integer getMaxInFlightRecords() {
+        return maxInFlightRecords;
+    }
+
+    public void setMaxInFlightRecords(Integer maxInFlightRecords) {
+        this.maxInFlightRecords = maxInFlightRecords;
+    }
+
+    public Integer getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    public void setMaxInFlightBytes(Integer maxInFlightBytes) {
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    public Long getDrainTimeoutMs() {
+        return drainTimeoutMs;
+    }
+
+    public void setDrainTimeoutMs(Long drainTimeoutMs) {
+        this.drainTimeoutMs = drainTimeoutMs;
+    }
+
+    public PayloadSpec getPayload() {
+        return payload;
+    }
+
+    public void setPayload(PayloadSpec payload) {
+        this.payload = payload;
+    }
+}
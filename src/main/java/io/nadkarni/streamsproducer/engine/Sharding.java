@@ -0,0 +1,28 @@
+package io.nadkarni.streamsproducer.engine;
+
+/**
+ * How the {@link ParallelProducerEngine} divides the key space {@code [0, numberOfEvents)}
+ * between its worker threads.
+ *
+ * <p>Selected through the {@code sharding} property in application.yaml.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public enum Sharding {
+
+    /**
+     * Worker {@code w} of {@code T} sends keys {@code w, w + T, w + 2T, ...} and leaves
+     * partition selection to the configured partitioner. Every worker writes to every
+     * partition.
+     */
+    INTERLEAVED,
+
+    /**
+     * Key {@code n} is sent to partition {@code n % numPartitions} and each worker owns
+     * a disjoint subset of the partitions, so every batch is filled by exactly one thread.
+     * Note that this replaces the default key-hash placement with an explicit one.
+     */
+    PARTITION_AFFINE
+}
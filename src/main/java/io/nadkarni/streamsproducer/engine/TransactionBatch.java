@@ -0,0 +1,105 @@
+package io.nadkarni.streamsproducer.engine;
+
+import java.util.Arrays;
+
+/**
+ * The records of one open transaction, kept until it commits.
+ *
+ * <p>If the transaction aborts, exactly these records are sent again in a new
+ * transaction, with their original intended send times so that the retry shows up in the
+ * latency percentiles. Records that were already committed are never resent. Keys and
+ * values are held as retained by {@link RecordBuilder}, so reused encoder arrays do not
+ * change under the batch.</p>
+ *
+ * <p>One batch per worker, reused after every commit. Not thread-safe.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class TransactionBatch {
+
+    private Integer[] partitions;
+    private Object[] keys;
+    private Object[] values;
+    private int[] sizes;
+    private long[] intended;
+    private int count;
+
+    /**
+     * Whether the shard may have records after this batch; cleared only once it runs out.
+     */
+    boolean more;
+
+    /**
+     * {@link System#nanoTime()} at which the last record of the batch was handed to the
+     * producer, marking the start of the commit.
+     */
+    long sentNanos;
+
+    /**
+     * @param capacity expected number of records per transaction
+     */
+    TransactionBatch(int capacity) {
+        int initial = Math.max(16, Math.min(capacity, 1 << 16));
+        partitions = new Integer[initial];
+        keys = new Object[initial];
+        values = new Object[initial];
+        sizes = new int[initial];
+        intended = new long[initial];
+    }
+
+    /**
+     * Adds a record to the batch.
+     */
+    void add(Integer partition, Object key, Object value, int size, long intendedNanos) {
+        if (count == keys.length) {
+            int capacity = count * 2;
+            partitions = Arrays.copyOf(partitions, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+            intended = Arrays.copyOf(intended, capacity);
+        }
+        partitions[count] = partition;
+        keys[count] = key;
+        values[count] = value;
+        sizes[count] = size;
+        intended[count] = intendedNanos;
+        count++;
+    }
+
+    /**
+     * Empties the batch for the next transaction, dropping its references.
+     */
+    void clear() {
+        Arrays.fill(keys, 0, count, null);
+        Arrays.fill(values, 0, count, null);
+        count = 0;
+        more = false;
+    }
+
+    int size() {
+        return count;
+    }
+
+    Integer partition(int i) {
+        return partitions[i];
+    }
+
+    Object key(int i) {
+        return keys[i];
+    }
+
+    Object value(int i) {
+        return values[i];
+    }
+
+    int recordSize(int i) {
+        return sizes[i];
+    }
+
+    long intended(int i) {
+        return intended[i];
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Multi-threaded send engines and the pool of Kafka producers they draw from.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.engine.ParallelProducerEngine} - Splits the key
+ *       space across worker threads</li>
+ *   <li>{@code TransactionBatch} - Records of one
+ *       transaction, kept until it commits so that an aborted one can be resent</li>
+ *   <li>{@link io.nadkarni.streamsproducer.engine.Sharding} - Interleaved or partition-affine
+ *       division of keys</li>
+ *   <li>{@link io.nadkarni.streamsproducer.engine.ProducerPool} - Named, cached
+ *       {@code KafkaTemplate}s each backed by their own {@code KafkaProducer}</li>
+ *   <li>{@link io.nadkarni.streamsproducer.engine.LoadRun} - A run whose rate and worker
+ *       count can be changed while it executes</li>
+ *   <li>{@link io.nadkarni.streamsproducer.engine.RunSpec} - Parameters of a load run</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.engine;
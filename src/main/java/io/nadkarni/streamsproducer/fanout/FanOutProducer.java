@@ -0,0 +1,326 @@
+package io.nadkarni.streamsproducer.fanout;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.RecordBuilder;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.pacing.RatePacer;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.payload.Workload;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends one run to several topics at once, each with its own share of the records and its
+ * own payloads, through a single producer.
+ *
+ * <p>The topics come from the {@code fanOut} block of application.yaml, see
+ * {@link FanOutProperties}. Every sequence number of the run is assigned to a topic by a
+ * {@link TopicSchedule}, so the topics receive records in proportion to their
+ * {@code weight}, interleaved rather than one after another. A topic with the
+ * {@code sequential} generator gets the "N" / "Message N" records numbered within the
+ * topic; any other generator draws from the topic's own corpus and key model.</p>
+ *
+ * <h3>Producer:</h3>
+ * <p>All topics are sent through the auto-configured {@link KafkaTemplate}, so the run
+ * uses one {@code KafkaProducer}: one set of broker connections, one buffer pool and one
+ * sender thread, with the batches of all topics drained together into each broker's
+ * requests. A producer per topic would multiply all three.</p>
+ *
+ * <h3>Flow Control:</h3>
+ * <p>{@code fanOut.threads} workers share the caller's {@link InFlightWindow},
+ * {@link SendStatistics}, {@link RunLimit} and {@link RatePacer}, so {@code numberOfEvents},
+ * {@code runDuration} and {@code targetRate} apply to the topics together. Worker {@code w}
+ * takes every {@code threads}-th sequence number starting at {@code w}.</p>
+ *
+ * <h3>Metrics:</h3>
+ * <p>Latency is recorded in each topic's own {@link SendLatencyRecorder}. The run summary
+ * adds a line per topic with its records, share, bytes per record and latency
+ * percentiles.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class FanOutProducer {
+
+    private static final Logger logger = LoggerFactory.getLogger(FanOutProducer.class);
+
+    /**
+     * Partition count of fan-out topics that do not specify their own.
+     * Configured via the {@code numPartitions} property in application.yaml.
+     * Default value: 5
+     */
+    @Value("${numPartitions:5}")
+    private int numPartitions = 5;
+
+    /**
+     * Replication factor of fan-out topics that do not specify their own.
+     * Configured via the {@code replicationFactor} property in application.yaml.
+     * Default value: 1
+     */
+    @Value("${replicationFactor:1}")
+    private short replicationFactor = 1;
+
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final FanOutProperties properties;
+    private final TopicProvisioner provisioner;
+    private final WorkloadFactory workloadFactory;
+    private final SendLatencyRecorders latencyRecorders;
+
+    private List<TopicSpec> topics;
+    private TopicSchedule schedule;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaTemplate    the auto-configured template all topics are sent through
+     * @param properties       the configured topics
+     * @param provisioner      creates the topics before the first run
+     * @param workloadFactory  builds the payloads of topics with a generator
+     * @param latencyRecorders per-topic latency histograms
+     */
+    public FanOutProducer(KafkaTemplate<Object, Object> kafkaTemplate, FanOutProperties properties,
+                          TopicProvisioner provisioner, WorkloadFactory workloadFactory,
+                          SendLatencyRecorders latencyRecorders) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.properties = properties;
+        this.provisioner = provisioner;
+        this.workloadFactory = workloadFactory;
+        this.latencyRecorders = latencyRecorders;
+    }
+
+    /**
+     * @return {@code true} if {@code fanOut.topics} lists any topics
+     */
+    public boolean isEnabled() {
+        return properties.getTopics() != null && !properties.getTopics().isEmpty();
+    }
+
+    /**
+     * Returns the configured topics with every unset property taken from the top-level
+     * properties.
+     *
+     * @return the completed specifications, in configuration order
+     * @throws IllegalArgumentException if a topic is invalid, listed twice, or has too
+     *         small a weight to be scheduled
+     */
+    public synchronized List<TopicSpec> getTopics() {
+        if (topics == null) {
+            List<TopicSpec> resolved = new ArrayList<>();
+            Set<String> names = new HashSet<>();
+            double[] weights = new double[properties.getTopics().size()];
+            for (TopicSpec topic : properties.getTopics()) {
+                TopicSpec spec = topic.withDefaults(workloadFactory.defaults(), numPartitions, replicationFactor);
+                if (!names.add(spec.getName())) {
+                    throw new IllegalArgumentException("Fan-out topic " + spec.getName() + " is listed twice");
+                }
+                weights[resolved.size()] = spec.getWeight();
+                resolved.add(spec);
+            }
+            schedule = new TopicSchedule(weights);
+            topics = Collections.unmodifiableList(resolved);
+        }
+        return topics;
+    }
+
+    /**
+     * Creates the topics, or adds partitions to existing ones, as specified.
+     *
+     * @throws IllegalStateException if the brokers reject or do not answer a request
+     */
+    public void provision() {
+        provisioner.provision(getTopics());
+    }
+
+    /**
+     * Sends records to all topics until the limit is reached and waits for them to be
+     * acknowledged.
+     *
+     * @param limit          stop condition for all topics together
+     * @param pacer          shared pacer for a paced run, or {@code null}
+     * @param encoding       how the records of {@code sequential} topics are built
+     * @param window         window shared by all workers
+     * @param statistics     counters shared by all workers
+     * @param drainTimeoutMs maximum time to wait for outstanding acknowledgements
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public void send(RunLimit limit, RatePacer pacer, RecordEncoding encoding, InFlightWindow window,
+                     SendStatistics statistics, long drainTimeoutMs) throws InterruptedException {
+        List<TopicSpec> specs = getTopics();
+        int count = specs.size();
+        Workload[] workloads = new Workload[count];
+        SendLatencyRecorder[] latencies = new SendLatencyRecorder[count];
+        boolean byteArrays = encoding.isPreEncoded();
+        for (int t = 0; t < count; t++) {
+            workloads[t] = workloadFactory.create(specs.get(t));
+            latencies[t] = latencyRecorders.forTopic(specs.get(t).getName());
+            latencies[t].reset();
+            byteArrays |= workloads[t] != null;
+        }
+        if (byteArrays) {
+            PassThroughSerializer.checkConfigured(kafkaTemplate);
+        }
+        int workers = Math.max(1, properties.getThreads());
+        StringBuilder plan = new StringBuilder("Fanning out to " + count + " topics with " + workers + " workers:");
+        for (int t = 0; t < count; t++) {
+            plan.append(String.format(" %s=%.1f%%", specs.get(t).getName(), 100 * schedule.share(t)));
+        }
+        logger.info(plan.toString());
+
+        long[][] records = new long[workers][count];
+        long[][] bytes = new long[workers][count];
+        ExecutorService executor = Executors.newFixedThreadPool(workers, new FanOutThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                Worker worker = new Worker(w, workers, specs, workloads, encoding, limit, pacer,
+                        records[w], bytes[w]);
+                List<PipelinedSender<Object, Object>> senders = new ArrayList<>(count);
+                for (int t = 0; t < count; t++) {
+                    senders.add(new PipelinedSender<>(kafkaTemplate, window, statistics, latencies[t]));
+                }
+                futures.add(executor.submit(() -> {
+                    worker.run(senders);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Fan-out worker failed", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        kafkaTemplate.flush();
+        if (!window.awaitEmpty(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+            logger.warn("Timed out after " + drainTimeoutMs + " ms with "
+                    + window.inFlightRecords() + " records still unacknowledged");
+        }
+        long total = 0;
+        for (long[] worker : records) {
+            for (long topicRecords : worker) {
+                total += topicRecords;
+            }
+        }
+        for (int t = 0; t < count; t++) {
+            long topicRecords = 0;
+            long topicBytes = 0;
+            for (int w = 0; w < workers; w++) {
+                topicRecords += records[w][t];
+                topicBytes += bytes[w][t];
+            }
+            logger.info(summary(specs.get(t).getName(), topicRecords, total, topicBytes,
+                    latencies[t].overallHistogram()));
+        }
+    }
+
+    /**
+     * Formats one topic's line of the run summary.
+     */
+    static String summary(String topic, long records, long total, long bytes, Histogram latency) {
+        return String.format("Topic %s: %d records (%.1f%%), %.1f key and value bytes/record, "
+                        + "p50=%.3f p99=%.3f ms (%d acknowledged)", topic, records,
+                total == 0 ? 0.0 : 100.0 * records / total, records == 0 ? 0.0 : (double) bytes / records,
+                latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                latency.getTotalCount());
+    }
+
+    /**
+     * Send loop of one worker thread, with a {@link RecordBuilder} per topic.
+     */
+    private final class Worker {
+
+        private final int worker;
+        private final int workers;
+        private final List<TopicSpec> specs;
+        private final RunLimit limit;
+        private final RatePacer pacer;
+        private final long[] records;
+        private final long[] bytes;
+        private final RecordBuilder[] builders;
+
+        private Worker(int worker, int workers, List<TopicSpec> specs, Workload[] workloads, RecordEncoding encoding,
+                       RunLimit limit, RatePacer pacer, long[] records, long[] bytes) {
+            this.worker = worker;
+            this.workers = workers;
+            this.specs = specs;
+            this.limit = limit;
+            this.pacer = pacer;
+            this.records = records;
+            this.bytes = bytes;
+            builders = new RecordBuilder[specs.size()];
+            for (int t = 0; t < builders.length; t++) {
+                builders[t] = RecordBuilder.create(encoding, workloads[t], worker);
+            }
+        }
+
+        /**
+         * Sends this worker's sequence numbers until the limit or the pacer ends the run.
+         */
+        private void run(List<PipelinedSender<Object, Object>> senders) throws InterruptedException {
+            for (long seq = worker; limit.allows(seq); seq += workers) {
+                long intended = pacer == null ? System.nanoTime() : pacer.acquire();
+                if (pacer != null && intended == RatePacer.FINISHED) {
+                    limit.expire();
+                    return;
+                }
+                int t = schedule.topic(seq);
+                long topicSeq = schedule.topicSequence(seq);
+                String topic = specs.get(t).getName();
+                RecordBuilder builder = builders[t];
+                builder.build(topicSeq);
+                senders.get(t).send(topic, null, builder.getKey(), builder.getValue(), builder.getSize(), intended);
+                records[t]++;
+                bytes[t] += builder.getSize();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Sending " + topicSeq + " to " + topic);
+                }
+            }
+        }
+    }
+
+    /**
+     * Names fan-out threads so they can be identified in thread dumps and logs.
+     */
+    private static final class FanOutThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "fan-out-worker-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.nadkarni.streamsproducer.fanout;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code fanOut} block of application.yaml: the topics of a multi-topic workload.
+ *
+ * <p>Each topic is a {@link TopicSpec}. Unlike the other settings, which are single
+ * values, the topic list is bound as a whole, for example:</p>
+ * <pre>
+ * fanOut:
+ *   threads: 2
+ *   topics:
+ *     - name: orders
+ *       weight: 10
+ *       partitions: 12
+ *       payloadGenerator: json
+ *     - name: clicks
+ *       weight: 85
+ *       payloadGenerator: random
+ *       payloadSize: uniform:100-1000
+ * </pre>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+@ConfigurationProperties(prefix = "fan-out")
+public class FanOutProperties {
+
+    /**
+     * Topics of the workload; empty disables fan-out.
+     */
+    private List<TopicSpec> topics = new ArrayList<>();
+
+    /**
+     * Number of threads sending the workload.
+     */
+    private int threads = 1;
+
+    public List<TopicSpec> getTopics() {
+        return topics;
+    }
+
+    public void setTopics(List<TopicSpec> topics) {
+        this.topics = topics;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+}
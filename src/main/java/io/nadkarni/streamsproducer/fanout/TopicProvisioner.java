@@ -0,0 +1,139 @@
+package io.nadkarni.streamsproducer.fanout;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Creates the topics of a fan-out workload, or brings existing ones up to their partition
+ * count, before the run starts.
+ *
+ * <p>The single {@code topic} is declared as a {@link NewTopic} bean for the
+ * {@link KafkaAdmin}, but the fan-out topics are only known once the {@code fanOut} list
+ * has been bound, so they are provisioned explicitly with an admin client built from the
+ * {@link KafkaAdmin}'s configuration.</p>
+ *
+ * <h3>Existing Topics:</h3>
+ * <ul>
+ *   <li>fewer partitions than specified - partitions are added; keys already written may
+ *       then map to a different partition</li>
+ *   <li>more partitions, or a different replication factor - left unchanged with a
+ *       warning, since neither can be reduced or changed in place</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class TopicProvisioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicProvisioner.class);
+
+    /**
+     * Maximum time each admin operation may take.
+     */
+    private static final long OPERATION_TIMEOUT_SECONDS = 30;
+
+    private final KafkaAdmin kafkaAdmin;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaAdmin the auto-configured admin whose configuration the client is built from
+     */
+    public TopicProvisioner(KafkaAdmin kafkaAdmin) {
+        this.kafkaAdmin = kafkaAdmin;
+    }
+
+    /**
+     * Provisions the topics through a new admin client.
+     *
+     * @param topics completed topic specifications
+     * @throws IllegalStateException if the brokers reject or do not answer a request
+     */
+    public void provision(List<TopicSpec> topics) {
+        try (Admin admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            provision(admin, topics);
+        }
+    }
+
+    /**
+     * Provisions the topics through the given admin client.
+     *
+     * @param admin  client used for every request
+     * @param topics completed topic specifications
+     * @throws IllegalStateException if the brokers reject or do not answer a request
+     */
+    void provision(Admin admin, List<TopicSpec> topics) {
+        try {
+            Set<String> existing = admin.listTopics().names().get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            List<NewTopic> missing = topics.stream()
+                    .filter(topic -> !existing.contains(topic.getName()))
+                    .map(topic -> new NewTopic(topic.getName(), topic.getPartitions(), topic.getReplicationFactor()))
+                    .collect(Collectors.toList());
+            if (!missing.isEmpty()) {
+                admin.createTopics(missing).all().get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                missing.forEach(topic -> logger.info("Created topic " + topic.name() + " with "
+                        + topic.numPartitions() + " partitions, replication factor " + topic.replicationFactor()));
+            }
+
+            List<TopicSpec> present = new ArrayList<>();
+            for (TopicSpec topic : topics) {
+                if (existing.contains(topic.getName())) {
+                    present.add(topic);
+                }
+            }
+            if (present.isEmpty()) {
+                return;
+            }
+            Map<String, TopicDescription> descriptions = admin.describeTopics(present.stream()
+                    .map(TopicSpec::getName).collect(Collectors.toList()))
+                    .all().get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            Map<String, NewPartitions> increases = new HashMap<>();
+            for (TopicSpec topic : present) {
+                TopicDescription description = descriptions.get(topic.getName());
+                int partitions = description.partitions().size();
+                int replicas = partitions == 0 ? 0 : description.partitions().get(0).replicas().size();
+                if (partitions < topic.getPartitions()) {
+                    increases.put(topic.getName(), NewPartitions.increaseTo(topic.getPartitions()));
+                } else if (partitions > topic.getPartitions()) {
+                    logger.warn("Topic " + topic.getName() + " has " + partitions + " partitions, more than the "
+                            + topic.getPartitions() + " specified; partitions cannot be removed");
+                }
+                if (replicas != topic.getReplicationFactor()) {
+                    logger.warn("Topic " + topic.getName() + " has replication factor " + replicas + ", not "
+                            + topic.getReplicationFactor() + "; it is left unchanged");
+                }
+            }
+            if (!increases.isEmpty()) {
+                admin.createPartitions(increases).all().get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                increases.forEach((name, increase) -> logger.info("Increased the partitions of topic " + name
+                        + " to " + increase.totalCount()));
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot provision the fan-out topics", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out provisioning the fan-out topics", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while provisioning the fan-out topics", e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package io.nadkarni.streamsproducer.fanout;
+
+/**
+ * Assigns every sequence number of a run to a topic in proportion to the topics' weights.
+ *
+ * <p>A cycle of {@value #SLOTS} slots is filled once with smooth weighted round-robin:
+ * each slot goes to the topic furthest behind its share, so topics are interleaved evenly
+ * instead of sent in runs, and every prefix of the cycle is within one record per topic of
+ * the exact ratio. Rounding the shares to whole slots costs less than one record per topic
+ * and cycle. Sequence number {@code seq} then takes slot {@code seq % SLOTS}, a table
+ * lookup.</p>
+ *
+ * <p>Each slot also records its rank among the slots of its topic, so the topic's own
+ * sequence number follows from {@code seq} alone. Workers that split the run's sequence
+ * numbers therefore number every topic's records 0, 1, 2, ... without coordinating.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Immutable after construction.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class TopicSchedule {
+
+    /**
+     * Slots per cycle; a power of two so that the slot is a mask of the sequence number.
+     */
+    static final int SLOTS = 1 << 16;
+
+    private final int[] topics = new int[SLOTS];
+    private final int[] ranks = new int[SLOTS];
+    private final int[] slotsPerTopic;
+
+    /**
+     * Builds the schedule.
+     *
+     * @param weights positive weight of each topic
+     * @throws IllegalArgumentException if a topic's share is too small to get a slot
+     */
+    TopicSchedule(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        slotsPerTopic = new int[weights.length];
+        double[] current = new double[weights.length];
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int best = 0;
+            for (int t = 0; t < weights.length; t++) {
+                current[t] += weights[t];
+                if (current[t] > current[best]) {
+                    best = t;
+                }
+            }
+            current[best] -= total;
+            topics[slot] = best;
+            ranks[slot] = slotsPerTopic[best]++;
+        }
+        for (int t = 0; t < weights.length; t++) {
+            if (slotsPerTopic[t] == 0) {
+                throw new IllegalArgumentException("Topic " + t + " has less than 1/" + SLOTS
+                        + " of the total weight");
+            }
+        }
+    }
+
+    /**
+     * @param seq non-negative sequence number of the run
+     * @return index of the topic the record is sent to
+     */
+    int topic(long seq) {
+        return topics[(int) (seq & (SLOTS - 1))];
+    }
+
+    /**
+     * @param seq non-negative sequence number of the run
+     * @return sequence number of the record within its topic
+     */
+    long topicSequence(long seq) {
+        int slot = (int) (seq & (SLOTS - 1));
+        return (seq / SLOTS) * slotsPerTopic[topics[slot]] + ranks[slot];
+    }
+
+    /**
+     * @param topic index of a topic
+     * @return the fraction of records sent to the topic
+     */
+    double share(int topic) {
+        return (double) slotsPerTopic[topic] / SLOTS;
+    }
+}
@@ -0,0 +1,91 @@
+package io.nadkarni.streamsproducer.fanout;
+
+import io.nadkarni.streamsproducer.payload.PayloadSpec;
+import org.springframework.util.StringUtils;
+
+/**
+ * One topic of a fan-out workload: its share of the records, its payload profile and how
+ * it is provisioned.
+ *
+ * <p>The payload properties are those of {@link PayloadSpec}; any left unset, like
+ * {@code partitions} and {@code replicationFactor}, are taken from the top-level
+ * properties in application.yaml.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class TopicSpec extends PayloadSpec {
+
+    private String name;
+    private double weight = 1;
+    private Integer partitions;
+    private Short replicationFactor;
+
+    /**
+     * Returns a copy in which every unset property is taken from the defaults.
+     *
+     * @param payloadDefaults   payload properties from the configuration
+     * @param partitions        default partition count
+     * @param replicationFactor default replication factor
+     * @return the completed specification
+     * @throws IllegalArgumentException if the name is empty or a number is out of range
+     */
+    public TopicSpec withDefaults(PayloadSpec payloadDefaults, int partitions, short replicationFactor) {
+        if (!StringUtils.hasText(name)) {
+            throw new IllegalArgumentException("Every fan-out topic needs a name");
+        }
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight of topic " + name + " must be positive: " + weight);
+        }
+        PayloadSpec payload = withDefaults(payloadDefaults);
+        TopicSpec spec = new TopicSpec();
+        spec.setPayloadGenerator(payload.getPayloadGenerator());
+        spec.setPayloadSize(payload.getPayloadSize());
+        spec.setPayloadTemplate(payload.getPayloadTemplate());
+        spec.setPayloadCorpusSize(payload.getPayloadCorpusSize());
+        spec.setPayloadSeed(payload.getPayloadSeed());
+        spec.setKeyCardinality(payload.getKeyCardinality());
+        spec.setKeySkew(payload.getKeySkew());
+        spec.name = name;
+        spec.weight = weight;
+        spec.partitions = this.partitions != null ? this.partitions : partitions;
+        spec.replicationFactor = this.replicationFactor != null ? this.replicationFactor : replicationFactor;
+        if (spec.partitions < 1 || spec.replicationFactor < 1) {
+            throw new IllegalArgumentException("Topic " + name + " needs at least one partition and replica");
+        }
+        return spec;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public void setWeight(double weight) {
+        this.weight = weight;
+    }
+
+    public Integer getPartitions() {
+        return partitions;
+    }
+
+    public void setPartitions(Integer partitions) {
+        this.partitions = partitions;
+    }
+
+    public Short getReplicationFactor() {
+        return replicationFactor;
+    }
+
+    public void setReplicationFactor(Short replicationFactor) {
+        this.replicationFactor = replicationFactor;
+    }
+}
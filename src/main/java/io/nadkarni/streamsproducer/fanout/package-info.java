@@ -0,0 +1,21 @@
+/**
+ * Weighted traffic to several topics from one producer.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.fanout.FanOutProducer} - Sends a run to all
+ *       topics through the auto-configured producer and reports each topic</li>
+ *   <li>{@link io.nadkarni.streamsproducer.fanout.FanOutProperties} - The {@code fanOut}
+ *       block of application.yaml</li>
+ *   <li>{@link io.nadkarni.streamsproducer.fanout.TopicSpec} - Name, weight, payload profile,
+ *       partitions and replication factor of one topic</li>
+ *   <li>{@code TopicSchedule} - Precomputed weighted interleaving of the topics</li>
+ *   <li>{@link io.nadkarni.streamsproducer.fanout.TopicProvisioner} - Creates the topics
+ *       and adds missing partitions at startup</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.fanout;
@@ -0,0 +1,322 @@
+package io.nadkarni.streamsproducer.group;
+
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One instance's membership in a coordinated group, kept through the single-partition
+ * control topic.
+ *
+ * <p>Every member reads the control topic from the beginning, so all of them see the
+ * messages of a group in the same order without a consumer group:</p>
+ * <ol>
+ *   <li>{@link #join(long)} - the member writes a JOIN and waits until the JOINs of the
+ *       group fill its round. A round is opened by the first JOIN that belongs to no
+ *       earlier round and takes the following ones until it has {@code groupSize}, so a
+ *       group id can be reused by later runs. The round is identified by the offset of
+ *       its first JOIN, and the member's position in it selects its
+ *       {@link GroupShard}.</li>
+ *   <li>{@link #awaitStart()} - the member writes a READY and waits for the READYs of
+ *       every member of its round; this is the start barrier.</li>
+ *   <li>{@link #finish(SendStatistics, Histogram)} - the member writes a REPORT and waits
+ *       for those of the other members, then aggregates them into a {@link GroupReport}.</li>
+ * </ol>
+ *
+ * <p>A member that stops before its round is full leaves it short, and the other members
+ * of that round time out. The round is abandoned for good: a JOIN written more than the
+ * timeout after the first JOIN of a round that is still short opens a new round, so later
+ * runs with the same group id are not shifted by it.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class GroupMember implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupMember.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+    private final Producer<String, String> producer;
+    private final Consumer<String, String> consumer;
+    private final String controlTopic;
+    private final String groupId;
+    private final String instance;
+    private final int size;
+    private final long timeoutMs;
+    private final String memberId = UUID.randomUUID().toString();
+
+    /**
+     * JOINs of the group in control-topic order, by member id.
+     */
+    private final Map<String, GroupMessage> joins = new LinkedHashMap<>();
+
+    /**
+     * Control-topic offsets of the JOINs, by member id.
+     */
+    private final Map<String, Long> joinOffsets = new HashMap<>();
+    private final Map<Long, Set<String>> ready = new HashMap<>();
+    private final Map<Long, Map<String, GroupMessage>> reports = new HashMap<>();
+
+    private long round = -1;
+    private List<GroupMessage> members;
+    private GroupShard shard;
+
+    /**
+     * Creates a member that reads the control topic from the beginning.
+     *
+     * @param producer     producer the member's messages are written with
+     * @param consumer     consumer the control topic is read with
+     * @param controlTopic single-partition control topic
+     * @param groupId      id of the group
+     * @param instance     name of this instance in the reports
+     * @param size         number of members in the group
+     * @param timeoutMs    maximum time to wait for the other members at each step
+     */
+    GroupMember(Producer<String, String> producer, Consumer<String, String> consumer, String controlTopic,
+                String groupId, String instance, int size, long timeoutMs) {
+        this.producer = producer;
+        this.consumer = consumer;
+        this.controlTopic = controlTopic;
+        this.groupId = groupId;
+        this.instance = instance;
+        this.size = size;
+        this.timeoutMs = timeoutMs;
+        TopicPartition partition = new TopicPartition(controlTopic, 0);
+        consumer.assign(Collections.singleton(partition));
+        consumer.seekToBeginning(Collections.singleton(partition));
+    }
+
+    /**
+     * Joins the group and claims this member's range of the records.
+     *
+     * @param totalRecords number of records the whole group sends
+     * @return the member's range
+     * @throws IllegalStateException if the round is not full within the timeout, or its
+     *                               members disagree on the group size or record count
+     */
+    public GroupShard join(long totalRecords) {
+        GroupMessage join = message(GroupMessage.Type.JOIN);
+        join.size = size;
+        join.records = totalRecords;
+        join.joinedMillis = System.currentTimeMillis();
+        publish(join);
+        logger.info("Joined group " + groupId + " as " + instance + "; waiting for " + size + " members");
+        if (!pollUntil(this::roundFull, System.currentTimeMillis() + timeoutMs)) {
+            throw new IllegalStateException("Timed out after " + timeoutMs + " ms waiting for " + size
+                    + " members to join group " + groupId);
+        }
+        int index = 0;
+        for (int i = 0; i < members.size(); i++) {
+            GroupMessage member = members.get(i);
+            if (member.size != size || member.records != totalRecords) {
+                throw new IllegalStateException("Member " + member.instance + " of group " + groupId + " expects "
+                        + member.size + " members and " + member.records + " records, not " + size + " and "
+                        + totalRecords);
+            }
+            if (member.memberId.equals(memberId)) {
+                index = i;
+            }
+        }
+        shard = GroupShard.of(index, size, totalRecords);
+        logger.info("Group " + groupId + " round " + round + " is complete; sending as " + shard);
+        return shard;
+    }
+
+    /**
+     * Waits until every member of the round is ready to send.
+     *
+     * @throws IllegalStateException if not every member is ready within the timeout, or
+     *                               the member has not joined
+     */
+    public void awaitStart() {
+        GroupMessage message = message(GroupMessage.Type.READY);
+        publish(message);
+        if (!pollUntil(() -> ready.getOrDefault(round, Collections.emptySet()).size() >= size,
+                System.currentTimeMillis() + timeoutMs)) {
+            throw new IllegalStateException("Timed out after " + timeoutMs + " ms waiting for the members of group "
+                    + groupId + " to be ready");
+        }
+    }
+
+    /**
+     * Reports this member's run and waits for the reports of the other members. When not
+     * all of them report within the timeout, the report covers those that did.
+     *
+     * @param statistics counters of this member's run
+     * @param latency    latency histogram of this member's run in microseconds, or
+     *                   {@code null} if it has none
+     * @return the aggregated report of the round
+     * @throws IllegalStateException if the member has not joined
+     */
+    public GroupReport finish(SendStatistics statistics, Histogram latency) {
+        GroupMessage report = message(GroupMessage.Type.REPORT);
+        report.first = shard.getFirst();
+        report.count = shard.getCount();
+        report.sent = statistics.getSent();
+        report.acked = statistics.getAcked();
+        report.failed = statistics.getFailed();
+        report.endMillis = System.currentTimeMillis();
+        report.startMillis = report.endMillis - statistics.getElapsedMillis();
+        if (latency != null && latency.getTotalCount() > 0) {
+            report.setLatency(latency);
+        }
+        publish(report);
+        if (!pollUntil(() -> reports.getOrDefault(round, Collections.emptyMap()).size() >= size,
+                System.currentTimeMillis() + timeoutMs)) {
+            logger.warn("Timed out after " + timeoutMs + " ms waiting for the reports of group " + groupId
+                    + "; the group summary covers the members that reported");
+        }
+        return new GroupReport(groupId, round, size, reports.getOrDefault(round, Collections.emptyMap()).values());
+    }
+
+    /**
+     * @return the member's range, or {@code null} before it has joined
+     */
+    public GroupShard getShard() {
+        return shard;
+    }
+
+    /**
+     * @return the round of the group this member belongs to, which is the control-topic
+     *         offset of its first JOIN, or -1 before it has joined
+     */
+    public long getRound() {
+        return round;
+    }
+
+    /**
+     * @return the unique id of this member
+     */
+    public String getMemberId() {
+        return memberId;
+    }
+
+    /**
+     * Closes the member's producer and consumer.
+     */
+    @Override
+    public void close() {
+        try {
+            producer.close();
+        } finally {
+            consumer.close();
+        }
+    }
+
+    /**
+     * Replays the JOINs into rounds. A round that is still short when a JOIN arrives more
+     * than the timeout after its first one was abandoned, and that JOIN opens the next.
+     *
+     * @return {@code true} once the round holding this member's JOIN is full, which sets
+     *         {@link #round} and {@link #members}
+     */
+    private boolean roundFull() {
+        List<GroupMessage> open = new ArrayList<>(size);
+        for (GroupMessage join : joins.values()) {
+            if (!open.isEmpty() && join.joinedMillis - open.get(0).joinedMillis > timeoutMs) {
+                open.clear();
+            }
+            open.add(join);
+            if (open.size() == size) {
+                if (open.stream().anyMatch(member -> member.memberId.equals(memberId))) {
+                    round = joinOffsets.get(open.get(0).memberId);
+                    members = open;
+                    return true;
+                }
+                open = new ArrayList<>(size);
+            }
+        }
+        return false;
+    }
+
+    private GroupMessage message(GroupMessage.Type type) {
+        if (type != GroupMessage.Type.JOIN && round < 0) {
+            throw new IllegalStateException("Member " + instance + " has not joined group " + groupId);
+        }
+        GroupMessage message = new GroupMessage();
+        message.type = type;
+        message.memberId = memberId;
+        message.instance = instance;
+        message.round = round;
+        message.index = shard == null ? -1 : shard.getIndex();
+        return message;
+    }
+
+    /**
+     * Writes a message to the control topic and waits for it to be acknowledged.
+     */
+    private void publish(GroupMessage message) {
+        try {
+            producer.send(new ProducerRecord<>(controlTopic, 0, groupId, message.toJson()))
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot write to the control topic " + controlTopic, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out writing to the control topic " + controlTopic, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while writing to the control topic " + controlTopic, e);
+        }
+    }
+
+    /**
+     * Reads the control topic until the condition holds or the deadline passes.
+     *
+     * @return {@code false} if the deadline passed first
+     */
+    private boolean pollUntil(BooleanSupplier condition, long deadlineMillis) {
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() >= deadlineMillis) {
+                return false;
+            }
+            for (ConsumerRecord<String, String> record : consumer.poll(POLL_TIMEOUT)) {
+                if (groupId.equals(record.key())) {
+                    accept(GroupMessage.fromJson(record.value()), record.offset());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void accept(GroupMessage message, long offset) {
+        switch (message.type) {
+            case JOIN:
+                if (joins.putIfAbsent(message.memberId, message) == null) {
+                    joinOffsets.put(message.memberId, offset);
+                }
+                break;
+            case READY:
+                ready.computeIfAbsent(message.round, r -> new HashSet<>()).add(message.memberId);
+                break;
+            case REPORT:
+                reports.computeIfAbsent(message.round, r -> new HashMap<>()).put(message.memberId, message);
+                break;
+            default:
+                break;
+        }
+    }
+}
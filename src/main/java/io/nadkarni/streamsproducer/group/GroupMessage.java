@@ -0,0 +1,132 @@
+package io.nadkarni.streamsproducer.group;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+
+/**
+ * A message on the control topic of a coordinated group, written as JSON with the group
+ * id as the record key.
+ *
+ * <ul>
+ *   <li>{@link Type#JOIN} - a member announces itself, with the group size, the number
+ *       of records it expects the group to send and the time it joined</li>
+ *   <li>{@link Type#READY} - a member of a round is ready to send</li>
+ *   <li>{@link Type#REPORT} - a member of a round has finished, with its counters, its
+ *       wall-clock start and end, and its latency histogram</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class GroupMessage {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Kinds of control messages.
+     */
+    enum Type {
+        JOIN, READY, REPORT
+    }
+
+    Type type;
+    String memberId;
+    String instance;
+
+    /**
+     * Round of the group the member belongs to; not set on {@link Type#JOIN}.
+     */
+    long round;
+
+    /**
+     * Wall-clock time a {@link Type#JOIN} was written, which tells the JOINs of an
+     * abandoned round from later ones.
+     */
+    long joinedMillis;
+    int index;
+    int size;
+    long records;
+    long first;
+    long count;
+    long sent;
+    long acked;
+    long failed;
+    long startMillis;
+    long endMillis;
+
+    /**
+     * Compressed latency histogram in microseconds, Base64-encoded, or {@code null}.
+     */
+    String latency;
+
+    /**
+     * Parses a message read from the control topic.
+     *
+     * @param json value of the record
+     * @return the message
+     * @throws IllegalStateException if the value is not a control message
+     */
+    static GroupMessage fromJson(String json) {
+        try {
+            GroupMessage message = MAPPER.readValue(json, GroupMessage.class);
+            if (message.type == null || message.memberId == null) {
+                throw new IllegalStateException("Not a group control message: " + json);
+            }
+            return message;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Not a group control message: " + json, e);
+        }
+    }
+
+    /**
+     * @return the message as the value of a control record
+     */
+    String toJson() {
+        try {
+            return MAPPER.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot write a group control message", e);
+        }
+    }
+
+    /**
+     * Stores a latency histogram in the message.
+     *
+     * @param histogram histogram in microseconds
+     */
+    void setLatency(Histogram histogram) {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        latency = Base64.getEncoder().encodeToString(bytes);
+    }
+
+    /**
+     * @return the latency histogram in microseconds, or {@code null} if the member sent none
+     * @throws IllegalStateException if the histogram cannot be decoded
+     */
+    Histogram getLatency() {
+        if (latency == null) {
+            return null;
+        }
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(Base64.getDecoder().decode(latency)), 0);
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot decode the latency histogram of member " + instance, e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.nadkarni.streamsproducer.group;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Cluster-wide result of one round of a coordinated group, aggregated from the reports
+ * of its members.
+ *
+ * <p>The throughput is the group's acknowledged records divided by the wall-clock time
+ * from the earliest start to the latest end of any member, so it assumes the members'
+ * clocks are synchronized, e.g. by NTP, to well within the run time. The sum of the
+ * members' own rates is reported as well; it is higher when the members did not start
+ * or finish together. The latency percentiles are those of the members' histograms
+ * merged.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class GroupReport {
+
+    private final String groupId;
+    private final long round;
+    private final int size;
+    private final List<GroupMessage> reports;
+    private final Histogram latency = new Histogram(3);
+    private long sent;
+    private long acked;
+    private long failed;
+    private long startMillis = Long.MAX_VALUE;
+    private long endMillis = Long.MIN_VALUE;
+    private double memberRates;
+
+    /**
+     * Aggregates the reports of a round.
+     *
+     * @param groupId group id
+     * @param round   round of the group
+     * @param size    number of members in the group
+     * @param reports reports received, at most one per member
+     */
+    GroupReport(String groupId, long round, int size, Collection<GroupMessage> reports) {
+        this.groupId = groupId;
+        this.round = round;
+        this.size = size;
+        this.reports = new ArrayList<>(reports);
+        this.reports.sort(Comparator.comparingInt(report -> report.index));
+        for (GroupMessage report : this.reports) {
+            sent += report.sent;
+            acked += report.acked;
+            failed += report.failed;
+            startMillis = Math.min(startMillis, report.startMillis);
+            endMillis = Math.max(endMillis, report.endMillis);
+            memberRates += rate(report.acked, report.endMillis - report.startMillis);
+            Histogram histogram = report.getLatency();
+            if (histogram != null) {
+                latency.add(histogram);
+            }
+        }
+    }
+
+    /**
+     * @return the number of members that reported
+     */
+    public int getReported() {
+        return reports.size();
+    }
+
+    /**
+     * @return {@code true} if every member of the group reported
+     */
+    public boolean isComplete() {
+        return reports.size() == size;
+    }
+
+    /**
+     * @return records sent by the members that reported
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return records acknowledged by the members that reported
+     */
+    public long getAcked() {
+        return acked;
+    }
+
+    /**
+     * @return records failed by the members that reported
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return wall-clock milliseconds from the earliest start to the latest end
+     */
+    public long getElapsedMillis() {
+        return reports.isEmpty() ? 0 : endMillis - startMillis;
+    }
+
+    /**
+     * @return acknowledged records per second over {@link #getElapsedMillis()}
+     */
+    public double getAckedPerSecond() {
+        return rate(acked, getElapsedMillis());
+    }
+
+    /**
+     * @return the sum of the acknowledged records per second of each member
+     */
+    public double getSumOfMemberRates() {
+        return memberRates;
+    }
+
+    /**
+     * @return the merged latency histogram in microseconds
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Formats the group totals, the merged latency and one line per member.
+     *
+     * @return the multi-line summary
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(String.format(
+                "Group %s round %d: %d of %d members reported; sent %d, acked %d, failed %d in %d ms "
+                        + "= %.1f records/sec cluster-wide (sum of member rates %.1f)",
+                groupId, round, reports.size(), size, sent, acked, failed, getElapsedMillis(),
+                getAckedPerSecond(), memberRates));
+        if (latency.getTotalCount() > 0) {
+            summary.append(String.format("%nGroup latency from intended send time: p50=%.3f p99=%.3f p99.9=%.3f "
+                            + "max=%.3f ms (%d records)", millis(latency.getValueAtPercentile(50)),
+                    millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                    millis(latency.getMaxValue()), latency.getTotalCount()));
+        }
+        for (GroupMessage report : reports) {
+            summary.append(String.format("%n  member %d (%s): records %d..%d, acked %d, failed %d, %.1f records/sec",
+                    report.index, report.instance, report.first, report.first + report.count - 1, report.acked,
+                    report.failed, rate(report.acked, report.endMillis - report.startMillis)));
+        }
+        return summary.toString();
+    }
+
+    private static double rate(long records, long millis) {
+        return millis > 0 ? records * 1000.0 / millis : 0;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,84 @@
+package io.nadkarni.streamsproducer.group;
+
+/**
+ * The range of sequence numbers, and therefore keys, that one member of a coordinated
+ * group sends.
+ *
+ * <p>The {@code numberOfEvents} of the run is divided into contiguous ranges of equal
+ * length, the first {@code total % members} ranges taking one record more, so the ranges
+ * of all members cover every sequence number exactly once.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class GroupShard {
+
+    private final int index;
+    private final int members;
+    private final long first;
+    private final long count;
+
+    private GroupShard(int index, int members, long first, long count) {
+        this.index = index;
+        this.members = members;
+        this.first = first;
+        this.count = count;
+    }
+
+    /**
+     * Returns the range of one member.
+     *
+     * @param index   position of the member in the group, from 0
+     * @param members number of members in the group
+     * @param total   number of records sent by the whole group
+     * @return the member's range
+     * @throws IllegalArgumentException if {@code index} is outside the group or
+     *                                  {@code total} is negative
+     */
+    public static GroupShard of(int index, int members, long total) {
+        if (members <= 0 || index < 0 || index >= members) {
+            throw new IllegalArgumentException("Member " + index + " is not in a group of " + members);
+        }
+        if (total < 0) {
+            throw new IllegalArgumentException("The number of records must not be negative: " + total);
+        }
+        long length = total / members;
+        long remainder = total % members;
+        return new GroupShard(index, members, length * index + Math.min(index, remainder),
+                length + (index < remainder ? 1 : 0));
+    }
+
+    /**
+     * @return the position of the member in the group, from 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the number of members in the group
+     */
+    public int getMembers() {
+        return members;
+    }
+
+    /**
+     * @return the sequence number of the member's first record
+     */
+    public long getFirst() {
+        return first;
+    }
+
+    /**
+     * @return the number of records the member sends
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "member " + index + " of " + members + ", records " + first + ".." + (first + count - 1);
+    }
+}
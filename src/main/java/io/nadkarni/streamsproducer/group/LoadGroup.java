@@ -0,0 +1,216 @@
+package io.nadkarni.streamsproducer.group;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Joins this instance to a coordinated group of producer instances that send one run
+ * together, each its own range of the keys.
+ *
+ * <p>The members meet on a single-partition control topic, which is created if missing;
+ * see {@link GroupMember} for the protocol. Each member sends {@code numberOfEvents}
+ * divided by {@code groupSize} records, so the group sends every key of
+ * {@code numberOfEvents} once. Settings such as {@code targetRate} and
+ * {@code loadProfile} apply to each member.</p>
+ *
+ * <h3>Configuration:</h3>
+ * <ul>
+ *   <li>{@code groupSize} - Number of instances in the group; 0 (the default) runs
+ *       alone</li>
+ *   <li>{@code groupId} - Id shared by the instances of the group; required with
+ *       {@code groupSize}</li>
+ *   <li>{@code groupTopic} - Control topic of the groups</li>
+ *   <li>{@code groupInstanceId} - Name of this instance in the group reports</li>
+ *   <li>{@code groupTimeout} - Maximum wait for the other members at each step</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class LoadGroup {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGroup.class);
+
+    /**
+     * Maximum time each admin operation may take.
+     */
+    private static final long OPERATION_TIMEOUT_SECONDS = 30;
+
+    /**
+     * Number of instances in the group; 0 runs alone.
+     * Configured via the {@code groupSize} property in application.yaml.
+     * Default value: 0 (no group)
+     */
+    @Value("${groupSize:0}")
+    private int groupSize;
+
+    /**
+     * Id shared by the instances of the group.
+     * Configured via the {@code groupId} property in application.yaml.
+     * Default value: "" (required with {@code groupSize})
+     */
+    @Value("${groupId:}")
+    private String groupId = "";
+
+    /**
+     * Single-partition control topic the members meet on.
+     * Configured via the {@code groupTopic} property in application.yaml.
+     * Default value: "streams-producer-group"
+     */
+    @Value("${groupTopic:streams-producer-group}")
+    private String groupTopic = "streams-producer-group";
+
+    /**
+     * Name of this instance in the group reports; empty uses the host name and process id.
+     * Configured via the {@code groupInstanceId} property in application.yaml.
+     * Default value: "" (host name and process id)
+     */
+    @Value("${groupInstanceId:}")
+    private String groupInstanceId = "";
+
+    /**
+     * Maximum wait for the other members to join, to be ready and to report.
+     * Configured via the {@code groupTimeout} property in application.yaml.
+     * Default value: 120s
+     */
+    @Value("${groupTimeout:120s}")
+    private Duration groupTimeout = Duration.ofSeconds(120);
+
+    /**
+     * Replication factor of the control topic, if it is created.
+     * Configured via the {@code replicationFactor} property in application.yaml.
+     * Default value: 1
+     */
+    @Value("${replicationFactor:1}")
+    private short replicationFactor = 1;
+
+    private final KafkaProperties kafkaProperties;
+    private final KafkaAdmin kafkaAdmin;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaProperties the Spring Boot Kafka properties the control clients are built from
+     * @param kafkaAdmin      the auto-configured admin whose configuration creates the control topic
+     */
+    public LoadGroup(KafkaProperties kafkaProperties, KafkaAdmin kafkaAdmin) {
+        this.kafkaProperties = kafkaProperties;
+        this.kafkaAdmin = kafkaAdmin;
+    }
+
+    /**
+     * @return {@code true} if {@code groupSize} is set
+     */
+    public boolean isEnabled() {
+        return groupSize > 0;
+    }
+
+    /**
+     * Creates the control topic if needed, joins the group and claims this instance's
+     * range of the records. The caller closes the returned member.
+     *
+     * @param totalRecords number of records the whole group sends
+     * @return the joined member; {@link GroupMember#getShard()} is its range
+     * @throws IllegalArgumentException if {@code groupId} is not set
+     * @throws IllegalStateException    if the control topic cannot be created, or the group
+     *                                  does not form within {@code groupTimeout}
+     */
+    public GroupMember join(long totalRecords) {
+        return join(totalRecords, instanceId());
+    }
+
+    /**
+     * Joins the group under the given instance name.
+     */
+    GroupMember join(long totalRecords, String instance) {
+        if (!StringUtils.hasText(groupId)) {
+            throw new IllegalArgumentException("groupId is required with groupSize " + groupSize);
+        }
+        try (Admin admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            createControlTopic(admin);
+        }
+        Map<String, Object> producerProperties = new HashMap<>(kafkaProperties.buildProducerProperties());
+        producerProperties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProperties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProperties.remove(ProducerConfig.TRANSACTIONAL_ID_CONFIG);
+        Map<String, Object> consumerProperties = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        consumerProperties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProperties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        GroupMember member = new GroupMember(new KafkaProducer<>(producerProperties),
+                new KafkaConsumer<>(consumerProperties), groupTopic, groupId, instance, groupSize,
+                groupTimeout.toMillis());
+        try {
+            member.join(totalRecords);
+            return member;
+        } catch (RuntimeException e) {
+            member.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates the single-partition control topic through the given admin client, unless it
+     * exists.
+     *
+     * @throws IllegalStateException if the brokers reject or do not answer a request
+     */
+    void createControlTopic(Admin admin) {
+        try {
+            if (admin.listTopics().names().get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS).contains(groupTopic)) {
+                return;
+            }
+            admin.createTopics(Collections.singleton(new NewTopic(groupTopic, 1, replicationFactor)))
+                    .all().get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            logger.info("Created group control topic " + groupTopic);
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof TopicExistsException)) {
+                throw new IllegalStateException("Cannot create the group control topic " + groupTopic, e.getCause());
+            }
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out creating the group control topic " + groupTopic, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating the group control topic " + groupTopic, e);
+        }
+    }
+
+    private String instanceId() {
+        if (StringUtils.hasText(groupInstanceId)) {
+            return groupInstanceId;
+        }
+        long pid = ProcessHandle.current().pid();
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + pid;
+        } catch (UnknownHostException e) {
+            return "pid-" + pid;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Coordinated groups of producer instances that send one run together, each its own
+ * range of the keys.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.group.LoadGroup} - Creates the control topic and
+ *       joins this instance to the configured group</li>
+ *   <li>{@link io.nadkarni.streamsproducer.group.GroupMember} - Join, start barrier and
+ *       reports of one member over the control topic</li>
+ *   <li>{@link io.nadkarni.streamsproducer.group.GroupShard} - Disjoint range of sequence
+ *       numbers sent by one member</li>
+ *   <li>{@link io.nadkarni.streamsproducer.group.GroupReport} - Cluster-wide throughput and
+ *       merged latency of a round</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.group;
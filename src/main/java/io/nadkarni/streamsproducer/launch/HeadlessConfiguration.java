@@ -0,0 +1,62 @@
+package io.nadkarni.streamsproducer.launch;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * Configuration of the lean headless launch mode, for short scripted runs whose startup
+ * time is a real share of their wall-clock time.
+ *
+ * <p>The {@value #PROFILE} profile is activated with
+ * {@code --spring.profiles.active=headless}. Its {@code application-headless.yaml}
+ * starts the application without a web server and with lazy bean initialization, and
+ * turns the actuator endpoints and JMX off, so only the beans the startup run uses are
+ * created. The application exits once the startup run is done.</p>
+ *
+ * <h3>Eager Beans:</h3>
+ * <p>The {@link KafkaAdmin} creates the {@link NewTopic} beans once all singletons are
+ * instantiated, and only if it has been instantiated itself by then. Lazy initialization
+ * would skip it, so its bean and the {@link NewTopic} beans stay eager.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile(HeadlessConfiguration.PROFILE)
+public class HeadlessConfiguration {
+
+    /**
+     * Name of the profile that selects the headless mode.
+     */
+    public static final String PROFILE = "headless";
+
+    /**
+     * Keeps the topic creation eager under lazy initialization. Runs after Spring Boot's
+     * own post-processor has marked every bean lazy.
+     *
+     * @return the post-processor
+     */
+    @Bean
+    public static BeanFactoryPostProcessor eagerTopicCreation() {
+        return HeadlessConfiguration::initializeEagerly;
+    }
+
+    /**
+     * Marks the {@link KafkaAdmin} and {@link NewTopic} beans for eager initialization.
+     *
+     * @param beanFactory the factory whose definitions are changed
+     */
+    static void initializeEagerly(ConfigurableListableBeanFactory beanFactory) {
+        for (Class<?> type : new Class<?>[]{KafkaAdmin.class, NewTopic.class}) {
+            for (String name : beanFactory.getBeanNamesForType(type, true, false)) {
+                beanFactory.getBeanDefinition(name).setLazyInit(false);
+            }
+        }
+    }
+}
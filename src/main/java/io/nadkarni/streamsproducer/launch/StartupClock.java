@@ -0,0 +1,51 @@
+package io.nadkarni.streamsproducer.launch;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures points of the application's startup from the launch of the JVM.
+ *
+ * <p>The JVM records its start time early in its initialization, before any application
+ * class is loaded, so the figures cover class loading, the Spring context and the first
+ * send. Only the launcher's own work before that is not included; the startup benchmark
+ * measures from outside the JVM to cover it.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class StartupClock {
+
+    /**
+     * Start of the line that reports the startup times, as parsed by the startup benchmark.
+     */
+    public static final String REPORT_PREFIX = "Startup: ";
+
+    private StartupClock() {
+    }
+
+    /**
+     * Converts a {@link System#nanoTime()} reading into the time since the JVM was launched.
+     *
+     * @param nanos a {@link System#nanoTime()} reading taken in this JVM
+     * @return milliseconds from the launch of the JVM to the reading
+     */
+    public static long millisSinceLaunch(long nanos) {
+        long launchMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long readingMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos);
+        return readingMillis - launchMillis;
+    }
+
+    /**
+     * Formats the startup report line.
+     *
+     * @param readyMillis    milliseconds from launch until the application context was ready
+     * @param firstAckMillis milliseconds from launch until the first record was acknowledged
+     * @return the report line, starting with {@value #REPORT_PREFIX}
+     */
+    public static String report(long readyMillis, long firstAckMillis) {
+        return String.format(REPORT_PREFIX + "context ready after %d ms, first record acknowledged %d ms "
+                + "after JVM launch", readyMillis, firstAckMillis);
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * Launch modes of the application and measurement of its startup.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.launch.HeadlessConfiguration} - The
+ *       {@code headless} profile: no web server, lazy beans, no actuator endpoints</li>
+ *   <li>{@link io.nadkarni.streamsproducer.launch.StartupClock} - Time from JVM launch to
+ *       the ready context and the first acknowledged record</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.launch;
@@ -0,0 +1,238 @@
+package io.nadkarni.streamsproducer.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Send-to-acknowledgement latency histograms for one topic, overall and per partition.
+ *
+ * <p>Latency is measured from a record's <em>intended</em> send time to its acknowledgement.
+ * In a paced run the intended time comes from the {@code RatePacer} schedule, so a record
+ * that was held back by a full in-flight window or a slow generator is charged for the
+ * time it spent waiting. Measuring from the actual send call instead would hide exactly
+ * those stalls (coordinated omission). In an unpaced run the intended time is taken before
+ * the record waits for room in the window.</p>
+ *
+ * <h3>Recording:</h3>
+ * <p>Values go into HdrHistogram {@link Recorder}s, whose {@code recordValue} is wait-free
+ * and does not allocate. Once the recorder for a partition exists, recording on the
+ * client's I/O thread costs a few array increments. Each recorder is created when its
+ * partition is first acknowledged.</p>
+ *
+ * <h3>Metrics:</h3>
+ * <p>Readers fold the recorders' interval histograms into per-run cumulative histograms,
+ * which are published as Micrometer gauges in milliseconds:</p>
+ * <ul>
+ *   <li>{@code producer.send.latency.percentile} - tagged {@code phi} (0.5, 0.99, 0.999)</li>
+ *   <li>{@code producer.send.latency.max}</li>
+ *   <li>{@code producer.send.latency.count}</li>
+ * </ul>
+ * <p>All three are tagged with {@code topic} and with {@code partition}: {@code all} for the
+ * overall histogram, or the partition number. Recorders are obtained from
+ * {@link SendLatencyRecorders}, which keeps one per topic so that concurrent runs against
+ * different topics do not share histograms.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class SendLatencyRecorder {
+
+    /**
+     * Largest latency that can be recorded, in microseconds; longer latencies are clamped.
+     */
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    /**
+     * Value precision of the overall histogram.
+     */
+    private static final int OVERALL_DIGITS = 3;
+
+    /**
+     * Value precision of the per-partition histograms, lower to keep their footprint small
+     * on topics with many partitions.
+     */
+    private static final int PARTITION_DIGITS = 2;
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry registry;
+    private final String topic;
+    private final Latency overall;
+    private volatile Latency[] partitions = new Latency[0];
+
+    /**
+     * Creates the recorder and registers the overall gauges.
+     *
+     * @param registry registry the gauges are published to
+     * @param topic    topic the recorded sends go to, used as a tag
+     */
+    public SendLatencyRecorder(MeterRegistry registry, String topic) {
+        this.registry = registry;
+        this.topic = topic;
+        this.overall = new Latency("all", OVERALL_DIGITS);
+    }
+
+    /**
+     * Discards everything recorded so far; called at the start of each run.
+     */
+    public void reset() {
+        overall.reset();
+        for (Latency latency : partitions) {
+            if (latency != null) {
+                latency.reset();
+            }
+        }
+    }
+
+    /**
+     * Records the latency of one acknowledged record.
+     *
+     * @param partition     partition the record was written to, or a negative value if unknown
+     * @param intendedNanos intended send time as a {@link System#nanoTime()} value
+     */
+    public void record(int partition, long intendedNanos) {
+        long micros = Math.min((System.nanoTime() - intendedNanos) / 1000, HIGHEST_TRACKABLE_MICROS);
+        if (micros < 0) {
+            micros = 0;
+        }
+        overall.recorder.recordValue(micros);
+        if (partition >= 0) {
+            partition(partition).recorder.recordValue(micros);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the overall latency of the current run.
+     *
+     * @return histogram of latencies in microseconds
+     */
+    public Histogram overallHistogram() {
+        return overall.snapshot();
+    }
+
+    /**
+     * Returns a snapshot of the latency of one partition in the current run.
+     *
+     * @param partition partition number
+     * @return histogram of latencies in microseconds, or {@code null} if nothing has been
+     *         recorded for the partition
+     */
+    public Histogram partitionHistogram(int partition) {
+        Latency[] current = partitions;
+        return partition < current.length && current[partition] != null ? current[partition].snapshot() : null;
+    }
+
+    /**
+     * Formats percentiles of the overall histogram for the run summary.
+     *
+     * @return one line with p50, p99, p99.9 and max in milliseconds
+     */
+    public String summary() {
+        Histogram histogram = overallHistogram();
+        return String.format("Latency from intended send time: p50=%.3f p99=%.3f p99.9=%.3f max=%.3f ms (%d records)",
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()),
+                histogram.getTotalCount());
+    }
+
+    private Latency partition(int partition) {
+        Latency[] current = partitions;
+        if (partition < current.length) {
+            Latency latency = current[partition];
+            if (latency != null) {
+                return latency;
+            }
+        }
+        return createPartition(partition);
+    }
+
+    private synchronized Latency createPartition(int partition) {
+        Latency[] current = partitions;
+        if (partition >= current.length) {
+            current = Arrays.copyOf(current, partition + 1);
+        }
+        if (current[partition] == null) {
+            current[partition] = new Latency(Integer.toString(partition), PARTITION_DIGITS);
+            partitions = current;
+        }
+        return current[partition];
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * Recorder, cumulative histogram and gauges for one partition tag.
+     */
+    private final class Latency {
+
+        private final Recorder recorder;
+        private final Histogram cumulative;
+        private Histogram interval;
+
+        private Latency(String tag, int digits) {
+            this.recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, digits);
+            this.cumulative = new Histogram(HIGHEST_TRACKABLE_MICROS, digits);
+            for (double phi : PERCENTILES) {
+                Gauge.builder("producer.send.latency.percentile", this,
+                        latency -> millis(latency.valueAtPercentile(phi * 100)))
+                        .tag("topic", topic)
+                        .tag("partition", tag)
+                        .tag("phi", Double.toString(phi))
+                        .baseUnit("milliseconds")
+                        .description("Send-to-acknowledgement latency from the intended send time")
+                        .strongReference(true)
+                        .register(registry);
+            }
+            Gauge.builder("producer.send.latency.max", this, latency -> millis(latency.maxValue()))
+                    .tag("topic", topic)
+                    .tag("partition", tag)
+                    .baseUnit("milliseconds")
+                    .strongReference(true)
+                    .register(registry);
+            Gauge.builder("producer.send.latency.count", this, Latency::totalCount)
+                    .tag("topic", topic)
+                    .tag("partition", tag)
+                    .strongReference(true)
+                    .register(registry);
+        }
+
+        /**
+         * Folds the values recorded since the last fold into the cumulative histogram.
+         * Callers must hold the monitor.
+         */
+        private Histogram fold() {
+            interval = recorder.getIntervalHistogram(interval);
+            cumulative.add(interval);
+            return cumulative;
+        }
+
+        private synchronized Histogram snapshot() {
+            return fold().copy();
+        }
+
+        private synchronized long valueAtPercentile(double percentile) {
+            return fold().getValueAtPercentile(percentile);
+        }
+
+        private synchronized long maxValue() {
+            return fold().getMaxValue();
+        }
+
+        private synchronized long totalCount() {
+            return fold().getTotalCount();
+        }
+
+        private synchronized void reset() {
+            recorder.reset();
+            cumulative.reset();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.nadkarni.streamsproducer.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link SendLatencyRecorder} per topic.
+ *
+ * <p>A recorder registers its gauges once and is reused, after a reset, by every later run
+ * against the same topic. Runs against different topics record into different histograms
+ * and can therefore execute at the same time.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class SendLatencyRecorders {
+
+    private final MeterRegistry registry;
+    private final Map<String, SendLatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param registry registry the latency gauges are published to
+     */
+    public SendLatencyRecorders(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the recorder for a topic, creating and registering it on first use.
+     *
+     * @param topic topic name
+     * @return the recorder
+     */
+    public SendLatencyRecorder forTopic(String topic) {
+        return recorders.computeIfAbsent(topic, t -> new SendLatencyRecorder(registry, t));
+    }
+}
@@ -0,0 +1,194 @@
+package io.nadkarni.streamsproducer.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Commit latency and counters of the transactional send mode for one topic.
+ *
+ * <p>Commit latency is the time {@code commitTransaction()} takes: flushing the
+ * transaction's remaining batches, waiting for their acknowledgements and writing the
+ * commit markers. It is time a worker cannot spend sending, so the share of worker time
+ * spent committing is the direct throughput cost of transactions compared with the
+ * plain mode at the same transaction size.</p>
+ *
+ * <h3>Metrics:</h3>
+ * <ul>
+ *   <li>{@code producer.transaction.commit.latency.percentile} - tagged {@code phi}
+ *       (0.5, 0.99, 0.999), in milliseconds</li>
+ *   <li>{@code producer.transaction.commit.latency.max} - in milliseconds</li>
+ *   <li>{@code producer.transaction.commits} - committed transactions</li>
+ *   <li>{@code producer.transaction.aborts} - aborted transactions</li>
+ *   <li>{@code producer.transaction.records} - records in committed transactions</li>
+ * </ul>
+ * <p>All are tagged with {@code topic} and cover the current run. Recorders are obtained
+ * from {@link TransactionRecorders}, which keeps one per topic.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class TransactionRecorder {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+    private final Histogram cumulative = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+    private Histogram interval;
+
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder aborts = new LongAdder();
+    private final LongAdder committedRecords = new LongAdder();
+    private final LongAdder abortedRecords = new LongAdder();
+    private final LongAdder commitNanos = new LongAdder();
+
+    /**
+     * Creates the recorder and registers its gauges.
+     *
+     * @param registry registry the gauges are published to
+     * @param topic    topic the transactions write to, used as a tag
+     */
+    public TransactionRecorder(MeterRegistry registry, String topic) {
+        for (double phi : PERCENTILES) {
+            Gauge.builder("producer.transaction.commit.latency.percentile", this,
+                    recorder -> millis(recorder.valueAtPercentile(phi * 100)))
+                    .tag("topic", topic)
+                    .tag("phi", Double.toString(phi))
+                    .baseUnit("milliseconds")
+                    .description("Duration of commitTransaction()")
+                    .strongReference(true)
+                    .register(registry);
+        }
+        Gauge.builder("producer.transaction.commit.latency.max", this, recorder -> millis(recorder.maxValue()))
+                .tag("topic", topic)
+                .baseUnit("milliseconds")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("producer.transaction.commits", commits, LongAdder::sum)
+                .tag("topic", topic)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("producer.transaction.aborts", aborts, LongAdder::sum)
+                .tag("topic", topic)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("producer.transaction.records", committedRecords, LongAdder::sum)
+                .tag("topic", topic)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    /**
+     * Discards everything recorded so far; called at the start of each run.
+     */
+    public synchronized void reset() {
+        recorder.reset();
+        cumulative.reset();
+        commits.reset();
+        aborts.reset();
+        committedRecords.reset();
+        abortedRecords.reset();
+        commitNanos.reset();
+    }
+
+    /**
+     * Records a committed transaction.
+     *
+     * @param records     number of records in the transaction
+     * @param commitNanos duration of the commit in nanoseconds
+     */
+    public void recordCommit(int records, long commitNanos) {
+        recorder.recordValue(Math.min(Math.max(commitNanos / 1000, 0), HIGHEST_TRACKABLE_MICROS));
+        this.commitNanos.add(commitNanos);
+        commits.increment();
+        committedRecords.add(records);
+    }
+
+    /**
+     * Records an aborted transaction whose records will be sent again.
+     *
+     * @param records number of records in the transaction
+     */
+    public void recordAbort(int records) {
+        aborts.increment();
+        abortedRecords.add(records);
+    }
+
+    /**
+     * @return the number of committed transactions
+     */
+    public long getCommits() {
+        return commits.sum();
+    }
+
+    /**
+     * @return the number of aborted transactions
+     */
+    public long getAborts() {
+        return aborts.sum();
+    }
+
+    /**
+     * @return the number of records in committed transactions
+     */
+    public long getCommittedRecords() {
+        return committedRecords.sum();
+    }
+
+    /**
+     * Returns a snapshot of the commit latency of the current run.
+     *
+     * @return histogram of commit durations in microseconds
+     */
+    public synchronized Histogram commitHistogram() {
+        return fold().copy();
+    }
+
+    /**
+     * Formats the transaction counters for the run summary.
+     *
+     * @param elapsedMillis duration of the run
+     * @param workers       number of workers that committed transactions
+     * @return one line with committed records per second, transaction size, aborts, commit
+     *         latency and the share of worker time spent committing
+     */
+    public String summary(long elapsedMillis, int workers) {
+        Histogram histogram = commitHistogram();
+        long transactions = getCommits();
+        long records = getCommittedRecords();
+        double workerMillis = (double) elapsedMillis * workers;
+        return String.format("Committed %d records in %d transactions (%.0f records/tx, %d aborted, "
+                        + "%d records resent): %.1f committed records/sec; commit p50=%.3f p99=%.3f max=%.3f ms, "
+                        + "%.1f%% of worker time in commit",
+                records, transactions, transactions == 0 ? 0.0 : (double) records / transactions, getAborts(),
+                abortedRecords.sum(), elapsedMillis == 0 ? 0.0 : records * 1000.0 / elapsedMillis,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getMaxValue()),
+                workerMillis == 0 ? 0.0 : commitNanos.sum() / 1_000_000.0 * 100 / workerMillis);
+    }
+
+    private Histogram fold() {
+        interval = recorder.getIntervalHistogram(interval);
+        cumulative.add(interval);
+        return cumulative;
+    }
+
+    private synchronized long valueAtPercentile(double percentile) {
+        return fold().getValueAtPercentile(percentile);
+    }
+
+    private synchronized long maxValue() {
+        return fold().getMaxValue();
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,41 @@
+package io.nadkarni.streamsproducer.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one {@link TransactionRecorder} per topic, like {@link SendLatencyRecorders} does
+ * for send latency.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class TransactionRecorders {
+
+    private final MeterRegistry registry;
+    private final Map<String, TransactionRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param registry registry the transaction gauges are published to
+     */
+    public TransactionRecorders(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Returns the recorder for a topic, creating and registering it on first use.
+     *
+     * @param topic topic name
+     * @return the recorder
+     */
+    public TransactionRecorder forTopic(String topic) {
+        return recorders.computeIfAbsent(topic, t -> new TransactionRecorder(registry, t));
+    }
+}
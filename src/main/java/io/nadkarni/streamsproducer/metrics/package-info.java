@@ -0,0 +1,16 @@
+/**
+ * Send latency and transaction measurement.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.metrics.SendLatencyRecorder} - Wait-free
+ *       HdrHistogram recorders, overall and per partition, published as Micrometer gauges</li>
+ *   <li>{@link io.nadkarni.streamsproducer.metrics.TransactionRecorder} - Commit latency and
+ *       counters of the transactional send mode</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.metrics;
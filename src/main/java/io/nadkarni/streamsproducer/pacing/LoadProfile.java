@@ -0,0 +1,208 @@
+package io.nadkarni.streamsproducer.pacing;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Target send rate as a function of time since the start of a run.
+ *
+ * <p>A profile is a sequence of segments, each holding either a constant rate or a
+ * linear ramp between two rates for a fixed duration. The last segment may be open-ended.
+ * Profiles are written as a comma-separated list of {@code rate:duration} or
+ * {@code from-to:duration} entries, for example:</p>
+ * <ul>
+ *   <li>{@code 50000:10m} - a steady 50k records/sec for ten minutes</li>
+ *   <li>{@code 10000:30s,20000:30s,40000:30s} - step ramp</li>
+ *   <li>{@code 0-50000:60s,50000:5m} - linear ramp up, then hold</li>
+ *   <li>{@code 20000:60s,200000:2s,20000:60s} - a two-second burst</li>
+ * </ul>
+ * <p>Durations use Spring Boot's simple format ({@code 500ms}, {@code 30s}, {@code 10m}).</p>
+ *
+ * <p>Besides the rate itself the profile answers the two questions a pacer needs: how many
+ * records are due by a given time ({@link #tokensAt(long)}) and when a given record is due
+ * ({@link #timeOfToken(long)}).</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class LoadProfile {
+
+    /**
+     * Returned by {@link #timeOfToken(long)} for records beyond the end of the profile.
+     */
+    public static final long END = Long.MAX_VALUE;
+
+    private final List<Segment> segments;
+
+    private LoadProfile(List<Segment> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Creates an open-ended profile with a single constant rate.
+     *
+     * @param recordsPerSecond target rate, must be positive
+     * @return the profile
+     */
+    public static LoadProfile constant(double recordsPerSecond) {
+        List<Segment> segments = new ArrayList<>(1);
+        segments.add(new Segment(recordsPerSecond, recordsPerSecond, END, 0, 0));
+        return new LoadProfile(segments);
+    }
+
+    /**
+     * Parses a profile specification.
+     *
+     * @param spec comma-separated {@code rate:duration} or {@code from-to:duration} entries
+     * @return the profile
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static LoadProfile parse(String spec) {
+        List<Segment> segments = new ArrayList<>();
+        long start = 0;
+        double tokens = 0;
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            int colon = trimmed.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Expected rate:duration in load profile entry '" + trimmed + "'");
+            }
+            String rates = trimmed.substring(0, colon).trim();
+            Duration duration = DurationStyle.detectAndParse(trimmed.substring(colon + 1).trim());
+            int dash = rates.indexOf('-', 1);
+            double from = Double.parseDouble(dash < 0 ? rates : rates.substring(0, dash).trim());
+            double to = dash < 0 ? from : Double.parseDouble(rates.substring(dash + 1).trim());
+            if (from < 0 || to < 0 || (from == 0 && to == 0) || duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("Invalid load profile entry '" + trimmed + "'");
+            }
+            Segment segment = new Segment(from, to, duration.toNanos(), start, tokens);
+            segments.add(segment);
+            start += segment.durationNanos;
+            tokens += segment.tokensAfter(segment.durationNanos);
+        }
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("Empty load profile");
+        }
+        return new LoadProfile(segments);
+    }
+
+    /**
+     * Returns the total duration of the profile.
+     *
+     * @return duration in nanoseconds, or {@link #END} if the profile is open-ended
+     */
+    public long durationNanos() {
+        Segment last = segments.get(segments.size() - 1);
+        return last.durationNanos == END ? END : last.startNanos + last.durationNanos;
+    }
+
+    /**
+     * Returns the intended rate at the given time.
+     *
+     * @param elapsedNanos time since the start of the run
+     * @return records per second, or 0 after the end of the profile
+     */
+    public double rateAt(long elapsedNanos) {
+        Segment segment = segmentAt(elapsedNanos);
+        return segment == null ? 0 : segment.rateAfter(elapsedNanos - segment.startNanos);
+    }
+
+    /**
+     * Returns the number of records due between the start of the run and the given time.
+     *
+     * @param elapsedNanos time since the start of the run
+     * @return the (fractional) number of records due
+     */
+    public double tokensAt(long elapsedNanos) {
+        Segment segment = segmentAt(elapsedNanos);
+        if (segment == null) {
+            Segment last = segments.get(segments.size() - 1);
+            return last.startTokens + last.tokensAfter(last.durationNanos);
+        }
+        return segment.startTokens + segment.tokensAfter(elapsedNanos - segment.startNanos);
+    }
+
+    /**
+     * Returns the time at which record number {@code token} (counting from zero) is due.
+     *
+     * @param token record number
+     * @return time since the start of the run in nanoseconds, or {@link #END} if the record
+     *         falls after the end of the profile
+     */
+    public long timeOfToken(long token) {
+        for (Segment segment : segments) {
+            double inSegment = token - segment.startTokens;
+            if (segment.durationNanos == END || inSegment < segment.tokensAfter(segment.durationNanos)) {
+                return segment.startNanos + segment.timeOfTokens(inSegment);
+            }
+        }
+        return END;
+    }
+
+    private Segment segmentAt(long elapsedNanos) {
+        for (Segment segment : segments) {
+            if (segment.durationNanos == END || elapsedNanos < segment.startNanos + segment.durationNanos) {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * One constant-rate or linear-ramp segment.
+     */
+    private static final class Segment {
+
+        private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+        private final double fromRate;
+        private final double toRate;
+        private final long durationNanos;
+        private final long startNanos;
+        private final double startTokens;
+
+        private Segment(double fromRate, double toRate, long durationNanos, long startNanos, double startTokens) {
+            this.fromRate = fromRate;
+            this.toRate = toRate;
+            this.durationNanos = durationNanos;
+            this.startNanos = startNanos;
+            this.startTokens = startTokens;
+        }
+
+        /**
+         * Rate change in records per second, per second.
+         */
+        private double slope() {
+            return durationNanos == END ? 0 : (toRate - fromRate) / (durationNanos / NANOS_PER_SECOND);
+        }
+
+        private double rateAfter(long nanos) {
+            return fromRate + slope() * (nanos / NANOS_PER_SECOND);
+        }
+
+        private double tokensAfter(long nanos) {
+            double seconds = nanos / NANOS_PER_SECOND;
+            return fromRate * seconds + slope() * seconds * seconds / 2;
+        }
+
+        /**
+         * Inverts {@link #tokensAfter(long)}: solves {@code from * t + slope * t^2 / 2 = tokens}.
+         */
+        private long timeOfTokens(double tokens) {
+            double slope = slope();
+            double seconds;
+            if (slope == 0) {
+                seconds = tokens / fromRate;
+            } else {
+                seconds = (-fromRate + Math.sqrt(Math.max(0, fromRate * fromRate + 2 * slope * tokens))) / slope;
+            }
+            return (long) (seconds * NANOS_PER_SECOND);
+        }
+    }
+}
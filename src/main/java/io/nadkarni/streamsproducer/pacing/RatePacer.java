@@ -0,0 +1,147 @@
+package io.nadkarni.streamsproducer.pacing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token-bucket pacer that releases records according to a {@link LoadProfile}.
+ *
+ * <p>Tokens accrue along the profile. Every call to {@link #acquire()} takes the next token
+ * and parks the calling thread until that token is due. Parking instead of spinning means
+ * a paced run costs almost no CPU between records. The coarse granularity of
+ * {@link LockSupport#parkNanos(long)} is absorbed by the bucket: a thread that wakes late
+ * finds the following tokens already due and sends them back-to-back. The average rate
+ * therefore follows the profile even when the interval between records is shorter than
+ * the park resolution.</p>
+ *
+ * <h3>Burst Capacity:</h3>
+ * <p>With {@code burstCapacity} of 0 the bucket is unbounded: a generator that falls
+ * behind (for example because the in-flight window is full) sends the missed records as
+ * soon as it can, and every record keeps its originally intended send time. This is the
+ * right setting for latency measurement, which needs the intended time to correct for
+ * coordinated omission. A positive capacity caps the backlog instead: tokens more than
+ * {@code burstCapacity} behind schedule are discarded and counted in {@link #getDropped()}.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Any number of worker threads may share one pacer; tokens are claimed with an atomic
+ * counter. A pacer that is replaced mid-run, for example when the target rate of a running
+ * load is changed, is {@linkplain #stop() stopped} so that threads waiting in it return.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class RatePacer {
+
+    /**
+     * Returned by {@link #acquire()} once the profile has ended.
+     */
+    public static final long FINISHED = -1;
+
+    private final LoadProfile profile;
+    private final long burstCapacity;
+    private final long endNanos;
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long startNanos;
+    private volatile boolean stopped;
+
+    /**
+     * Creates a pacer.
+     *
+     * @param profile       target rate over time
+     * @param burstCapacity maximum number of tokens that may accumulate behind schedule,
+     *                      or 0 for an unbounded bucket
+     * @param maxDuration   maximum run time in nanoseconds, or 0 to run until the profile ends
+     */
+    public RatePacer(LoadProfile profile, long burstCapacity, long maxDuration) {
+        this.profile = profile;
+        this.burstCapacity = burstCapacity;
+        long profileEnd = profile.durationNanos();
+        this.endNanos = maxDuration > 0 ? Math.min(maxDuration, profileEnd) : profileEnd;
+    }
+
+    /**
+     * Starts the schedule; the first token is due immediately.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        issued.set(0);
+        dropped.set(0);
+    }
+
+    /**
+     * Takes the next token, waiting until it is due.
+     *
+     * @return the intended send time of the record as a {@link System#nanoTime()} value, or
+     *         {@link #FINISHED} if the profile or the maximum duration has ended or the pacer
+     *         has been stopped
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public long acquire() throws InterruptedException {
+        long token = issued.getAndIncrement() + dropped.get();
+        if (burstCapacity > 0) {
+            double due = profile.tokensAt(System.nanoTime() - startNanos);
+            long behind = (long) (due - token - burstCapacity);
+            if (behind > 0) {
+                dropped.addAndGet(behind);
+                token += behind;
+            }
+        }
+        long offset = profile.timeOfToken(token);
+        if (offset == LoadProfile.END || offset >= endNanos || stopped) {
+            return FINISHED;
+        }
+        long intended = startNanos + offset;
+        long wait;
+        while ((wait = intended - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (stopped) {
+                return FINISHED;
+            }
+        }
+        return intended;
+    }
+
+    /**
+     * Makes every later {@link #acquire()} return {@link #FINISHED}. Threads already waiting
+     * return once they wake up; callers that need them to return immediately unpark them.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return the intended rate at the current time in records per second
+     */
+    public double currentRate() {
+        return profile.rateAt(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the number of records intended by the profile up to the current time
+     */
+    public double intendedSoFar() {
+        long elapsed = Math.min(System.nanoTime() - startNanos, endNanos);
+        return profile.tokensAt(elapsed);
+    }
+
+    /**
+     * @return the number of tokens discarded because the bucket was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the configured end of the run relative to {@link #start()}, in milliseconds,
+     *         or {@link Long#MAX_VALUE} if unbounded
+     */
+    public long getEndMillis() {
+        return endNanos == LoadProfile.END ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(endNanos);
+    }
+}
@@ -0,0 +1,78 @@
+package io.nadkarni.streamsproducer.pacing;
+
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Logs intended versus achieved rate once per second during a paced run.
+ *
+ * <p>Each line shows the rate the profile asked for, the rate at which records were handed
+ * to the client, the rate at which they were acknowledged, and how far the run has fallen
+ * behind the schedule. When the brokers saturate, the acknowledged rate flattens while the
+ * intended rate keeps climbing and the backlog grows, which pins down the saturation point
+ * of a ramp.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class RateReporter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateReporter.class);
+
+    private final RatePacer pacer;
+    private final SendStatistics statistics;
+    private final ScheduledExecutorService scheduler;
+    private long lastSent;
+    private long lastAcked;
+    private long lastNanos;
+    private int second;
+
+    /**
+     * Creates and starts a reporter.
+     *
+     * @param pacer      pacer of the run, source of the intended rate
+     * @param statistics counters of the run, source of the achieved rates
+     */
+    public RateReporter(RatePacer pacer, SendStatistics statistics) {
+        this.pacer = pacer;
+        this.statistics = statistics;
+        this.lastNanos = System.nanoTime();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, 1, 1, TimeUnit.SECONDS);
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        long sent = statistics.getSent();
+        long acked = statistics.getAcked();
+        double seconds = (now - lastNanos) / 1e9;
+        double sentRate = (sent - lastSent) / seconds;
+        double ackedRate = (acked - lastAcked) / seconds;
+        long backlog = (long) pacer.intendedSoFar() - sent - pacer.getDropped();
+        second++;
+        logger.info(String.format("t=%ds intended=%.0f/s sent=%.0f/s acked=%.0f/s behind=%d dropped=%d failed=%d",
+                second, pacer.currentRate(), sentRate, ackedRate, Math.max(0, backlog), pacer.getDropped(),
+                statistics.getFailed()));
+        lastNanos = now;
+        lastSent = sent;
+        lastAcked = acked;
+    }
+
+    /**
+     * Stops reporting.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,112 @@
+package io.nadkarni.streamsproducer.pacing;
+
+/**
+ * Stop condition for a run: a record count, an optional wall-clock duration, or both.
+ *
+ * <p>The run ends at whichever limit is reached first. Senders ask {@link #allows(long)}
+ * before each record; the clock is only read every {@value #CLOCK_CHECK_INTERVAL} records
+ * to keep the check out of the per-record cost.</p>
+ *
+ * <p>A limit may start at a sequence number other than zero, so that the instances of a
+ * coordinated group each send their own range of sequence numbers, and therefore keys.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class RunLimit {
+
+    /**
+     * Number of records between two reads of the clock. Must be a power of two.
+     */
+    static final int CLOCK_CHECK_INTERVAL = 256;
+
+    private final long firstRecord;
+    private final long maxRecords;
+    private final long durationNanos;
+    private volatile long deadlineNanos;
+    private volatile boolean expired;
+
+    /**
+     * Creates a limit.
+     *
+     * @param maxRecords    number of records to send
+     * @param durationNanos maximum run time in nanoseconds, or 0 for no time limit
+     */
+    public RunLimit(long maxRecords, long durationNanos) {
+        this(0, maxRecords, durationNanos);
+    }
+
+    /**
+     * Creates a limit for the sequence numbers from {@code firstRecord}.
+     *
+     * @param firstRecord   sequence number of the first record
+     * @param maxRecords    number of records to send
+     * @param durationNanos maximum run time in nanoseconds, or 0 for no time limit
+     */
+    public RunLimit(long firstRecord, long maxRecords, long durationNanos) {
+        this.firstRecord = firstRecord;
+        this.maxRecords = maxRecords;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Starts the clock for the duration limit.
+     */
+    public void start() {
+        expired = false;
+        deadlineNanos = durationNanos > 0 ? System.nanoTime() + durationNanos : 0;
+    }
+
+    /**
+     * Returns whether the record with the given sequence number may still be sent.
+     *
+     * @param seq sequence number of the next record, counted from {@link #getFirstRecord()}
+     * @return {@code false} once the count or the duration has been reached
+     */
+    public boolean allows(long seq) {
+        if (seq - firstRecord >= maxRecords || expired) {
+            return false;
+        }
+        if (deadlineNanos != 0 && (seq & (CLOCK_CHECK_INTERVAL - 1)) == 0
+                && System.nanoTime() - deadlineNanos >= 0) {
+            expired = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks the duration limit without a record, for senders that can be idle for long
+     * periods between records.
+     *
+     * @return {@code true} once the run has ended through the duration or {@link #expire()}
+     */
+    public boolean hasExpired() {
+        if (!expired && deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0) {
+            expired = true;
+        }
+        return expired;
+    }
+
+    /**
+     * Ends the run early, for example when a rate profile has finished.
+     */
+    public void expire() {
+        expired = true;
+    }
+
+    /**
+     * @return the maximum number of records
+     */
+    public long getMaxRecords() {
+        return maxRecords;
+    }
+
+    /**
+     * @return the sequence number of the first record
+     */
+    public long getFirstRecord() {
+        return firstRecord;
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Rate control and stop conditions for load generation.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.pacing.LoadProfile} - Constant, step, ramp and
+ *       burst rate profiles</li>
+ *   <li>{@link io.nadkarni.streamsproducer.pacing.RatePacer} - Token-bucket pacer that parks
+ *       between records instead of spinning</li>
+ *   <li>{@link io.nadkarni.streamsproducer.pacing.RunLimit} - Count and duration stop
+ *       conditions</li>
+ *   <li>{@link io.nadkarni.streamsproducer.pacing.RateReporter} - Per-second intended versus
+ *       achieved rate</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.pacing;
@@ -13,6 +13,31 @@
  * <ul>
  *   <li>{@link io.nadkarni.streamsproducer.StreamsProducerApplication} - Main Spring Boot application class</li>
  *   <li>{@link io.nadkarni.streamsproducer.Producer} - Kafka message producer service</li>
+ *   <li>{@link io.nadkarni.streamsproducer.InFlightWindow} - Bounded window of unacknowledged records</li>
+ *   <li>{@link io.nadkarni.streamsproducer.SendStatistics} - Sent, acknowledged and failed counters for a run</li>
+ *   <li>{@link io.nadkarni.streamsproducer.PipelinedSender} - Window-bounded asynchronous sends</li>
+ * </ul>
+ *
+ * <h3>Sub-packages:</h3>
+ * <ul>
+ *   <li>{@code io.nadkarni.streamsproducer.engine} - Multi-threaded send engine and producer pool</li>
+ *   <li>{@code io.nadkarni.streamsproducer.encoding} - Allocation-free record encoding and serializers</li>
+ *   <li>{@code io.nadkarni.streamsproducer.pacing} - Target-rate pacing, load profiles and stop conditions</li>
+ *   <li>{@code io.nadkarni.streamsproducer.metrics} - Send latency histograms published through Micrometer</li>
+ *   <li>{@code io.nadkarni.streamsproducer.control} - REST API for starting, changing and stopping runs</li>
+ *   <li>{@code io.nadkarni.streamsproducer.payload} - Pluggable payload generators and pre-generated corpora</li>
+ *   <li>{@code io.nadkarni.streamsproducer.replay} - Capture and memory-mapped replay of real traffic</li>
+ *   <li>{@code io.nadkarni.streamsproducer.tuning} - Timed trials over a grid of producer settings</li>
+ *   <li>{@code io.nadkarni.streamsproducer.partitioning} - Partition selection in the send loop and balance counts</li>
+ *   <li>{@code io.nadkarni.streamsproducer.sessions} - Simulation of many independent clients on event loops</li>
+ *   <li>{@code io.nadkarni.streamsproducer.verification} - Kafka Streams check of delivered sequence numbers</li>
+ *   <li>{@code io.nadkarni.streamsproducer.fanout} - Weighted multi-topic runs and topic provisioning</li>
+ *   <li>{@code io.nadkarni.streamsproducer.warmup} - Startup warm-up and partition-count planning</li>
+ *   <li>{@code io.nadkarni.streamsproducer.launch} - Lean headless launch mode and startup timing</li>
+ *   <li>{@code io.nadkarni.streamsproducer.spool} - Memory-mapped local spool for broker outages</li>
+ *   <li>{@code io.nadkarni.streamsproducer.group} - Coordinated runs across several producer instances</li>
+ *   <li>{@code io.nadkarni.streamsproducer.checkpoint} - Checkpoints of acknowledged records for resumable runs</li>
+ *   <li>{@code io.nadkarni.streamsproducer.chunking} - Chunking of large values and their bounded reassembly</li>
  * </ul>
  * 
  * <h2>Application Architecture</h2>
@@ -60,8 +85,10 @@
  * <h3>Kafka Configuration:</h3>
  * <ul>
  *   <li>{@code spring.kafka.producer.bootstrap-servers} - Kafka broker addresses</li>
- *   <li>{@code spring.kafka.producer.key-serializer} - Key serialization strategy</li>
- *   <li>{@code spring.kafka.producer.value-serializer} - Value serialization strategy</li>
+ *   <li>{@code spring.kafka.producer.key-serializer} - Key serialization strategy
+ *       (default: {@code PassThroughSerializer})</li>
+ *   <li>{@code spring.kafka.producer.value-serializer} - Value serialization strategy
+ *       (default: {@code PassThroughSerializer})</li>
  * </ul>
  * 
  * <h3>Application Configuration:</h3>
@@ -115,17 +142,38 @@
  * 
  * <p>Current implementation characteristics:</p>
  * <ul>
- *   <li><strong>Synchronous Sending:</strong> Messages sent one at a time in a loop</li>
- *   <li><strong>Logging Overhead:</strong> Each message is logged individually</li>
- *   <li><strong>Single-threaded:</strong> No parallel message production</li>
+ *   <li><strong>Pipelined Sending:</strong> Messages sent asynchronously through a bounded
+ *       in-flight window, with acknowledgements counted by completion callbacks</li>
+ *   <li><strong>Allocation-free Encoding:</strong> Records are written as ASCII bytes into
+ *       reused arrays and passed through by the serializer</li>
+ *   <li><strong>Compact Encoding:</strong> Optionally, varint keys and dictionary-compressed
+ *       values with a schema id and timestamp header, to cut bytes per record on the wire</li>
+ *   <li><strong>Logging Overhead:</strong> Each message is logged individually (at DEBUG
+ *       level with the ASCII encoding)</li>
+ *   <li><strong>Optionally Multi-threaded:</strong> {@code producerThreads} workers, with a shared
+ *       or per-worker producer and interleaved or partition-affine sharding</li>
+ *   <li><strong>Fan-Out:</strong> Optionally, weighted traffic to several topics with their
+ *       own payloads, all through one producer</li>
+ *   <li><strong>Warmed Up:</strong> Topic leaders, producer metadata and optionally every leader
+ *       connection are ready before the startup run is timed</li>
+ *   <li><strong>Fast Startup:</strong> Optionally, a headless launch without web server and with
+ *       lazy beans, and class-data sharing for scripted runs</li>
+ *   <li><strong>Outage Spooling:</strong> Optionally, records that find the in-flight window
+ *       full are appended to memory-mapped files and drained in order in the background</li>
+ *   <li><strong>Horizontal Scaling:</strong> Optionally, several instances join a group on a
+ *       control topic, start together and each send a disjoint range of the keys</li>
+ *   <li><strong>Resumable Runs:</strong> Optionally, acknowledgement watermarks are written to
+ *       a small memory-mapped file in the background, so a restarted run skips delivered
+ *       records and sends a bounded number twice</li>
+ *   <li><strong>Large Messages:</strong> Optionally, values above the request limit are sent
+ *       as views of the original buffer in chunks that share a partition, and put back
+ *       together within bounded memory</li>
  * </ul>
  * 
  * <p>For high-throughput scenarios, consider:</p>
  * <ul>
- *   <li>Asynchronous message sending with callbacks</li>
  *   <li>Batch message production</li>
  *   <li>Reduced logging frequency</li>
- *   <li>Multi-threaded producer implementation</li>
  * </ul>
  * 
  * <h2>Testing</h2>
@@ -0,0 +1,143 @@
+package io.nadkarni.streamsproducer.partitioning;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-partition record and byte counts of one run, and the unacknowledged bytes the
+ * {@link Partitioning#LOAD_AWARE} strategy steers by.
+ *
+ * <p>Acknowledged records are counted for the partition reported by the broker, so the
+ * counts show the balance for every strategy, including {@link Partitioning#DEFAULT}.
+ * Unacknowledged bytes are only tracked for records sent with an explicit partition.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Updated by all workers and the client's I/O thread; acknowledged counts are
+ * {@link LongAdder}s and unacknowledged bytes an {@link AtomicLongArray}. Partitions
+ * outside the range the counts were created for, for example after partitions were added
+ * during a run, are ignored.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class PartitionCounts {
+
+    private final LongAdder[] records;
+    private final LongAdder[] bytes;
+    private final AtomicLongArray inFlightBytes;
+
+    /**
+     * @param partitions number of partitions of the topic
+     */
+    public PartitionCounts(int partitions) {
+        records = new LongAdder[partitions];
+        bytes = new LongAdder[partitions];
+        for (int p = 0; p < partitions; p++) {
+            records[p] = new LongAdder();
+            bytes[p] = new LongAdder();
+        }
+        inFlightBytes = new AtomicLongArray(partitions);
+    }
+
+    /**
+     * Counts a record sent to an explicit partition as unacknowledged.
+     *
+     * @param partition the partition
+     * @param size      estimated size of key and value in bytes
+     */
+    public void sent(int partition, int size) {
+        if (partition < records.length) {
+            inFlightBytes.addAndGet(partition, size);
+        }
+    }
+
+    /**
+     * Releases a record counted by {@link #sent(int, int)} once it has completed, whether
+     * acknowledged or failed.
+     *
+     * @param partition the partition
+     * @param size      estimated size of key and value in bytes
+     */
+    public void completed(int partition, int size) {
+        if (partition < records.length) {
+            inFlightBytes.addAndGet(partition, -size);
+        }
+    }
+
+    /**
+     * Counts an acknowledged record.
+     *
+     * @param partition the partition it was written to, or a negative value if unknown
+     * @param size      estimated size of key and value in bytes
+     */
+    public void acknowledged(int partition, int size) {
+        if (partition >= 0 && partition < records.length) {
+            records[partition].increment();
+            bytes[partition].add(size);
+        }
+    }
+
+    /**
+     * @return number of partitions counted
+     */
+    public int partitions() {
+        return records.length;
+    }
+
+    /**
+     * @param partition the partition
+     * @return acknowledged records of the partition
+     */
+    public long records(int partition) {
+        return records[partition].sum();
+    }
+
+    /**
+     * @param partition the partition
+     * @return acknowledged key and value bytes of the partition
+     */
+    public long bytes(int partition) {
+        return bytes[partition].sum();
+    }
+
+    /**
+     * @param partition the partition
+     * @return bytes sent to the partition explicitly and not yet completed
+     */
+    public long inFlightBytes(int partition) {
+        return inFlightBytes.get(partition);
+    }
+
+    /**
+     * Formats the counts for the run summary.
+     *
+     * @return one line with the records and bytes of every partition and the ratio of the
+     *         busiest partition to the mean, 1.00 being perfectly balanced
+     */
+    public String summary() {
+        StringBuilder recordList = new StringBuilder();
+        StringBuilder byteList = new StringBuilder();
+        long totalRecords = 0;
+        long totalBytes = 0;
+        long maxRecords = 0;
+        long maxBytes = 0;
+        for (int p = 0; p < records.length; p++) {
+            long r = records(p);
+            long b = bytes(p);
+            recordList.append(p == 0 ? "" : ", ").append(r);
+            byteList.append(p == 0 ? "" : ", ").append(b);
+            totalRecords += r;
+            totalBytes += b;
+            maxRecords = Math.max(maxRecords, r);
+            maxBytes = Math.max(maxBytes, b);
+        }
+        return String.format("Records per partition: [%s]; bytes per partition: [%s]; "
+                        + "busiest/mean %.2f records, %.2f bytes",
+                recordList, byteList, ratio(maxRecords, totalRecords), ratio(maxBytes, totalBytes));
+    }
+
+    private double ratio(long max, long total) {
+        return total == 0 ? 0.0 : max * (double) records.length / total;
+    }
+}
@@ -0,0 +1,204 @@
+package io.nadkarni.streamsproducer.partitioning;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.Map;
+
+/**
+ * The partitioning of one run: the strategy, the shared state it needs and the
+ * per-partition counts.
+ *
+ * <p>A plan is created once per run and shared by all workers; each worker asks it for
+ * its own {@link PartitionSelector}. For {@link Partitioning#TABLE} the plan holds the
+ * {@link PartitionTable}, for {@link Partitioning#LOAD_AWARE} the {@link PartitionCounts}
+ * the selectors steer by.</p>
+ *
+ * <h3>Batch filling:</h3>
+ * <p>The sticky and load-aware selectors stay on a partition until the estimated key and
+ * value bytes sent to it reach the producer's {@code batch.size}, then move on. The
+ * estimate leaves out the per-record and per-batch overhead, so a batch usually closes a
+ * few records early or the last record opens the next batch; either way batches are close
+ * to full instead of holding one record per partition.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class PartitionPlan {
+
+    /**
+     * Kafka's default {@code batch.size}.
+     */
+    static final int DEFAULT_BATCH_SIZE = 16384;
+
+    private final Partitioning partitioning;
+    private final int partitions;
+    private final int batchBytes;
+    private final PartitionTable table;
+    private final PartitionCounts counts;
+
+    private PartitionPlan(Partitioning partitioning, int partitions, int batchBytes, PartitionTable table) {
+        this.partitioning = partitioning;
+        this.partitions = partitions;
+        this.batchBytes = batchBytes;
+        this.table = table;
+        this.counts = new PartitionCounts(partitions);
+    }
+
+    /**
+     * Creates the plan for a run.
+     *
+     * @param partitioning strategy
+     * @param partitions   number of partitions of the topic
+     * @param keys         number of distinct key numbers of the run, used to size the table
+     * @param maxTableKeys upper bound of the table size
+     * @param batchBytes   bytes per partition before a sticky selector moves on
+     * @return the plan
+     * @throws IllegalArgumentException if a strategy other than {@link Partitioning#DEFAULT}
+     *                                  is requested for a topic without partitions
+     */
+    public static PartitionPlan create(Partitioning partitioning, int partitions, long keys, int maxTableKeys,
+                                       int batchBytes) {
+        if (partitioning != Partitioning.DEFAULT && partitions < 1) {
+            throw new IllegalArgumentException("Partitioning " + partitioning + " needs the partition count");
+        }
+        PartitionTable table = partitioning == Partitioning.TABLE
+                ? PartitionTable.build(partitions, (int) Math.min(Math.max(keys, 0), maxTableKeys))
+                : null;
+        return new PartitionPlan(partitioning, partitions, Math.max(batchBytes, 1), table);
+    }
+
+    /**
+     * Reads {@code batch.size} from the producer factory behind a template.
+     *
+     * @param template the template the run sends through
+     * @return the configured batch size, or Kafka's default if it cannot be determined
+     */
+    public static int batchSize(KafkaTemplate<?, ?> template) {
+        ProducerFactory<?, ?> factory = template.getProducerFactory();
+        if (factory == null) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        try {
+            Map<String, Object> configs = factory.getConfigurationProperties();
+            Object value = configs == null ? null : configs.get(ProducerConfig.BATCH_SIZE_CONFIG);
+            return value == null ? DEFAULT_BATCH_SIZE : Integer.parseInt(value.toString());
+        } catch (UnsupportedOperationException e) {
+            return DEFAULT_BATCH_SIZE;
+        }
+    }
+
+    /**
+     * Creates the selector of one worker.
+     *
+     * @param worker index of the worker; sticky selectors of different workers start on
+     *               different partitions
+     * @return a new selector, to be confined to one thread, or {@code null} for
+     *         {@link Partitioning#DEFAULT}
+     */
+    public PartitionSelector selector(int worker) {
+        switch (partitioning) {
+            case TABLE:
+                return (key, size) -> table.partition(key);
+            case STICKY:
+                return new StickySelector(partitions, worker % partitions, batchBytes);
+            case LOAD_AWARE:
+                return new LoadAwareSelector(partitions, worker % partitions, batchBytes, counts);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the strategy
+     */
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    /**
+     * @return the per-partition counts of the run
+     */
+    public PartitionCounts getCounts() {
+        return counts;
+    }
+
+    /**
+     * @return a short description for the run log
+     */
+    @Override
+    public String toString() {
+        switch (partitioning) {
+            case TABLE:
+                return "table partitioning (" + table.size() + " precomputed keys over " + partitions + " partitions)";
+            case STICKY:
+            case LOAD_AWARE:
+                return partitioning.name().toLowerCase().replace('_', '-') + " partitioning (" + batchBytes
+                        + " bytes per batch over " + partitions + " partitions)";
+            default:
+                return "default partitioning";
+        }
+    }
+
+    /**
+     * Fills one partition's batch, then moves to the next partition in order.
+     */
+    private static class StickySelector implements PartitionSelector {
+
+        final int partitions;
+        private final int batchBytes;
+        int current;
+        private long filled;
+
+        StickySelector(int partitions, int first, int batchBytes) {
+            this.partitions = partitions;
+            this.current = first;
+            this.batchBytes = batchBytes;
+        }
+
+        @Override
+        public int partition(long key, int size) {
+            if (filled > 0 && filled + size > batchBytes) {
+                current = next();
+                filled = 0;
+            }
+            filled += size;
+            return current;
+        }
+
+        int next() {
+            return current + 1 == partitions ? 0 : current + 1;
+        }
+    }
+
+    /**
+     * Fills one partition's batch, then moves to the partition with the fewest
+     * unacknowledged bytes; ties go to the next partition in order.
+     */
+    private static final class LoadAwareSelector extends StickySelector {
+
+        private final PartitionCounts counts;
+
+        LoadAwareSelector(int partitions, int first, int batchBytes, PartitionCounts counts) {
+            super(partitions, first, batchBytes);
+            this.counts = counts;
+        }
+
+        @Override
+        int next() {
+            int best = -1;
+            long bestBytes = Long.MAX_VALUE;
+            for (int i = 1; i <= partitions; i++) {
+                int p = (current + i) % partitions;
+                long bytes = counts.inFlightBytes(p);
+                if (bytes < bestBytes) {
+                    best = p;
+                    bestBytes = bytes;
+                }
+            }
+            return best;
+        }
+    }
+}
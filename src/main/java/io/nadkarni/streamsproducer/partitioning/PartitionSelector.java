@@ -0,0 +1,23 @@
+package io.nadkarni.streamsproducer.partitioning;
+
+/**
+ * Chooses the partition of each record for one sending thread.
+ *
+ * <p>Selectors are obtained from a {@link PartitionPlan}, one per worker, and may keep
+ * state between calls; they are not thread-safe.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public interface PartitionSelector {
+
+    /**
+     * Chooses the partition of the next record.
+     *
+     * @param key  key number of the record, the number whose ASCII digits form its key
+     * @param size estimated serialized size of key and value in bytes
+     * @return the partition
+     */
+    int partition(long key, int size);
+}
@@ -0,0 +1,99 @@
+package io.nadkarni.streamsproducer.partitioning;
+
+import io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder;
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The default partitioner's placement of the keys {@code 0 .. size-1}, computed once.
+ *
+ * <p>Keys are the ASCII digits of their key number, so the partition of key {@code n} is
+ * {@code toPositive(murmur2(digits(n))) % partitions}, exactly what Kafka's default
+ * partitioner computes from the serialized key. The table stores that result per key
+ * number in a {@code char[]}, two bytes per key, so looking a key up costs one array read
+ * instead of encoding and hashing it. Keys beyond the table are hashed on demand.</p>
+ *
+ * <p>Immutable and shared by all workers of a run.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class PartitionTable {
+
+    /**
+     * Largest partition count a {@code char} entry can hold.
+     */
+    static final int MAX_PARTITIONS = Character.MAX_VALUE + 1;
+
+    private final int partitions;
+    private final char[] table;
+
+    private PartitionTable(int partitions, char[] table) {
+        this.partitions = partitions;
+        this.table = table;
+    }
+
+    /**
+     * Computes the placement of the keys {@code 0 .. keys-1}.
+     *
+     * @param partitions number of partitions of the topic
+     * @param keys       number of keys to precompute
+     * @return the table
+     * @throws IllegalArgumentException if {@code partitions} or {@code keys} is out of range
+     */
+    public static PartitionTable build(int partitions, int keys) {
+        if (partitions < 1 || partitions > MAX_PARTITIONS) {
+            throw new IllegalArgumentException("Partition table needs 1 to " + MAX_PARTITIONS
+                    + " partitions, not " + partitions);
+        }
+        if (keys < 0) {
+            throw new IllegalArgumentException("Partition table size must not be negative");
+        }
+        AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+        char[] table = new char[keys];
+        for (int key = 0; key < keys; key++) {
+            table[key] = (char) hash(encoder.key(key), partitions);
+        }
+        return new PartitionTable(partitions, table);
+    }
+
+    /**
+     * Returns the default partitioner's choice for a key.
+     *
+     * @param key non-negative key number
+     * @return the partition
+     */
+    public int partition(long key) {
+        if (key < table.length) {
+            return table[(int) key];
+        }
+        return hash(Long.toString(key).getBytes(StandardCharsets.US_ASCII), partitions);
+    }
+
+    /**
+     * @return number of precomputed keys
+     */
+    public int size() {
+        return table.length;
+    }
+
+    /**
+     * @return number of partitions the table was computed for
+     */
+    public int partitions() {
+        return partitions;
+    }
+
+    /**
+     * Kafka's default placement of a serialized key.
+     *
+     * @param keyBytes   serialized key
+     * @param partitions number of partitions
+     * @return the partition
+     */
+    static int hash(byte[] keyBytes, int partitions) {
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % partitions;
+    }
+}
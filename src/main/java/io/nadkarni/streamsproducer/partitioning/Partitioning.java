@@ -0,0 +1,41 @@
+package io.nadkarni.streamsproducer.partitioning;
+
+/**
+ * How the pipelined mode chooses the partition of each record.
+ *
+ * <p>Selected through the {@code partitioning} property in application.yaml. Every
+ * strategy except {@link #DEFAULT} picks the partition in the send loop and passes it
+ * with the record, so the Kafka client skips its partitioner altogether.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public enum Partitioning {
+
+    /**
+     * The producer's configured partitioner, normally murmur2 of the serialized key.
+     */
+    DEFAULT,
+
+    /**
+     * The default partitioner's placement looked up in a {@link PartitionTable} computed
+     * before the run, so records land where {@link #DEFAULT} would put them without
+     * hashing each key.
+     */
+    TABLE,
+
+    /**
+     * Keys are ignored: each worker fills one partition's batch, then moves on to the next
+     * partition in round-robin order. For throughput runs where key placement does not
+     * matter.
+     */
+    STICKY,
+
+    /**
+     * Like {@link #STICKY}, but when a batch is full the worker moves to the partition with
+     * the fewest unacknowledged bytes, steering away from partitions whose batches are
+     * backing up.
+     */
+    LOAD_AWARE
+}
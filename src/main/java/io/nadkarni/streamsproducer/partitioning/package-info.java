@@ -0,0 +1,22 @@
+/**
+ * Partition selection in the send loop and per-partition balance counts.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.partitioning.Partitioning} - Default, table,
+ *       sticky or load-aware placement</li>
+ *   <li>{@link io.nadkarni.streamsproducer.partitioning.PartitionPlan} - Partitioning of
+ *       one run and the source of each worker's selector</li>
+ *   <li>{@link io.nadkarni.streamsproducer.partitioning.PartitionSelector} - Chooses the
+ *       partition of each record on one thread</li>
+ *   <li>{@link io.nadkarni.streamsproducer.partitioning.PartitionTable} - The default
+ *       partitioner's placement of known key numbers, computed once</li>
+ *   <li>{@link io.nadkarni.streamsproducer.partitioning.PartitionCounts} - Acknowledged
+ *       records and bytes and unacknowledged bytes per partition</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.partitioning;
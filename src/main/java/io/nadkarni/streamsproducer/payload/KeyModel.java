@@ -0,0 +1,85 @@
+package io.nadkarni.streamsproducer.payload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Chooses the key of each record: how many distinct keys there are and how often each of
+ * them occurs.
+ *
+ * <ul>
+ *   <li>Cardinality 0 - every record gets its own key, the sequence number, as in the
+ *       original "N" / "Message N" records</li>
+ *   <li>Cardinality {@code C}, skew 0 - keys {@code 0 .. C-1}, all equally likely</li>
+ *   <li>Cardinality {@code C}, skew {@code s > 0} - key {@code k} occurs with a probability
+ *       proportional to {@code 1 / (k + 1)^s}, so a few hot keys (and the partitions they
+ *       hash to) take most of the traffic</li>
+ * </ul>
+ *
+ * <p>Immutable and thread-safe; the randomness comes from the caller's generator.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class KeyModel {
+
+    private final long cardinality;
+    private final double skew;
+    private final ZipfSampler zipf;
+
+    /**
+     * @param cardinality number of distinct keys, or 0 for a unique key per record
+     * @param skew        Zipf exponent, or 0 for uniformly distributed keys
+     * @throws IllegalArgumentException if an argument is out of range
+     */
+    public KeyModel(long cardinality, double skew) {
+        if (cardinality < 0) {
+            throw new IllegalArgumentException("keyCardinality must not be negative");
+        }
+        if (skew < 0) {
+            throw new IllegalArgumentException("keySkew must not be negative");
+        }
+        if (skew > 0 && cardinality > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("keyCardinality must not exceed " + Integer.MAX_VALUE
+                    + " when keySkew is set");
+        }
+        this.cardinality = cardinality;
+        this.skew = skew;
+        this.zipf = skew > 0 && cardinality > 0 ? new ZipfSampler((int) cardinality, skew) : null;
+    }
+
+    /**
+     * Chooses the key for a record.
+     *
+     * @param seq    sequence number of the record
+     * @param random source of randomness, confined to the calling thread
+     * @return the key number, encoded by the caller
+     */
+    public long keyOf(long seq, SplittableRandom random) {
+        if (cardinality == 0) {
+            return seq;
+        }
+        if (zipf != null) {
+            return zipf.sample(random) - 1;
+        }
+        return random.nextLong(cardinality);
+    }
+
+    /**
+     * @return number of distinct keys, or 0 for a unique key per record
+     */
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return a short description for the run log
+     */
+    @Override
+    public String toString() {
+        if (cardinality == 0) {
+            return "unique keys";
+        }
+        return cardinality + " keys" + (skew > 0 ? ", zipf skew " + skew : ", uniform");
+    }
+}
@@ -0,0 +1,95 @@
+package io.nadkarni.streamsproducer.payload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Values generated once before a run and cycled through while it sends.
+ *
+ * <p>Generating realistic values (random bytes, formatted JSON) takes far longer than
+ * sending them, so doing it per record would make the generator the bottleneck at high
+ * rates. The corpus moves that work ahead of the run: record {@code seq} is sent with
+ * value {@code seq % size}, and the send loop only looks up a reference.</p>
+ *
+ * <h3>Memory:</h3>
+ * <p>Values are kept as individual on-heap arrays of exactly the value's length, because
+ * that is what the serializer has to hand to {@code KafkaProducer}; an off-heap corpus
+ * would need a copy into such an array for every record. The arrays are shared by all
+ * workers and never modified, and the producer copies them into its batches, so nothing
+ * is allocated per record.</p>
+ *
+ * <h3>Sizing:</h3>
+ * <p>Keep the corpus much larger than the number of records in a batch; otherwise batches
+ * contain repeated values and compress better than real traffic would.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class PayloadCorpus {
+
+    private final byte[][] values;
+    private final long totalBytes;
+
+    private PayloadCorpus(byte[][] values, long totalBytes) {
+        this.values = values;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Generates a corpus.
+     *
+     * @param generator source of the values
+     * @param size      number of values, at least 1
+     * @param seed      seed of the random generator passed to {@code generator}
+     * @return the corpus
+     * @throws IllegalArgumentException if {@code size} is below 1 or a generated value is null
+     */
+    public static PayloadCorpus build(PayloadGenerator generator, int size, long seed) {
+        if (size < 1) {
+            throw new IllegalArgumentException("payloadCorpusSize must be at least 1");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[][] values = new byte[size][];
+        long totalBytes = 0;
+        for (int i = 0; i < size; i++) {
+            byte[] value = generator.generate(i, random);
+            if (value == null) {
+                throw new IllegalArgumentException("Payload generator returned null for corpus entry " + i);
+            }
+            values[i] = value;
+            totalBytes += value.length;
+        }
+        return new PayloadCorpus(values, totalBytes);
+    }
+
+    /**
+     * Returns the value for a record.
+     *
+     * @param seq non-negative sequence number of the record
+     * @return the shared value array; must not be modified
+     */
+    public byte[] value(long seq) {
+        return values[(int) (seq % values.length)];
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @return the combined length of all values in bytes
+     */
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the mean value length in bytes
+     */
+    public double averageSize() {
+        return (double) totalBytes / values.length;
+    }
+}
@@ -0,0 +1,47 @@
+package io.nadkarni.streamsproducer.payload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Service provider interface for record values.
+ *
+ * <p>A generator is called once per corpus entry while a {@link PayloadCorpus} is built,
+ * before the run starts, so it may be as slow as it needs to be without limiting the send
+ * rate. During the run the pre-generated values are cycled through.</p>
+ *
+ * <h3>Built-in Generators:</h3>
+ * <ul>
+ *   <li>{@code random} - {@link RandomBytesGenerator}: random bytes with sizes drawn from a
+ *       {@link SizeDistribution}</li>
+ *   <li>{@code json} - {@link JsonTemplateGenerator}: JSON documents from a template with
+ *       varying fields</li>
+ * </ul>
+ *
+ * <h3>Custom Generators:</h3>
+ * <p>Any Spring bean implementing this interface can be selected by its bean name through
+ * the {@code payloadGenerator} property, for example:</p>
+ * <pre>
+ * &#64;Component("orders")
+ * public class OrderGenerator implements PayloadGenerator { ... }
+ * </pre>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@FunctionalInterface
+public interface PayloadGenerator {
+
+    /**
+     * Generates one value.
+     *
+     * <p>Implementations should take all randomness from {@code random} so that a corpus is
+     * reproducible from its seed. They are only called from the thread building the corpus.</p>
+     *
+     * @param index  position of the value in the corpus, starting at 0
+     * @param random source of randomness seeded from {@code payloadSeed}
+     * @return the serialized value; the array is kept and sent as-is, so it must not be
+     *         modified afterwards
+     */
+    byte[] generate(long index, SplittableRandom random);
+}
@@ -0,0 +1,107 @@
+package io.nadkarni.streamsproducer.payload;
+
+/**
+ * Payload parameters of a run: which generator builds the values and how keys are chosen.
+ *
+ * <p>Property names match the top-level properties in application.yaml. Unset properties
+ * are taken from the configuration with {@link #withDefaults(PayloadSpec)}.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class PayloadSpec {
+
+    private String payloadGenerator;
+    private String payloadSize;
+    private String payloadTemplate;
+    private Integer payloadCorpusSize;
+    private Long payloadSeed;
+    private Long keyCardinality;
+    private Double keySkew;
+
+    /**
+     * Returns a copy of this specification in which every unset property is taken from
+     * {@code defaults}.
+     *
+     * @param defaults specification built from the application configuration
+     * @return the completed specification
+     */
+    public PayloadSpec withDefaults(PayloadSpec defaults) {
+        PayloadSpec spec = new PayloadSpec();
+        spec.payloadGenerator = payloadGenerator != null ? payloadGenerator : defaults.payloadGenerator;
+        spec.payloadSize = payloadSize != null ? payloadSize : defaults.payloadSize;
+        spec.payloadTemplate = payloadTemplate != null ? payloadTemplate : defaults.payloadTemplate;
+        spec.payloadCorpusSize = payloadCorpusSize != null ? payloadCorpusSize : defaults.payloadCorpusSize;
+        spec.payloadSeed = payloadSeed != null ? payloadSeed : defaults.payloadSeed;
+        spec.keyCardinality = keyCardinality != null ? keyCardinality : defaults.keyCardinality;
+        spec.keySkew = keySkew != null ? keySkew : defaults.keySkew;
+        return spec;
+    }
+
+    /**
+     * @return every property, used to recognise a specification whose corpus is already built
+     */
+    @Override
+    public String toString() {
+        return "payloadGenerator=" + payloadGenerator + ", payloadSize=" + payloadSize
+                + ", payloadTemplate=" + payloadTemplate + ", payloadCorpusSize=" + payloadCorpusSize
+                + ", payloadSeed=" + payloadSeed + ", keyCardinality=" + keyCardinality + ", keySkew=" + keySkew;
+    }
+
+    public String getPayloadGenerator() {
+        return payloadGenerator;
+    }
+
+    public void setPayloadGenerator(String payloadGenerator) {
+        this.payloadGenerator = payloadGenerator;
+    }
+
+    public String getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(String payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
+    public String getPayloadTemplate() {
+        return payloadTemplate;
+    }
+
+    public void setPayloadTemplate(String payloadTemplate) {
+        this.payloadTemplate = payloadTemplate;
+    }
+
+    public Integer getPayloadCorpusSize() {
+        return payloadCorpusSize;
+    }
+
+    public void setPayloadCorpusSize(Integer payloadCorpusSize) {
+        this.payloadCorpusSize = payloadCorpusSize;
+    }
+
+    public Long getPayloadSeed() {
+        return payloadSeed;
+    }
+
+    public void setPayloadSeed(Long payloadSeed) {
+        this.payloadSeed = payloadSeed;
+    }
+
+    public Long getKeyCardinality() {
+        return keyCardinality;
+    }
+
+    public void setKeyCardinality(Long keyCardinality) {
+        this.keyCardinality = keyCardinality;
+    }
+
+    public Double getKeySkew() {
+        return keySkew;
+    }
+
+    public void setKeySkew(Double keySkew) {
+        this.keySkew = keySkew;
+    }
+}
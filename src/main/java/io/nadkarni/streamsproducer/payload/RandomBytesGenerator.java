@@ -0,0 +1,40 @@
+package io.nadkarni.streamsproducer.payload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates values of uniformly random bytes, selected with {@code payloadGenerator: random}.
+ *
+ * <p>Random bytes do not compress, so they give a worst case for batch compression and an
+ * exact control over the bytes on the wire. Sizes are drawn from the configured
+ * {@link SizeDistribution} ({@code payloadSize}).</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class RandomBytesGenerator implements PayloadGenerator {
+
+    private final SizeDistribution sizes;
+
+    /**
+     * @param sizes distribution of value sizes
+     */
+    public RandomBytesGenerator(SizeDistribution sizes) {
+        this.sizes = sizes;
+    }
+
+    @Override
+    public byte[] generate(long index, SplittableRandom random) {
+        byte[] value = new byte[sizes.sample(random)];
+        int i = 0;
+        while (i < value.length) {
+            long bits = random.nextLong();
+            for (int n = Math.min(value.length - i, Long.BYTES); n > 0; n--) {
+                value[i++] = (byte) bits;
+                bits >>>= Byte.SIZE;
+            }
+        }
+        return value;
+    }
+}
@@ -0,0 +1,169 @@
+package io.nadkarni.streamsproducer.payload;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of value sizes in bytes.
+ *
+ * <p>Written as {@code kind:parameters}, in the same range notation as load profiles:</p>
+ * <ul>
+ *   <li>{@code 100} or {@code fixed:100} - every value is 100 bytes</li>
+ *   <li>{@code uniform:100-1000} - equally likely sizes between 100 and 1000 bytes</li>
+ *   <li>{@code normal:500,100} - mean 500 bytes, standard deviation 100, never below 0</li>
+ *   <li>{@code zipf:100-10000,1.2} - sizes between 100 and 10000 bytes where smaller sizes
+ *       are far more frequent, with skew 1.2; models mostly small records with a long tail
+ *       of large ones</li>
+ * </ul>
+ *
+ * <p>Immutable and thread-safe; the randomness comes from the caller's generator.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class SizeDistribution {
+
+    private enum Kind { FIXED, UNIFORM, NORMAL, ZIPF }
+
+    private final String spec;
+    private final Kind kind;
+    private final int min;
+    private final int max;
+    private final double mean;
+    private final double deviation;
+    private final ZipfSampler zipf;
+
+    private SizeDistribution(String spec, Kind kind, int min, int max, double mean, double deviation) {
+        this.spec = spec;
+        this.kind = kind;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.deviation = deviation;
+        this.zipf = kind == Kind.ZIPF ? new ZipfSampler(max - min + 1, deviation) : null;
+    }
+
+    /**
+     * Creates a distribution in which every value has the same size.
+     *
+     * @param size size in bytes
+     * @return the distribution
+     */
+    public static SizeDistribution fixed(int size) {
+        checkSize(size, "size");
+        return new SizeDistribution("fixed:" + size, Kind.FIXED, size, size, size, 0);
+    }
+
+    /**
+     * Parses a size distribution.
+     *
+     * @param spec the specification, see the class description
+     * @return the distribution
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static SizeDistribution parse(String spec) {
+        String trimmed = spec.trim();
+        int colon = trimmed.indexOf(':');
+        String kind = colon < 0 ? "fixed" : trimmed.substring(0, colon).trim();
+        String parameters = colon < 0 ? trimmed : trimmed.substring(colon + 1).trim();
+        try {
+            switch (kind) {
+                case "fixed":
+                    return fixed(Integer.parseInt(parameters));
+                case "uniform": {
+                    int[] range = range(parameters);
+                    return new SizeDistribution(trimmed, Kind.UNIFORM, range[0], range[1],
+                            (range[0] + (double) range[1]) / 2, 0);
+                }
+                case "normal": {
+                    String[] values = parameters.split(",");
+                    if (values.length != 2) {
+                        throw new IllegalArgumentException("Expected normal:mean,deviation");
+                    }
+                    double mean = Double.parseDouble(values[0].trim());
+                    double deviation = Double.parseDouble(values[1].trim());
+                    if (mean < 0 || deviation < 0) {
+                        throw new IllegalArgumentException("Mean and deviation must not be negative");
+                    }
+                    return new SizeDistribution(trimmed, Kind.NORMAL, 0, Integer.MAX_VALUE, mean, deviation);
+                }
+                case "zipf": {
+                    int comma = parameters.lastIndexOf(',');
+                    if (comma < 0) {
+                        throw new IllegalArgumentException("Expected zipf:min-max,exponent");
+                    }
+                    int[] range = range(parameters.substring(0, comma));
+                    double exponent = Double.parseDouble(parameters.substring(comma + 1).trim());
+                    return new SizeDistribution(trimmed, Kind.ZIPF, range[0], range[1], Double.NaN, exponent);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown size distribution '" + kind
+                            + "'; expected fixed, uniform, normal or zipf");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed size distribution '" + spec + "'", e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid size distribution '" + spec + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Draws a size.
+     *
+     * @param random source of randomness
+     * @return a size in bytes, never negative
+     */
+    public int sample(SplittableRandom random) {
+        switch (kind) {
+            case UNIFORM:
+                return random.nextInt(min, max + 1);
+            case NORMAL:
+                return (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.round(mean + deviation * gaussian(random))));
+            case ZIPF:
+                return min + zipf.sample(random) - 1;
+            default:
+                return min;
+        }
+    }
+
+    /**
+     * @return the specification this distribution was created from
+     */
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    /**
+     * Parses {@code min-max}.
+     */
+    private static int[] range(String parameters) {
+        String trimmed = parameters.trim();
+        int dash = trimmed.indexOf('-', 1);
+        if (dash < 0) {
+            throw new IllegalArgumentException("Expected min-max");
+        }
+        int min = Integer.parseInt(trimmed.substring(0, dash).trim());
+        int max = Integer.parseInt(trimmed.substring(dash + 1).trim());
+        checkSize(min, "min");
+        if (max < min) {
+            throw new IllegalArgumentException("max must not be below min");
+        }
+        return new int[] {min, max};
+    }
+
+    private static void checkSize(int size, String name) {
+        if (size < 0) {
+            throw new IllegalArgumentException(name + " must not be negative");
+        }
+    }
+
+    /**
+     * Standard normal variate by the Box-Muller transform; {@link SplittableRandom} has no
+     * {@code nextGaussian()} before Java 17.
+     */
+    private static double gaussian(SplittableRandom random) {
+        double radius = Math.sqrt(-2.0 * Math.log(1.0 - random.nextDouble()));
+        return radius * Math.cos(2.0 * Math.PI * random.nextDouble());
+    }
+}
@@ -0,0 +1,112 @@
+package io.nadkarni.streamsproducer.payload;
+
+import io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder;
+
+import java.util.SplittableRandom;
+
+/**
+ * The records of a run built from a {@link PayloadCorpus} and a {@link KeyModel}.
+ *
+ * <p>A workload is immutable and shared by all workers of a run; each worker reads it
+ * through its own {@link Cursor}, which holds the worker's random generator and key
+ * buffers. Keys are the ASCII digits of the key number chosen by the key model, so unique
+ * keys look exactly like the keys of the original records.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class Workload {
+
+    private final String name;
+    private final PayloadCorpus corpus;
+    private final KeyModel keys;
+    private final long seed;
+
+    /**
+     * @param name   name of the generator that built the corpus
+     * @param corpus the pre-generated values
+     * @param keys   how keys are chosen
+     * @param seed   seed from which the workers' generators are derived
+     */
+    public Workload(String name, PayloadCorpus corpus, KeyModel keys, long seed) {
+        this.name = name;
+        this.corpus = corpus;
+        this.keys = keys;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates the reader for one worker.
+     *
+     * @param worker index of the worker; different workers get independent random streams
+     * @return a new cursor, to be confined to one thread
+     */
+    public Cursor cursor(int worker) {
+        return new Cursor(new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (worker + 1))));
+    }
+
+    /**
+     * @return the pre-generated values
+     */
+    public PayloadCorpus getCorpus() {
+        return corpus;
+    }
+
+    /**
+     * @return how keys are chosen
+     */
+    public KeyModel getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return a short description for the run log
+     */
+    @Override
+    public String toString() {
+        return name + " payloads (" + corpus.size() + " values, " + Math.round(corpus.averageSize())
+                + " bytes average), " + keys;
+    }
+
+    /**
+     * Reads the records of a workload on one thread.
+     *
+     * <p>Like the {@link AsciiRecordEncoder} it uses, a cursor reuses its key arrays: a key
+     * is valid until the next call to {@link #key(long)}. Not thread-safe.</p>
+     */
+    public final class Cursor {
+
+        private final SplittableRandom random;
+        private final AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+        private long keyNumber;
+
+        private Cursor(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * @param seq sequence number of the record
+         * @return the encoded key, in an array reused by later calls
+         */
+        public byte[] key(long seq) {
+            keyNumber = keys.keyOf(seq, random);
+            return encoder.key(keyNumber);
+        }
+
+        /**
+         * @return the key number encoded by the last call to {@link #key(long)}
+         */
+        public long keyNumber() {
+            return keyNumber;
+        }
+
+        /**
+         * @param seq sequence number of the record
+         * @return the shared value array; must not be modified
+         */
+        public byte[] value(long seq) {
+            return corpus.value(seq);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.nadkarni.streamsproducer.payload;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Builds the {@link Workload} for a run from the payload properties.
+ *
+ * <h3>Generators:</h3>
+ * <ul>
+ *   <li>{@code sequential} - the original "N" / "Message N" records, built per record by
+ *       the send loop according to {@code recordEncoding}; no workload is created</li>
+ *   <li>{@code random} - {@link RandomBytesGenerator} sized by {@code payloadSize}</li>
+ *   <li>{@code json} - {@link JsonTemplateGenerator} filled from {@code payloadTemplate}</li>
+ *   <li>the name of any {@link PayloadGenerator} bean</li>
+ * </ul>
+ *
+ * <h3>Caching:</h3>
+ * <p>The most recently built workload is kept, so consecutive runs with the same payload
+ * parameters share one corpus instead of generating it again.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class WorkloadFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadFactory.class);
+
+    /**
+     * Name of the generator that keeps the original records.
+     */
+    public static final String SEQUENTIAL = "sequential";
+
+    /**
+     * Which generator builds record values.
+     * Configured via the {@code payloadGenerator} property in application.yaml.
+     * Default value: sequential
+     */
+    @Value("${payloadGenerator:sequential}")
+    private String payloadGenerator = SEQUENTIAL;
+
+    /**
+     * Value size distribution of the {@code random} generator.
+     * Configured via the {@code payloadSize} property in application.yaml.
+     * Default value: fixed:100
+     */
+    @Value("${payloadSize:fixed:100}")
+    private String payloadSize = "fixed:100";
+
+    /**
+     * Template of the {@code json} generator; empty selects {@link JsonTemplateGenerator#DEFAULT_TEMPLATE}.
+     * Configured via the {@code payloadTemplate} property in application.yaml.
+     * Default value: empty
+     */
+    @Value("${payloadTemplate:}")
+    private String payloadTemplate = "";
+
+    /**
+     * Number of pre-generated values.
+     * Configured via the {@code payloadCorpusSize} property in application.yaml.
+     * Default value: 10,000
+     */
+    @Value("${payloadCorpusSize:10000}")
+    private int payloadCorpusSize = 10000;
+
+    /**
+     * Seed of the corpus and key generators.
+     * Configured via the {@code payloadSeed} property in application.yaml.
+     * Default value: 1
+     */
+    @Value("${payloadSeed:1}")
+    private long payloadSeed = 1;
+
+    /**
+     * Number of distinct keys; 0 gives every record its own key.
+     * Configured via the {@code keyCardinality} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${keyCardinality:0}")
+    private long keyCardinality;
+
+    /**
+     * Zipf exponent of the key distribution; 0 makes all keys equally likely.
+     * Configured via the {@code keySkew} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${keySkew:0}")
+    private double keySkew;
+
+    /**
+     * Custom generators by bean name.
+     */
+    @Autowired(required = false)
+    private Map<String, PayloadGenerator> generators = Collections.emptyMap();
+
+    private String cachedSpec;
+    private Workload cached;
+
+    /**
+     * Builds, or reuses, the workload for a run.
+     *
+     * @param request payload parameters; unset parameters are taken from the configuration
+     * @return the workload, or {@code null} for the {@code sequential} generator
+     * @throws IllegalArgumentException if the generator is unknown or a parameter is invalid
+     */
+    public synchronized Workload create(PayloadSpec request) {
+        PayloadSpec spec = (request == null ? new PayloadSpec() : request).withDefaults(defaults());
+        String name = spec.getPayloadGenerator();
+        if (SEQUENTIAL.equals(name)) {
+            return null;
+        }
+        if (spec.toString().equals(cachedSpec)) {
+            return cached;
+        }
+        PayloadGenerator generator = generator(spec);
+        KeyModel keys = new KeyModel(spec.getKeyCardinality(), spec.getKeySkew());
+        long start = System.nanoTime();
+        PayloadCorpus corpus = PayloadCorpus.build(generator, spec.getPayloadCorpusSize(), spec.getPayloadSeed());
+        Workload workload = new Workload(name, corpus, keys, spec.getPayloadSeed());
+        logger.info("Generated " + workload + " in " + (System.nanoTime() - start) / 1_000_000 + " ms ("
+                + corpus.totalBytes() / 1024 + " KiB)");
+        cachedSpec = spec.toString();
+        cached = workload;
+        return workload;
+    }
+
+    /**
+     * @return a specification holding the configured default for every parameter
+     */
+    public PayloadSpec defaults() {
+        PayloadSpec defaults = new PayloadSpec();
+        defaults.setPayloadGenerator(payloadGenerator);
+        defaults.setPayloadSize(payloadSize);
+        defaults.setPayloadTemplate(payloadTemplate);
+        defaults.setPayloadCorpusSize(payloadCorpusSize);
+        defaults.setPayloadSeed(payloadSeed);
+        defaults.setKeyCardinality(keyCardinality);
+        defaults.setKeySkew(keySkew);
+        return defaults;
+    }
+
+    /**
+     * Resolves a built-in or custom generator.
+     */
+    private PayloadGenerator generator(PayloadSpec spec) {
+        switch (spec.getPayloadGenerator()) {
+            case "random":
+                return new RandomBytesGenerator(SizeDistribution.parse(spec.getPayloadSize()));
+            case "json":
+                return new JsonTemplateGenerator(StringUtils.hasText(spec.getPayloadTemplate())
+                        ? spec.getPayloadTemplate() : JsonTemplateGenerator.DEFAULT_TEMPLATE);
+            default:
+                PayloadGenerator generator = generators.get(spec.getPayloadGenerator());
+                if (generator == null) {
+                    throw new IllegalArgumentException("Unknown payloadGenerator '" + spec.getPayloadGenerator()
+                            + "'; expected sequential, random, json or one of " + generators.keySet());
+                }
+                return generator;
+        }
+    }
+}
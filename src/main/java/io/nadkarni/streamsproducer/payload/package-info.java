@@ -0,0 +1,25 @@
+/**
+ * Pluggable record payloads generated ahead of a run.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.payload.PayloadGenerator} - Service provider
+ *       interface for record values</li>
+ *   <li>{@link io.nadkarni.streamsproducer.payload.RandomBytesGenerator} - Random bytes with
+ *       sizes from a {@link io.nadkarni.streamsproducer.payload.SizeDistribution}</li>
+ *   <li>{@link io.nadkarni.streamsproducer.payload.JsonTemplateGenerator} - JSON documents
+ *       from a template with varying fields</li>
+ *   <li>{@link io.nadkarni.streamsproducer.payload.KeyModel} - Key cardinality and skew</li>
+ *   <li>{@link io.nadkarni.streamsproducer.payload.PayloadCorpus} - Values generated once
+ *       and cycled through at send time</li>
+ *   <li>{@link io.nadkarni.streamsproducer.payload.Workload} - Corpus and key model of a
+ *       run, read by each worker through its own cursor</li>
+ *   <li>{@link io.nadkarni.streamsproducer.payload.WorkloadFactory} - Builds and caches
+ *       workloads from the payload properties</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.payload;
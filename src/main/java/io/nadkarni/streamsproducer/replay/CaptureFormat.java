@@ -0,0 +1,48 @@
+package io.nadkarni.streamsproducer.replay;
+
+/**
+ * Layout of a capture file, shared by {@link CaptureWriter} and {@link CaptureReader}.
+ *
+ * <p>All numbers are big-endian. The file starts with a header, followed by the records
+ * in the order they were captured:</p>
+ * <pre>
+ * header:  int32 magic ("SPCA")  int32 version (1)
+ * record:  int64 timestamp (ms)  int32 keyLength  key bytes  int32 valueLength  value bytes
+ * </pre>
+ * <p>A length of -1 stands for a {@code null} key or value. The timestamp is the record's
+ * Kafka timestamp, from which the replay derives the original inter-arrival times.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class CaptureFormat {
+
+    /**
+     * The ASCII bytes {@code SPCA}.
+     */
+    static final int MAGIC = 0x53504341;
+
+    /**
+     * Version written by this release.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the file header in bytes.
+     */
+    static final int FILE_HEADER_SIZE = 8;
+
+    /**
+     * Size of the timestamp and key length that start every record.
+     */
+    static final int RECORD_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    /**
+     * Length written for a {@code null} key or value.
+     */
+    static final int NULL_LENGTH = -1;
+
+    private CaptureFormat() {
+    }
+}
@@ -0,0 +1,271 @@
+package io.nadkarni.streamsproducer.replay;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the records of a capture file through a memory-mapped window.
+ *
+ * <p>The file is never loaded onto the heap: at most {@code 1 GiB} of it is mapped at a
+ * time, and the window is moved forward whenever the next record does not fit in the rest
+ * of it. Files of any size can therefore be replayed with a heap that only holds the
+ * record currently being sent. Pages already read are left to the operating system,
+ * which evicts them from the page cache as needed.</p>
+ *
+ * <h3>Copies:</h3>
+ * <p>Kafka serializers must return a {@code byte[]} of exactly the record's length, so
+ * each key and value is copied once from the mapped page into an array. Like the
+ * {@code AsciiRecordEncoder}, the reader reuses those arrays: {@code KafkaProducer.send()}
+ * copies a record into its batch before returning, so an array may be overwritten by the
+ * next record. Arrays of up to 64 KiB are kept in 1024 slots per role, indexed by length;
+ * larger records get a fresh array, whose allocation is small next to the copy itself.
+ * The retained arrays use at most 64 MiB each for keys and values.</p>
+ *
+ * <h3>Truncated Files:</h3>
+ * <p>A capture that was interrupted while writing may end with an incomplete record. The
+ * reader stops before it and reports it through {@link #isTruncated()}.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>Not thread-safe. Records are read in file order by one thread.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class CaptureReader implements AutoCloseable {
+
+    /**
+     * Default size of the mapped window.
+     */
+    static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+    /**
+     * Largest key or value kept for reuse.
+     */
+    private static final int REUSE_LIMIT = 64 * 1024;
+
+    /**
+     * Number of reuse slots per role; arrays are placed at {@code length % REUSE_SLOTS}.
+     */
+    private static final int REUSE_SLOTS = 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final byte[][] keyBuffers = new byte[REUSE_SLOTS][];
+    private final byte[][] valueBuffers = new byte[REUSE_SLOTS][];
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long records;
+    private boolean truncated;
+
+    private long timestamp;
+    private byte[] key;
+    private byte[] value;
+    private int recordSize;
+
+    /**
+     * Opens a capture file with the given window size.
+     *
+     * @param path       location of the file
+     * @param windowSize number of bytes mapped at a time, at most {@link Integer#MAX_VALUE}
+     * @throws IOException if the file cannot be opened or is not a capture file
+     */
+    CaptureReader(Path path, long windowSize) throws IOException {
+        this.path = path;
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            if (size < CaptureFormat.FILE_HEADER_SIZE) {
+                throw new IOException(path + " is not a capture file");
+            }
+            map(0);
+            int magic = window.getInt();
+            int version = window.getInt();
+            if (magic != CaptureFormat.MAGIC) {
+                throw new IOException(path + " is not a capture file");
+            }
+            if (version != CaptureFormat.VERSION) {
+                throw new IOException(path + " has unsupported capture version " + version);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a capture file.
+     *
+     * @param path location of the file
+     * @return a reader positioned before the first record
+     * @throws IOException if the file cannot be opened or is not a capture file
+     */
+    public static CaptureReader open(Path path) throws IOException {
+        return new CaptureReader(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return {@code false} at the end of the file or before an incomplete final record
+     * @throws IOException if a record is malformed or larger than the mapped window
+     */
+    public boolean next() throws IOException {
+        long start = position();
+        if (start >= size) {
+            return false;
+        }
+        if (!ensure(CaptureFormat.RECORD_HEADER_SIZE)) {
+            return stopTruncated();
+        }
+        long recordTimestamp = window.getLong();
+        int keyLength = window.getInt();
+        checkLength(keyLength, start);
+        if (!ensure(Math.max(keyLength, 0) + (long) Integer.BYTES)) {
+            return stopTruncated();
+        }
+        byte[] recordKey = read(keyLength, keyBuffers);
+        int valueLength = window.getInt();
+        checkLength(valueLength, start);
+        if (!ensure(Math.max(valueLength, 0))) {
+            return stopTruncated();
+        }
+        value = read(valueLength, valueBuffers);
+        key = recordKey;
+        timestamp = recordTimestamp;
+        recordSize = Math.max(keyLength, 0) + Math.max(valueLength, 0);
+        records++;
+        return true;
+    }
+
+    /**
+     * @return the timestamp of the current record in milliseconds
+     */
+    public long timestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return the key of the current record, or {@code null}; the array may be reused by
+     *         the next call to {@link #next()}
+     */
+    public byte[] key() {
+        return key;
+    }
+
+    /**
+     * @return the value of the current record, or {@code null}; the array may be reused by
+     *         the next call to {@link #next()}
+     */
+    public byte[] value() {
+        return value;
+    }
+
+    /**
+     * @return the combined length of the current record's key and value in bytes
+     */
+    public int recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * @return the number of records read so far
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return {@code true} if reading stopped before an incomplete final record
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once it is garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    /**
+     * Makes sure the next {@code length} bytes are mapped, moving the window if needed.
+     *
+     * @return {@code false} if the file ends before {@code length} more bytes
+     */
+    private boolean ensure(long length) throws IOException {
+        if (window.remaining() >= length) {
+            return true;
+        }
+        long position = position();
+        if (size - position < length) {
+            return false;
+        }
+        if (length > windowSize) {
+            throw new IOException("Record at offset " + position + " of " + path + " is larger than the "
+                    + windowSize + " byte mapping window");
+        }
+        map(position);
+        return true;
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    }
+
+    private long position() {
+        return windowStart + window.position();
+    }
+
+    private boolean stopTruncated() {
+        truncated = true;
+        return false;
+    }
+
+    private void checkLength(int length, long start) throws IOException {
+        if (length < CaptureFormat.NULL_LENGTH) {
+            throw new IOException("Corrupt record at offset " + start + " of " + path);
+        }
+    }
+
+    /**
+     * Copies {@code length} bytes from the window into a reused or new array.
+     */
+    private byte[] read(int length, byte[][] buffers) {
+        if (length == CaptureFormat.NULL_LENGTH) {
+            return null;
+        }
+        byte[] target;
+        if (length > REUSE_LIMIT) {
+            target = new byte[length];
+        } else {
+            int slot = length % REUSE_SLOTS;
+            target = buffers[slot];
+            if (target == null || target.length != length) {
+                target = new byte[length];
+                buffers[slot] = target;
+            }
+        }
+        window.get(target);
+        return target;
+    }
+}
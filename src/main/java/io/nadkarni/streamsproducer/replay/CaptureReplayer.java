@@ -0,0 +1,113 @@
+package io.nadkarni.streamsproducer.replay;
+
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.pacing.RatePacer;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the records of a capture file through a {@link PipelinedSender}, in file order.
+ *
+ * <h3>Timing:</h3>
+ * <ul>
+ *   <li>{@code replaySpeed > 0} - records keep their original inter-arrival times divided
+ *       by the speed: 1 replays in real time, 10 ten times faster. Each record's slot in
+ *       this schedule is its intended send time, so latency is measured as for a paced
+ *       run</li>
+ *   <li>{@code replaySpeed = 0} - the timestamps are ignored and records are released by
+ *       the run's {@link RatePacer}, or as fast as the in-flight window allows</li>
+ * </ul>
+ * <p>Timestamps that go backwards, as they do between partitions of a capture, do not
+ * move the schedule back: such a record is due together with its predecessor.</p>
+ *
+ * <p>Keys are sent as captured, so records land on the partitions the default
+ * partitioner chooses for them, which are the original ones when the partition count has
+ * not changed.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class CaptureReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptureReplayer.class);
+
+    private final String topic;
+    private final double speed;
+
+    /**
+     * @param topic destination topic
+     * @param speed factor applied to the original timing, or 0 to ignore it
+     * @throws IllegalArgumentException if {@code speed} is negative
+     */
+    public CaptureReplayer(String topic, double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("replaySpeed must not be negative");
+        }
+        this.topic = topic;
+        this.speed = speed;
+    }
+
+    /**
+     * Sends records until the file ends, the limit is reached or the pacer finishes.
+     *
+     * @param reader source of the records
+     * @param sender sender bounding the records in flight
+     * @param limit  stop condition
+     * @param pacer  pacer used when {@code speed} is 0, or {@code null}
+     * @return the number of records sent
+     * @throws IOException          if the file cannot be read
+     * @throws InterruptedException if interrupted while waiting for a record's slot
+     */
+    public long replay(CaptureReader reader, PipelinedSender<Object, Object> sender, RunLimit limit,
+                       RatePacer pacer) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long firstTimestamp = 0;
+        long previous = startNanos;
+        long seq = 0;
+        for (; limit.allows(seq) && reader.next(); seq++) {
+            long intended;
+            if (speed > 0) {
+                if (seq == 0) {
+                    firstTimestamp = reader.timestamp();
+                }
+                long offset = (long) ((reader.timestamp() - firstTimestamp) * 1_000_000.0 / speed);
+                intended = Math.max(previous, startNanos + offset);
+                previous = intended;
+                awaitNanos(intended);
+            } else if (pacer != null) {
+                intended = pacer.acquire();
+                if (intended == RatePacer.FINISHED) {
+                    break;
+                }
+            } else {
+                intended = System.nanoTime();
+            }
+            sender.send(topic, null, reader.key(), reader.value(), reader.recordSize(), intended);
+            if (logger.isDebugEnabled()) {
+                logger.debug("Sending " + seq);
+            }
+        }
+        if (reader.isTruncated()) {
+            logger.warn("Capture ends with an incomplete record after " + reader.getRecords() + " records");
+        }
+        return seq;
+    }
+
+    /**
+     * Parks until the given {@link System#nanoTime()} value.
+     */
+    private static void awaitNanos(long deadline) throws InterruptedException {
+        long wait;
+        while ((wait = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.nadkarni.streamsproducer.replay;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies the records of a topic into a capture file that {@link CaptureReader} can replay.
+ *
+ * <p>The capture reads every partition from the beginning up to the end offsets found
+ * when it starts, so records produced while it runs are not included and the capture
+ * terminates on a busy topic. Keys, values and timestamps are written as the broker
+ * returns them, without deserializing.</p>
+ *
+ * <p>The consumer is created from the {@code spring.kafka.consumer} properties with
+ * byte-array deserializers. Partitions are assigned directly, so no consumer group is
+ * joined and no offsets are committed.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class TopicCapture {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopicCapture.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    /**
+     * Time without any records after which the capture gives up waiting for the end offsets.
+     */
+    static final long IDLE_TIMEOUT_MS = 30_000;
+
+    private final KafkaProperties kafkaProperties;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaProperties the Spring Boot Kafka properties bound from application.yaml
+     */
+    public TopicCapture(KafkaProperties kafkaProperties) {
+        this.kafkaProperties = kafkaProperties;
+    }
+
+    /**
+     * Captures a topic.
+     *
+     * @param topic      topic to read
+     * @param file       capture file to create or replace
+     * @param maxRecords maximum number of records to capture, or 0 for all of them
+     * @return the number of records captured
+     * @throws IOException if the file cannot be written
+     */
+    public long capture(String topic, Path file, long maxRecords) throws IOException {
+        Map<String, Object> properties = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        try (Consumer<byte[], byte[]> consumer = new KafkaConsumer<>(properties)) {
+            return capture(consumer, topic, file, maxRecords);
+        }
+    }
+
+    /**
+     * Captures a topic through the given consumer.
+     */
+    long capture(Consumer<byte[], byte[]> consumer, String topic, Path file, long maxRecords) throws IOException {
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (PartitionInfo info : consumer.partitionsFor(topic)) {
+            partitions.add(new TopicPartition(topic, info.partition()));
+        }
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+        Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+        Set<TopicPartition> remaining = new HashSet<>();
+        for (TopicPartition partition : partitions) {
+            if (consumer.position(partition) < endOffsets.get(partition)) {
+                remaining.add(partition);
+            } else {
+                consumer.pause(Collections.singleton(partition));
+            }
+        }
+        logger.info("Capturing " + partitions.size() + " partitions of '" + topic + "' into " + file);
+
+        long start = System.currentTimeMillis();
+        long lastRecord = start;
+        try (CaptureWriter writer = CaptureWriter.create(file)) {
+            while (!remaining.isEmpty() && (maxRecords == 0 || writer.getRecords() < maxRecords)) {
+                ConsumerRecords<byte[], byte[]> records = consumer.poll(POLL_TIMEOUT);
+                long now = System.currentTimeMillis();
+                if (records.isEmpty()) {
+                    if (now - lastRecord > IDLE_TIMEOUT_MS) {
+                        logger.warn("No records for " + IDLE_TIMEOUT_MS + " ms; " + remaining.size()
+                                + " partitions did not reach their end offset");
+                        break;
+                    }
+                    continue;
+                }
+                lastRecord = now;
+                for (TopicPartition partition : records.partitions()) {
+                    long end = endOffsets.get(partition);
+                    for (ConsumerRecord<byte[], byte[]> record : records.records(partition)) {
+                        if (record.offset() >= end || (maxRecords > 0 && writer.getRecords() >= maxRecords)) {
+                            break;
+                        }
+                        writer.append(record.timestamp(), record.key(), record.value());
+                    }
+                    if (consumer.position(partition) >= end) {
+                        remaining.remove(partition);
+                        consumer.pause(Collections.singleton(partition));
+                    }
+                }
+            }
+            logger.info("Captured " + writer.getRecords() + " records (" + writer.getBytes() / 1024 + " KiB) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return writer.getRecords();
+        }
+    }
+}
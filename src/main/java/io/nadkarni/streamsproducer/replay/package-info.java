@@ -0,0 +1,20 @@
+/**
+ * Replay of captured production traffic from memory-mapped capture files.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.replay.CaptureReader} - Reads length-prefixed
+ *       records through a moving memory-mapped window</li>
+ *   <li>{@link io.nadkarni.streamsproducer.replay.CaptureWriter} - Appends records to a
+ *       capture file</li>
+ *   <li>{@link io.nadkarni.streamsproducer.replay.CaptureReplayer} - Sends a capture in file
+ *       order, optionally with its original timing</li>
+ *   <li>{@link io.nadkarni.streamsproducer.replay.TopicCapture} - Writes the records of a
+ *       topic into a capture file</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.replay;
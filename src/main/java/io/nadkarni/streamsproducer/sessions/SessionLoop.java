@@ -0,0 +1,174 @@
+package io.nadkarni.streamsproducer.sessions;
+
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.partitioning.PartitionSelector;
+import io.nadkarni.streamsproducer.payload.Workload;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One event-loop thread's share of the simulated clients.
+ *
+ * <p>Loop {@code l} of {@code L} owns the sessions {@code l, l + L, l + 2L, ...}. Their state
+ * is held in parallel primitive arrays rather than one object per session: the time of the
+ * next event, the number of events sent, and the session's slot in a binary min-heap
+ * ordered by that time. That is {@value #BYTES_PER_SESSION} bytes per session, so a
+ * million sessions fit in 16 MB.</p>
+ *
+ * <p>The loop takes the session at the top of the heap, sleeps until its event is due,
+ * sends the event with the due time as its intended send time, draws the next think time
+ * and sifts the session down. Sessions that fall behind, for example while the in-flight
+ * window is full, keep their schedule; the delay shows up in the latency histograms.</p>
+ *
+ * <p>Not thread-safe; each loop is run by exactly one thread.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class SessionLoop {
+
+    /**
+     * State per session: next event time, event count and heap slot.
+     */
+    static final int BYTES_PER_SESSION = Long.BYTES + Integer.BYTES + Integer.BYTES;
+
+    /**
+     * Longest sleep before the loop checks the run's time limit again.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int loop;
+    private final int loops;
+    private final ThinkTime thinkTime;
+    private final SplittableRandom random;
+
+    /**
+     * Time of each session's next event, as a {@link System#nanoTime()} value.
+     */
+    private final long[] due;
+
+    /**
+     * Number of events each session has sent; the next one carries this number.
+     */
+    private final int[] events;
+
+    /**
+     * Sessions ordered by {@link #due}, earliest first.
+     */
+    private final int[] heap;
+
+    /**
+     * @param loop      index of this loop
+     * @param loops     number of loops
+     * @param sessions  total number of sessions across all loops
+     * @param thinkTime time between two events of a session
+     * @param random    source of think times, confined to this loop
+     */
+    SessionLoop(int loop, int loops, int sessions, ThinkTime thinkTime, SplittableRandom random) {
+        this.loop = loop;
+        this.loops = loops;
+        this.thinkTime = thinkTime;
+        this.random = random;
+        int count = sessions / loops + (loop < sessions % loops ? 1 : 0);
+        due = new long[count];
+        events = new int[count];
+        heap = new int[count];
+    }
+
+    /**
+     * @return number of sessions owned by this loop
+     */
+    int size() {
+        return heap.length;
+    }
+
+    /**
+     * Schedules every session's first event at a random point within one mean think time
+     * of {@code startNanos}, so the sessions do not all fire at once.
+     *
+     * @param startNanos start of the run as a {@link System#nanoTime()} value
+     */
+    void schedule(long startNanos) {
+        double mean = thinkTime.meanNanos();
+        for (int session = 0; session < heap.length; session++) {
+            due[session] = startNanos + (long) (random.nextDouble() * mean);
+            heap[session] = session;
+        }
+        for (int i = heap.length / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    /**
+     * Sends the sessions' events until the limit is reached.
+     *
+     * @param topic    destination topic
+     * @param limit    stop condition shared by all loops
+     * @param sequence run-wide record counter shared by all loops
+     * @param workload generated values, or {@code null} for "Message N" values numbered per session
+     * @param selector partition selector of this loop, or {@code null} for the producer's partitioner
+     * @param sender   sender shared with the other loops' window
+     * @throws InterruptedException if interrupted while sleeping or sending
+     */
+    void run(String topic, RunLimit limit, AtomicLong sequence, Workload workload, PartitionSelector selector,
+             PipelinedSender<Object, Object> sender) throws InterruptedException {
+        AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+        while (heap.length > 0) {
+            int session = heap[0];
+            long intended = due[session];
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                if (limit.hasExpired()) {
+                    return;
+                }
+                LockSupport.parkNanos(Math.min(wait, MAX_PARK_NANOS));
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                continue;
+            }
+            long seq = sequence.getAndIncrement();
+            if (!limit.allows(seq)) {
+                limit.expire();
+                return;
+            }
+            long key = (long) session * loops + loop;
+            byte[] keyBytes = encoder.key(key);
+            byte[] value = workload == null ? encoder.value(events[session]) : workload.getCorpus().value(seq);
+            events[session]++;
+            int size = keyBytes.length + value.length;
+            sender.send(topic, selector == null ? null : selector.partition(key, size), keyBytes, value, size,
+                    intended);
+            due[session] = intended + thinkTime.sampleNanos(random);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Moves the session at heap slot {@code i} down until no child is due earlier.
+     */
+    private void siftDown(int i) {
+        int session = heap[i];
+        long time = due[session];
+        int half = heap.length >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < heap.length && due[heap[right]] - due[heap[child]] < 0) {
+                child = right;
+            }
+            if (due[heap[child]] - time >= 0) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = session;
+    }
+}
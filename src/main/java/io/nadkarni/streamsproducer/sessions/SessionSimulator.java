@@ -0,0 +1,197 @@
+package io.nadkarni.streamsproducer.sessions;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.partitioning.PartitionPlan;
+import io.nadkarni.streamsproducer.payload.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates many independent upstream clients, each with its own key, its own event
+ * counter and its own think time between events.
+ *
+ * <p>Session {@code s} sends records with key {@code s} and, without a workload, values
+ * {@code "Message 0"}, {@code "Message 1"}, ... numbered per session, so every key's
+ * values form a gap-free sequence. The time between two events of a session is drawn from
+ * {@code sessionThinkTime}; the aggregate rate is therefore about
+ * {@code sessions / mean think time}.</p>
+ *
+ * <h3>Scheduling:</h3>
+ * <p>Sessions are not threads. {@code sessionThreads} event loops each own a share of the
+ * sessions, kept in primitive arrays and a timer heap, see {@code SessionLoop}. A session
+ * costs {@value SessionLoop#BYTES_PER_SESSION} bytes, so hundreds of thousands of clients
+ * run on a few threads. Java 11 has no virtual threads, and a thread per client would
+ * cost a stack each. All loops send through the caller's {@link InFlightWindow} into the
+ * same producer, so their records share its batches.</p>
+ *
+ * <h3>Latency:</h3>
+ * <p>Each record's intended send time is the moment its session's event was due. A loop
+ * that falls behind keeps every session's schedule, so the delay is measured rather than
+ * hidden.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class SessionSimulator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionSimulator.class);
+
+    /**
+     * Number of simulated clients; 0 disables the simulator.
+     * Configured via the {@code sessions} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${sessions:0}")
+    private int sessions;
+
+    /**
+     * Number of event-loop threads the sessions are spread over.
+     * Configured via the {@code sessionThreads} property in application.yaml.
+     * Default value: 1
+     */
+    @Value("${sessionThreads:1}")
+    private int sessionThreads = 1;
+
+    /**
+     * Time between two events of a session, see {@link ThinkTime}.
+     * Configured via the {@code sessionThinkTime} property in application.yaml.
+     * Default value: exponential:1s
+     */
+    @Value("${sessionThinkTime:exponential:1s}")
+    private String thinkTime = "exponential:1s";
+
+    /**
+     * Seed from which the loops' think-time generators are derived.
+     * Configured via the {@code payloadSeed} property in application.yaml.
+     * Default value: 1
+     */
+    @Value("${payloadSeed:1}")
+    private long seed = 1;
+
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaTemplate the auto-configured template all sessions send through
+     */
+    public SessionSimulator(KafkaTemplate<Object, Object> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    /**
+     * @return {@code true} if {@code sessions} is set
+     */
+    public boolean isEnabled() {
+        return sessions > 0;
+    }
+
+    /**
+     * @return number of simulated clients, which are also the run's key numbers
+     */
+    public int getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Runs the sessions until the limit is reached and waits for their records to be
+     * acknowledged.
+     *
+     * @param topic          destination topic
+     * @param limit          stop condition for all sessions together
+     * @param workload       generated values, or {@code null} for per-session "Message N" values
+     * @param window         window shared by all loops
+     * @param statistics     counters shared by all loops
+     * @param latency        latency histograms shared by all loops, or {@code null}
+     * @param partitionPlan  partitioning of the run; keys are the session numbers
+     * @param drainTimeoutMs maximum time to wait for outstanding acknowledgements
+     * @throws InterruptedException if interrupted while waiting for the loops
+     */
+    public void send(String topic, RunLimit limit, Workload workload, InFlightWindow window,
+                     SendStatistics statistics, SendLatencyRecorder latency, PartitionPlan partitionPlan,
+                     long drainTimeoutMs) throws InterruptedException {
+        ThinkTime think = ThinkTime.parse(thinkTime);
+        PassThroughSerializer.checkConfigured(kafkaTemplate);
+        int loops = Math.max(1, Math.min(sessionThreads, sessions));
+        logger.info(String.format("Simulating %d sessions on %d event loops (%d KiB of session state), "
+                        + "think time %s, about %.0f records/sec", sessions, loops,
+                (long) sessions * SessionLoop.BYTES_PER_SESSION / 1024, think,
+                sessions * 1e9 / think.meanNanos()));
+
+        List<SessionLoop> sessionLoops = new ArrayList<>(loops);
+        for (int l = 0; l < loops; l++) {
+            sessionLoops.add(new SessionLoop(l, loops, sessions, think,
+                    new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (l + 1)))));
+        }
+        long start = System.nanoTime();
+        sessionLoops.forEach(sessionLoop -> sessionLoop.schedule(start));
+
+        AtomicLong sequence = new AtomicLong();
+        PipelinedSender<Object, Object> sender = new PipelinedSender<>(kafkaTemplate, window, statistics, latency,
+                partitionPlan.getCounts());
+        ExecutorService executor = Executors.newFixedThreadPool(loops, new LoopThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<>(loops);
+            for (int l = 0; l < loops; l++) {
+                SessionLoop sessionLoop = sessionLoops.get(l);
+                int index = l;
+                futures.add(executor.submit(() -> {
+                    sessionLoop.run(topic, limit, sequence, workload, partitionPlan.selector(index), sender);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Session loop failed", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!sender.drain(drainTimeoutMs)) {
+            logger.warn("Timed out after " + drainTimeoutMs + " ms with "
+                    + window.inFlightRecords() + " records still unacknowledged");
+        }
+    }
+
+    /**
+     * Names loop threads so they can be identified in thread dumps and logs.
+     */
+    private static final class LoopThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "session-loop-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package io.nadkarni.streamsproducer.sessions;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of the time a simulated client waits between two of its events.
+ *
+ * <p>Written as {@code kind:parameters}, with durations in Spring Boot's simple format
+ * ({@code 500ms}, {@code 30s}, {@code 10m}):</p>
+ * <ul>
+ *   <li>{@code 1s} or {@code fixed:1s} - every client sends exactly once a second</li>
+ *   <li>{@code uniform:500ms-2s} - equally likely waits between 500 ms and 2 s</li>
+ *   <li>{@code exponential:1s} - waits with a mean of 1 s, so each client's events form
+ *       a Poisson process, as independent users' requests do</li>
+ * </ul>
+ *
+ * <p>Immutable and thread-safe; the randomness comes from the caller's generator.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class ThinkTime {
+
+    private enum Kind { FIXED, UNIFORM, EXPONENTIAL }
+
+    private final String spec;
+    private final Kind kind;
+    private final long minNanos;
+    private final long maxNanos;
+
+    private ThinkTime(String spec, Kind kind, long minNanos, long maxNanos) {
+        this.spec = spec;
+        this.kind = kind;
+        this.minNanos = minNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Parses a think-time distribution.
+     *
+     * @param spec the specification, see the class description
+     * @return the distribution
+     * @throws IllegalArgumentException if the specification is malformed
+     */
+    public static ThinkTime parse(String spec) {
+        String trimmed = spec.trim();
+        int colon = trimmed.indexOf(':');
+        String kind = colon < 0 ? "fixed" : trimmed.substring(0, colon).trim();
+        String parameters = colon < 0 ? trimmed : trimmed.substring(colon + 1).trim();
+        try {
+            switch (kind) {
+                case "fixed": {
+                    long nanos = positive(parameters);
+                    return new ThinkTime(trimmed, Kind.FIXED, nanos, nanos);
+                }
+                case "uniform": {
+                    int dash = parameters.indexOf('-');
+                    if (dash < 0) {
+                        throw new IllegalArgumentException("Expected uniform:min-max");
+                    }
+                    long min = positive(parameters.substring(0, dash));
+                    long max = positive(parameters.substring(dash + 1));
+                    if (max < min) {
+                        throw new IllegalArgumentException("max must not be below min");
+                    }
+                    return new ThinkTime(trimmed, Kind.UNIFORM, min, max);
+                }
+                case "exponential": {
+                    long mean = positive(parameters);
+                    return new ThinkTime(trimmed, Kind.EXPONENTIAL, mean, mean);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown think time '" + kind
+                            + "'; expected fixed, uniform or exponential");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid think time '" + spec + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Draws a think time.
+     *
+     * @param random source of randomness
+     * @return the wait in nanoseconds, at least 1
+     */
+    public long sampleNanos(SplittableRandom random) {
+        switch (kind) {
+            case UNIFORM:
+                return random.nextLong(minNanos, maxNanos + 1);
+            case EXPONENTIAL:
+                return Math.max(1, Math.round(-Math.log(1.0 - random.nextDouble()) * minNanos));
+            default:
+                return minNanos;
+        }
+    }
+
+    /**
+     * @return the mean think time in nanoseconds
+     */
+    public double meanNanos() {
+        return (minNanos + (double) maxNanos) / 2;
+    }
+
+    /**
+     * @return the specification this distribution was created from
+     */
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private static long positive(String duration) {
+        Duration parsed = DurationStyle.detectAndParse(duration.trim());
+        if (parsed.isNegative() || parsed.isZero()) {
+            throw new IllegalArgumentException("Durations must be positive");
+        }
+        return parsed.toNanos();
+    }
+}
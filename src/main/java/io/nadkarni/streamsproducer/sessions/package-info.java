@@ -0,0 +1,17 @@
+/**
+ * Simulation of many independent clients on a few event-loop threads.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.sessions.SessionSimulator} - Runs the sessions
+ *       and feeds their records into one producer</li>
+ *   <li>{@code SessionLoop} - One thread's sessions in primitive arrays and a timer heap</li>
+ *   <li>{@link io.nadkarni.streamsproducer.sessions.ThinkTime} - Fixed, uniform or
+ *       exponential time between a session's events</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.sessions;
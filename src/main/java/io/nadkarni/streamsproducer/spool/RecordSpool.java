@@ -0,0 +1,400 @@
+package io.nadkarni.streamsproducer.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only log of one topic's records on local disk, made of memory-mapped segment
+ * files of fixed size.
+ *
+ * <p>Segments are named {@code <topic>-<sequence>.spool} and filled one after the other.
+ * A full segment is sealed and written to the storage device, and deleted once all its
+ * records have been acknowledged. The number of segments is bounded by
+ * {@code maxBytes / segmentBytes}; when that many exist, {@link #append} refuses records
+ * until the oldest segment has been drained.</p>
+ *
+ * <h3>Recovery:</h3>
+ * <p>{@link #open} picks up the segments a previous process left behind. Each segment
+ * records how far it has been drained, so reading resumes after the last acknowledged
+ * record, and a record cut short by a crash ends its segment, see {@link SpoolFormat}.
+ * Records are acknowledged in chunks, so those sent but not yet committed when a process
+ * stops are sent again: delivery is at least once.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>One thread appends and one other thread, the drainer, reads and commits. The
+ * counters may be read from any thread.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class RecordSpool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordSpool.class);
+
+    /**
+     * Identifies the segments written by this process, see {@link SpoolSegment#isForeign()}.
+     */
+    private static final long WRITER_ID = UUID.randomUUID().getMostSignificantBits();
+
+    private final Path directory;
+    private final String topic;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    /**
+     * Segments not yet deleted, oldest first; guarded by {@code this}.
+     */
+    private final Deque<SpoolSegment> segments = new ArrayDeque<>();
+
+    private long nextSequence;
+
+    /**
+     * Segment records are appended to, or {@code null} before the first append; used by
+     * the appending thread and, when rolling, under {@code this}.
+     */
+    private SpoolSegment writeSegment;
+
+    /**
+     * Read position of the drainer.
+     */
+    private SpoolSegment readSegment;
+    private int readOffset;
+
+    private final long recovered;
+    private final long recoveredBytes;
+    private final AtomicLong spooled = new AtomicLong();
+    private final AtomicLong spooledBytes = new AtomicLong();
+    private final AtomicLong handedOver = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong drainedBytes = new AtomicLong();
+
+    private RecordSpool(Path directory, String topic, int segmentBytes, long maxBytes, List<SpoolSegment> recovered,
+                        long nextSequence) {
+        this.directory = directory;
+        this.topic = topic;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.min(maxBytes / segmentBytes, Integer.MAX_VALUE);
+        this.segments.addAll(recovered);
+        this.nextSequence = nextSequence;
+        this.recovered = recovered.stream().mapToLong(SpoolSegment::recoveredRecords).sum();
+        this.recoveredBytes = recovered.stream().mapToLong(SpoolSegment::recoveredBytes).sum();
+        if (!recovered.isEmpty() && !recovered.get(recovered.size() - 1).isSealed()) {
+            writeSegment = recovered.get(recovered.size() - 1);
+        }
+    }
+
+    /**
+     * Opens the spool of a topic, recovering the segments left in the directory.
+     * Segments that have been drained completely are deleted.
+     *
+     * @param directory    directory of the segment files, created if missing
+     * @param topic        topic the records are sent to
+     * @param segmentBytes size of each segment file
+     * @param maxBytes     upper bound of the disk space taken by the segments
+     * @return the spool
+     * @throws IllegalArgumentException if a segment cannot hold a record header, or
+     *                                  {@code maxBytes} is below {@code segmentBytes}
+     * @throws IOException              if the directory or a segment cannot be opened
+     */
+    public static RecordSpool open(Path directory, String topic, int segmentBytes, long maxBytes)
+            throws IOException {
+        if (segmentBytes <= SpoolFormat.HEADER_SIZE + SpoolFormat.recordSize(0, 0)) {
+            throw new IllegalArgumentException("spoolSegmentBytes is too small: " + segmentBytes);
+        }
+        if (maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("spoolMaxBytes (" + maxBytes
+                    + ") must be at least spoolSegmentBytes (" + segmentBytes + ")");
+        }
+        Files.createDirectories(directory);
+        Pattern name = Pattern.compile(Pattern.quote(topic) + "-(\\d{20})" + Pattern.quote(SpoolFormat.SUFFIX));
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                Matcher matcher = name.matcher(entry.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), entry);
+                }
+            }
+        }
+        List<SpoolSegment> recovered = new ArrayList<>();
+        try {
+            for (Long sequence : files.keySet()) {
+                SpoolSegment segment = SpoolSegment.recover(files.get(sequence), sequence, WRITER_ID);
+                if (sequence < files.lastKey()) {
+                    segment.seal();
+                }
+                if (segment.isDrained()) {
+                    segment.delete();
+                } else {
+                    recovered.add(segment);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (SpoolSegment segment : recovered) {
+                segment.close();
+            }
+            throw e;
+        }
+        return new RecordSpool(directory, topic, segmentBytes, maxBytes, recovered,
+                files.isEmpty() ? 0 : files.lastKey() + 1);
+    }
+
+    /**
+     * Appends one record, starting a new segment when the current one is full.
+     *
+     * @param partition     destination partition, or {@code null} for the configured partitioner
+     * @param key           key bytes, or {@code null}
+     * @param value         value bytes, or {@code null}
+     * @param intendedNanos intended send time as a {@link System#nanoTime()} value
+     * @return {@code false} if the spool has reached its maximum size
+     * @throws IllegalArgumentException if the record is larger than a segment
+     * @throws IOException              if a new segment cannot be created
+     */
+    public boolean append(Integer partition, byte[] key, byte[] value, long intendedNanos) throws IOException {
+        int keyLength = key == null ? SpoolFormat.NONE : key.length;
+        int valueLength = value == null ? SpoolFormat.NONE : value.length;
+        if ((long) SpoolFormat.HEADER_SIZE + SpoolFormat.recordSize(keyLength, valueLength) > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + (Math.max(keyLength, 0) + Math.max(valueLength, 0))
+                    + " bytes does not fit a spool segment of " + segmentBytes + " bytes");
+        }
+        int target = partition == null ? SpoolFormat.NONE : partition;
+        if (writeSegment == null || !writeSegment.append(intendedNanos, target, key, value)) {
+            if (!roll()) {
+                return false;
+            }
+            writeSegment.append(intendedNanos, target, key, value);
+        }
+        spooled.incrementAndGet();
+        spooledBytes.addAndGet(Math.max(keyLength, 0) + Math.max(valueLength, 0));
+        return true;
+    }
+
+    /**
+     * Returns whether records remain that the drainer has not handed to the producer yet.
+     * Records sent around the spool while this holds would overtake them.
+     *
+     * @return {@code true} if the spool holds records not yet sent
+     */
+    public boolean hasBacklog() {
+        return recovered + spooled.get() > handedOver.get();
+    }
+
+    /**
+     * Reads the next record not yet read by the drainer.
+     *
+     * @param record holder the record is read into
+     * @return {@code false} if every appended record has been read
+     */
+    boolean next(SpoolRecord record) {
+        while (true) {
+            if (readSegment == null) {
+                readSegment = successor(Long.MIN_VALUE);
+                if (readSegment == null) {
+                    return false;
+                }
+                readOffset = readSegment.drainedOffset();
+            }
+            if (readOffset < readSegment.writeEnd()) {
+                readOffset = readSegment.read(readOffset, record);
+                return true;
+            }
+            if (!readSegment.isSealed() || readOffset < readSegment.writeEnd()) {
+                return false;
+            }
+            SpoolSegment next = successor(readSegment.sequence());
+            if (next == null) {
+                return false;
+            }
+            readSegment = next;
+            readOffset = next.drainedOffset();
+        }
+    }
+
+    /**
+     * Counts a record read by {@link #next} as handed to the producer.
+     */
+    void handedOver() {
+        handedOver.incrementAndGet();
+    }
+
+    /**
+     * @return the number of records handed to the producer, for {@link #rewind}
+     */
+    long handedOverCount() {
+        return handedOver.get();
+    }
+
+    /**
+     * Moves the read position back to a record read earlier, so that it and every record
+     * after it are read again.
+     *
+     * @param segment     segment of the record
+     * @param offset      start of the record
+     * @param handedCount value of {@link #handedOverCount()} before the record was handed over
+     */
+    void rewind(SpoolSegment segment, int offset, long handedCount) {
+        readSegment = segment;
+        readOffset = offset;
+        handedOver.set(handedCount);
+    }
+
+    /**
+     * Commits the acknowledgement of a segment's records up to the given offset. A sealed
+     * segment whose records are all acknowledged is deleted.
+     *
+     * @param segment segment of the records
+     * @param end     end of the last acknowledged record
+     * @param records number of records acknowledged by this commit
+     * @param bytes   their key and value bytes
+     */
+    void drained(SpoolSegment segment, int end, long records, long bytes) {
+        segment.markDrained(end);
+        drained.addAndGet(records);
+        drainedBytes.addAndGet(bytes);
+        release(segment);
+    }
+
+    /**
+     * @return records in the spool not yet acknowledged
+     */
+    public long depthRecords() {
+        return recovered + spooled.get() - drained.get();
+    }
+
+    /**
+     * @return key and value bytes of the records not yet acknowledged
+     */
+    public long depthBytes() {
+        return recoveredBytes + spooledBytes.get() - drainedBytes.get();
+    }
+
+    /**
+     * @return records left unacknowledged by earlier processes and recovered on open
+     */
+    public long getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @return records appended since the spool was opened
+     */
+    public long getSpooled() {
+        return spooled.get();
+    }
+
+    /**
+     * @return records acknowledged since the spool was opened
+     */
+    public long getDrained() {
+        return drained.get();
+    }
+
+    /**
+     * @return the topic the records are sent to
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * @return the directory of the segment files
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes the remaining segments to the storage device and closes them. Segments
+     * without unacknowledged records are deleted.
+     *
+     * @throws IOException if a segment cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (SpoolSegment segment : segments) {
+            try {
+                if (segment.drainedOffset() >= segment.writeEnd()) {
+                    segment.delete();
+                } else {
+                    segment.force();
+                    segment.close();
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        segments.clear();
+        writeSegment = null;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Seals the current segment and starts a new one if the spool has room for it.
+     *
+     * @return {@code false} if the spool holds its maximum number of segments
+     */
+    private synchronized boolean roll() throws IOException {
+        if (writeSegment != null && !writeSegment.isSealed()) {
+            writeSegment.seal();
+            writeSegment.force();
+            release(writeSegment);
+        }
+        if (segments.size() >= maxSegments) {
+            return false;
+        }
+        long sequence = nextSequence++;
+        Path path = directory.resolve(String.format("%s-%020d%s", topic, sequence, SpoolFormat.SUFFIX));
+        writeSegment = SpoolSegment.create(path, sequence, segmentBytes, WRITER_ID);
+        segments.addLast(writeSegment);
+        return true;
+    }
+
+    /**
+     * Deletes a segment that has been sealed and drained.
+     */
+    private synchronized void release(SpoolSegment segment) {
+        if (segment.isDrained() && segments.remove(segment)) {
+            try {
+                segment.delete();
+            } catch (IOException e) {
+                logger.warn("Cannot delete drained spool segment " + segment.path()
+                        + "; it is deleted when the spool is next opened", e);
+            }
+        }
+    }
+
+    /**
+     * @return the oldest segment after the given sequence, or {@code null}
+     */
+    private synchronized SpoolSegment successor(long sequence) {
+        for (SpoolSegment segment : segments) {
+            if (segment.sequence() > sequence) {
+                return segment;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,174 @@
+package io.nadkarni.streamsproducer.spool;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.partitioning.PartitionCounts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Opens the {@link RecordSpool} of each topic sent by the pipelined mode, and publishes
+ * the state of the latest one as Micrometer gauges.
+ *
+ * <h3>Configuration:</h3>
+ * <ul>
+ *   <li>{@code spoolDir} - Directory of the spool segments; empty (the default) disables
+ *       spooling</li>
+ *   <li>{@code spoolSegmentBytes} - Size of each segment file</li>
+ *   <li>{@code spoolMaxBytes} - Disk space the segments of one topic may take</li>
+ *   <li>{@code spoolAfter} - How long the in-flight window must stay full before records
+ *       are spooled</li>
+ *   <li>{@code spoolRetryBackoff} - Wait before spooled records are sent again after a
+ *       retriable failure</li>
+ * </ul>
+ *
+ * <h3>Metrics:</h3>
+ * <ul>
+ *   <li>{@code producer.spool.depth.records} - records in the spool not yet acknowledged</li>
+ *   <li>{@code producer.spool.depth.bytes} - their key and value bytes</li>
+ *   <li>{@code producer.spool.spooled.records} - records spooled by the current run</li>
+ *   <li>{@code producer.spool.drained.records} - spooled records acknowledged in the
+ *       current run</li>
+ *   <li>{@code producer.spool.drain.rate} - acknowledged spooled records per second while
+ *       draining</li>
+ * </ul>
+ * <p>All are tagged with {@code topic}.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class RecordSpools {
+
+    /**
+     * Directory of the spool segments; empty disables spooling.
+     * Configured via the {@code spoolDir} property in application.yaml.
+     * Default value: "" (disabled)
+     */
+    @Value("${spoolDir:}")
+    private String spoolDir = "";
+
+    /**
+     * Size of each segment file in bytes.
+     * Configured via the {@code spoolSegmentBytes} property in application.yaml.
+     * Default value: 67,108,864 (64 MiB)
+     */
+    @Value("${spoolSegmentBytes:67108864}")
+    private int segmentBytes = 64 << 20;
+
+    /**
+     * Disk space the segments of one topic may take, in bytes.
+     * Configured via the {@code spoolMaxBytes} property in application.yaml.
+     * Default value: 1,073,741,824 (1 GiB)
+     */
+    @Value("${spoolMaxBytes:1073741824}")
+    private long maxBytes = 1L << 30;
+
+    /**
+     * How long a send waits for room in a full in-flight window before spooling.
+     * Configured via the {@code spoolAfter} property in application.yaml.
+     * Default value: 500ms
+     */
+    @Value("${spoolAfter:500ms}")
+    private Duration spoolAfter = Duration.ofMillis(500);
+
+    /**
+     * Wait before the drainer sends again after a retriable failure.
+     * Configured via the {@code spoolRetryBackoff} property in application.yaml.
+     * Default value: 1s
+     */
+    @Value("${spoolRetryBackoff:1s}")
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    private final MeterRegistry registry;
+    private final Map<String, Gauges> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param registry registry the spool gauges are published to
+     */
+    public RecordSpools(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return {@code true} if {@code spoolDir} is set
+     */
+    public boolean isEnabled() {
+        return StringUtils.hasText(spoolDir);
+    }
+
+    /**
+     * Opens the spool of a topic and returns a sender that writes to it, and drains it,
+     * once the brokers do not keep up.
+     *
+     * @param topic           topic the records are sent to
+     * @param kafkaTemplate   template used to send records
+     * @param window          window bounding the number of unacknowledged records
+     * @param statistics      counters of the run
+     * @param latency         histograms updated as records are acknowledged, or {@code null}
+     * @param partitionCounts per-partition counts of the run, or {@code null}
+     * @return the sender; {@link SpoolingSender#drain(long)} or
+     *         {@link SpoolingSender#close()} closes the spool
+     * @throws IllegalArgumentException if the spool settings are invalid
+     * @throws UncheckedIOException     if the spool cannot be opened
+     */
+    public SpoolingSender open(String topic, KafkaTemplate<Object, Object> kafkaTemplate, InFlightWindow window,
+                               SendStatistics statistics, SendLatencyRecorder latency,
+                               PartitionCounts partitionCounts) {
+        RecordSpool spool;
+        try {
+            spool = RecordSpool.open(Paths.get(spoolDir), topic, segmentBytes, maxBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the spool of " + topic + " in " + spoolDir, e);
+        }
+        SpoolingSender sender = new SpoolingSender(kafkaTemplate, window, statistics, latency, partitionCounts,
+                spool, spoolAfter.toNanos(), retryBackoff.toNanos());
+        gauges.computeIfAbsent(topic, Gauges::new).sender = sender;
+        return sender;
+    }
+
+    /**
+     * Gauges of one topic, reading the latest sender opened for it.
+     */
+    private final class Gauges {
+
+        private volatile SpoolingSender sender;
+
+        private Gauges(String topic) {
+            register("producer.spool.depth.records", topic, "Spooled records not yet acknowledged",
+                    s -> s.getSpool().depthRecords());
+            register("producer.spool.depth.bytes", topic, "Key and value bytes of the spooled records",
+                    s -> s.getSpool().depthBytes());
+            register("producer.spool.spooled.records", topic, "Records spooled by the current run",
+                    s -> s.getSpool().getSpooled());
+            register("producer.spool.drained.records", topic, "Spooled records acknowledged in the current run",
+                    s -> s.getSpool().getDrained());
+            register("producer.spool.drain.rate", topic, "Spooled records acknowledged per second",
+                    SpoolingSender::getDrainRate);
+        }
+
+        private void register(String name, String topic, String description, ToDoubleFunction<SpoolingSender> value) {
+            Gauge.builder(name, this, g -> g.sender == null ? 0 : value.applyAsDouble(g.sender))
+                    .tag("topic", topic)
+                    .description(description)
+                    .strongReference(true)
+                    .register(registry);
+        }
+    }
+}
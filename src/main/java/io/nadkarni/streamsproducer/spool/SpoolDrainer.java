@@ -0,0 +1,355 @@
+package io.nadkarni.streamsproducer.spool;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.partitioning.PartitionCounts;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.errors.RetriableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFutureCallback;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background thread that sends the records of a {@link RecordSpool} in the order they
+ * were spooled, inside the same {@link InFlightWindow} as the direct sends.
+ *
+ * <p>Records are tracked in chunks of up to {@value #CHUNK_RECORDS} records within one
+ * segment. Once every record of the oldest chunk has completed, the chunk is committed to
+ * the spool, which lets it delete drained segments and resume after the last committed
+ * chunk on restart.</p>
+ *
+ * <h3>Broker Outages:</h3>
+ * <p>A record that fails with a retriable error, such as a delivery timeout while the
+ * brokers are unreachable, is not counted as failed. The drainer waits for its records in
+ * flight, moves back to the first uncommitted chunk and, after the retry backoff, sends
+ * from there again. Records acknowledged after that chunk are sent twice. Other failures
+ * are counted in the {@link SendStatistics} like those of direct sends, and the records
+ * dropped.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class SpoolDrainer implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpoolDrainer.class);
+
+    /**
+     * Maximum records committed together.
+     */
+    static final int CHUNK_RECORDS = 1000;
+
+    /**
+     * Wait between polls of an empty spool.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RecordSpool spool;
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final InFlightWindow window;
+    private final SendStatistics statistics;
+    private final SendLatencyRecorder latency;
+    private final PartitionCounts partitionCounts;
+    private final long retryBackoffNanos;
+    private final Thread thread;
+
+    /**
+     * Uncommitted chunks, oldest first; used by the drainer thread only.
+     */
+    private final Deque<Chunk> chunks = new ArrayDeque<>();
+    private final SpoolRecord record = new SpoolRecord();
+
+    private volatile boolean stopped;
+
+    /**
+     * Set when a record fails with a retriable error, until the drainer has moved back.
+     */
+    private volatile boolean failed;
+    private volatile long firstDrainNanos;
+    private volatile long lastDrainNanos;
+    private long retries;
+
+    /**
+     * Creates the drainer; {@link #start()} starts its thread.
+     *
+     * @param spool             spool to drain
+     * @param kafkaTemplate     template used to send the records
+     * @param window            window shared with the direct sends
+     * @param statistics        counters of the run
+     * @param latency           histograms updated as records are acknowledged, or {@code null}
+     * @param partitionCounts   per-partition counts of the run, or {@code null}
+     * @param retryBackoffNanos wait before sending again after a retriable failure
+     */
+    SpoolDrainer(RecordSpool spool, KafkaTemplate<Object, Object> kafkaTemplate, InFlightWindow window,
+                 SendStatistics statistics, SendLatencyRecorder latency, PartitionCounts partitionCounts,
+                 long retryBackoffNanos) {
+        this.spool = spool;
+        this.kafkaTemplate = kafkaTemplate;
+        this.window = window;
+        this.statistics = statistics;
+        this.latency = latency;
+        this.partitionCounts = partitionCounts;
+        this.retryBackoffNanos = retryBackoffNanos;
+        this.thread = new Thread(this, "spool-drainer-" + spool.getTopic());
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts the drainer thread.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops the drainer thread and waits for it to end. Chunks whose records have all
+     * completed are committed; the records of the others stay in the spool.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread
+     */
+    void stop() throws InterruptedException {
+        stopped = true;
+        thread.interrupt();
+        thread.join();
+        Chunk last = chunks.peekLast();
+        if (last != null) {
+            last.closed = true;
+        }
+        commitCompleted();
+    }
+
+    /**
+     * @return acknowledged records per second between the first and the last commit, or
+     *         0 before the second commit
+     */
+    double drainRate() {
+        long first = firstDrainNanos;
+        long elapsed = lastDrainNanos - first;
+        return first == 0 || elapsed <= 0 ? 0 : spool.getDrained() * 1e9 / elapsed;
+    }
+
+    /**
+     * @return the number of times the drainer moved back after a retriable failure
+     */
+    long getRetries() {
+        return retries;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!stopped) {
+                if (failed) {
+                    retry();
+                    continue;
+                }
+                commitCompleted();
+                long handed = spool.handedOverCount();
+                if (!spool.next(record)) {
+                    if (!chunks.isEmpty()) {
+                        chunks.peekLast().closed = true;
+                    }
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+                send(handed);
+            }
+        } catch (InterruptedException e) {
+            // stopped while waiting for the window
+        } catch (RuntimeException e) {
+            logger.error("Draining the spool of " + spool.getTopic() + " stopped", e);
+        }
+    }
+
+    /**
+     * Sends the record just read, in the chunk it belongs to.
+     */
+    private void send(long handed) throws InterruptedException {
+        int size = record.size();
+        Integer partition = record.partition;
+        long intendedNanos = record.foreign ? System.nanoTime() : record.intendedNanos;
+        window.acquire(size);
+        Chunk chunk = chunks.peekLast();
+        if (chunk == null || chunk.closed || chunk.segment != record.segment || chunk.records == CHUNK_RECORDS) {
+            if (chunk != null) {
+                chunk.closed = true;
+            }
+            chunk = new Chunk(record.segment, record.offset, handed);
+            chunks.addLast(chunk);
+        }
+        chunk.pending.incrementAndGet();
+        chunk.records++;
+        chunk.bytes += size;
+        chunk.end = record.end;
+        boolean tracked = partitionCounts != null && partition != null;
+        if (tracked) {
+            partitionCounts.sent(partition, size);
+        }
+        try {
+            kafkaTemplate.send(spool.getTopic(), partition, record.key, record.value)
+                    .addCallback(new Completion(chunk, size, intendedNanos, tracked ? partition : -1));
+        } catch (RuntimeException e) {
+            new Completion(chunk, size, intendedNanos, tracked ? partition : -1).onFailure(e);
+        }
+        spool.handedOver();
+        statistics.recordSent(size);
+    }
+
+    /**
+     * Commits the oldest chunks whose records have all completed without a retriable
+     * failure.
+     */
+    private void commitCompleted() {
+        Chunk head;
+        while ((head = chunks.peekFirst()) != null && head.closed && head.pending.get() == 0
+                && head.failure == null) {
+            chunks.removeFirst();
+            spool.drained(head.segment, head.end, head.records, head.bytes);
+            long now = System.nanoTime();
+            if (firstDrainNanos == 0) {
+                firstDrainNanos = now;
+            }
+            lastDrainNanos = now;
+        }
+    }
+
+    /**
+     * Waits for the records in flight, commits the chunks completed before the first
+     * failure, and moves back to the failed chunk after the retry backoff.
+     */
+    private void retry() throws InterruptedException {
+        for (Chunk chunk : chunks) {
+            while (chunk.pending.get() > 0) {
+                LockSupport.parkNanos(IDLE_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            chunk.closed = true;
+        }
+        commitCompleted();
+        Chunk head = chunks.peekFirst();
+        failed = false;
+        if (head == null) {
+            return;
+        }
+        if (retries++ == 0) {
+            logger.warn("Sending spooled records of " + spool.getTopic() + " failed (" + head.failure
+                    + "); retrying every " + TimeUnit.NANOSECONDS.toMillis(retryBackoffNanos) + " ms");
+        }
+        chunks.clear();
+        spool.rewind(head.segment, head.start, head.handedOver);
+        TimeUnit.NANOSECONDS.sleep(retryBackoffNanos);
+    }
+
+    /**
+     * Returns whether the failure is worth sending again, after the cause has been
+     * resolved or the brokers have recovered.
+     *
+     * @param failure the failure of a send
+     * @return {@code true} if a {@link RetriableException} is among its causes
+     */
+    static boolean isRetriable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetriableException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records of one segment sent and committed together.
+     */
+    private static final class Chunk {
+
+        private final SpoolSegment segment;
+        private final int start;
+        private final long handedOver;
+        private final AtomicInteger pending = new AtomicInteger();
+        private int end;
+        private long records;
+        private long bytes;
+        private boolean closed;
+
+        /**
+         * First retriable failure of the chunk's records.
+         */
+        private volatile Throwable failure;
+
+        private Chunk(SpoolSegment segment, int start, long handedOver) {
+            this.segment = segment;
+            this.start = start;
+            this.handedOver = handedOver;
+        }
+    }
+
+    /**
+     * Completion callback for a single spooled record.
+     */
+    private final class Completion implements ListenableFutureCallback<SendResult<Object, Object>> {
+
+        private final Chunk chunk;
+        private final int size;
+        private final long intendedNanos;
+
+        /**
+         * Partition counted as unacknowledged in {@link #partitionCounts}, or -1.
+         */
+        private final int tracked;
+
+        private Completion(Chunk chunk, int size, long intendedNanos, int tracked) {
+            this.chunk = chunk;
+            this.size = size;
+            this.intendedNanos = intendedNanos;
+            this.tracked = tracked;
+        }
+
+        @Override
+        public void onSuccess(SendResult<Object, Object> result) {
+            RecordMetadata metadata = result == null ? null : result.getRecordMetadata();
+            int partition = metadata == null ? -1 : metadata.partition();
+            if (latency != null) {
+                latency.record(partition, intendedNanos);
+            }
+            if (partitionCounts != null) {
+                partitionCounts.acknowledged(partition, size);
+            }
+            statistics.recordAcked();
+            complete();
+        }
+
+        @Override
+        public void onFailure(Throwable failure) {
+            if (isRetriable(failure)) {
+                if (chunk.failure == null) {
+                    chunk.failure = failure;
+                }
+                failed = true;
+            } else {
+                statistics.recordFailed(failure);
+            }
+            complete();
+        }
+
+        private void complete() {
+            if (tracked >= 0) {
+                partitionCounts.completed(tracked, size);
+            }
+            window.release(size);
+            chunk.pending.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.nadkarni.streamsproducer.spool;
+
+/**
+ * Layout of a spool segment, shared by {@link SpoolSegment} and {@link RecordSpool}.
+ *
+ * <p>A segment is a file of fixed size, created full of zeros and memory-mapped as a
+ * whole. All numbers are big-endian. It starts with a header, followed by the records in
+ * the order they were spooled:</p>
+ * <pre>
+ * header:  int32 magic ("SPSL")  int32 version (1)  int64 drainedOffset  int64 writerId  int64 reserved
+ * record:  int32 bodyLength  int32 crc32c(body)
+ * body:    int64 intendedNanos  int32 partition  int32 keyLength  key bytes  int32 valueLength  value bytes
+ * </pre>
+ * <ul>
+ *   <li>{@code drainedOffset} - end of the records already acknowledged by Kafka; the
+ *       drainer resumes there after a restart</li>
+ *   <li>{@code writerId} - identifies the process that wrote the segment; only that
+ *       process's {@code intendedNanos} are comparable with its own clock</li>
+ *   <li>{@code partition} -1 stands for no explicit partition, and a length of -1 for a
+ *       {@code null} key or value</li>
+ * </ul>
+ * <p>A record's body and checksum are written before its length, and a length of 0 marks
+ * the end of the records. A record cut short by a crash therefore either still reads as
+ * the end, or fails its checksum; recovery stops at the first such record.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class SpoolFormat {
+
+    /**
+     * The ASCII bytes {@code SPSL}.
+     */
+    static final int MAGIC = 0x5350534C;
+
+    /**
+     * Version written by this release.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Size of the segment header in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Position of {@code drainedOffset} in the header.
+     */
+    static final int DRAINED_OFFSET_POSITION = 8;
+
+    /**
+     * Position of {@code writerId} in the header.
+     */
+    static final int WRITER_ID_POSITION = 16;
+
+    /**
+     * Size of the length and checksum before every record body.
+     */
+    static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * Size of a record body without its key and value bytes.
+     */
+    static final int BODY_OVERHEAD = Long.BYTES + 3 * Integer.BYTES;
+
+    /**
+     * Length written for a {@code null} key or value, and partition written for none.
+     */
+    static final int NONE = -1;
+
+    /**
+     * File name suffix of a segment.
+     */
+    static final String SUFFIX = ".spool";
+
+    private SpoolFormat() {
+    }
+
+    /**
+     * Returns the size a record takes in a segment.
+     *
+     * @param keyLength   key length, or -1 for {@code null}
+     * @param valueLength value length, or -1 for {@code null}
+     * @return the record's size including its length and checksum
+     */
+    static int recordSize(int keyLength, int valueLength) {
+        return RECORD_HEADER_SIZE + BODY_OVERHEAD + Math.max(keyLength, 0) + Math.max(valueLength, 0);
+    }
+}
@@ -0,0 +1,51 @@
+package io.nadkarni.streamsproducer.spool;
+
+/**
+ * One record read back from a {@link RecordSpool}, with its place in the spool.
+ *
+ * <p>The holder is reused from record to record, but every read allocates new key and
+ * value arrays, because the producer may still hold the previous ones.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class SpoolRecord {
+
+    /**
+     * Intended send time as a {@link System#nanoTime()} value of the writing process.
+     */
+    long intendedNanos;
+
+    /**
+     * Destination partition, or {@code null} for the configured partitioner.
+     */
+    Integer partition;
+
+    byte[] key;
+
+    byte[] value;
+
+    /**
+     * Whether another process wrote the record, see {@link SpoolSegment#isForeign()}.
+     */
+    boolean foreign;
+
+    /**
+     * Segment the record was read from.
+     */
+    SpoolSegment segment;
+
+    /**
+     * Start and end of the record in {@link #segment}.
+     */
+    int offset;
+    int end;
+
+    /**
+     * @return key and value bytes, as counted in the in-flight window
+     */
+    int size() {
+        return (key == null ? 0 : key.length) + (value == null ? 0 : value.length);
+    }
+}
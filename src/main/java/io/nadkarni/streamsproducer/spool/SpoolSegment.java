@@ -0,0 +1,340 @@
+package io.nadkarni.streamsproducer.spool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One memory-mapped file of a {@link RecordSpool}, see {@link SpoolFormat} for the layout.
+ *
+ * <p>The whole file is mapped once, so appending and reading a record are memory copies
+ * without system calls. Records reach the page cache as they are written and survive a
+ * crash of the process; {@link #force()} writes them to the device, which a crash of the
+ * operating system needs.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>One thread appends and one other thread reads. Each has its own view of the mapping,
+ * and the end of the records is published through a volatile field, so the reader only
+ * sees complete records.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class SpoolSegment {
+
+    private final Path path;
+    private final long sequence;
+    private final FileChannel channel;
+    private final MappedByteBuffer mapping;
+    private final ByteBuffer writeView;
+    private final ByteBuffer readView;
+    private final CRC32C checksum = new CRC32C();
+    private final boolean foreign;
+
+    /**
+     * End of the complete records; written by the appending thread only.
+     */
+    private volatile int writeEnd = SpoolFormat.HEADER_SIZE;
+
+    private volatile boolean sealed;
+
+    /**
+     * Records and key and value bytes found after the drained offset by recovery.
+     */
+    private long recoveredRecords;
+    private long recoveredBytes;
+
+    private SpoolSegment(Path path, long sequence, FileChannel channel, int size, long writerId) throws IOException {
+        this.path = path;
+        this.sequence = sequence;
+        this.channel = channel;
+        this.mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.writeView = mapping.duplicate();
+        this.readView = mapping.duplicate();
+        this.foreign = mapping.getLong(SpoolFormat.WRITER_ID_POSITION) != writerId;
+    }
+
+    /**
+     * Creates a new segment file of the given size.
+     *
+     * @param path     location of the file, which must not exist
+     * @param sequence position of the segment in the spool
+     * @param size     size of the file in bytes
+     * @param writerId identifier of this process
+     * @return the empty segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static SpoolSegment create(Path path, long sequence, int size, long writerId) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            header.putInt(SpoolFormat.MAGIC).putInt(SpoolFormat.VERSION)
+                    .putLong(SpoolFormat.HEADER_SIZE).putLong(writerId);
+            return new SpoolSegment(path, sequence, channel, size, writerId);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing segment file and finds the end of its complete records. A segment
+     * that ends with a damaged record is sealed, so that nothing is appended behind it.
+     *
+     * @param path     location of the file
+     * @param sequence position of the segment in the spool
+     * @param writerId identifier of this process
+     * @return the segment, with its read position at the drained offset
+     * @throws IOException if the file cannot be mapped or is not a spool segment
+     */
+    static SpoolSegment recover(Path path, long sequence, long writerId) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size < SpoolFormat.HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a spool segment");
+            }
+            SpoolSegment segment = new SpoolSegment(path, sequence, channel, (int) size, writerId);
+            if (segment.mapping.getInt(0) != SpoolFormat.MAGIC) {
+                throw new IOException(path + " is not a spool segment");
+            }
+            int version = segment.mapping.getInt(4);
+            if (version != SpoolFormat.VERSION) {
+                throw new IOException(path + " has unsupported spool version " + version);
+            }
+            segment.scan();
+            return segment;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends one record if it fits.
+     *
+     * @param intendedNanos intended send time as a {@link System#nanoTime()} value
+     * @param partition     destination partition, or -1 for none
+     * @param key           key bytes, or {@code null}
+     * @param value         value bytes, or {@code null}
+     * @return {@code false} if the segment is sealed or the record does not fit
+     */
+    boolean append(long intendedNanos, int partition, byte[] key, byte[] value) {
+        int keyLength = key == null ? SpoolFormat.NONE : key.length;
+        int valueLength = value == null ? SpoolFormat.NONE : value.length;
+        int start = writeEnd;
+        long end = (long) start + SpoolFormat.recordSize(keyLength, valueLength);
+        if (sealed || end > mapping.capacity()) {
+            return false;
+        }
+        int bodyStart = start + SpoolFormat.RECORD_HEADER_SIZE;
+        writeView.limit(writeView.capacity()).position(bodyStart);
+        writeView.putLong(intendedNanos).putInt(partition).putInt(keyLength);
+        if (key != null) {
+            writeView.put(key);
+        }
+        writeView.putInt(valueLength);
+        if (value != null) {
+            writeView.put(value);
+        }
+        writeView.limit((int) end).position(bodyStart);
+        checksum.reset();
+        checksum.update(writeView);
+        writeView.putInt(start + Integer.BYTES, (int) checksum.getValue());
+        writeView.putInt(start, (int) end - bodyStart);
+        writeEnd = (int) end;
+        return true;
+    }
+
+    /**
+     * Reads the record at the given offset, which must be below {@link #writeEnd()}.
+     *
+     * @param offset start of the record
+     * @param record holder the record is read into, with new key and value arrays
+     * @return the offset of the next record
+     */
+    int read(int offset, SpoolRecord record) {
+        int bodyLength = readView.getInt(offset);
+        readView.limit(readView.capacity()).position(offset + SpoolFormat.RECORD_HEADER_SIZE);
+        record.intendedNanos = readView.getLong();
+        int partition = readView.getInt();
+        record.partition = partition == SpoolFormat.NONE ? null : partition;
+        record.key = readBytes(readView.getInt());
+        record.value = readBytes(readView.getInt());
+        record.foreign = foreign;
+        record.segment = this;
+        record.offset = offset;
+        record.end = offset + SpoolFormat.RECORD_HEADER_SIZE + bodyLength;
+        return record.end;
+    }
+
+    /**
+     * Records that everything before the offset has been acknowledged.
+     *
+     * @param offset end of the acknowledged records
+     */
+    void markDrained(int offset) {
+        mapping.putLong(SpoolFormat.DRAINED_OFFSET_POSITION, offset);
+    }
+
+    /**
+     * @return the end of the acknowledged records
+     */
+    int drainedOffset() {
+        return (int) mapping.getLong(SpoolFormat.DRAINED_OFFSET_POSITION);
+    }
+
+    /**
+     * @return the end of the complete records
+     */
+    int writeEnd() {
+        return writeEnd;
+    }
+
+    /**
+     * Stops appends to this segment; the next record starts a new one.
+     */
+    void seal() {
+        sealed = true;
+    }
+
+    /**
+     * @return {@code true} once no more records will be appended
+     */
+    boolean isSealed() {
+        return sealed;
+    }
+
+    /**
+     * @return {@code true} if the segment was sealed and all its records acknowledged
+     */
+    boolean isDrained() {
+        return sealed && drainedOffset() >= writeEnd;
+    }
+
+    /**
+     * @return {@code true} if another process wrote the segment, so that its intended
+     *         send times are not comparable with this process's clock
+     */
+    boolean isForeign() {
+        return foreign;
+    }
+
+    /**
+     * @return position of the segment in the spool
+     */
+    long sequence() {
+        return sequence;
+    }
+
+    /**
+     * @return records found after the drained offset by recovery
+     */
+    long recoveredRecords() {
+        return recoveredRecords;
+    }
+
+    /**
+     * @return key and value bytes of the records found after the drained offset by recovery
+     */
+    long recoveredBytes() {
+        return recoveredBytes;
+    }
+
+    /**
+     * @return location of the file
+     */
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Writes the segment's modified pages to the storage device.
+     */
+    void force() {
+        mapping.force();
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once it is garbage collected.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Closes and deletes the file.
+     *
+     * @throws IOException if the file cannot be deleted
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+    }
+
+    private byte[] readBytes(int length) {
+        if (length == SpoolFormat.NONE) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        readView.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Finds the end of the complete, intact records and counts those after the drained
+     * offset.
+     */
+    private void scan() {
+        int drained = drainedOffset();
+        int offset = SpoolFormat.HEADER_SIZE;
+        ByteBuffer view = mapping.duplicate();
+        while (offset + SpoolFormat.RECORD_HEADER_SIZE <= view.capacity()) {
+            int bodyLength = view.getInt(offset);
+            long end = (long) offset + SpoolFormat.RECORD_HEADER_SIZE + bodyLength;
+            if (bodyLength == 0) {
+                break;
+            }
+            if (bodyLength < SpoolFormat.BODY_OVERHEAD || end > view.capacity() || !intact(view, offset, (int) end)) {
+                sealed = true;
+                break;
+            }
+            if (offset >= drained) {
+                recoveredRecords++;
+                recoveredBytes += bodyLength - SpoolFormat.BODY_OVERHEAD;
+            }
+            offset = (int) end;
+        }
+        writeEnd = offset;
+        if (drained < SpoolFormat.HEADER_SIZE || drained > offset) {
+            markDrained(Math.min(Math.max(drained, SpoolFormat.HEADER_SIZE), offset));
+        }
+    }
+
+    private boolean intact(ByteBuffer view, int offset, int end) {
+        int bodyStart = offset + SpoolFormat.RECORD_HEADER_SIZE;
+        int keyLength = view.getInt(bodyStart + Long.BYTES + Integer.BYTES);
+        int valueAt = bodyStart + Long.BYTES + 2 * Integer.BYTES + Math.max(keyLength, 0);
+        if (keyLength < SpoolFormat.NONE || valueAt + Integer.BYTES > end) {
+            return false;
+        }
+        int valueLength = view.getInt(valueAt);
+        if (valueLength < SpoolFormat.NONE || valueAt + Integer.BYTES + Math.max(valueLength, 0) != end) {
+            return false;
+        }
+        view.limit(end).position(bodyStart);
+        checksum.reset();
+        checksum.update(view);
+        view.limit(view.capacity());
+        return (int) checksum.getValue() == view.getInt(offset + Integer.BYTES);
+    }
+}
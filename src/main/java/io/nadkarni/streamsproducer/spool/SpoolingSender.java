@@ -0,0 +1,286 @@
+package io.nadkarni.streamsproducer.spool;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.partitioning.PartitionCounts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link PipelinedSender} that writes records to a {@link RecordSpool} instead of
+ * blocking while the brokers do not keep up.
+ *
+ * <p>A record is sent directly when the in-flight window has room for it within
+ * {@code spoolAfter}. A window that stays full that long means the producer's buffer is
+ * saturated or the brokers are unreachable, and the record is appended to the spool
+ * instead, which takes a memory copy. A {@link SpoolDrainer} thread sends the spooled
+ * records in the same window, in order. While the spool holds records not yet sent,
+ * new records are spooled too, so that none overtakes an older one except around a
+ * retry.</p>
+ *
+ * <h3>Broker Outages:</h3>
+ * <p>Records already sent directly when the brokers become unreachable fail with a
+ * retriable error once {@code delivery.timeout.ms} has passed. Each direct send keeps a
+ * copy of its key and value, since the encoders reuse their arrays, and a record that
+ * fails with a retriable error is spooled, on the sending thread before its next record,
+ * instead of being counted as failed. Such records come after those sent since, and are
+ * counted in the summary as respooled.</p>
+ *
+ * <p>The generator only blocks when the spool has reached {@code spoolMaxBytes}, until
+ * the drainer frees a segment. Records must be {@code byte[]} or {@code String}; strings
+ * are spooled as their UTF-8 bytes.</p>
+ *
+ * <p>{@link #drain(long)} waits for the spool to empty as well, and then closes it.
+ * Records still in the spool stay on disk and are sent by the next run with the same
+ * {@code spoolDir}.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public class SpoolingSender extends PipelinedSender<Object, Object> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpoolingSender.class);
+
+    /**
+     * Wait between attempts to append to a full spool.
+     */
+    private static final long FULL_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RecordSpool spool;
+    private final SpoolDrainer drainer;
+    private final long spoolAfterNanos;
+
+    /**
+     * Direct sends that failed with a retriable error, waiting for the sending thread to
+     * spool them.
+     */
+    private final Queue<SpoolRecord> failed = new ConcurrentLinkedQueue<>();
+    private final AtomicLong respooled = new AtomicLong();
+    private boolean spooling;
+    private boolean blocked;
+    private volatile boolean closed;
+
+    /**
+     * Creates the sender and starts draining the records the spool recovered.
+     *
+     * @param kafkaTemplate     template used to send records
+     * @param window            window bounding the number of unacknowledged records
+     * @param statistics        counters updated as records are sent and completed
+     * @param latency           histograms updated as records are acknowledged, or {@code null}
+     * @param partitionCounts   per-partition counts, or {@code null}
+     * @param spool             spool of the topic records are sent to
+     * @param spoolAfterNanos   how long a full window is waited for before spooling
+     * @param retryBackoffNanos wait before the drainer sends again after a retriable failure
+     */
+    public SpoolingSender(KafkaTemplate<Object, Object> kafkaTemplate, InFlightWindow window,
+                          SendStatistics statistics, SendLatencyRecorder latency, PartitionCounts partitionCounts,
+                          RecordSpool spool, long spoolAfterNanos, long retryBackoffNanos) {
+        super(kafkaTemplate, window, statistics, latency, partitionCounts);
+        this.spool = spool;
+        this.spoolAfterNanos = spoolAfterNanos;
+        this.drainer = new SpoolDrainer(spool, kafkaTemplate, window, statistics, latency, partitionCounts,
+                retryBackoffNanos);
+        if (spool.getRecovered() > 0) {
+            logger.info("Sending " + spool.getRecovered() + " records left in the spool of " + spool.getTopic()
+                    + " by an earlier run");
+        }
+        drainer.start();
+    }
+
+    /**
+     * Sends one record, or spools it if the window stays full for {@code spoolAfter} or
+     * older records are still spooled.
+     *
+     * @throws IllegalArgumentException if the topic is not the spool's, or the key or
+     *                                  value is neither {@code byte[]} nor {@code String}
+     * @throws UncheckedIOException     if the spool cannot create a segment
+     */
+    @Override
+    public void send(String topic, Integer partition, Object key, Object value, int size, long intendedNanos)
+            throws InterruptedException {
+        if (!spool.getTopic().equals(topic)) {
+            throw new IllegalArgumentException("The spool of " + spool.getTopic() + " cannot hold records of " + topic);
+        }
+        spoolFailed();
+        if (!spool.hasBacklog()) {
+            if (getWindow().tryAcquire(size, spoolAfterNanos, TimeUnit.NANOSECONDS)) {
+                spooling = false;
+                sendReserved(topic, partition, key, value, size, intendedNanos);
+                return;
+            }
+            if (!spooling) {
+                spooling = true;
+                logger.warn("In-flight window full for " + TimeUnit.NANOSECONDS.toMillis(spoolAfterNanos)
+                        + " ms; spooling records of " + topic + " to " + spool.getDirectory());
+            }
+        }
+        append(partition, bytes(key), bytes(value), intendedNanos);
+    }
+
+    /**
+     * Copies the key and value of a direct send, so that it can be spooled if it fails.
+     */
+    @Override
+    protected Object retain(Integer partition, Object key, Object value, long intendedNanos) {
+        SpoolRecord record = new SpoolRecord();
+        record.partition = partition;
+        record.key = key instanceof byte[] ? ((byte[]) key).clone() : bytes(key);
+        record.value = value instanceof byte[] ? ((byte[]) value).clone() : bytes(value);
+        record.intendedNanos = intendedNanos;
+        return record;
+    }
+
+    /**
+     * Queues a direct send that failed with a retriable error for the sending thread to
+     * spool.
+     */
+    @Override
+    protected boolean recover(Object retained, Throwable failure) {
+        if (closed || !SpoolDrainer.isRetriable(failure)) {
+            return false;
+        }
+        failed.add((SpoolRecord) retained);
+        return true;
+    }
+
+    /**
+     * Spools the direct sends that failed with a retriable error since the last call.
+     */
+    private void spoolFailed() throws InterruptedException {
+        SpoolRecord record;
+        while ((record = failed.poll()) != null) {
+            if (respooled.getAndIncrement() == 0) {
+                logger.warn("Records of " + spool.getTopic() + " failed with a retriable error; spooling them to "
+                        + spool.getDirectory());
+            }
+            append(record.partition, record.key, record.value, record.intendedNanos);
+        }
+    }
+
+    /**
+     * Appends a record to the spool, waiting while the spool is full.
+     */
+    private void append(Integer partition, byte[] key, byte[] value, long intendedNanos)
+            throws InterruptedException {
+        try {
+            while (!spool.append(partition, key, value, intendedNanos)) {
+                if (!blocked) {
+                    blocked = true;
+                    logger.warn("Spool of " + spool.getTopic() + " is full; waiting for the drainer");
+                }
+                LockSupport.parkNanos(FULL_WAIT_NANOS);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spool a record of " + spool.getTopic(), e);
+        }
+        blocked = false;
+    }
+
+    /**
+     * Waits for the spool to empty and every record in the window to complete, spooling
+     * direct sends that fail meanwhile with a retriable error, then closes the spool.
+     *
+     * @param timeoutMs maximum time to wait in milliseconds
+     * @return {@code true} if every record was acknowledged in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Override
+    public boolean drain(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        flush();
+        spoolFailed();
+        while ((spool.depthRecords() > 0 || getWindow().inFlightRecords() > 0) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+            flush();
+            spoolFailed();
+        }
+        boolean drained = super.drain(Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        spoolFailed();
+        close();
+        return drained && spool.depthRecords() == 0;
+    }
+
+    /**
+     * Stops the drainer and closes the spool, logging what was spooled. Records left in
+     * the spool are kept for the next run. Does nothing after the first call.
+     *
+     * @throws InterruptedException if interrupted while waiting for the drainer to stop
+     */
+    public void close() throws InterruptedException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            drainer.stop();
+        } finally {
+            try {
+                spool.close();
+            } catch (IOException e) {
+                logger.warn("Cannot close the spool of " + spool.getTopic(), e);
+            }
+        }
+        if (spool.getSpooled() > 0 || spool.getRecovered() > 0) {
+            logger.info(summary());
+        }
+    }
+
+    /**
+     * @return the spool written by this sender
+     */
+    public RecordSpool getSpool() {
+        return spool;
+    }
+
+    /**
+     * @return the direct sends that failed with a retriable error and were spooled
+     */
+    public long getRespooled() {
+        return respooled.get();
+    }
+
+    /**
+     * @return acknowledged spooled records per second while draining
+     */
+    public double getDrainRate() {
+        return drainer.drainRate();
+    }
+
+    /**
+     * @return one line on the records spooled, drained and left over
+     */
+    public String summary() {
+        return String.format("Spool of %s: %d records spooled (%d after a failed direct send), %d recovered, "
+                        + "%d drained at %.1f records/sec, %d retries, %d records (%d bytes) left in %s",
+                spool.getTopic(), spool.getSpooled(), respooled.get(), spool.getRecovered(), spool.getDrained(),
+                drainer.drainRate(), drainer.getRetries(), spool.depthRecords(), spool.depthBytes(),
+                spool.getDirectory());
+    }
+
+    private static byte[] bytes(Object data) {
+        if (data == null || data instanceof byte[]) {
+            return (byte[]) data;
+        }
+        if (data instanceof String) {
+            return ((String) data).getBytes(StandardCharsets.UTF_8);
+        }
+        throw new IllegalArgumentException("Cannot spool a " + data.getClass().getName()
+                + "; only byte[] and String records can be spooled");
+    }
+}
@@ -0,0 +1,20 @@
+/**
+ * Local on-disk spool that keeps the send loop running while the brokers do not keep up.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.spool.RecordSpools} - Opens the spool of a topic
+ *       and publishes its depth and drain rate</li>
+ *   <li>{@link io.nadkarni.streamsproducer.spool.SpoolingSender} - Sends directly while the
+ *       in-flight window has room, and spools records once it stays full</li>
+ *   <li>{@link io.nadkarni.streamsproducer.spool.RecordSpool} - Segmented, memory-mapped
+ *       append-only log with bounded size and recovery on restart</li>
+ *   <li>{@code SpoolDrainer} - Background thread that sends the spooled records in order
+ *       and retries them after retriable failures</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.spool;
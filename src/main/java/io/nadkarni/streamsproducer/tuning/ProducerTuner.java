@@ -0,0 +1,344 @@
+package io.nadkarni.streamsproducer.tuning;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.encoding.AsciiRecordEncoder;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.engine.ProducerPool;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorder;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.payload.Workload;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds producer settings for the configured topic by running short timed trials over a
+ * grid of batching, compression and acknowledgement settings.
+ *
+ * <h3>Trials:</h3>
+ * <p>Every combination of the {@link TuningGrid} gets its own {@code KafkaProducer} from the
+ * {@link ProducerPool}, built from the {@code spring.kafka.producer} properties with the
+ * trial's settings on top. A trial first sends for {@code tuneWarmup} so that connections,
+ * metadata and the JIT are warm, then sends as fast as the in-flight window allows for
+ * {@code tuneTrialDuration} and waits for every acknowledgement. Only the second interval
+ * is measured. The producer is closed before the next trial starts.</p>
+ *
+ * <h3>Measurements:</h3>
+ * <ul>
+ *   <li>Acknowledged records and payload bytes per second</li>
+ *   <li>p50, p99, p99.9 and max latency from each record's intended send time</li>
+ *   <li>Bytes on the wire, from the producer's {@code outgoing-byte-total} metric</li>
+ * </ul>
+ * <p>The results are ranked by a {@link TuningReport}, logged and optionally written to
+ * {@code tuneReportFile} together with the winning configuration as an application.yaml
+ * snippet.</p>
+ *
+ * <h3>Payloads:</h3>
+ * <p>Trials send the payloads configured for the pipelined mode. Compression and batching
+ * results depend heavily on them: the default {@code sequential} records are tiny and
+ * compress far better than real traffic, so a {@code json} or {@code random} generator
+ * gives more useful answers.</p>
+ *
+ * <h3>Thread Safety:</h3>
+ * <p>A sweep runs on the calling thread. Concurrent sweeps are not supported.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class ProducerTuner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProducerTuner.class);
+
+    /**
+     * Producer metric holding the total number of bytes sent to the brokers.
+     */
+    static final String OUTGOING_BYTES_METRIC = "outgoing-byte-total";
+
+    private static final String PRODUCER_METRICS_GROUP = "producer-metrics";
+
+    /**
+     * The name of the Kafka topic the trials send to.
+     * Configured via the {@code topic} property in application.yaml.
+     */
+    @Value("${topic}")
+    private String topicName;
+
+    /**
+     * Candidate {@code linger.ms} values.
+     * Configured via the {@code tuneLingerMs} property in application.yaml.
+     * Default value: 0,5,20
+     */
+    @Value("${tuneLingerMs:0,5,20}")
+    private String lingerMs = "0,5,20";
+
+    /**
+     * Candidate {@code batch.size} values in bytes.
+     * Configured via the {@code tuneBatchSize} property in application.yaml.
+     * Default value: 16384,131072
+     */
+    @Value("${tuneBatchSize:16384,131072}")
+    private String batchSizes = "16384,131072";
+
+    /**
+     * Candidate {@code compression.type} values.
+     * Configured via the {@code tuneCompression} property in application.yaml.
+     * Default value: none,lz4,zstd
+     */
+    @Value("${tuneCompression:none,lz4,zstd}")
+    private String compressionTypes = "none,lz4,zstd";
+
+    /**
+     * Candidate {@code acks} values.
+     * Configured via the {@code tuneAcks} property in application.yaml.
+     * Default value: 1,all
+     */
+    @Value("${tuneAcks:1,all}")
+    private String acks = "1,all";
+
+    /**
+     * Candidate {@code max.in.flight.requests.per.connection} values.
+     * Configured via the {@code tuneMaxInFlight} property in application.yaml.
+     * Default value: 5
+     */
+    @Value("${tuneMaxInFlight:5}")
+    private String maxInFlight = "5";
+
+    /**
+     * Length of the measured interval of each trial.
+     * Configured via the {@code tuneTrialDuration} property in application.yaml.
+     * Default value: 15s
+     */
+    @Value("${tuneTrialDuration:15s}")
+    private Duration trialDuration = Duration.ofSeconds(15);
+
+    /**
+     * Unmeasured sending before each trial.
+     * Configured via the {@code tuneWarmup} property in application.yaml.
+     * Default value: 3s
+     */
+    @Value("${tuneWarmup:3s}")
+    private Duration warmup = Duration.ofSeconds(3);
+
+    /**
+     * p99 latency bound in milliseconds a trial must meet to be chosen; 0 means no bound.
+     * Configured via the {@code tuneMaxP99Ms} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${tuneMaxP99Ms:0}")
+    private double maxP99Ms;
+
+    /**
+     * File the report and the winning configuration are written to.
+     * Configured via the {@code tuneReportFile} property in application.yaml.
+     * Default value: empty (log only)
+     */
+    @Value("${tuneReportFile:}")
+    private String reportFile = "";
+
+    /**
+     * Maximum number of records sent but not yet acknowledged during a trial.
+     * Configured via the {@code maxInFlightRecords} property in application.yaml.
+     * Default value: 10,000
+     */
+    @Value("${maxInFlightRecords:10000}")
+    private int maxInFlightRecords = 10000;
+
+    /**
+     * Maximum number of key and value bytes sent but not yet acknowledged during a trial.
+     * Configured via the {@code maxInFlightBytes} property in application.yaml.
+     * Default value: 16 MiB
+     */
+    @Value("${maxInFlightBytes:16777216}")
+    private int maxInFlightBytes = 16777216;
+
+    /**
+     * Maximum time in milliseconds to wait for the acknowledgements of a trial.
+     * Configured via the {@code drainTimeoutMs} property in application.yaml.
+     * Default value: 120,000
+     */
+    @Value("${drainTimeoutMs:120000}")
+    private long drainTimeoutMs = 120000;
+
+    private final ProducerPool producerPool;
+    private final WorkloadFactory workloadFactory;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param producerPool    source of the per-trial producers
+     * @param workloadFactory source of the configured payloads
+     */
+    public ProducerTuner(ProducerPool producerPool, WorkloadFactory workloadFactory) {
+        this.producerPool = producerPool;
+        this.workloadFactory = workloadFactory;
+    }
+
+    /**
+     * Runs a trial for every combination of the configured grid.
+     *
+     * <p>A trial whose producer cannot be created, for example because the base
+     * configuration enables idempotence and the trial sets {@code acks=1}, is logged and
+     * left out of the report. If the thread is interrupted the sweep stops and the report
+     * covers the trials completed so far.</p>
+     *
+     * @return the ranked results
+     * @throws IllegalArgumentException if the grid is invalid
+     */
+    public TuningReport tune() {
+        TuningGrid grid = TuningGrid.parse(lingerMs, batchSizes, compressionTypes, acks, maxInFlight);
+        Workload workload = workloadFactory.create(null);
+        List<Map<String, Object>> combinations = grid.combinations();
+        logger.info("Tuning the producer on '" + topicName + "' with " + combinations.size() + " trials of "
+                + warmup.plus(trialDuration).toSeconds() + " s each");
+        List<TrialResult> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < combinations.size(); i++) {
+                Map<String, Object> settings = combinations.get(i);
+                logger.info("Trial " + (i + 1) + "/" + combinations.size() + ": " + settings);
+                try {
+                    TrialResult result = trial("tuner-" + i, settings, workload);
+                    logger.info("Trial " + (i + 1) + "/" + combinations.size() + ": " + result);
+                    results.add(result);
+                } catch (RuntimeException e) {
+                    logger.warn("Trial " + (i + 1) + " with " + settings + " failed", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Tuning interrupted after " + results.size() + " trials");
+        }
+        TuningReport report = new TuningReport(results, (long) (maxP99Ms * 1000));
+        String formatted = report.format();
+        logger.info(formatted);
+        if (StringUtils.hasText(reportFile)) {
+            try {
+                Files.writeString(Paths.get(reportFile), formatted);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write " + reportFile, e);
+            }
+            logger.info("Wrote tuning report to " + reportFile);
+        }
+        return report;
+    }
+
+    /**
+     * Runs one trial on a new producer.
+     *
+     * @param name     name of the producer in the pool
+     * @param settings producer properties of the trial
+     * @param workload generated payloads, or {@code null} for sequential records
+     * @return the measurements of the trial
+     * @throws InterruptedException if interrupted while sending or draining
+     */
+    TrialResult trial(String name, Map<String, Object> settings, Workload workload) throws InterruptedException {
+        KafkaTemplate<Object, Object> template = producerPool.template(name, settings);
+        try {
+            PassThroughSerializer.checkConfigured(template);
+            Records records = new Records(workload);
+            if (!warmup.isZero()) {
+                PipelinedSender<Object, Object> warm = new PipelinedSender<>(template,
+                        new InFlightWindow(maxInFlightRecords, maxInFlightBytes), new SendStatistics());
+                sendFor(records, warm, warmup);
+            }
+
+            SendStatistics statistics = new SendStatistics();
+            SendLatencyRecorder latency = new SendLatencyRecorder(new SimpleMeterRegistry(), topicName);
+            PipelinedSender<Object, Object> sender = new PipelinedSender<>(template,
+                    new InFlightWindow(maxInFlightRecords, maxInFlightBytes), statistics, latency);
+            double wireBefore = outgoingBytes(template);
+            long payloadBefore = records.bytes;
+            statistics.start();
+            sendFor(records, sender, trialDuration);
+            statistics.finish();
+            double wireAfter = outgoingBytes(template);
+
+            Histogram histogram = latency.overallHistogram();
+            long wireBytes = wireBefore < 0 || wireAfter < 0 ? -1 : (long) (wireAfter - wireBefore);
+            return new TrialResult(settings, statistics.getAcked(), statistics.getFailed(),
+                    statistics.getElapsedMillis(), records.bytes - payloadBefore, wireBytes,
+                    histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9), histogram.getMaxValue());
+        } finally {
+            producerPool.release(name);
+        }
+    }
+
+    /**
+     * Sends unpaced for the given time, then waits for every acknowledgement.
+     */
+    private void sendFor(Records records, PipelinedSender<Object, Object> sender, Duration duration)
+            throws InterruptedException {
+        RunLimit limit = new RunLimit(Long.MAX_VALUE, duration.toNanos());
+        limit.start();
+        for (long i = 0; limit.allows(i); i++) {
+            records.send(sender, topicName);
+        }
+        if (!sender.drain(drainTimeoutMs)) {
+            logger.warn("Timed out after " + drainTimeoutMs + " ms with "
+                    + sender.getWindow().inFlightRecords() + " records still unacknowledged");
+        }
+    }
+
+    /**
+     * Reads the producer's total outgoing bytes.
+     *
+     * @param template template whose producer is read
+     * @return the byte count, or -1 if the producer does not report it
+     */
+    public static double outgoingBytes(KafkaTemplate<?, ?> template) {
+        for (Map.Entry<MetricName, ? extends Metric> entry : template.metrics().entrySet()) {
+            MetricName name = entry.getKey();
+            if (OUTGOING_BYTES_METRIC.equals(name.name()) && PRODUCER_METRICS_GROUP.equals(name.group())) {
+                Object value = entry.getValue().metricValue();
+                return value instanceof Number ? ((Number) value).doubleValue() : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The records of a trial, continuing the sequence from warm-up into measurement.
+     */
+    private static final class Records {
+
+        private final Workload.Cursor cursor;
+        private final AsciiRecordEncoder encoder;
+        private long seq;
+        private long bytes;
+
+        Records(Workload workload) {
+            this.cursor = workload == null ? null : workload.cursor(0);
+            this.encoder = workload == null ? new AsciiRecordEncoder() : null;
+        }
+
+        void send(PipelinedSender<Object, Object> sender, String topic) throws InterruptedException {
+            byte[] key = cursor == null ? encoder.key(seq) : cursor.key(seq);
+            byte[] value = cursor == null ? encoder.value(seq) : cursor.value(seq);
+            int size = key.length + value.length;
+            sender.send(topic, null, key, value, size, System.nanoTime());
+            bytes += size;
+            seq++;
+        }
+    }
+}
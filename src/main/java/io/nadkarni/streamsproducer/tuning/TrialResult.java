@@ -0,0 +1,145 @@
+package io.nadkarni.streamsproducer.tuning;
+
+import java.util.Map;
+
+/**
+ * The measurements of one {@link ProducerTuner} trial.
+ *
+ * <p>Latencies are taken from the trial's own histogram, measured from each record's
+ * intended send time like the rest of the application. Wire bytes are the producer's
+ * {@code outgoing-byte-total} over the measured interval, so they include compression,
+ * batch and request overhead.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class TrialResult {
+
+    private final Map<String, Object> settings;
+    private final long acked;
+    private final long failed;
+    private final long elapsedMillis;
+    private final long payloadBytes;
+    private final long wireBytes;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    /**
+     * @param settings      producer properties of the trial
+     * @param acked         records acknowledged in the measured interval
+     * @param failed        records that failed in the measured interval
+     * @param elapsedMillis length of the measured interval, including the final drain
+     * @param payloadBytes  key and value bytes handed to the producer
+     * @param wireBytes     bytes the producer sent to the brokers, or -1 if unknown
+     * @param p50Micros     median latency in microseconds
+     * @param p99Micros     99th percentile latency in microseconds
+     * @param p999Micros    99.9th percentile latency in microseconds
+     * @param maxMicros     maximum latency in microseconds
+     */
+    public TrialResult(Map<String, Object> settings, long acked, long failed, long elapsedMillis,
+                       long payloadBytes, long wireBytes, long p50Micros, long p99Micros, long p999Micros,
+                       long maxMicros) {
+        this.settings = settings;
+        this.acked = acked;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.payloadBytes = payloadBytes;
+        this.wireBytes = wireBytes;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * @return producer properties of the trial
+     */
+    public Map<String, Object> getSettings() {
+        return settings;
+    }
+
+    /**
+     * @return records acknowledged in the measured interval
+     */
+    public long getAcked() {
+        return acked;
+    }
+
+    /**
+     * @return records that failed in the measured interval
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return acknowledged records per second
+     */
+    public double getAckedPerSecond() {
+        return elapsedMillis == 0 ? 0 : acked * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * @return key and value bytes handed to the producer per second
+     */
+    public double getPayloadBytesPerSecond() {
+        return elapsedMillis == 0 ? 0 : payloadBytes * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * @return bytes sent to the brokers per second, or -1 if unknown
+     */
+    public double getWireBytesPerSecond() {
+        return wireBytes < 0 ? -1 : elapsedMillis == 0 ? 0 : wireBytes * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * @return bytes sent to the brokers per acknowledged record, or -1 if unknown
+     */
+    public double getWireBytesPerRecord() {
+        return wireBytes < 0 ? -1 : acked == 0 ? 0 : (double) wireBytes / acked;
+    }
+
+    /**
+     * @return bytes sent to the brokers per payload byte, or -1 if unknown
+     */
+    public double getWireRatio() {
+        return wireBytes < 0 ? -1 : payloadBytes == 0 ? 0 : (double) wireBytes / payloadBytes;
+    }
+
+    /**
+     * @return median latency in microseconds
+     */
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    /**
+     * @return 99th percentile latency in microseconds
+     */
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    /**
+     * @return 99.9th percentile latency in microseconds
+     */
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    /**
+     * @return maximum latency in microseconds
+     */
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return settings + ": " + String.format("%.0f acked/s, p99=%.3f ms", getAckedPerSecond(), p99Micros / 1000.0);
+    }
+}
@@ -0,0 +1,154 @@
+package io.nadkarni.streamsproducer.tuning;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.record.CompressionType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The producer settings swept by the {@link ProducerTuner}.
+ *
+ * <p>Each setting is given as a comma-separated list of candidate values. The grid is the
+ * cartesian product of the lists, so its size grows quickly: five settings with three
+ * values each are 243 trials. Settings with a single value are held constant.</p>
+ *
+ * <h3>Settings:</h3>
+ * <ul>
+ *   <li>{@code linger.ms} - non-negative integers</li>
+ *   <li>{@code batch.size} - positive integers, in bytes</li>
+ *   <li>{@code compression.type} - {@code none}, {@code gzip}, {@code snappy}, {@code lz4}
+ *       or {@code zstd}</li>
+ *   <li>{@code acks} - {@code 0}, {@code 1} or {@code all}</li>
+ *   <li>{@code max.in.flight.requests.per.connection} - positive integers</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class TuningGrid {
+
+    private final List<Integer> lingerMs;
+    private final List<Integer> batchSizes;
+    private final List<String> compressionTypes;
+    private final List<String> acks;
+    private final List<Integer> maxInFlight;
+
+    private TuningGrid(List<Integer> lingerMs, List<Integer> batchSizes, List<String> compressionTypes,
+                       List<String> acks, List<Integer> maxInFlight) {
+        this.lingerMs = lingerMs;
+        this.batchSizes = batchSizes;
+        this.compressionTypes = compressionTypes;
+        this.acks = acks;
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Parses a grid from comma-separated candidate lists.
+     *
+     * @param lingerMs         candidate {@code linger.ms} values, e.g. {@code 0,5,20}
+     * @param batchSizes       candidate {@code batch.size} values, e.g. {@code 16384,131072}
+     * @param compressionTypes candidate {@code compression.type} values, e.g. {@code none,lz4}
+     * @param acks             candidate {@code acks} values, e.g. {@code 1,all}
+     * @param maxInFlight      candidate {@code max.in.flight.requests.per.connection} values
+     * @return the grid
+     * @throws IllegalArgumentException if a list is empty or holds an invalid value
+     */
+    public static TuningGrid parse(String lingerMs, String batchSizes, String compressionTypes, String acks,
+                                   String maxInFlight) {
+        return new TuningGrid(
+                integers(ProducerConfig.LINGER_MS_CONFIG, lingerMs, 0),
+                integers(ProducerConfig.BATCH_SIZE_CONFIG, batchSizes, 1),
+                compressionTypes(compressionTypes),
+                acks(acks),
+                integers(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, maxInFlight, 1));
+    }
+
+    /**
+     * @return the number of combinations in the grid
+     */
+    public int size() {
+        return lingerMs.size() * batchSizes.size() * compressionTypes.size() * acks.size() * maxInFlight.size();
+    }
+
+    /**
+     * Expands the grid into producer property overrides, one map per trial.
+     *
+     * @return the combinations in a stable order, each keyed by producer property name
+     */
+    public List<Map<String, Object>> combinations() {
+        List<Map<String, Object>> combinations = new ArrayList<>(size());
+        for (String ack : acks) {
+            for (int inFlight : maxInFlight) {
+                for (String compression : compressionTypes) {
+                    for (int batchSize : batchSizes) {
+                        for (int linger : lingerMs) {
+                            Map<String, Object> settings = new LinkedHashMap<>();
+                            settings.put(ProducerConfig.LINGER_MS_CONFIG, linger);
+                            settings.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+                            settings.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+                            settings.put(ProducerConfig.ACKS_CONFIG, ack);
+                            settings.put(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, inFlight);
+                            combinations.add(Collections.unmodifiableMap(settings));
+                        }
+                    }
+                }
+            }
+        }
+        return combinations;
+    }
+
+    private static List<String> values(String name, String list) {
+        List<String> values = new ArrayList<>();
+        if (list != null) {
+            for (String value : list.split(",")) {
+                if (!value.trim().isEmpty()) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("No candidate values for " + name);
+        }
+        return values;
+    }
+
+    private static List<Integer> integers(String name, String list, int min) {
+        List<Integer> integers = new ArrayList<>();
+        for (String value : values(name, list)) {
+            int parsed;
+            try {
+                parsed = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed " + name + " value '" + value + "'", e);
+            }
+            if (parsed < min) {
+                throw new IllegalArgumentException(name + " must be at least " + min + ", got " + parsed);
+            }
+            integers.add(parsed);
+        }
+        return integers;
+    }
+
+    private static List<String> compressionTypes(String list) {
+        List<String> types = values(ProducerConfig.COMPRESSION_TYPE_CONFIG, list);
+        for (String type : types) {
+            CompressionType.forName(type);
+        }
+        return types;
+    }
+
+    private static List<String> acks(String list) {
+        List<String> acks = values(ProducerConfig.ACKS_CONFIG, list);
+        for (String ack : acks) {
+            if (!ack.equals("0") && !ack.equals("1") && !ack.equals("all") && !ack.equals("-1")) {
+                throw new IllegalArgumentException("Unknown acks value '" + ack + "'");
+            }
+        }
+        return acks;
+    }
+}
@@ -0,0 +1,170 @@
+package io.nadkarni.streamsproducer.tuning;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranked results of a {@link ProducerTuner} sweep.
+ *
+ * <h3>Ranking:</h3>
+ * <p>Trials are ranked by acknowledged records per second. A trial only qualifies if none
+ * of its records failed and, when a latency bound is set, its p99 latency is within the
+ * bound. Qualifying trials are ranked first; the best of them is the winner. Trials that
+ * do not qualify follow in their own throughput order so the report still shows
+ * them.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class TuningReport {
+
+    private final List<TrialResult> ranked;
+    private final int qualifying;
+    private final long maxP99Micros;
+
+    /**
+     * Ranks the results of a sweep.
+     *
+     * @param results      results in the order the trials ran
+     * @param maxP99Micros p99 latency bound in microseconds, or 0 for no bound
+     */
+    public TuningReport(List<TrialResult> results, long maxP99Micros) {
+        this.maxP99Micros = maxP99Micros;
+        List<TrialResult> passed = new ArrayList<>();
+        List<TrialResult> rejected = new ArrayList<>();
+        for (TrialResult result : results) {
+            (qualifies(result) ? passed : rejected).add(result);
+        }
+        Comparator<TrialResult> byThroughput =
+                Comparator.comparingDouble(TrialResult::getAckedPerSecond).reversed();
+        passed.sort(byThroughput);
+        rejected.sort(byThroughput);
+        List<TrialResult> all = new ArrayList<>(passed);
+        all.addAll(rejected);
+        this.ranked = Collections.unmodifiableList(all);
+        this.qualifying = passed.size();
+    }
+
+    /**
+     * @return every result, best first
+     */
+    public List<TrialResult> getRanked() {
+        return ranked;
+    }
+
+    /**
+     * @return the best qualifying result, or {@code null} if no trial qualified
+     */
+    public TrialResult getWinner() {
+        return qualifying == 0 ? null : ranked.get(0);
+    }
+
+    /**
+     * Formats the ranking as a table.
+     *
+     * @return one line per trial, with a header
+     */
+    public String table() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%4s %8s %10s %-6s %4s %4s %12s %10s %10s %7s %9s %9s %9s %9s%n",
+                "rank", "linger", "batch", "compr", "acks", "mif", "acked/s", "MiB/s", "wire MiB/s", "wire/B",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (int i = 0; i < ranked.size(); i++) {
+            TrialResult result = ranked.get(i);
+            Map<String, Object> settings = result.getSettings();
+            table.append(String.format("%4s %8s %10s %-6s %4s %4s %12.0f %10.2f %10s %7s %9.3f %9.3f %9.3f %9.3f",
+                    i < qualifying ? Integer.toString(i + 1) : "-",
+                    settings.get(ProducerConfig.LINGER_MS_CONFIG),
+                    settings.get(ProducerConfig.BATCH_SIZE_CONFIG),
+                    settings.get(ProducerConfig.COMPRESSION_TYPE_CONFIG),
+                    settings.get(ProducerConfig.ACKS_CONFIG),
+                    settings.get(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION),
+                    result.getAckedPerSecond(),
+                    result.getPayloadBytesPerSecond() / (1024 * 1024),
+                    result.getWireBytesPerSecond() < 0 ? "n/a"
+                            : String.format("%.2f", result.getWireBytesPerSecond() / (1024 * 1024)),
+                    result.getWireRatio() < 0 ? "n/a" : String.format("%.3f", result.getWireRatio()),
+                    result.getP50Micros() / 1000.0, result.getP99Micros() / 1000.0,
+                    result.getP999Micros() / 1000.0, result.getMaxMicros() / 1000.0));
+            if (result.getFailed() > 0) {
+                table.append("  ").append(result.getFailed()).append(" failed");
+            } else if (result.getAcked() == 0) {
+                table.append("  nothing acknowledged");
+            } else if (i >= qualifying) {
+                table.append("  p99 above bound");
+            }
+            table.append(System.lineSeparator());
+        }
+        return table.toString();
+    }
+
+    /**
+     * Formats the winning settings as application.yaml configuration.
+     *
+     * <p>{@code acks}, {@code batch-size} and {@code compression-type} are Spring Boot
+     * producer properties; {@code linger.ms} and
+     * {@code max.in.flight.requests.per.connection} have no dedicated property and go under
+     * {@code properties}.</p>
+     *
+     * @return the snippet, or {@code null} if no trial qualified
+     */
+    public String yamlSnippet() {
+        TrialResult winner = getWinner();
+        if (winner == null) {
+            return null;
+        }
+        Map<String, Object> settings = winner.getSettings();
+        String n = System.lineSeparator();
+        return "spring:" + n
+                + "  kafka:" + n
+                + "    producer:" + n
+                + "      acks: " + acks(settings.get(ProducerConfig.ACKS_CONFIG)) + n
+                + "      batch-size: " + settings.get(ProducerConfig.BATCH_SIZE_CONFIG) + n
+                + "      compression-type: " + settings.get(ProducerConfig.COMPRESSION_TYPE_CONFIG) + n
+                + "      properties:" + n
+                + "        linger.ms: " + settings.get(ProducerConfig.LINGER_MS_CONFIG) + n
+                + "        max.in.flight.requests.per.connection: "
+                + settings.get(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION) + n;
+    }
+
+    /**
+     * Formats the table, the latency bound and the snippet as one report.
+     *
+     * @return the complete report
+     */
+    public String format() {
+        String n = System.lineSeparator();
+        StringBuilder report = new StringBuilder();
+        report.append("Producer tuning: ").append(ranked.size()).append(" trials, ").append(qualifying)
+                .append(" qualifying");
+        if (maxP99Micros > 0) {
+            report.append(String.format(" (p99 <= %.3f ms)", maxP99Micros / 1000.0));
+        }
+        report.append(n).append(table()).append(n);
+        String snippet = yamlSnippet();
+        if (snippet == null) {
+            report.append("No trial qualified; relax tuneMaxP99Ms or check the failures").append(n);
+        } else {
+            report.append("Best configuration (").append(ranked.get(0)).append("):").append(n).append(snippet);
+        }
+        return report.toString();
+    }
+
+    private boolean qualifies(TrialResult result) {
+        return result.getFailed() == 0 && result.getAcked() > 0
+                && (maxP99Micros <= 0 || result.getP99Micros() <= maxP99Micros);
+    }
+
+    /**
+     * Writes {@code -1} as its alias {@code all}.
+     */
+    private static String acks(Object acks) {
+        return "-1".equals(acks) ? "all" : String.valueOf(acks);
+    }
+}
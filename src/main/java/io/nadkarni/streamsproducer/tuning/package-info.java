@@ -0,0 +1,20 @@
+/**
+ * Producer configuration tuning through short timed trials.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.tuning.TuningGrid} - Candidate values of the
+ *       swept producer settings</li>
+ *   <li>{@link io.nadkarni.streamsproducer.tuning.ProducerTuner} - Runs one trial per
+ *       combination on its own producer</li>
+ *   <li>{@link io.nadkarni.streamsproducer.tuning.TrialResult} - Throughput, latency and
+ *       wire bytes of one trial</li>
+ *   <li>{@link io.nadkarni.streamsproducer.tuning.TuningReport} - Ranked results and the
+ *       winning configuration as YAML</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.tuning;
@@ -0,0 +1,159 @@
+package io.nadkarni.streamsproducer.verification;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Outcome of a verification: how many of the records sent were consumed exactly once, the
+ * missing, duplicated and out-of-order ones, the consumer-side rate and the end-to-end
+ * latency.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class DeliveryReport {
+
+    private final long expected;
+    private final long consumed;
+    private final long delivered;
+    private final long missing;
+    private final long firstMissing;
+    private final long duplicates;
+    private final long outOfOrder;
+    private final long unexpected;
+    private final long unsequenced;
+    private final int partitions;
+    private final long stateBytes;
+    private final double recordsPerSecond;
+    private final Histogram latency;
+
+    DeliveryReport(long expected, long consumed, long delivered, long missing, long firstMissing, long duplicates,
+                   long outOfOrder, long unexpected, long unsequenced, int partitions, long stateBytes,
+                   double recordsPerSecond, Histogram latency) {
+        this.expected = expected;
+        this.consumed = consumed;
+        this.delivered = delivered;
+        this.missing = missing;
+        this.firstMissing = firstMissing;
+        this.duplicates = duplicates;
+        this.outOfOrder = outOfOrder;
+        this.unexpected = unexpected;
+        this.unsequenced = unsequenced;
+        this.partitions = partitions;
+        this.stateBytes = stateBytes;
+        this.recordsPerSecond = recordsPerSecond;
+        this.latency = latency;
+    }
+
+    /**
+     * @return number of records the producer sent
+     */
+    public long getExpected() {
+        return expected;
+    }
+
+    /**
+     * @return number of records consumed, including duplicates
+     */
+    public long getConsumed() {
+        return consumed;
+    }
+
+    /**
+     * @return number of the sent sequence numbers that were consumed at least once
+     */
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return number of the sent sequence numbers that were not consumed
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return the lowest missing sequence number, or -1 if none is missing
+     */
+    public long getFirstMissing() {
+        return firstMissing;
+    }
+
+    /**
+     * @return number of records whose sequence number had already been consumed
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return number of records consumed after a higher sequence number of the same
+     *         partition, or -1 if the run's order was not checked
+     */
+    public long getOutOfOrder() {
+        return outOfOrder;
+    }
+
+    /**
+     * @return number of distinct sequence numbers at or above {@link #getExpected()}
+     */
+    public long getUnexpected() {
+        return unexpected;
+    }
+
+    /**
+     * @return number of records whose value holds no sequence number
+     */
+    public long getUnsequenced() {
+        return unsequenced;
+    }
+
+    /**
+     * @return records consumed per second while consuming
+     */
+    public double getRecordsPerSecond() {
+        return recordsPerSecond;
+    }
+
+    /**
+     * @return end-to-end latency histogram in milliseconds
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return {@code true} if every record sent was consumed once and nothing else was consumed
+     */
+    public boolean isExactlyOnce() {
+        return missing == 0 && duplicates == 0 && unexpected == 0 && unsequenced == 0;
+    }
+
+    /**
+     * Formats the report for the run summary.
+     *
+     * @return one line on delivery and one on end-to-end latency
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(String.format(
+                "Verified %d of %d records delivered (%s): %d missing, %d duplicated, %s out of order, "
+                        + "%d consumed at %.1f records/sec from %d partitions (%d KiB of sequence state)",
+                delivered, expected, isExactlyOnce() ? "exactly once" : "NOT exactly once", missing, duplicates,
+                outOfOrder < 0 ? "unchecked" : Long.toString(outOfOrder), consumed, recordsPerSecond,
+                partitions, stateBytes / 1024));
+        if (firstMissing >= 0) {
+            summary.append("; first missing sequence number ").append(firstMissing);
+        }
+        if (unexpected > 0) {
+            summary.append("; ").append(unexpected).append(" sequence numbers beyond the run");
+        }
+        if (unsequenced > 0) {
+            summary.append("; ").append(unsequenced).append(" records without a sequence number");
+        }
+        summary.append(String.format("%nEnd-to-end latency from record timestamps: p50=%d p99=%d p99.9=%d max=%d ms",
+                latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+                latency.getValueAtPercentile(99.9), latency.getMaxValue()));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,155 @@
+package io.nadkarni.streamsproducer.verification;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Everything the verification topology has consumed in one run: the
+ * {@link PartitionSequences} of each partition, the consumer-side record count and rate,
+ * and the end-to-end latency of each record.
+ *
+ * <p>End-to-end latency is the consumer's wall clock minus the record's timestamp. With the
+ * topic's default {@code CreateTime} that timestamp is set by the producer when the record
+ * is sent, so the latency covers batching, the broker and the consumer. Both clocks must be
+ * in sync when producer and verifier run on different hosts.</p>
+ *
+ * <p>Stream threads record concurrently: each writes only its own partitions' state, and
+ * the shared counters are a {@link LongAdder} and a wait-free HdrHistogram
+ * {@link Recorder}.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class DeliveryTracker {
+
+    /**
+     * Largest end-to-end latency that can be recorded, in milliseconds; longer ones are clamped.
+     */
+    static final long HIGHEST_TRACKABLE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private static final int LATENCY_DIGITS = 3;
+
+    private final Map<Integer, PartitionSequences> partitions = new ConcurrentHashMap<>();
+    private final LongAdder consumed = new LongAdder();
+    private final AtomicLong firstNanos = new AtomicLong();
+    private volatile long lastNanos;
+
+    private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MILLIS, LATENCY_DIGITS);
+    private final Histogram cumulative = new Histogram(HIGHEST_TRACKABLE_MILLIS, LATENCY_DIGITS);
+    private Histogram interval;
+
+    /**
+     * Returns the state of a partition, creating it on first use.
+     *
+     * @param partition partition number
+     * @return the partition's state
+     */
+    PartitionSequences partition(int partition) {
+        return partitions.computeIfAbsent(partition, PartitionSequences::new);
+    }
+
+    /**
+     * Counts one consumed record and its end-to-end latency.
+     *
+     * @param timestampMs the record's timestamp, or a negative value if it has none
+     */
+    void recordConsumed(long timestampMs) {
+        long now = System.nanoTime();
+        if (firstNanos.get() == 0) {
+            firstNanos.compareAndSet(0, now);
+        }
+        lastNanos = now;
+        consumed.increment();
+        if (timestampMs >= 0) {
+            long millis = System.currentTimeMillis() - timestampMs;
+            latency.recordValue(Math.max(0, Math.min(millis, HIGHEST_TRACKABLE_MILLIS)));
+        }
+    }
+
+    /**
+     * @return number of records consumed
+     */
+    long getConsumed() {
+        return consumed.sum();
+    }
+
+    /**
+     * @return number of distinct sequence numbers consumed, summed over the partitions
+     */
+    long getDelivered() {
+        long delivered = 0;
+        for (PartitionSequences sequences : partitions.values()) {
+            delivered += sequences.getDelivered();
+        }
+        return delivered;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} of the last consumed record, or 0 if there is none
+     */
+    long getLastNanos() {
+        return lastNanos;
+    }
+
+    /**
+     * @return records consumed per second between the first and the last record
+     */
+    double getRecordsPerSecond() {
+        long first = firstNanos.get();
+        long elapsed = lastNanos - first;
+        return first == 0 || elapsed <= 0 ? 0.0 : getConsumed() * 1e9 / elapsed;
+    }
+
+    /**
+     * @return a copy of the end-to-end latency histogram in milliseconds
+     */
+    synchronized Histogram latencySnapshot() {
+        interval = latency.getIntervalHistogram(interval);
+        cumulative.add(interval);
+        return cumulative.copy();
+    }
+
+    /**
+     * Compares what was consumed with what was sent. Must only be called once the topology
+     * has been closed, because it reads the partitions' bitmaps.
+     *
+     * @param expected   number of records sent, with sequence numbers {@code 0} to {@code expected - 1}
+     * @param checkOrder whether the records were sent by one thread, so that each partition
+     *                   must see them in increasing order
+     * @return the report
+     */
+    DeliveryReport report(long expected, boolean checkOrder) {
+        List<PartitionSequences> all = new ArrayList<>(partitions.values());
+        SequenceBitmap union = new SequenceBitmap();
+        long perPartition = 0;
+        long duplicates = 0;
+        long outOfOrder = 0;
+        long unsequenced = 0;
+        long stateBytes = 0;
+        for (PartitionSequences sequences : all) {
+            union.addAll(sequences.getSeen());
+            perPartition += sequences.getDelivered();
+            duplicates += sequences.getDuplicates();
+            outOfOrder += sequences.getOutOfOrder();
+            unsequenced += sequences.getUnsequenced();
+            stateBytes += sequences.getSeen().sizeInBytes();
+        }
+        // A sequence number that reached two partitions is a duplicate as well.
+        duplicates += perPartition - union.cardinality();
+        long delivered = union.countBelow(expected);
+        long missing = expected - delivered;
+        return new DeliveryReport(expected, getConsumed(), delivered, missing,
+                missing > 0 ? union.firstMissing() : -1, duplicates, checkOrder ? outOfOrder : -1,
+                union.cardinality() - delivered, unsequenced, all.size(), stateBytes,
+                getRecordsPerSecond(), latencySnapshot());
+    }
+}
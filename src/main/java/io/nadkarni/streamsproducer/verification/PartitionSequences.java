@@ -0,0 +1,94 @@
+package io.nadkarni.streamsproducer.verification;
+
+/**
+ * Delivery state of one partition: which sequence numbers arrived, and how often they
+ * arrived twice or behind a higher number.
+ *
+ * <p>Written only by the stream thread that owns the partition's task. The counters are
+ * volatile so that progress can be read while the topology runs; the bitmap is read once
+ * the topology has been closed.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class PartitionSequences {
+
+    private final int partition;
+    private final SequenceBitmap seen = new SequenceBitmap();
+    private long highest = -1;
+
+    private volatile long records;
+    private volatile long delivered;
+    private volatile long duplicates;
+    private volatile long outOfOrder;
+    private volatile long unsequenced;
+
+    /**
+     * @param partition partition number
+     */
+    PartitionSequences(int partition) {
+        this.partition = partition;
+    }
+
+    /**
+     * Counts one consumed record.
+     *
+     * @param seq sequence number of the record, or a negative value if it has none
+     */
+    void record(long seq) {
+        records++;
+        if (seq < 0) {
+            unsequenced++;
+        } else if (!seen.add(seq)) {
+            duplicates++;
+        } else {
+            delivered++;
+            if (seq < highest) {
+                outOfOrder++;
+            } else {
+                highest = seq;
+            }
+        }
+    }
+
+    int getPartition() {
+        return partition;
+    }
+
+    SequenceBitmap getSeen() {
+        return seen;
+    }
+
+    long getRecords() {
+        return records;
+    }
+
+    /**
+     * @return number of distinct sequence numbers consumed
+     */
+    long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return number of records whose sequence number had been consumed before
+     */
+    long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return number of first deliveries below a sequence number already consumed in this partition
+     */
+    long getOutOfOrder() {
+        return outOfOrder;
+    }
+
+    /**
+     * @return number of records whose value holds no sequence number
+     */
+    long getUnsequenced() {
+        return unsequenced;
+    }
+}
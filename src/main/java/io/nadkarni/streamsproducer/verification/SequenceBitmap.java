@@ -0,0 +1,173 @@
+package io.nadkarni.streamsproducer.verification;
+
+import java.util.Arrays;
+
+/**
+ * Set of non-negative sequence numbers stored as one bit each.
+ *
+ * <p>The bits are kept in pages of {@value #PAGE_SIZE} sequence numbers (8 KiB), allocated
+ * when the first number of the page is added. A partition that receives every
+ * {@code n}-th record of a run therefore still costs one bit per sequence number of the
+ * range it covers, not an entry per record: 100 million records take about 12 MiB per
+ * partition, and ranges a partition never sees take nothing.</p>
+ *
+ * <p>Not thread-safe; each bitmap is written by one stream thread and read once that
+ * thread has stopped.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class SequenceBitmap {
+
+    private static final int PAGE_SHIFT = 16;
+
+    /**
+     * Number of sequence numbers per page.
+     */
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+
+    private static final int WORDS_PER_PAGE = PAGE_SIZE / Long.SIZE;
+
+    private long[][] pages = new long[16][];
+    private long cardinality;
+
+    /**
+     * Adds a sequence number.
+     *
+     * @param seq non-negative sequence number
+     * @return {@code true} if the number was not present yet
+     * @throws IllegalArgumentException if {@code seq} is negative or beyond the addressable range
+     */
+    public boolean add(long seq) {
+        long[] words = page(seq, true);
+        int bit = (int) (seq & (PAGE_SIZE - 1));
+        long mask = 1L << bit;
+        int word = bit >>> 6;
+        if ((words[word] & mask) != 0) {
+            return false;
+        }
+        words[word] |= mask;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * @param seq non-negative sequence number
+     * @return whether the number has been added
+     */
+    public boolean contains(long seq) {
+        long[] words = page(seq, false);
+        int bit = (int) (seq & (PAGE_SIZE - 1));
+        return words != null && (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return number of distinct sequence numbers added
+     */
+    public long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Counts the sequence numbers below a limit.
+     *
+     * @param limit exclusive upper bound
+     * @return number of distinct sequence numbers in {@code [0, limit)}
+     */
+    public long countBelow(long limit) {
+        long count = 0;
+        for (int p = 0; p < pages.length && (long) p * PAGE_SIZE < limit; p++) {
+            long[] words = pages[p];
+            if (words == null) {
+                continue;
+            }
+            long base = (long) p * PAGE_SIZE;
+            for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                long start = base + (long) w * Long.SIZE;
+                if (start >= limit) {
+                    break;
+                }
+                long word = words[w];
+                if (limit - start < Long.SIZE) {
+                    word &= (1L << (limit - start)) - 1;
+                }
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the lowest sequence number that has not been added.
+     *
+     * @return the first gap; equal to {@link #cardinality()} when the numbers added are
+     *         exactly {@code 0} to {@code cardinality - 1}
+     */
+    public long firstMissing() {
+        for (int p = 0; p < pages.length; p++) {
+            long[] words = pages[p];
+            if (words == null) {
+                return (long) p * PAGE_SIZE;
+            }
+            for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                if (words[w] != -1L) {
+                    return (long) p * PAGE_SIZE + (long) w * Long.SIZE + Long.numberOfTrailingZeros(~words[w]);
+                }
+            }
+        }
+        return (long) pages.length * PAGE_SIZE;
+    }
+
+    /**
+     * Adds every sequence number of another bitmap to this one.
+     *
+     * @param other bitmap to merge
+     */
+    public void addAll(SequenceBitmap other) {
+        for (int p = 0; p < other.pages.length; p++) {
+            long[] source = other.pages[p];
+            if (source == null) {
+                continue;
+            }
+            long[] target = page((long) p * PAGE_SIZE, true);
+            for (int w = 0; w < WORDS_PER_PAGE; w++) {
+                long added = source[w] & ~target[w];
+                target[w] |= added;
+                cardinality += Long.bitCount(added);
+            }
+        }
+    }
+
+    /**
+     * @return bytes held by the allocated pages
+     */
+    public long sizeInBytes() {
+        long allocated = 0;
+        for (long[] words : pages) {
+            if (words != null) {
+                allocated++;
+            }
+        }
+        return allocated * WORDS_PER_PAGE * Long.BYTES;
+    }
+
+    private long[] page(long seq, boolean create) {
+        if (seq < 0 || (seq >>> PAGE_SHIFT) > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Sequence number out of range: " + seq);
+        }
+        int page = (int) (seq >>> PAGE_SHIFT);
+        if (page >= pages.length) {
+            if (!create) {
+                return null;
+            }
+            pages = Arrays.copyOf(pages, Math.max(page + 1, pages.length * 2));
+        }
+        long[] words = pages[page];
+        if (words == null && create) {
+            words = new long[WORDS_PER_PAGE];
+            pages[page] = words;
+        }
+        return words;
+    }
+}
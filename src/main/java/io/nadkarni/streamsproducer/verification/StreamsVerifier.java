@@ -0,0 +1,316 @@
+package io.nadkarni.streamsproducer.verification;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.kstream.Consumed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes the produced topic with a Kafka Streams topology and checks that every record
+ * sent arrived exactly once.
+ *
+ * <h3>Verification:</h3>
+ * <p>The sequential generator numbers its records: record {@code n} carries the value
+ * {@code "Message n"}. The topology parses that number from each record and keeps, per
+ * partition, a {@link SequenceBitmap} of the numbers seen, one bit per number rather than an
+ * entry per record. A number seen twice is a duplicate; a new number below the highest one
+ * already seen in its partition is out of order; a number below the producer's count that
+ * no partition saw is missing. Order is only checked when a single thread sent the run,
+ * since workers of a parallel run interleave within a partition.</p>
+ *
+ * <h3>Throughput and latency:</h3>
+ * <p>The consumer-side rate is measured from the first to the last record consumed and
+ * logged next to the producer's acknowledged rate. End-to-end latency is taken from each
+ * record's timestamp, see {@link DeliveryTracker}. Both are published as Micrometer
+ * gauges tagged with {@code topic}:</p>
+ * <ul>
+ *   <li>{@code verifier.records.consumed} and {@code verifier.records.delivered}</li>
+ *   <li>{@code verifier.records.per.second}</li>
+ *   <li>{@code verifier.e2e.latency.percentile} - tagged {@code phi} (0.5, 0.99, 0.999), in milliseconds</li>
+ * </ul>
+ *
+ * <h3>Lifecycle:</h3>
+ * <p>{@link #start(String, boolean)} commits the topic's current end offsets for a fresh
+ * application id, so the topology reads exactly the records produced after it, and waits
+ * until the topology is running. {@link #finish(SendStatistics)} waits until every record
+ * sent has been consumed, or until nothing has arrived for {@code verifyTimeout}, closes the
+ * topology and reports. The topology reads with {@code read_committed} isolation, so the
+ * records of aborted transactions do not count.</p>
+ *
+ * <h3>State:</h3>
+ * <p>The per-partition state lives in the tasks' memory rather than in a changelogged
+ * store: a verification always starts from fresh offsets and ends with its run, so there is
+ * nothing to restore.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class StreamsVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamsVerifier.class);
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private static final long POLL_INTERVAL_MS = 100;
+
+    /**
+     * Whether the startup run is verified.
+     * Configured via the {@code verify} property in application.yaml.
+     * Default value: false
+     */
+    @Value("${verify:false}")
+    private boolean verify;
+
+    /**
+     * Number of stream threads of the verification topology.
+     * Configured via the {@code verifyThreads} property in application.yaml.
+     * Default value: 1
+     */
+    @Value("${verifyThreads:1}")
+    private int verifyThreads = 1;
+
+    /**
+     * Time to wait for the topology to start, and for further records once nothing arrives.
+     * Configured via the {@code verifyTimeout} property in application.yaml.
+     * Default value: 60s
+     */
+    @Value("${verifyTimeout:60s}")
+    private Duration verifyTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Prefix of the topology's application id, which is completed with the topic and the
+     * start time.
+     * Configured via the {@code verifyApplicationIdPrefix} property in application.yaml.
+     * Default value: streams-producer-verify-
+     */
+    @Value("${verifyApplicationIdPrefix:streams-producer-verify-}")
+    private String applicationIdPrefix = "streams-producer-verify-";
+
+    private final KafkaProperties kafkaProperties;
+    private final MeterRegistry registry;
+
+    private String topic;
+    private boolean checkOrder;
+    private KafkaStreams streams;
+    private volatile DeliveryTracker tracker;
+    private boolean gaugesRegistered;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaProperties the Spring Boot Kafka properties bound from application.yaml
+     * @param registry        registry the verification gauges are published to
+     */
+    public StreamsVerifier(KafkaProperties kafkaProperties, MeterRegistry registry) {
+        this.kafkaProperties = kafkaProperties;
+        this.registry = registry;
+    }
+
+    /**
+     * @return {@code true} if {@code verify} is set
+     */
+    public boolean isEnabled() {
+        return verify;
+    }
+
+    /**
+     * Starts consuming the topic from its current end.
+     *
+     * @param topic      topic the run produces to
+     * @param checkOrder whether one thread sends the run, so each partition must see its
+     *                   sequence numbers in increasing order
+     * @throws IllegalStateException if a verification is already running, or if the
+     *                               topology does not start within {@code verifyTimeout}
+     * @throws InterruptedException  if interrupted while waiting for the topology
+     */
+    public synchronized void start(String topic, boolean checkOrder) throws InterruptedException {
+        if (streams != null) {
+            throw new IllegalStateException("A verification of '" + this.topic + "' is already running");
+        }
+        String applicationId = applicationIdPrefix + topic + "-" + System.currentTimeMillis();
+        int partitions = commitEndOffsets(applicationId, topic);
+        DeliveryTracker current = new DeliveryTracker();
+        KafkaStreams started = new KafkaStreams(topology(topic, current), streamsProperties(applicationId));
+        started.setUncaughtExceptionHandler((thread, e) -> logger.error("Verification thread " + thread.getName()
+                + " failed", e));
+        this.topic = topic;
+        this.checkOrder = checkOrder;
+        this.tracker = current;
+        this.streams = started;
+        registerGauges(topic);
+        started.start();
+
+        long deadline = System.nanoTime() + verifyTimeout.toNanos();
+        KafkaStreams.State state;
+        while ((state = started.state()) != KafkaStreams.State.RUNNING) {
+            if (state == KafkaStreams.State.ERROR || state == KafkaStreams.State.PENDING_SHUTDOWN
+                    || state == KafkaStreams.State.NOT_RUNNING || System.nanoTime() - deadline >= 0) {
+                close();
+                throw new IllegalStateException("Verification topology did not start within " + verifyTimeout);
+            }
+            TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MS);
+        }
+        logger.info("Verifying " + partitions + " partitions of '" + topic + "' as " + applicationId
+                + (checkOrder ? "" : "; order is not checked because several workers send"));
+    }
+
+    /**
+     * Waits for the run's records, stops the topology and reports.
+     *
+     * @param statistics the producer's statistics of the run; every record it sent is expected
+     * @return the report
+     * @throws IllegalStateException if no verification is running
+     * @throws InterruptedException  if interrupted while waiting for records
+     */
+    public synchronized DeliveryReport finish(SendStatistics statistics) throws InterruptedException {
+        if (streams == null) {
+            throw new IllegalStateException("No verification is running");
+        }
+        long expected = statistics.getSent();
+        DeliveryTracker current = tracker;
+        long timeoutNanos = verifyTimeout.toNanos();
+        long idleSince = System.nanoTime();
+        long lastDelivered = -1;
+        while (current.getDelivered() < expected) {
+            long delivered = current.getDelivered();
+            if (delivered != lastDelivered) {
+                lastDelivered = delivered;
+                idleSince = System.nanoTime();
+            } else if (System.nanoTime() - idleSince >= timeoutNanos) {
+                logger.warn("No records for " + verifyTimeout + "; " + (expected - delivered)
+                        + " records have not arrived");
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(POLL_INTERVAL_MS);
+        }
+        close();
+
+        DeliveryReport report = current.report(expected, checkOrder);
+        logger.info(report.summary());
+        logger.info(String.format("Producer acknowledged %d records at %.1f records/sec; "
+                        + "consumer delivered %d at %.1f records/sec", statistics.getAcked(),
+                statistics.getAckedPerSecond(), report.getDelivered(), report.getRecordsPerSecond()));
+        return report;
+    }
+
+    /**
+     * Builds the verification topology.
+     *
+     * @param topic   topic to consume
+     * @param tracker state the processors record into
+     * @return the topology
+     */
+    static Topology topology(String topic, DeliveryTracker tracker) {
+        StreamsBuilder builder = new StreamsBuilder();
+        builder.stream(topic, Consumed.with(Serdes.ByteArray(), Serdes.ByteArray()))
+                .process(() -> new VerificationProcessor(tracker));
+        return builder.build();
+    }
+
+    /**
+     * Streams configuration: the {@code spring.kafka.streams} properties with the
+     * verification's application id, thread count, serdes and isolation level on top.
+     */
+    private Properties streamsProperties(String applicationId) {
+        Properties properties = new Properties();
+        properties.putAll(kafkaProperties.buildStreamsProperties());
+        properties.put(StreamsConfig.APPLICATION_ID_CONFIG, applicationId);
+        properties.put(StreamsConfig.NUM_STREAM_THREADS_CONFIG, verifyThreads);
+        properties.put(StreamsConfig.DEFAULT_KEY_SERDE_CLASS_CONFIG, Serdes.ByteArray().getClass());
+        properties.put(StreamsConfig.DEFAULT_VALUE_SERDE_CLASS_CONFIG, Serdes.ByteArray().getClass());
+        properties.put(StreamsConfig.consumerPrefix(ConsumerConfig.ISOLATION_LEVEL_CONFIG), "read_committed");
+        properties.put(StreamsConfig.consumerPrefix(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG), "earliest");
+        return properties;
+    }
+
+    /**
+     * Commits the topic's end offsets for the application id's consumer group, so the
+     * topology skips the records of earlier runs.
+     *
+     * @return the number of partitions of the topic
+     */
+    private int commitEndOffsets(String applicationId, String topic) {
+        Map<String, Object> properties = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, applicationId);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        try (Consumer<byte[], byte[]> consumer = new KafkaConsumer<>(properties)) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : consumer.partitionsFor(topic)) {
+                partitions.add(new TopicPartition(topic, info.partition()));
+            }
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            consumer.endOffsets(partitions).forEach((partition, offset) ->
+                    offsets.put(partition, new OffsetAndMetadata(offset)));
+            consumer.commitSync(offsets);
+            return partitions.size();
+        }
+    }
+
+    private void close() {
+        streams.close(verifyTimeout);
+        streams = null;
+    }
+
+    /**
+     * Registers the gauges once; they read whichever verification ran last.
+     */
+    private void registerGauges(String topic) {
+        if (gaugesRegistered) {
+            return;
+        }
+        gaugesRegistered = true;
+        Gauge.builder("verifier.records.consumed", this, v -> v.tracker.getConsumed())
+                .tag("topic", topic)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("verifier.records.delivered", this, v -> v.tracker.getDelivered())
+                .tag("topic", topic)
+                .description("Distinct sequence numbers consumed")
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("verifier.records.per.second", this, v -> v.tracker.getRecordsPerSecond())
+                .tag("topic", topic)
+                .description("Records consumed per second by the verification topology")
+                .strongReference(true)
+                .register(registry);
+        for (double phi : PERCENTILES) {
+            Gauge.builder("verifier.e2e.latency.percentile", this,
+                    v -> v.tracker.latencySnapshot().getValueAtPercentile(phi * 100))
+                    .tag("topic", topic)
+                    .tag("phi", Double.toString(phi))
+                    .baseUnit("milliseconds")
+                    .description("Produce-to-consume latency from record timestamps")
+                    .strongReference(true)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.nadkarni.streamsproducer.verification;
+
+import io.nadkarni.streamsproducer.encoding.CompactRecordFormat;
+import org.apache.kafka.streams.processor.Processor;
+import org.apache.kafka.streams.processor.ProcessorContext;
+
+/**
+ * Stream processor that reads the sequence number of each consumed record and hands it to
+ * the {@link DeliveryTracker}.
+ *
+ * <p>A processor instance belongs to one stream task, and the verification topology has a
+ * single source topic, so it only ever sees one partition. The partition's
+ * {@link PartitionSequences} are looked up once and kept.</p>
+ *
+ * <p>Values are the sequential generator's {@code "Message N"} or a bare {@code "N"}, or
+ * {@code "Message N"} in the compact binary format; the number is parsed from the bytes
+ * without creating a {@code String}. Records with any other value are counted as
+ * unsequenced.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class VerificationProcessor implements Processor<byte[], byte[]> {
+
+    private static final byte[] VALUE_PREFIX = {'M', 'e', 's', 's', 'a', 'g', 'e', ' '};
+
+    /**
+     * Longest digit string parsed; longer ones could overflow a {@code long}.
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private final DeliveryTracker tracker;
+    private ProcessorContext context;
+    private PartitionSequences sequences;
+
+    /**
+     * @param tracker tracker shared by all tasks of the topology
+     */
+    VerificationProcessor(DeliveryTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public void init(ProcessorContext context) {
+        this.context = context;
+    }
+
+    @Override
+    public void process(byte[] key, byte[] value) {
+        int partition = context.partition();
+        if (sequences == null || sequences.getPartition() != partition) {
+            sequences = tracker.partition(partition);
+        }
+        sequences.record(sequence(value));
+        tracker.recordConsumed(context.timestamp());
+    }
+
+    @Override
+    public void close() {
+        sequences = null;
+    }
+
+    /**
+     * Parses the sequence number of a record value.
+     *
+     * @param value {@code "Message N"} or {@code "N"} in ASCII, or a compact {@code "Message N"}
+     * @return {@code N}, or -1 if the value has another form
+     */
+    static long sequence(byte[] value) {
+        if (value == null) {
+            return -1;
+        }
+        if (value.length > 0 && value[0] == CompactRecordFormat.MAGIC) {
+            return CompactRecordFormat.messageNumber(value);
+        }
+        int start = startsWithPrefix(value) ? VALUE_PREFIX.length : 0;
+        int digits = value.length - start;
+        if (digits == 0 || digits > MAX_DIGITS) {
+            return -1;
+        }
+        long seq = 0;
+        for (int i = start; i < value.length; i++) {
+            int digit = value[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            seq = seq * 10 + digit;
+        }
+        return seq;
+    }
+
+    private static boolean startsWithPrefix(byte[] value) {
+        if (value.length < VALUE_PREFIX.length) {
+            return false;
+        }
+        for (int i = 0; i < VALUE_PREFIX.length; i++) {
+            if (value[i] != VALUE_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Verification of a run's delivery by a Kafka Streams topology that consumes the topic.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.verification.StreamsVerifier} - Starts the
+ *       topology before the run and reports after it</li>
+ *   <li>{@code VerificationProcessor} - Parses the sequence number of each record</li>
+ *   <li>{@code DeliveryTracker} - Per-partition state, consumer-side rate and end-to-end
+ *       latency of one verification</li>
+ *   <li>{@link io.nadkarni.streamsproducer.verification.SequenceBitmap} - Paged bitmap of
+ *       the sequence numbers seen</li>
+ *   <li>{@link io.nadkarni.streamsproducer.verification.DeliveryReport} - Missing,
+ *       duplicated and out-of-order counts, rate and latency</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.verification;
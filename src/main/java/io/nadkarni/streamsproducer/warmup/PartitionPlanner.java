@@ -0,0 +1,233 @@
+package io.nadkarni.streamsproducer.warmup;
+
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Checks whether the topic has enough partitions for a target throughput, and recommends
+ * or applies an increase.
+ *
+ * <p>A partition is written by one leader broker and read by at most one consumer of a
+ * group, so the rate one partition sustains bounds the topic's rate by the partition
+ * count. The planner computes
+ * {@code ceil(target rate * plannerHeadroom / rate per partition)} and compares it with
+ * the topic's actual partition count.</p>
+ *
+ * <h3>Rate per Partition:</h3>
+ * <ul>
+ *   <li>{@code plannerPartitionRate} set - the configured rate, for example from an
+ *       earlier load test; the topic is planned before the startup run, so an applied
+ *       increase is in place for it</li>
+ *   <li>otherwise - measured by the startup run as acknowledged records per second
+ *       divided by the partition count, and planned after it for the next run. The
+ *       measurement is only taken from an unpaced run, since a paced one shows the pace.
+ *       A single producer may reach its own limit before the partitions reach theirs, so
+ *       a measured rate errs towards more partitions.</li>
+ * </ul>
+ *
+ * <h3>Target Rate:</h3>
+ * <p>{@code plannerTargetRate}, or {@code targetRate} when that is not set.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Component
+public class PartitionPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionPlanner.class);
+
+    /**
+     * Maximum time each admin operation may take.
+     */
+    private static final long OPERATION_TIMEOUT_SECONDS = 30;
+
+    /**
+     * What the planner does with a topic that has too few partitions.
+     * Configured via the {@code partitionPlanner} property in application.yaml.
+     * Default value: off
+     */
+    @Value("${partitionPlanner:off}")
+    private PlannerMode mode = PlannerMode.OFF;
+
+    /**
+     * Records per second the topic must sustain; 0 uses {@code targetRate}.
+     * Configured via the {@code plannerTargetRate} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${plannerTargetRate:0}")
+    private double plannerTargetRate;
+
+    /**
+     * Records per second one partition sustains; 0 measures it in the startup run.
+     * Configured via the {@code plannerPartitionRate} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${plannerPartitionRate:0}")
+    private double plannerPartitionRate;
+
+    /**
+     * Factor applied to the target rate to leave room for bursts and uneven keys.
+     * Configured via the {@code plannerHeadroom} property in application.yaml.
+     * Default value: 1.25
+     */
+    @Value("${plannerHeadroom:1.25}")
+    private double headroom = 1.25;
+
+    /**
+     * Constant target rate of the run, see {@code Producer}.
+     * Configured via the {@code targetRate} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${targetRate:0}")
+    private double targetRate;
+
+    /**
+     * Rate profile of the run, see {@code Producer}.
+     * Configured via the {@code loadProfile} property in application.yaml.
+     * Default value: empty
+     */
+    @Value("${loadProfile:}")
+    private String loadProfile = "";
+
+    private final KafkaAdmin kafkaAdmin;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaAdmin the auto-configured admin whose configuration the client is built from
+     */
+    public PartitionPlanner(KafkaAdmin kafkaAdmin) {
+        this.kafkaAdmin = kafkaAdmin;
+    }
+
+    /**
+     * @return {@code true} unless {@code partitionPlanner} is {@code off}
+     */
+    public boolean isEnabled() {
+        return mode != PlannerMode.OFF;
+    }
+
+    /**
+     * Plans the topic from the configured rate per partition, if there is one.
+     *
+     * @param topic the topic the run sends to
+     * @return the topic's partition count after planning, or 0 if it was not planned
+     * @throws IllegalStateException if the brokers reject or do not answer a request
+     */
+    public int planBeforeRun(String topic) {
+        if (!isEnabled() || plannerPartitionRate <= 0) {
+            return 0;
+        }
+        try (Admin admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            return plan(admin, topic, 0);
+        }
+    }
+
+    /**
+     * Plans the topic from the rate per partition measured by a finished run, unless a rate
+     * is configured.
+     *
+     * @param topic      the topic the run sent to
+     * @param statistics counters of the finished run
+     * @throws IllegalStateException if the brokers reject or do not answer a request
+     */
+    public void planAfterRun(String topic, SendStatistics statistics) {
+        if (!isEnabled() || plannerPartitionRate > 0) {
+            return;
+        }
+        if (targetRate > 0 || StringUtils.hasText(loadProfile)) {
+            logger.warn("A paced run does not show the rate a partition sustains; set plannerPartitionRate "
+                    + "or plan from an unpaced run");
+            return;
+        }
+        try (Admin admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            plan(admin, topic, statistics.getAckedPerSecond());
+        }
+    }
+
+    /**
+     * Compares the topic's partition count with the required one and, in
+     * {@link PlannerMode#APPLY} mode, adds the missing partitions.
+     *
+     * @param admin          client used for every request
+     * @param topic          the topic to plan
+     * @param ackedPerSecond acknowledged records per second of the run, used when no rate
+     *                       per partition is configured
+     * @return the topic's partition count after planning, or 0 if it was not planned
+     * @throws IllegalStateException if the brokers reject or do not answer a request
+     */
+    int plan(Admin admin, String topic, double ackedPerSecond) {
+        double target = plannerTargetRate > 0 ? plannerTargetRate : targetRate;
+        if (target <= 0) {
+            logger.warn("The partition planner needs plannerTargetRate or targetRate; " + topic + " is not planned");
+            return 0;
+        }
+        try {
+            int partitions = admin.describeTopics(Collections.singleton(topic)).all()
+                    .get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS).get(topic).partitions().size();
+            boolean measured = plannerPartitionRate <= 0;
+            double partitionRate = measured ? ackedPerSecond / partitions : plannerPartitionRate;
+            if (partitionRate <= 0) {
+                logger.warn("No records were acknowledged; " + topic + " is not planned");
+                return 0;
+            }
+            int required = requiredPartitions(target, partitionRate, headroom);
+            String basis = String.format("%.0f records/sec with %.0f%% headroom at %.0f records/sec per partition (%s)",
+                    target, (headroom - 1) * 100, partitionRate, measured ? "measured" : "configured");
+            if (required <= partitions) {
+                logger.info("Topic " + topic + " has " + partitions + " partitions; " + required + " needed for "
+                        + basis);
+                return partitions;
+            }
+            if (mode == PlannerMode.RECOMMEND) {
+                logger.warn("Topic " + topic + " has " + partitions + " partitions; recommend increasing to "
+                        + required + " for " + basis);
+                return partitions;
+            }
+            admin.createPartitions(Collections.singletonMap(topic, NewPartitions.increaseTo(required))).all()
+                    .get(OPERATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            logger.info("Increased the partitions of topic " + topic + " from " + partitions + " to " + required
+                    + " for " + basis);
+            return required;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot plan the partitions of " + topic, e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out planning the partitions of " + topic, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while planning the partitions of " + topic, e);
+        }
+    }
+
+    /**
+     * Computes the partitions needed for a target rate.
+     *
+     * @param targetRate    records per second the topic must sustain
+     * @param partitionRate records per second one partition sustains
+     * @param headroom      factor of at least 1 applied to the target rate
+     * @return the partition count, at least 1
+     * @throws IllegalArgumentException if a rate is not positive or the headroom is below 1
+     */
+    static int requiredPartitions(double targetRate, double partitionRate, double headroom) {
+        if (!(targetRate > 0) || !(partitionRate > 0) || !(headroom >= 1)) {
+            throw new IllegalArgumentException("Rates must be positive and plannerHeadroom at least 1: target="
+                    + targetRate + ", partition=" + partitionRate + ", headroom=" + headroom);
+        }
+        double partitions = Math.ceil(targetRate * headroom / partitionRate);
+        return partitions >= Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.max(1, (int) partitions);
+    }
+}
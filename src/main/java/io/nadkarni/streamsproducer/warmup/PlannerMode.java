@@ -0,0 +1,30 @@
+package io.nadkarni.streamsproducer.warmup;
+
+/**
+ * What the {@link PartitionPlanner} does when the topic has too few partitions for the
+ * target rate.
+ *
+ * <p>Selected through the {@code partitionPlanner} property in application.yaml.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public enum PlannerMode {
+
+    /**
+     * The planner is not used.
+     */
+    OFF,
+
+    /**
+     * The required partition count is logged, and the topic is left unchanged.
+     */
+    RECOMMEND,
+
+    /**
+     * Partitions are added to the topic up to the required count. Keys written before
+     * then may map to a different partition afterwards.
+     */
+    APPLY
+}
@@ -0,0 +1,321 @@
+package io.nadkarni.streamsproducer.warmup;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Readies a topic and the producer before the timed run, so that the run's first seconds
+ * measure sending rather than setup.
+ *
+ * <p>Without it the first sends block on work that happens once: the {@code NewTopic}
+ * bean is created without waiting for partition leaders, the producer fetches the topic's
+ * metadata on its first send, and it connects to each leader broker only when it first
+ * has a batch for that broker. All of this lands in the first records' latency and the
+ * run's throughput.</p>
+ *
+ * <h3>Steps:</h3>
+ * <ol>
+ *   <li>Wait, through an admin client, until the topic exists with at least the expected
+ *       number of partitions and every partition has a leader</li>
+ *   <li>Wait until the producer's own metadata covers every partition with its leader</li>
+ *   <li>With {@code warmUpRecords} set, send that many records and wait for their
+ *       acknowledgements. The first ones go to one partition of each leader broker, so the
+ *       producer opens a connection to every leader; the producer has no other way to
+ *       connect ahead of its first batch.</li>
+ * </ol>
+ *
+ * <h3>Warm-Up Records:</h3>
+ * <p>Warm-up records go to the topic itself, with key {@code warmup}, value
+ * {@code warmup N} and the {@value #WARM_UP_HEADER} header, before the run's statistics,
+ * latency histograms and any verification start. Consumers that must not see them can
+ * skip records with the header.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class StartupWarmUp {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    /**
+     * Header carried by every warm-up record.
+     */
+    public static final String WARM_UP_HEADER = "streams-producer-warmup";
+
+    /**
+     * Time between two checks of a topic that is not ready yet.
+     */
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Time a fully led topic with fewer partitions than expected is given to grow, for
+     * partitions that are still being added, before it is accepted as it is.
+     */
+    private static final long PARTITION_GRACE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * Whether the startup run is preceded by a warm-up.
+     * Configured via the {@code warmUp} property in application.yaml.
+     * Default value: true
+     */
+    @Value("${warmUp:true}")
+    private boolean enabled = true;
+
+    /**
+     * Maximum time the warm-up may take per topic.
+     * Configured via the {@code warmUpTimeout} property in application.yaml.
+     * Default value: 60s
+     */
+    @Value("${warmUpTimeout:60s}")
+    private Duration timeout = Duration.ofSeconds(60);
+
+    /**
+     * Number of records sent and acknowledged before the run; 0 sends none.
+     * Configured via the {@code warmUpRecords} property in application.yaml.
+     * Default value: 0
+     */
+    @Value("${warmUpRecords:0}")
+    private int warmUpRecords;
+
+    private final KafkaTemplate<Object, Object> kafkaTemplate;
+    private final KafkaAdmin kafkaAdmin;
+
+    /**
+     * Constructor for dependency injection.
+     *
+     * @param kafkaTemplate the auto-configured template the run sends through
+     * @param kafkaAdmin    the auto-configured admin whose configuration the client is built from
+     */
+    public StartupWarmUp(KafkaTemplate<Object, Object> kafkaTemplate, KafkaAdmin kafkaAdmin) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.kafkaAdmin = kafkaAdmin;
+    }
+
+    /**
+     * @return {@code true} if {@code warmUp} is enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Warms up one topic through a new admin client.
+     *
+     * @param topic      the topic the run sends to
+     * @param partitions the number of partitions the topic is expected to have
+     * @throws IllegalStateException if the topic is not ready, or a warm-up record fails,
+     *         within {@code warmUpTimeout}
+     */
+    public void warmUp(String topic, int partitions) {
+        try (Admin admin = AdminClient.create(kafkaAdmin.getConfigurationProperties())) {
+            warmUp(admin, topic, partitions);
+        }
+    }
+
+    /**
+     * Warms up one topic through the given admin client.
+     *
+     * @param admin      client used to describe the topic
+     * @param topic      the topic the run sends to
+     * @param partitions the number of partitions the topic is expected to have
+     * @throws IllegalStateException if the topic is not ready, or a warm-up record fails,
+     *         within {@code warmUpTimeout}
+     */
+    void warmUp(Admin admin, String topic, int partitions) {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        try {
+            TopicDescription description = awaitTopic(admin, topic, partitions, deadline);
+            long ready = System.nanoTime();
+            List<PartitionInfo> metadata = awaitMetadata(topic, description.partitions().size(), deadline);
+            long fetched = System.nanoTime();
+            StringBuilder summary = new StringBuilder(String.format(
+                    "Warm-up of %s: %d partitions led by %d brokers after %d ms, producer metadata after %d ms",
+                    topic, description.partitions().size(), leaders(description).size(),
+                    (ready - start) / 1_000_000, (fetched - ready) / 1_000_000));
+            if (warmUpRecords > 0) {
+                List<Integer> order = sendOrder(metadata);
+                long acknowledged = sendWarmUpRecords(topic, order, deadline);
+                int brokers = leaderCount(metadata, order.subList(0, Math.min(warmUpRecords, order.size())));
+                summary.append(String.format(", %d warm-up records to %d brokers acknowledged after %d ms",
+                        warmUpRecords, brokers, (acknowledged - fetched) / 1_000_000));
+            }
+            logger.info(summary.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while warming up " + topic, e);
+        }
+    }
+
+    /**
+     * Waits until the topic exists with every partition led. A led topic with fewer
+     * partitions than expected is accepted with a warning once it has stayed that way for
+     * the grace period.
+     */
+    private TopicDescription awaitTopic(Admin admin, String topic, int partitions, long deadline)
+            throws InterruptedException {
+        TopicDescription usable = null;
+        long usableSince = 0;
+        String reason;
+        while (true) {
+            try {
+                TopicDescription description = admin.describeTopics(Collections.singleton(topic)).all()
+                        .get(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS).get(topic);
+                boolean led = description.partitions().stream().allMatch(StartupWarmUp::isLed);
+                if (led && description.partitions().size() >= partitions) {
+                    return description;
+                }
+                if (led && usable == null) {
+                    usableSince = System.nanoTime();
+                }
+                usable = led ? description : null;
+                reason = led ? description.partitions().size() + " of " + partitions + " partitions"
+                        : "partitions without a leader";
+            } catch (ExecutionException e) {
+                if (!(e.getCause() instanceof UnknownTopicOrPartitionException)) {
+                    throw new IllegalStateException("Cannot describe topic " + topic, e.getCause());
+                }
+                reason = "topic does not exist";
+            } catch (TimeoutException e) {
+                reason = "no answer from the brokers";
+            }
+            long now = System.nanoTime();
+            if (now - deadline >= 0 || (usable != null && now - usableSince >= PARTITION_GRACE_NANOS)) {
+                if (usable != null) {
+                    logger.warn("Topic " + topic + " has " + usable.partitions().size() + " partitions, fewer than the "
+                            + partitions + " expected; warming up the existing ones");
+                    return usable;
+                }
+                throw new IllegalStateException("Topic " + topic + " not ready after " + timeout.toMillis()
+                        + " ms: " + reason);
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Waits until the producer knows the leader of every partition.
+     */
+    private List<PartitionInfo> awaitMetadata(String topic, int partitions, long deadline)
+            throws InterruptedException {
+        while (true) {
+            List<PartitionInfo> metadata = kafkaTemplate.partitionsFor(topic);
+            if (metadata.size() >= partitions && metadata.stream().allMatch(info -> isLed(info.leader()))) {
+                return metadata;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                logger.warn("The producer's metadata for " + topic + " covers " + metadata.size() + " of "
+                        + partitions + " partitions with leaders; continuing");
+                return metadata;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Sends the warm-up records and waits for all of them.
+     *
+     * @return the time the last one was acknowledged
+     */
+    private long sendWarmUpRecords(String topic, List<Integer> order, long deadline) throws InterruptedException {
+        List<ListenableFuture<SendResult<Object, Object>>> futures = new ArrayList<>(warmUpRecords);
+        for (int n = 0; n < warmUpRecords; n++) {
+            Integer partition = order.isEmpty() ? null : order.get(n % order.size());
+            RecordHeaders headers = new RecordHeaders();
+            headers.add(new RecordHeader(WARM_UP_HEADER, new byte[]{1}));
+            futures.add(kafkaTemplate.send(new ProducerRecord<>(topic, partition, null, "warmup", "warmup " + n,
+                    headers)));
+        }
+        kafkaTemplate.flush();
+        for (ListenableFuture<SendResult<Object, Object>> future : futures) {
+            try {
+                future.get(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Warm-up record to " + topic + " failed", e.getCause());
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("Warm-up records to " + topic + " not acknowledged after "
+                        + timeout.toMillis() + " ms", e);
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Orders the partitions so that the first ones have distinct leaders, followed by the
+     * rest in partition order.
+     *
+     * @param metadata the producer's view of the topic
+     * @return partition numbers, each once
+     */
+    static List<Integer> sendOrder(List<PartitionInfo> metadata) {
+        List<Integer> first = new ArrayList<>();
+        List<Integer> rest = new ArrayList<>();
+        Set<Integer> brokers = new HashSet<>();
+        List<PartitionInfo> sorted = new ArrayList<>(metadata);
+        sorted.sort((a, b) -> Integer.compare(a.partition(), b.partition()));
+        for (PartitionInfo info : sorted) {
+            if (isLed(info.leader()) && brokers.add(info.leader().id())) {
+                first.add(info.partition());
+            } else {
+                rest.add(info.partition());
+            }
+        }
+        first.addAll(rest);
+        return first;
+    }
+
+    private static int leaderCount(List<PartitionInfo> metadata, List<Integer> partitions) {
+        Set<Integer> brokers = new HashSet<>();
+        for (PartitionInfo info : metadata) {
+            if (partitions.contains(info.partition()) && isLed(info.leader())) {
+                brokers.add(info.leader().id());
+            }
+        }
+        return brokers.size();
+    }
+
+    private static Set<Integer> leaders(TopicDescription description) {
+        Set<Integer> brokers = new LinkedHashSet<>();
+        for (TopicPartitionInfo info : description.partitions()) {
+            brokers.add(info.leader().id());
+        }
+        return brokers;
+    }
+
+    private static boolean isLed(TopicPartitionInfo info) {
+        return isLed(info.leader());
+    }
+
+    private static boolean isLed(Node leader) {
+        return leader != null && !leader.isEmpty();
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Preparation of the topic and the producer before the startup run.
+ *
+ * <h2>Components</h2>
+ * <ul>
+ *   <li>{@link io.nadkarni.streamsproducer.warmup.StartupWarmUp} - Waits for partition
+ *       leaders and producer metadata, and sends warm-up records to every leader</li>
+ *   <li>{@link io.nadkarni.streamsproducer.warmup.PartitionPlanner} - Checks the partition
+ *       count against a target rate and recommends or applies an increase</li>
+ *   <li>{@link io.nadkarni.streamsproducer.warmup.PlannerMode} - What the planner does with
+ *       too few partitions</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+package io.nadkarni.streamsproducer.warmup;
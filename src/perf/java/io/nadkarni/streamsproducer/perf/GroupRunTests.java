@@ -0,0 +1,182 @@
+package io.nadkarni.streamsproducer.perf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.Producer;
+import io.nadkarni.streamsproducer.SendMode;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoints;
+import io.nadkarni.streamsproducer.chunking.MessageChunker;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.fanout.FanOutProperties;
+import io.nadkarni.streamsproducer.group.GroupMember;
+import io.nadkarni.streamsproducer.group.GroupReport;
+import io.nadkarni.streamsproducer.group.GroupShard;
+import io.nadkarni.streamsproducer.group.LoadGroup;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import io.nadkarni.streamsproducer.sessions.SessionSimulator;
+import io.nadkarni.streamsproducer.spool.RecordSpools;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends one run from a coordinated group of {@value #MEMBERS} producer instances on an
+ * embedded Kafka broker, and checks that together they send every key exactly once and
+ * agree on the group report.
+ *
+ * <p>Each instance has its own {@link Producer}, Kafka producer and latency histograms,
+ * and joins the group through the context's {@link LoadGroup} on its own thread, as
+ * separate JVMs would through the control topic.</p>
+ *
+ * <p>Only compiled with the {@code perf-regression} Maven profile:</p>
+ * <pre>
+ * mvn -P perf-regression test -Dtest=GroupRunTests
+ * </pre>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "topic=" + GroupRunTests.TOPIC,
+        "numPartitions=" + GroupRunTests.PARTITIONS,
+        "runOnStartup=false",
+        "groupSize=" + GroupRunTests.MEMBERS,
+        "groupId=group-run-tests",
+        "groupTimeout=60s"})
+@EmbeddedKafka(partitions = GroupRunTests.PARTITIONS, topics = GroupRunTests.TOPIC)
+class GroupRunTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(GroupRunTests.class);
+
+    static final String TOPIC = "group-run";
+    static final int PARTITIONS = 6;
+    static final int MEMBERS = 3;
+
+    private static final int RECORDS = 30_000;
+
+    @Autowired
+    private LoadGroup loadGroup;
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    /**
+     * Every member sends its own range at the same time, and the group report covers them all.
+     */
+    @Test
+    void membersSendDisjointRangesOfOneRun() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(MEMBERS);
+        List<CompletableFuture<GroupReport>> reports = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            reports.add(CompletableFuture.supplyAsync(this::runMember, executor));
+        }
+        List<GroupReport> results = new ArrayList<>();
+        for (CompletableFuture<GroupReport> report : reports) {
+            results.add(report.get(2, TimeUnit.MINUTES));
+        }
+        executor.shutdown();
+
+        logger.info(results.get(0).summary());
+        for (GroupReport report : results) {
+            assertThat(report.isComplete()).isTrue();
+            assertThat(report.getAcked()).isEqualTo(RECORDS);
+            assertThat(report.getFailed()).isZero();
+            assertThat(report.getLatency().getTotalCount()).isEqualTo(RECORDS);
+            assertThat(report.getAckedPerSecond()).isEqualTo(results.get(0).getAckedPerSecond());
+        }
+        assertThat(consumeKeys()).isEqualTo(IntStream.range(0, RECORDS).mapToObj(Integer::toString)
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * One instance: joins the group, sends its range once everyone is ready, and reports.
+     */
+    private GroupReport runMember() {
+        Map<String, Object> properties = new HashMap<>(kafkaProperties.buildProducerProperties());
+        KafkaTemplate<Object, Object> kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(properties));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SendLatencyRecorders latencyRecorders = new SendLatencyRecorders(registry);
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        Producer producer = new Producer(kafkaTemplate, new ParallelProducerEngine(kafkaTemplate, null, null),
+                new SessionSimulator(kafkaTemplate),
+                new FanOutProducer(kafkaTemplate, new FanOutProperties(), null, workloadFactory, latencyRecorders),
+                latencyRecorders, workloadFactory, new RecordSpools(registry), new RunCheckpoints(),
+                new MessageChunker());
+        ReflectionTestUtils.setField(producer, "topicName", TOPIC);
+        ReflectionTestUtils.setField(producer, "numEvents", RECORDS);
+        ReflectionTestUtils.setField(producer, "sendMode", SendMode.PIPELINED);
+        ReflectionTestUtils.setField(producer, "maxInFlightRecords", 10_000);
+        ReflectionTestUtils.setField(producer, "maxInFlightBytes", 1 << 24);
+        ReflectionTestUtils.setField(producer, "drainTimeoutMs", 30_000L);
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.ASCII);
+        try (GroupMember member = loadGroup.join(producer.getNumberOfEvents())) {
+            member.awaitStart();
+            GroupShard shard = member.getShard();
+            SendStatistics statistics = producer.send(shard.getFirst(), shard.getCount());
+            assertThat(statistics.getAcked()).isEqualTo(shard.getCount());
+            return member.finish(statistics, latencyRecorders.forTopic(TOPIC).overallHistogram());
+        } finally {
+            kafkaTemplate.destroy();
+        }
+    }
+
+    /**
+     * Reads the keys of every record in the topic, failing on a duplicate.
+     */
+    private Set<String> consumeKeys() {
+        Map<String, Object> properties = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        Set<String> keys = new HashSet<>();
+        try (Consumer<String, String> consumer = new KafkaConsumer<>(properties)) {
+            List<TopicPartition> partitions = IntStream.range(0, PARTITIONS)
+                    .mapToObj(p -> new TopicPartition(TOPIC, p)).collect(Collectors.toList());
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            long deadline = System.currentTimeMillis() + 60_000;
+            while (keys.size() < RECORDS && System.currentTimeMillis() < deadline) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(500))) {
+                    assertThat(keys.add(record.key())).as("duplicate key %s", record.key()).isTrue();
+                }
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,221 @@
+package io.nadkarni.streamsproducer.perf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.Producer;
+import io.nadkarni.streamsproducer.SendMode;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoints;
+import io.nadkarni.streamsproducer.chunking.ChunkReassembler;
+import io.nadkarni.streamsproducer.chunking.MessageChunker;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.fanout.FanOutProperties;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import io.nadkarni.streamsproducer.sessions.SessionSimulator;
+import io.nadkarni.streamsproducer.spool.RecordSpools;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares large messages sent whole with the same messages split by the
+ * {@link MessageChunker}, across payload sizes, on an embedded Kafka broker.
+ *
+ * <p>The broker's {@code message.max.bytes} is raised so that the unchunked runs, with a
+ * matching {@code max.request.size}, can send the largest payload at all; the chunked runs
+ * keep the client's default request size and send {@value #CHUNK_BYTES}-byte chunks. For
+ * every payload size both modes send about {@value #BYTES_PER_RUN} bytes after a short
+ * warm-up, and the log reports:</p>
+ * <ul>
+ *   <li>messages and megabytes acknowledged per second</li>
+ *   <li>p50 and p99 latency of the records from the message's intended send time; a chunk
+ *       is sent with the time of its message, so its latency includes waiting for the
+ *       chunks before it</li>
+ * </ul>
+ * <p>Both topics are then read back with a {@link ChunkReassembler}, which must return
+ * every message at its full size. There is no baseline: the results are a report.</p>
+ *
+ * <p>Only compiled with the {@code perf-regression} Maven profile:</p>
+ * <pre>
+ * mvn -P perf-regression test -Dtest=LargeMessageTests
+ * </pre>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "topic=" + LargeMessageTests.WHOLE_TOPIC,
+        "numPartitions=" + LargeMessageTests.PARTITIONS,
+        "runOnStartup=false"})
+@EmbeddedKafka(partitions = LargeMessageTests.PARTITIONS,
+        topics = {LargeMessageTests.WHOLE_TOPIC, LargeMessageTests.CHUNKED_TOPIC},
+        brokerProperties = {"message.max.bytes=" + LargeMessageTests.MAX_REQUEST_BYTES,
+                "replica.fetch.max.bytes=" + LargeMessageTests.MAX_REQUEST_BYTES})
+class LargeMessageTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(LargeMessageTests.class);
+
+    static final String WHOLE_TOPIC = "large-whole";
+    static final String CHUNKED_TOPIC = "large-chunked";
+    static final int PARTITIONS = 3;
+
+    /**
+     * Request and message size limit of the unchunked runs: the largest payload and room for
+     * the record overhead.
+     */
+    static final int MAX_REQUEST_BYTES = 9 << 20;
+
+    private static final int CHUNK_BYTES = 512 << 10;
+    private static final long BYTES_PER_RUN = 256L << 20;
+    private static final int WARMUP_MESSAGES = 8;
+    private static final int[] PAYLOAD_SIZES = {512 << 10, 2 << 20, 8 << 20};
+
+    @Autowired
+    private KafkaProperties kafkaProperties;
+
+    /**
+     * Every payload sent as one record, under raised request and message limits.
+     */
+    @Test
+    void wholeMessages() {
+        Map<String, Object> properties = new HashMap<>(kafkaProperties.buildProducerProperties());
+        properties.put(ProducerConfig.MAX_REQUEST_SIZE_CONFIG, MAX_REQUEST_BYTES);
+        Map<Integer, Integer> sent = measure(WHOLE_TOPIC, properties, 0);
+        assertThat(consume(WHOLE_TOPIC, sent)).isEqualTo(sent);
+    }
+
+    /**
+     * Every payload split into chunks under the default request limit.
+     */
+    @Test
+    void chunkedMessages() {
+        Map<String, Object> properties = new HashMap<>(kafkaProperties.buildProducerProperties());
+        properties.remove(ProducerConfig.MAX_REQUEST_SIZE_CONFIG);
+        Map<Integer, Integer> sent = measure(CHUNKED_TOPIC, properties, CHUNK_BYTES);
+        assertThat(consume(CHUNKED_TOPIC, sent)).isEqualTo(sent);
+    }
+
+    /**
+     * Warms up and measures one run per payload size.
+     *
+     * @return the number of messages sent of each size
+     */
+    private Map<Integer, Integer> measure(String topic, Map<String, Object> properties, int chunkBytes) {
+        KafkaTemplate<Object, Object> kafkaTemplate = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(properties));
+        Map<Integer, Integer> sent = new TreeMap<>();
+        try {
+            for (int size : PAYLOAD_SIZES) {
+                int messages = (int) Math.max(WARMUP_MESSAGES, BYTES_PER_RUN / size);
+                SimpleMeterRegistry registry = new SimpleMeterRegistry();
+                SendLatencyRecorders latencyRecorders = new SendLatencyRecorders(registry);
+                Producer producer = producer(kafkaTemplate, topic, size, chunkBytes, latencyRecorders, registry);
+                ReflectionTestUtils.setField(producer, "numEvents", WARMUP_MESSAGES);
+                producer.send();
+
+                ReflectionTestUtils.setField(producer, "numEvents", messages);
+                SendStatistics statistics = producer.send();
+                assertThat(statistics.getFailed()).isZero();
+                sent.put(size, WARMUP_MESSAGES + messages);
+
+                double seconds = Math.max(1, statistics.getElapsedMillis()) / 1000.0;
+                Histogram latency = latencyRecorders.forTopic(topic).overallHistogram();
+                logger.info(String.format("%s %d KiB: %.1f messages/s, %.1f MB/s, %d records, "
+                                + "record latency p50=%.1f ms p99=%.1f ms",
+                        chunkBytes > 0 ? "chunked" : "whole", size >> 10, messages / seconds,
+                        (double) messages * size / seconds / 1e6, statistics.getAcked(),
+                        latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0));
+            }
+        } finally {
+            kafkaTemplate.destroy();
+        }
+        return sent;
+    }
+
+    private Producer producer(KafkaTemplate<Object, Object> kafkaTemplate, String topic, int size, int chunkBytes,
+                              SendLatencyRecorders latencyRecorders, SimpleMeterRegistry registry) {
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        ReflectionTestUtils.setField(workloadFactory, "payloadGenerator", "random");
+        ReflectionTestUtils.setField(workloadFactory, "payloadSize", "fixed:" + size);
+        ReflectionTestUtils.setField(workloadFactory, "payloadCorpusSize", 4);
+        MessageChunker chunker = new MessageChunker();
+        ReflectionTestUtils.setField(chunker, "chunkBytes", chunkBytes);
+        Producer producer = new Producer(kafkaTemplate, new ParallelProducerEngine(kafkaTemplate, null, null),
+                new SessionSimulator(kafkaTemplate),
+                new FanOutProducer(kafkaTemplate, new FanOutProperties(), null, workloadFactory, latencyRecorders),
+                latencyRecorders, workloadFactory, new RecordSpools(registry), new RunCheckpoints(), chunker);
+        ReflectionTestUtils.setField(producer, "topicName", topic);
+        ReflectionTestUtils.setField(producer, "sendMode", SendMode.PIPELINED);
+        ReflectionTestUtils.setField(producer, "maxInFlightRecords", 10_000);
+        ReflectionTestUtils.setField(producer, "maxInFlightBytes", 1 << 26);
+        ReflectionTestUtils.setField(producer, "drainTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.ASCII);
+        return producer;
+    }
+
+    /**
+     * Reads a topic back through a {@link ChunkReassembler}.
+     *
+     * @return the number of whole messages read of each size
+     */
+    private Map<Integer, Integer> consume(String topic, Map<Integer, Integer> expected) {
+        int total = expected.values().stream().mapToInt(Integer::intValue).sum();
+        Map<String, Object> properties = new HashMap<>(kafkaProperties.buildConsumerProperties());
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, MAX_REQUEST_BYTES);
+        ChunkReassembler reassembler = new ChunkReassembler(4L * MAX_REQUEST_BYTES, Duration.ofMinutes(1));
+        Map<Integer, Integer> received = new TreeMap<>();
+        int messages = 0;
+        try (Consumer<byte[], byte[]> consumer = new KafkaConsumer<>(properties)) {
+            List<TopicPartition> partitions = IntStream.range(0, PARTITIONS)
+                    .mapToObj(p -> new TopicPartition(topic, p)).collect(Collectors.toList());
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            long deadline = System.currentTimeMillis() + 120_000;
+            while (messages < total && System.currentTimeMillis() < deadline) {
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(Duration.ofMillis(500))) {
+                    byte[] value = reassembler.accept(record);
+                    if (value != null) {
+                        received.merge(value.length, 1, Integer::sum);
+                        messages++;
+                    }
+                }
+            }
+        }
+        assertThat(reassembler.getChecksumFailures()).isZero();
+        assertThat(reassembler.getEvicted()).isZero();
+        return received;
+    }
+}
@@ -0,0 +1,195 @@
+package io.nadkarni.streamsproducer.perf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stored performance results that later runs of the suite must not fall behind.
+ *
+ * <p>The baseline is a properties file with three entries per scenario:
+ * {@code <scenario>.recordsPerSecond}, {@code <scenario>.p99Millis} and
+ * {@code <scenario>.bytesPerRecord}. A result regresses when its throughput is more than
+ * the tolerance below the baseline, or its p99 latency or allocation more than the
+ * tolerance above it. Latency and allocation also get a small absolute allowance, so that
+ * a baseline of a few milliseconds or bytes does not fail on noise.</p>
+ *
+ * <p>Configured through system properties, which the {@code perf-regression} Maven profile
+ * sets:</p>
+ * <ul>
+ *   <li>{@code perf.baseline} - path of the baseline file</li>
+ *   <li>{@code perf.tolerance} - allowed relative regression, e.g. {@code 0.25}</li>
+ *   <li>{@code perf.updateBaseline} - write the results to the baseline file instead of
+ *       checking them</li>
+ * </ul>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+final class PerformanceBaseline {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceBaseline.class);
+
+    private static final String DEFAULT_FILE = "src/perf/resources/perf-baseline.properties";
+
+    /**
+     * Latency a result may exceed its baseline by regardless of the tolerance.
+     */
+    private static final double LATENCY_ALLOWANCE_MS = 5;
+
+    /**
+     * Allocation per record a result may exceed its baseline by regardless of the tolerance.
+     */
+    private static final double ALLOCATION_ALLOWANCE_BYTES = 32;
+
+    private final Path file;
+    private final double tolerance;
+    private final boolean update;
+    private final Properties baseline = new Properties();
+    private final Map<String, Result> results = new TreeMap<>();
+
+    private PerformanceBaseline(Path file, double tolerance, boolean update) {
+        this.file = file;
+        this.tolerance = tolerance;
+        this.update = update;
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+                baseline.load(reader);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read baseline " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return the baseline configured by the {@code perf.*} system properties
+     */
+    static PerformanceBaseline fromSystemProperties() {
+        return new PerformanceBaseline(Paths.get(System.getProperty("perf.baseline", DEFAULT_FILE)),
+                Double.parseDouble(System.getProperty("perf.tolerance", "0.25")),
+                Boolean.parseBoolean(System.getProperty("perf.updateBaseline", "false")));
+    }
+
+    /**
+     * Records a result and, unless the baseline is being updated, fails if it regressed.
+     * Scenarios without a baseline entry pass.
+     *
+     * @param result result of one scenario
+     * @throws AssertionError if the result is worse than the baseline allows
+     */
+    void check(Result result) {
+        results.put(result.scenario, result);
+        if (update) {
+            return;
+        }
+        String scenario = result.scenario;
+        if (!baseline.containsKey(scenario + ".recordsPerSecond")) {
+            logger.warn("No baseline for " + scenario + " in " + file + "; run with -Dperf.updateBaseline=true");
+            return;
+        }
+        List<String> regressions = new ArrayList<>();
+        double recordsPerSecond = value(scenario, "recordsPerSecond");
+        if (result.recordsPerSecond < recordsPerSecond * (1 - tolerance)) {
+            regressions.add(String.format("throughput %.0f records/sec is below %.0f", result.recordsPerSecond,
+                    recordsPerSecond));
+        }
+        double p99Millis = value(scenario, "p99Millis");
+        if (p99Millis >= 0 && result.p99Millis > p99Millis * (1 + tolerance) + LATENCY_ALLOWANCE_MS) {
+            regressions.add(String.format("p99 latency %.1f ms is above %.1f ms", result.p99Millis, p99Millis));
+        }
+        double bytesPerRecord = value(scenario, "bytesPerRecord");
+        if (result.bytesPerRecord >= 0 && bytesPerRecord >= 0
+                && result.bytesPerRecord > bytesPerRecord * (1 + tolerance) + ALLOCATION_ALLOWANCE_BYTES) {
+            regressions.add(String.format("allocation %.0f bytes/record is above %.0f", result.bytesPerRecord,
+                    bytesPerRecord));
+        }
+        assertThat(regressions).as("Regressions of %s against %s (tolerance %.0f%%)", scenario, file,
+                tolerance * 100).isEmpty();
+    }
+
+    /**
+     * Writes the recorded results to the baseline file if {@code perf.updateBaseline} is
+     * set, keeping the entries of scenarios that did not run.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void writeIfUpdating() throws IOException {
+        if (!update || results.isEmpty()) {
+            return;
+        }
+        Map<String, String> entries = new TreeMap<>();
+        baseline.stringPropertyNames().forEach(name -> entries.put(name, baseline.getProperty(name)));
+        for (Result result : results.values()) {
+            entries.put(result.scenario + ".recordsPerSecond",
+                    String.format(Locale.ROOT, "%.0f", result.recordsPerSecond));
+            entries.put(result.scenario + ".p99Millis",
+                    String.format(Locale.ROOT, "%.1f", result.p99Millis));
+            entries.put(result.scenario + ".bytesPerRecord",
+                    String.format(Locale.ROOT, "%.0f", result.bytesPerRecord));
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+            writer.write("# Baseline of ProducerPerformanceTests, written with -Dperf.updateBaseline=true");
+            writer.newLine();
+            writer.write("# bytesPerRecord is -1 for scenarios whose records are sent by worker threads");
+            writer.newLine();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue());
+                writer.newLine();
+            }
+        }
+        logger.info("Wrote baseline of " + results.size() + " scenarios to " + file);
+    }
+
+    private double value(String scenario, String metric) {
+        return Double.parseDouble(baseline.getProperty(scenario + "." + metric, "-1"));
+    }
+
+    /**
+     * Measurements of one scenario.
+     */
+    static final class Result {
+
+        private final String scenario;
+        private final double recordsPerSecond;
+        private final double p99Millis;
+        private final double bytesPerRecord;
+
+        /**
+         * @param scenario         name of the scenario
+         * @param recordsPerSecond acknowledged records per second
+         * @param p99Millis        p99 send-to-acknowledgement latency in milliseconds
+         * @param bytesPerRecord   bytes allocated by the sending thread per record, or -1 if
+         *                         not measured
+         */
+        Result(String scenario, double recordsPerSecond, double p99Millis, double bytesPerRecord) {
+            this.scenario = scenario;
+            this.recordsPerSecond = recordsPerSecond;
+            this.p99Millis = p99Millis;
+            this.bytesPerRecord = bytesPerRecord;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.0f records/sec, p99 %.1f ms, %s", scenario, recordsPerSecond, p99Millis,
+                    bytesPerRecord < 0 ? "allocation not measured" : String.format("%.0f bytes/record",
+                            bytesPerRecord));
+        }
+    }
+}
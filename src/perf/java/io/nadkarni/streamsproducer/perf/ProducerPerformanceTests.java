@@ -0,0 +1,190 @@
+package io.nadkarni.streamsproducer.perf;
+
+import io.nadkarni.streamsproducer.Producer;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.partitioning.Partitioning;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Performance regression suite: sends fixed workloads through the {@link Producer}'s modes
+ * on an embedded Kafka broker and compares the results with a stored
+ * {@link PerformanceBaseline}.
+ *
+ * <p>The full application context is started against the broker with {@code runOnStartup}
+ * disabled, so the suite also checks that the context loads without outside services.
+ * Each scenario configures the context's beans, sends {@value #WARMUP_RECORDS} records to
+ * warm up the JIT, the connections and the topic's batches, then measures a run of
+ * {@value #RECORDS} records:</p>
+ * <ul>
+ *   <li>acknowledged records per second, from the run's {@link SendStatistics}</li>
+ *   <li>p99 latency from the intended send time, from the topic's latency histogram</li>
+ *   <li>bytes allocated per record by the sending thread, from the JVM's thread allocation
+ *       counter. Runs sent by worker threads are not measured</li>
+ * </ul>
+ *
+ * <p>Only compiled with the {@code perf-regression} Maven profile:</p>
+ * <pre>
+ * mvn -P perf-regression test
+ * </pre>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.producer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "topic=" + ProducerPerformanceTests.TOPIC,
+        "numPartitions=" + ProducerPerformanceTests.PARTITIONS,
+        "runOnStartup=false"})
+@EmbeddedKafka(partitions = ProducerPerformanceTests.PARTITIONS, topics = ProducerPerformanceTests.TOPIC)
+class ProducerPerformanceTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProducerPerformanceTests.class);
+
+    static final String TOPIC = "perf";
+    static final int PARTITIONS = 5;
+
+    private static final int WARMUP_RECORDS = 50_000;
+    private static final int RECORDS = 200_000;
+
+    private static PerformanceBaseline baseline;
+
+    @Autowired
+    private Producer producer;
+
+    @Autowired
+    private ParallelProducerEngine parallelEngine;
+
+    @Autowired
+    private WorkloadFactory workloadFactory;
+
+    @Autowired
+    private SendLatencyRecorders latencyRecorders;
+
+    @BeforeAll
+    static void loadBaseline() {
+        baseline = PerformanceBaseline.fromSystemProperties();
+    }
+
+    @AfterAll
+    static void writeBaseline() throws IOException {
+        baseline.writeIfUpdating();
+    }
+
+    /**
+     * Restores the configuration the scenarios change.
+     */
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.ASCII);
+        ReflectionTestUtils.setField(producer, "partitioning", Partitioning.DEFAULT);
+        ReflectionTestUtils.setField(workloadFactory, "payloadGenerator", WorkloadFactory.SEQUENTIAL);
+        ReflectionTestUtils.setField(parallelEngine, "producerThreads", 1);
+    }
+
+    /**
+     * Single-threaded pipelined mode with the allocation-free ASCII encoding.
+     */
+    @Test
+    void asciiEncoding() {
+        measure("ascii");
+    }
+
+    /**
+     * Single-threaded pipelined mode building Strings per record.
+     */
+    @Test
+    void stringEncoding() {
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.STRING);
+        measure("string");
+    }
+
+    /**
+     * Single-threaded pipelined mode with the compact binary format.
+     */
+    @Test
+    void compactEncoding() {
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.COMPACT);
+        measure("compact");
+    }
+
+    /**
+     * Pre-generated JSON documents of about 200 bytes.
+     */
+    @Test
+    void jsonPayloads() {
+        ReflectionTestUtils.setField(workloadFactory, "payloadGenerator", "json");
+        measure("json");
+    }
+
+    /**
+     * Partitions chosen in the send loop, one full batch at a time.
+     */
+    @Test
+    void stickyPartitioning() {
+        ReflectionTestUtils.setField(producer, "partitioning", Partitioning.STICKY);
+        measure("sticky");
+    }
+
+    /**
+     * Four workers sharing the auto-configured producer.
+     */
+    @Test
+    void parallelWorkers() {
+        ReflectionTestUtils.setField(parallelEngine, "producerThreads", 4);
+        measure("parallel");
+    }
+
+    /**
+     * Warms up, measures one run of the configured scenario and checks it against the baseline.
+     */
+    private void measure(String scenario) {
+        ReflectionTestUtils.setField(producer, "numEvents", WARMUP_RECORDS);
+        producer.send();
+
+        ReflectionTestUtils.setField(producer, "numEvents", RECORDS);
+        boolean onThisThread = !parallelEngine.isParallel();
+        long allocatedBefore = allocatedBytes();
+        SendStatistics statistics = producer.send();
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        assertThat(statistics.getFailed()).isZero();
+        assertThat(statistics.getAcked()).isEqualTo(RECORDS);
+        Histogram latency = latencyRecorders.forTopic(TOPIC).overallHistogram();
+        PerformanceBaseline.Result result = new PerformanceBaseline.Result(scenario,
+                statistics.getAckedPerSecond(), latency.getValueAtPercentile(99) / 1000.0,
+                onThisThread ? (double) allocated / RECORDS : -1);
+        logger.info(result.toString());
+        baseline.check(result);
+    }
+
+    /**
+     * @return bytes allocated so far by the calling thread
+     */
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
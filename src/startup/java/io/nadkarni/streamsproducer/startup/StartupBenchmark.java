@@ -0,0 +1,231 @@
+package io.nadkarni.streamsproducer.startup;
+
+import io.nadkarni.streamsproducer.StreamsProducerApplication;
+import io.nadkarni.streamsproducer.launch.HeadlessConfiguration;
+import io.nadkarni.streamsproducer.launch.StartupClock;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Startup-time benchmark: launches the application in new JVMs and reports the time from
+ * JVM launch to the first acknowledged record.
+ *
+ * <p>Each launch is timed from outside, from starting the {@code java} process to the
+ * {@value StartupClock#REPORT_PREFIX} line in its output, which the application logs once
+ * its startup run has finished. The in-JVM figures of that line, measured from the JVM's
+ * own start time, are reported next to it. The JVM is then stopped.</p>
+ *
+ * <h3>Variants:</h3>
+ * <ul>
+ *   <li>{@code default} - web server and eager beans, as launched normally</li>
+ *   <li>{@code headless} - the {@code headless} profile</li>
+ *   <li>{@code headless+appcds} - the {@code headless} profile with the class-data sharing
+ *       archive, if it has been built</li>
+ * </ul>
+ * <p>The variants take turns, so that a change of machine load affects all of them.</p>
+ *
+ * <h3>System Properties:</h3>
+ * <ul>
+ *   <li>{@code startup.classpath} - class path of the launched JVMs; must be the one the
+ *       archive was built with</li>
+ *   <li>{@code startup.archive} - the class-data sharing archive</li>
+ *   <li>{@code startup.runs} - launches per variant (default: 5)</li>
+ *   <li>{@code startup.args} - application arguments of every launch, e.g. the broker and
+ *       {@code numberOfEvents}</li>
+ *   <li>{@code startup.timeout} - seconds a launch may take (default: 120)</li>
+ * </ul>
+ *
+ * <p>Only compiled with the {@code appcds} Maven profile, which also builds the archive:</p>
+ * <pre>
+ * mvn -P appcds package exec:exec@startup-benchmark
+ * </pre>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+public final class StartupBenchmark {
+
+    private static final Pattern REPORT = Pattern.compile(Pattern.quote(StartupClock.REPORT_PREFIX)
+            + "context ready after (\\d+) ms, first record acknowledged (\\d+) ms");
+
+    /**
+     * Output lines kept to explain a failed launch.
+     */
+    private static final int TAIL_LINES = 20;
+
+    private StartupBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark as configured by the system properties.
+     *
+     * @param args unused
+     * @throws InterruptedException if interrupted while waiting for a launch
+     */
+    public static void main(String[] args) throws InterruptedException {
+        String classpath = required("startup.classpath");
+        Path archive = Paths.get(required("startup.archive"));
+        int runs = Integer.getInteger("startup.runs", 5);
+        long timeoutSeconds = Long.getLong("startup.timeout", 120);
+        List<String> appArgs = split(System.getProperty("startup.args", ""));
+
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("default", Collections.emptyList());
+        String headless = "--spring.profiles.active=" + HeadlessConfiguration.PROFILE;
+        variants.put("headless", Collections.singletonList(headless));
+        if (Files.isRegularFile(archive)) {
+            variants.put("headless+appcds", Arrays.asList("-Xshare:auto", "-XX:SharedArchiveFile=" + archive,
+                    headless));
+        } else {
+            System.out.println("No archive at " + archive + "; headless+appcds is skipped");
+        }
+
+        Map<String, List<long[]>> results = new LinkedHashMap<>();
+        for (int run = 0; run < runs; run++) {
+            for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+                long[] result = launch(classpath, variant.getValue(), appArgs, timeoutSeconds);
+                System.out.printf("%-16s run %d: first ack %d ms (in JVM %d ms, context ready %d ms)%n",
+                        variant.getKey(), run + 1, result[0], result[1], result[2]);
+                results.computeIfAbsent(variant.getKey(), v -> new ArrayList<>()).add(result);
+            }
+        }
+
+        System.out.printf("%n%-16s %12s %12s %12s %16s %16s%n", "Variant", "min ms", "median ms", "max ms",
+                "in-JVM median", "ready median");
+        for (Map.Entry<String, List<long[]>> variant : results.entrySet()) {
+            long[] launched = column(variant.getValue(), 0);
+            System.out.printf("%-16s %12d %12d %12d %16d %16d%n", variant.getKey(), launched[0],
+                    median(launched), launched[launched.length - 1], median(column(variant.getValue(), 1)),
+                    median(column(variant.getValue(), 2)));
+        }
+    }
+
+    /**
+     * Launches the application once and waits for its startup report.
+     *
+     * @return the milliseconds from process start to the report, and the report's
+     *         first-acknowledgement and context-ready figures
+     */
+    private static long[] launch(String classpath, List<String> variantArgs, List<String> appArgs,
+                                 long timeoutSeconds) throws InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        List<String> jvmArgs = new ArrayList<>();
+        List<String> programArgs = new ArrayList<>();
+        for (String arg : variantArgs) {
+            (arg.startsWith("--") ? programArgs : jvmArgs).add(arg);
+        }
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(StreamsProducerApplication.class.getName());
+        command.addAll(programArgs);
+        command.addAll(appArgs);
+
+        long start = System.nanoTime();
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot launch " + command, e);
+        }
+        Watchdog watchdog = new Watchdog(process, timeoutSeconds);
+        watchdog.start();
+        Deque<String> tail = new ArrayDeque<>();
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                Matcher report = REPORT.matcher(line);
+                if (report.find()) {
+                    long launched = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    return new long[]{launched, Long.parseLong(report.group(2)), Long.parseLong(report.group(1))};
+                }
+                tail.addLast(line);
+                if (tail.size() > TAIL_LINES) {
+                    tail.removeFirst();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the output of " + command, e);
+        } finally {
+            watchdog.interrupt();
+            process.destroy();
+            if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+        throw new IllegalStateException("No startup report from " + command + (watchdog.expired
+                ? " within " + timeoutSeconds + " s" : "") + "; last output:\n" + String.join("\n", tail));
+    }
+
+    private static String required(String name) {
+        String value = System.getProperty(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("System property " + name + " is not set");
+        }
+        return value;
+    }
+
+    private static List<String> split(String args) {
+        String trimmed = args.trim();
+        return trimmed.isEmpty() ? Collections.emptyList() : Arrays.asList(trimmed.split("\\s+"));
+    }
+
+    private static long[] column(List<long[]> results, int index) {
+        return results.stream().mapToLong(result -> result[index]).sorted().toArray();
+    }
+
+    private static long median(long[] sorted) {
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * Kills a launch that has not reported within the timeout, which ends the read of its
+     * output.
+     */
+    private static final class Watchdog extends Thread {
+
+        private final Process process;
+        private final long timeoutSeconds;
+        private volatile boolean expired;
+
+        Watchdog(Process process, long timeoutSeconds) {
+            super("startup-benchmark-watchdog");
+            setDaemon(true);
+            this.process = process;
+            this.timeoutSeconds = timeoutSeconds;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!process.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+                    expired = true;
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                // the launch has reported or ended
+            }
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package io.nadkarni.streamsproducer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoints;
+import io.nadkarni.streamsproducer.chunking.MessageChunker;
+import io.nadkarni.streamsproducer.encoding.CompactRecord;
+import io.nadkarni.streamsproducer.encoding.CompactRecordDeserializer;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.encoding.RecordSizeReport;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.engine.ProducerPool;
+import io.nadkarni.streamsproducer.engine.Sharding;
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.fanout.FanOutProperties;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.metrics.TransactionRecorder;
+import io.nadkarni.streamsproducer.metrics.TransactionRecorders;
+import io.nadkarni.streamsproducer.partitioning.Partitioning;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import io.nadkarni.streamsproducer.sessions.SessionSimulator;
+import io.nadkarni.streamsproducer.spool.RecordSpools;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link Producer} using a mocked {@link KafkaTemplate}.
+ *
+ * <p>The template returns futures that the tests complete explicitly, which makes it
+ * possible to check how the pipelined mode counts acknowledgements and failures and
+ * how the in-flight window applies backpressure, and how the parallel engine divides
+ * keys between its workers.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class ProducerTests {
+
+    private KafkaTemplate<Object, Object> kafkaTemplate;
+    private MeterRegistry registry;
+    private Producer producer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        registry = new SimpleMeterRegistry();
+        SendLatencyRecorders latencyRecorders = new SendLatencyRecorders(registry);
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        producer = new Producer(kafkaTemplate, new ParallelProducerEngine(kafkaTemplate, null, null),
+                new SessionSimulator(kafkaTemplate),
+                new FanOutProducer(kafkaTemplate, new FanOutProperties(), null, workloadFactory, latencyRecorders),
+                latencyRecorders, workloadFactory, new RecordSpools(registry), new RunCheckpoints(),
+                new MessageChunker());
+        ReflectionTestUtils.setField(producer, "topicName", "strings");
+        ReflectionTestUtils.setField(producer, "numEvents", 100);
+        ReflectionTestUtils.setField(producer, "sendMode", SendMode.PIPELINED);
+        ReflectionTestUtils.setField(producer, "maxInFlightRecords", 1000);
+        ReflectionTestUtils.setField(producer, "maxInFlightBytes", 1 << 20);
+        ReflectionTestUtils.setField(producer, "drainTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.STRING);
+    }
+
+    /**
+     * Every acknowledged future is counted and the original key/value format is kept.
+     */
+    @Test
+    void pipelinedModeCountsAcknowledgements() {
+        when(kafkaTemplate.send(eq("strings"), isNull(), anyString(), anyString()))
+                .thenAnswer(invocation -> acked(invocation.getArgument(2), invocation.getArgument(3)));
+
+        SendStatistics statistics = producer.send();
+
+        assertThat(statistics.getSent()).isEqualTo(100);
+        assertThat(statistics.getAcked()).isEqualTo(100);
+        assertThat(statistics.getFailed()).isZero();
+        verify(kafkaTemplate).send("strings", null, "42", "Message 42");
+        verify(kafkaTemplate).flush();
+    }
+
+    /**
+     * The ASCII encoding puts the same bytes on the wire as the string encoding.
+     */
+    @Test
+    void asciiEncodingMatchesStringFormat() {
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.ASCII);
+        List<String> sent = new ArrayList<>();
+        when(kafkaTemplate.send(eq("strings"), isNull(), any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> {
+                    byte[] key = invocation.getArgument(2);
+                    byte[] value = invocation.getArgument(3);
+                    sent.add(new String(key, StandardCharsets.UTF_8) + "|" + new String(value, StandardCharsets.UTF_8));
+                    return acked(key, value);
+                });
+
+        SendStatistics statistics = producer.send();
+
+        assertThat(statistics.getAcked()).isEqualTo(100);
+        for (int ii = 0; ii < 100; ii++) {
+            assertThat(sent.get(ii)).isEqualTo(ii + "|Message " + ii);
+        }
+    }
+
+    /**
+     * The compact encoding decodes to the string format's records in fewer bytes.
+     */
+    @Test
+    void compactEncodingDecodesToStringFormat() {
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.COMPACT);
+        CompactRecordDeserializer keys = new CompactRecordDeserializer();
+        keys.configure(Collections.emptyMap(), true);
+        CompactRecordDeserializer values = new CompactRecordDeserializer();
+        values.configure(Collections.emptyMap(), false);
+        List<String> sent = new ArrayList<>();
+        when(kafkaTemplate.send(eq("strings"), isNull(), any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> {
+                    byte[] key = invocation.getArgument(2);
+                    byte[] value = invocation.getArgument(3);
+                    sent.add(keys.deserialize("strings", key) + "|"
+                            + ((CompactRecord) values.deserialize("strings", value)).getValue());
+                    return acked(key, value);
+                });
+
+        SendStatistics statistics = producer.send();
+
+        assertThat(statistics.getAcked()).isEqualTo(100);
+        for (int ii = 0; ii < 100; ii++) {
+            assertThat(sent.get(ii)).isEqualTo(ii + "|Message " + ii);
+        }
+        assertThat(statistics.getSentBytes()).isLessThan(RecordSizeReport.stringFormatBytes(100));
+    }
+
+    /**
+     * Failed futures are counted separately and the first cause is retained.
+     */
+    @Test
+    void pipelinedModeCountsFailures() {
+        RuntimeException cause = new RuntimeException("broker unavailable");
+        when(kafkaTemplate.send(eq("strings"), isNull(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                    future.setException(cause);
+                    return future;
+                });
+
+        SendStatistics statistics = producer.send();
+
+        assertThat(statistics.getAcked()).isZero();
+        assertThat(statistics.getFailed()).isEqualTo(100);
+        assertThat(statistics.getFirstFailure()).isSameAs(cause);
+    }
+
+    /**
+     * With a window of ten records the eleventh send waits until a callback releases room.
+     */
+    @Test
+    void pipelinedModeAppliesBackpressure() throws Exception {
+        ReflectionTestUtils.setField(producer, "maxInFlightRecords", 10);
+        ReflectionTestUtils.setField(producer, "numEvents", 11);
+        List<SettableListenableFuture<SendResult<Object, Object>>> pending = new ArrayList<>();
+        CountDownLatch tenSent = new CountDownLatch(10);
+        CountDownLatch elevenSent = new CountDownLatch(11);
+        AtomicReference<Thread> sender = new AtomicReference<>();
+        when(kafkaTemplate.send(eq("strings"), isNull(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                    synchronized (pending) {
+                        pending.add(future);
+                    }
+                    sender.set(Thread.currentThread());
+                    tenSent.countDown();
+                    elevenSent.countDown();
+                    return future;
+                });
+
+        CompletableFuture<SendStatistics> run = CompletableFuture.supplyAsync(producer::send);
+        assertThat(tenSent.await(5, TimeUnit.SECONDS)).isTrue();
+        awaitParked(sender.get());
+        synchronized (pending) {
+            assertThat(pending).hasSize(10);
+            pending.get(0).set(null);
+        }
+        assertThat(elevenSent.await(5, TimeUnit.SECONDS)).isTrue();
+        synchronized (pending) {
+            assertThat(pending).hasSize(11);
+            pending.forEach(future -> future.set(null));
+        }
+        SendStatistics statistics = run.get(5, TimeUnit.SECONDS);
+        assertThat(statistics.getSent()).isEqualTo(11);
+        assertThat(statistics.getAcked()).isEqualTo(11);
+    }
+
+    /**
+     * Partition-affine workers send every key exactly once, to partition {@code key % partitions}.
+     */
+    @Test
+    void parallelEngineShardsKeysByPartition() {
+        ParallelProducerEngine engine = new ParallelProducerEngine(kafkaTemplate, null, null);
+        ReflectionTestUtils.setField(engine, "producerThreads", 3);
+        ReflectionTestUtils.setField(engine, "sharding", Sharding.PARTITION_AFFINE);
+        ReflectionTestUtils.setField(producer, "parallelEngine", engine);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int p = 0; p < 5; p++) {
+            partitions.add(new PartitionInfo("strings", p, null, null, null));
+        }
+        when(kafkaTemplate.partitionsFor("strings")).thenReturn(partitions);
+        Map<String, Integer> placement = new ConcurrentHashMap<>();
+        when(kafkaTemplate.send(eq("strings"), anyInt(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    assertThat(placement.put(invocation.getArgument(2), invocation.getArgument(1))).isNull();
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+
+        SendStatistics statistics = producer.send();
+
+        assertThat(statistics.getAcked()).isEqualTo(100);
+        assertThat(placement).hasSize(100);
+        placement.forEach((key, partition) -> assertThat(partition).isEqualTo(Integer.parseInt(key) % 5));
+    }
+
+    /**
+     * A range of the run sends exactly its own keys, in the single-threaded loop and in
+     * partition-affine workers, which keep sending key {@code k} to partition {@code k % partitions}.
+     */
+    @Test
+    void sendsRangeOfSequenceNumbers() {
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        when(kafkaTemplate.send(eq("strings"), isNull(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    keys.add(invocation.getArgument(2));
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+
+        assertThat(producer.send(40, 10).getAcked()).isEqualTo(10);
+        assertThat(keys).containsExactlyInAnyOrder("40", "41", "42", "43", "44", "45", "46", "47", "48", "49");
+
+        ParallelProducerEngine engine = new ParallelProducerEngine(kafkaTemplate, null, null);
+        ReflectionTestUtils.setField(engine, "producerThreads", 2);
+        ReflectionTestUtils.setField(engine, "sharding", Sharding.PARTITION_AFFINE);
+        ReflectionTestUtils.setField(producer, "parallelEngine", engine);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int p = 0; p < 5; p++) {
+            partitions.add(new PartitionInfo("strings", p, null, null, null));
+        }
+        when(kafkaTemplate.partitionsFor("strings")).thenReturn(partitions);
+        Map<String, Integer> placement = new ConcurrentHashMap<>();
+        when(kafkaTemplate.send(eq("strings"), anyInt(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    assertThat(placement.put(invocation.getArgument(2), invocation.getArgument(1))).isNull();
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+
+        assertThat(producer.send(33, 20).getAcked()).isEqualTo(20);
+        assertThat(placement).hasSize(20);
+        placement.forEach((key, partition) -> {
+            assertThat(Integer.parseInt(key)).isBetween(33, 52);
+            assertThat(partition).isEqualTo(Integer.parseInt(key) % 5);
+        });
+    }
+
+    /**
+     * The table partitioning sends every record to the partition the default partitioner
+     * would choose, passing it explicitly.
+     */
+    @Test
+    void tablePartitioningPlacesKeysLikeDefaultPartitioner() {
+        ReflectionTestUtils.setField(producer, "partitioning", Partitioning.TABLE);
+        ReflectionTestUtils.setField(producer, "partitionTableMaxKeys", 50);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int p = 0; p < 5; p++) {
+            partitions.add(new PartitionInfo("strings", p, null, null, null));
+        }
+        when(kafkaTemplate.partitionsFor("strings")).thenReturn(partitions);
+        Map<String, Integer> placement = new ConcurrentHashMap<>();
+        when(kafkaTemplate.send(eq("strings"), anyInt(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    placement.put(invocation.getArgument(2), invocation.getArgument(1));
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+
+        SendStatistics statistics = producer.send();
+
+        assertThat(statistics.getAcked()).isEqualTo(100);
+        assertThat(placement).hasSize(100);
+        placement.forEach((key, partition) -> assertThat(partition)
+                .isEqualTo(Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % 5));
+    }
+
+    /**
+     * The transactional mode commits in batches of {@code transactionRecords} and, when a
+     * commit fails, sends only the records of that transaction again.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void transactionalModeResendsOnlyAbortedBatch() {
+        KafkaTemplate<Object, Object> transactionalTemplate = mock(KafkaTemplate.class);
+        ProducerPool pool = mock(ProducerPool.class);
+        when(pool.<Object, Object>transactionalTemplate(anyString(), anyString())).thenReturn(transactionalTemplate);
+        TransactionRecorders recorders = new TransactionRecorders(registry);
+        ParallelProducerEngine engine = new ParallelProducerEngine(kafkaTemplate, pool, recorders);
+        ReflectionTestUtils.setField(engine, "producerThreads", 1);
+        ReflectionTestUtils.setField(engine, "sharding", Sharding.INTERLEAVED);
+        ReflectionTestUtils.setField(engine, "transactional", true);
+        ReflectionTestUtils.setField(engine, "transactionRecords", 10);
+        ReflectionTestUtils.setField(engine, "transactionTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(producer, "parallelEngine", engine);
+        when(kafkaTemplate.partitionsFor("strings"))
+                .thenReturn(List.of(new PartitionInfo("strings", 0, null, null, null)));
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        when(transactionalTemplate.send(eq("strings"), isNull(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    sent.add(invocation.getArgument(2));
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+        AtomicInteger transactions = new AtomicInteger();
+        when(transactionalTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            KafkaOperations.OperationsCallback<Object, Object, Object> callback = invocation.getArgument(0);
+            Object result = callback.doInOperations(transactionalTemplate);
+            if (transactions.incrementAndGet() == 2) {
+                throw new KafkaException("Commit failed");
+            }
+            return result;
+        });
+
+        producer.send();
+
+        Map<String, Long> counts = sent.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        assertThat(counts).hasSize(100);
+        counts.forEach((key, count) -> assertThat(count).isEqualTo(key.length() == 2 && key.startsWith("1") ? 2 : 1));
+        TransactionRecorder recorder = recorders.forTopic("strings");
+        assertThat(recorder.getCommits()).isEqualTo(10);
+        assertThat(recorder.getAborts()).isEqualTo(1);
+        assertThat(recorder.getCommittedRecords()).isEqualTo(100);
+        verify(pool).transactionalTemplate("transactional-strings-0", "streams-producer-strings-0-");
+    }
+
+    /**
+     * A send that fails while a transaction is being filled aborts it, and the worker goes
+     * on with the rest of its shard after sending the batch again.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void transactionalModeContinuesAfterFailedSend() {
+        KafkaTemplate<Object, Object> transactionalTemplate = mock(KafkaTemplate.class);
+        ProducerPool pool = mock(ProducerPool.class);
+        when(pool.<Object, Object>transactionalTemplate(anyString(), anyString())).thenReturn(transactionalTemplate);
+        TransactionRecorders recorders = new TransactionRecorders(registry);
+        ParallelProducerEngine engine = new ParallelProducerEngine(kafkaTemplate, pool, recorders);
+        ReflectionTestUtils.setField(engine, "producerThreads", 1);
+        ReflectionTestUtils.setField(engine, "sharding", Sharding.INTERLEAVED);
+        ReflectionTestUtils.setField(engine, "transactional", true);
+        ReflectionTestUtils.setField(engine, "transactionRecords", 10);
+        ReflectionTestUtils.setField(engine, "transactionTime", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(producer, "parallelEngine", engine);
+        when(kafkaTemplate.partitionsFor("strings"))
+                .thenReturn(List.of(new PartitionInfo("strings", 0, null, null, null)));
+        Set<String> committed = ConcurrentHashMap.newKeySet();
+        List<String> open = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger sends = new AtomicInteger();
+        when(transactionalTemplate.send(eq("strings"), isNull(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    if (sends.incrementAndGet() == 15) {
+                        throw new KafkaException("Cannot send after a transactional error");
+                    }
+                    open.add(invocation.getArgument(2));
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+        when(transactionalTemplate.executeInTransaction(any())).thenAnswer(invocation -> {
+            KafkaOperations.OperationsCallback<Object, Object, Object> callback = invocation.getArgument(0);
+            open.clear();
+            Object result = callback.doInOperations(transactionalTemplate);
+            committed.addAll(open);
+            return result;
+        });
+
+        producer.send();
+
+        assertThat(committed).hasSize(100);
+        TransactionRecorder recorder = recorders.forTopic("strings");
+        assertThat(recorder.getAborts()).isEqualTo(1);
+        assertThat(recorder.getCommittedRecords()).isEqualTo(100);
+    }
+
+    /**
+     * Every acknowledgement is recorded in the overall and the per-partition latency gauges,
+     * and a second run starts from empty histograms.
+     */
+    @Test
+    void pipelinedModePublishesLatencyPerPartition() {
+        when(kafkaTemplate.send(eq("strings"), isNull(), anyString(), anyString()))
+                .thenAnswer(invocation -> acked(invocation.getArgument(2), invocation.getArgument(3)));
+
+        producer.send();
+        producer.send();
+
+        assertThat(latencyCount("all")).isEqualTo(100);
+        assertThat(latencyCount("0")).isEqualTo(100);
+        assertThat(registry.get("producer.send.latency.percentile")
+                .tag("partition", "all").tag("phi", "0.999").gauge().value()).isGreaterThanOrEqualTo(0);
+    }
+
+    /**
+     * Generated payloads are sent as the corpus arrays, cycling through the corpus, with keys
+     * limited to the configured cardinality.
+     */
+    @Test
+    void pipelinedModeSendsGeneratedPayloads() {
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        ReflectionTestUtils.setField(workloadFactory, "payloadGenerator", "random");
+        ReflectionTestUtils.setField(workloadFactory, "payloadSize", "uniform:10-20");
+        ReflectionTestUtils.setField(workloadFactory, "payloadCorpusSize", 7);
+        ReflectionTestUtils.setField(workloadFactory, "keyCardinality", 5L);
+        ReflectionTestUtils.setField(producer, "workloadFactory", workloadFactory);
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        List<byte[]> values = Collections.synchronizedList(new ArrayList<>());
+        when(kafkaTemplate.send(eq("strings"), isNull(), any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> {
+                    keys.add(new String((byte[]) invocation.getArgument(2), StandardCharsets.US_ASCII));
+                    values.add(invocation.getArgument(3));
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+
+        SendStatistics statistics = producer.send();
+
+        assertThat(statistics.getAcked()).isEqualTo(100);
+        assertThat(keys).isSubsetOf("0", "1", "2", "3", "4");
+        assertThat(values).hasSize(100).allSatisfy(value -> assertThat(value.length).isBetween(10, 20));
+        assertThat(values.get(7)).isSameAs(values.get(0));
+    }
+
+    private double latencyCount(String partition) {
+        return registry.get("producer.send.latency.count").tag("partition", partition).gauge().value();
+    }
+
+    /**
+     * Waits until the thread is parked, as a sender is while the window is full.
+     */
+    private static void awaitParked(Thread thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != Thread.State.WAITING && thread.getState() != Thread.State.TIMED_WAITING) {
+            assertThat(System.nanoTime() - deadline).isNegative();
+            Thread.sleep(1);
+        }
+    }
+
+    private static SettableListenableFuture<SendResult<Object, Object>> acked(Object key, Object value) {
+        SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("strings", 0), 0, 0, 0, 0L, 0, 0);
+        future.set(new SendResult<>(new ProducerRecord<>("strings", key, value), metadata));
+        return future;
+    }
+}
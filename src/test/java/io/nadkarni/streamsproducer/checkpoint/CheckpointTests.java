@@ -0,0 +1,345 @@
+package io.nadkarni.streamsproducer.checkpoint;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.Producer;
+import io.nadkarni.streamsproducer.SendMode;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.chunking.MessageChunker;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.engine.Sharding;
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.fanout.FanOutProperties;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import io.nadkarni.streamsproducer.sessions.SessionSimulator;
+import io.nadkarni.streamsproducer.spool.RecordSpools;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CheckpointLane}, {@link CheckpointFile} and {@link RunCheckpoints},
+ * and for resumed runs of the pipelined mode.
+ *
+ * <p>The runs send through a mocked template that acknowledges the records below a given
+ * key and leaves the others pending, like a crash while they were in flight.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class CheckpointTests {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * The watermark only moves over contiguously completed ordinals.
+     */
+    @Test
+    void watermarkFollowsContiguousCompletions() {
+        try (RunCheckpoint checkpoint = checkpoints(1_000).open("run", 1, 10)) {
+            CheckpointLane lane = checkpoint.lane(0);
+            for (int i = 0; i < 5; i++) {
+                assertThat(lane.nextOrdinal()).isEqualTo(i);
+            }
+            lane.complete(1);
+            lane.complete(2);
+            assertThat(lane.getWatermark()).isZero();
+            lane.complete(0);
+            assertThat(lane.getWatermark()).isEqualTo(3);
+            lane.complete(4);
+            assertThat(lane.getWatermark()).isEqualTo(3);
+            lane.complete(3);
+            assertThat(lane.getWatermark()).isEqualTo(5);
+            assertThat(lane.getFrontier()).isEqualTo(5);
+        }
+    }
+
+    /**
+     * A failed ordinal pins the watermark: acknowledgements after it never move it past the
+     * failure, and the sender no longer waits for room.
+     */
+    @Test
+    void failurePinsWatermark() throws Exception {
+        try (RunCheckpoint checkpoint = checkpoints(4).open("run", 1, 10)) {
+            CheckpointLane lane = checkpoint.lane(0);
+            for (int i = 0; i < 4; i++) {
+                lane.nextOrdinal();
+            }
+            lane.complete(1);
+            lane.fail(2);
+            lane.complete(3);
+            assertThat(lane.getWatermark()).isZero();
+            lane.complete(0);
+            assertThat(lane.getWatermark()).isEqualTo(2);
+            assertThat(lane.getFailedRecords()).isEqualTo(1);
+
+            lane.awaitRoom();
+            lane.complete(lane.nextOrdinal());
+            assertThat(lane.getWatermark()).isEqualTo(2);
+        }
+        assertThat(CheckpointFile.read(directory.resolve("run.checkpoint")).watermarks[0]).isEqualTo(2);
+    }
+
+    /**
+     * A sender at the duplicate bound waits until a checkpoint with a higher watermark has
+     * been written.
+     */
+    @Test
+    void senderWaitsAtDuplicateBound() throws Exception {
+        RunCheckpoints checkpoints = checkpoints(4);
+        ReflectionTestUtils.setField(checkpoints, "checkpointInterval", Duration.ofHours(1));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (RunCheckpoint checkpoint = checkpoints.open("run", 1, 10)) {
+            CheckpointLane lane = checkpoint.lane(0);
+            for (int i = 0; i < 4; i++) {
+                lane.awaitRoom();
+                lane.nextOrdinal();
+            }
+            CompletableFuture<Void> room = CompletableFuture.runAsync(() -> {
+                try {
+                    lane.awaitRoom();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor);
+            Thread.sleep(100);
+            assertThat(room).isNotDone();
+
+            lane.complete(0);
+            room.get(5, TimeUnit.SECONDS);
+            assertThat(CheckpointFile.read(directory.resolve("run.checkpoint")).watermarks[0]).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * An incomplete checkpoint resumes every lane and refuses another run; a complete one
+     * starts over.
+     */
+    @Test
+    void resumesIncompleteRunAndStartsOverAfterCompleteOne() {
+        RunCheckpoints checkpoints = checkpoints(1_000);
+        try (RunCheckpoint checkpoint = checkpoints.open("run", 2, 20)) {
+            complete(checkpoint.lane(0), 6, 4);
+            complete(checkpoint.lane(1), 3, 3);
+        }
+
+        assertThatThrownBy(() -> checkpoints.open("another run", 2, 20))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("belongs to another run");
+        try (RunCheckpoint checkpoint = checkpoints.open("run", 2, 20)) {
+            assertThat(checkpoint.lane(0).getResumeOrdinal()).isEqualTo(4);
+            assertThat(checkpoint.lane(1).getResumeOrdinal()).isEqualTo(3);
+            assertThat(checkpoint.getResumedRecords()).isEqualTo(7);
+            assertThat(checkpoint.getDuplicateBound()).isEqualTo(2_000);
+            complete(checkpoint.lane(0), 6, 6);
+            complete(checkpoint.lane(1), 7, 7);
+            assertThat(checkpoint.getAcknowledgedRecords()).isEqualTo(20);
+        }
+
+        try (RunCheckpoint checkpoint = checkpoints.open("another run", 2, 20)) {
+            assertThat(checkpoint.getResumedRecords()).isZero();
+        }
+    }
+
+    /**
+     * A write cut short leaves the previous slot, which is read instead.
+     */
+    @Test
+    void tornWriteFallsBackToPreviousSlot() throws Exception {
+        Path path = directory.resolve("run.checkpoint");
+        RunCheckpoints checkpoints = checkpoints(1_000);
+        ReflectionTestUtils.setField(checkpoints, "checkpointInterval", Duration.ofHours(1));
+        try (RunCheckpoint checkpoint = checkpoints.open("run", 1, 10)) {
+            complete(checkpoint.lane(0), 5, 5);
+        }
+        CheckpointFile.State last = CheckpointFile.read(path);
+        assertThat(last.watermarks[0]).isEqualTo(5);
+
+        byte[] bytes = Files.readAllBytes(path);
+        int slotSize = (bytes.length - CheckpointFile.HEADER_SIZE) / 2;
+        bytes[CheckpointFile.HEADER_SIZE + (int) (last.sequence & 1) * slotSize + 20] ^= 1;
+        Files.write(path, bytes);
+
+        CheckpointFile.State previous = CheckpointFile.read(path);
+        assertThat(previous.sequence).isEqualTo(last.sequence - 1);
+        assertThat(previous.watermarks[0]).isZero();
+
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThatThrownBy(() -> CheckpointFile.read(path)).isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * A single-threaded run that stopped with records in flight is resumed after its
+     * acknowledged records, and sends each of the others.
+     */
+    @Test
+    void singleThreadedRunResumesAfterAcknowledgedRecords() {
+        KafkaTemplate<Object, Object> kafkaTemplate = template();
+        assertResumes(kafkaTemplate, producer(kafkaTemplate, new ParallelProducerEngine(kafkaTemplate, null, null)));
+    }
+
+    /**
+     * Every partition-affine worker resumes after its own acknowledged records.
+     */
+    @Test
+    void parallelRunResumesEveryWorker() {
+        KafkaTemplate<Object, Object> kafkaTemplate = template();
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int p = 0; p < 5; p++) {
+            partitions.add(new PartitionInfo("strings", p, null, null, null));
+        }
+        when(kafkaTemplate.partitionsFor("strings")).thenReturn(partitions);
+        ParallelProducerEngine engine = new ParallelProducerEngine(kafkaTemplate, null, null);
+        ReflectionTestUtils.setField(engine, "producerThreads", 2);
+        ReflectionTestUtils.setField(engine, "sharding", Sharding.PARTITION_AFFINE);
+        assertResumes(kafkaTemplate, producer(kafkaTemplate, engine));
+    }
+
+    /**
+     * A run in which one record failed leaves its checkpoint incomplete, and the resumed run
+     * starts with the failed record.
+     */
+    @Test
+    void resumedRunResendsFailedRecord() {
+        KafkaTemplate<Object, Object> kafkaTemplate = template();
+        Producer producer = producer(kafkaTemplate, new ParallelProducerEngine(kafkaTemplate, null, null));
+        when(kafkaTemplate.send(eq("strings"), any(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    String key = invocation.getArgument(2);
+                    if (key.equals("30")) {
+                        SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                        future.setException(new IllegalStateException("not acknowledged"));
+                        return future;
+                    }
+                    return acked(key, invocation.getArgument(3));
+                });
+        SendStatistics failed = producer.send();
+        assertThat(failed.getSent()).isEqualTo(100);
+        assertThat(failed.getFailed()).isEqualTo(1);
+
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        when(kafkaTemplate.send(eq("strings"), any(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    keys.add(invocation.getArgument(2));
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+        SendStatistics resumed = producer.send();
+        assertThat(resumed.getSent()).isEqualTo(70);
+        assertThat(resumed.getFailed()).isZero();
+        assertThat(keys).contains("30").doesNotContain("29");
+    }
+
+    /**
+     * Sends 100 records of which only keys below 50 are acknowledged, then the same run
+     * again with every record acknowledged.
+     */
+    private void assertResumes(KafkaTemplate<Object, Object> kafkaTemplate, Producer producer) {
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        when(kafkaTemplate.send(eq("strings"), any(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    String key = invocation.getArgument(2);
+                    return Integer.parseInt(key) < 50 ? acked(key, invocation.getArgument(3))
+                            : new SettableListenableFuture<>();
+                });
+        SendStatistics interrupted = producer.send();
+        assertThat(interrupted.getSent()).isEqualTo(100);
+        assertThat(interrupted.getAcked()).isEqualTo(50);
+
+        when(kafkaTemplate.send(eq("strings"), any(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    keys.add(invocation.getArgument(2));
+                    return acked(invocation.getArgument(2), invocation.getArgument(3));
+                });
+        SendStatistics resumed = producer.send();
+        assertThat(resumed.getSent()).isEqualTo(50);
+        assertThat(keys).isEqualTo(IntStream.range(50, 100).mapToObj(Integer::toString)
+                .collect(Collectors.toSet()));
+
+        keys.clear();
+        assertThat(producer.send().getSent()).isEqualTo(100);
+        assertThat(keys).hasSize(100);
+    }
+
+    private RunCheckpoints checkpoints(long maxDuplicates) {
+        RunCheckpoints checkpoints = new RunCheckpoints();
+        ReflectionTestUtils.setField(checkpoints, "checkpointFile", directory.resolve("run.checkpoint").toString());
+        ReflectionTestUtils.setField(checkpoints, "checkpointInterval", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(checkpoints, "maxDuplicates", maxDuplicates);
+        return checkpoints;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static KafkaTemplate<Object, Object> template() {
+        return mock(KafkaTemplate.class);
+    }
+
+    private Producer producer(KafkaTemplate<Object, Object> kafkaTemplate, ParallelProducerEngine engine) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SendLatencyRecorders latencyRecorders = new SendLatencyRecorders(registry);
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        Producer producer = new Producer(kafkaTemplate, engine, new SessionSimulator(kafkaTemplate),
+                new FanOutProducer(kafkaTemplate, new FanOutProperties(), null, workloadFactory, latencyRecorders),
+                latencyRecorders, workloadFactory, new RecordSpools(registry), checkpoints(1_000),
+                new MessageChunker());
+        ReflectionTestUtils.setField(producer, "topicName", "strings");
+        ReflectionTestUtils.setField(producer, "numEvents", 100);
+        ReflectionTestUtils.setField(producer, "sendMode", SendMode.PIPELINED);
+        ReflectionTestUtils.setField(producer, "maxInFlightRecords", 1000);
+        ReflectionTestUtils.setField(producer, "maxInFlightBytes", 1 << 20);
+        ReflectionTestUtils.setField(producer, "drainTimeoutMs", 100L);
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.STRING);
+        return producer;
+    }
+
+    /**
+     * Sends {@code sent} ordinals on the lane and completes the first {@code completed}.
+     */
+    private static void complete(CheckpointLane lane, int sent, int completed) {
+        List<Long> ordinals = new ArrayList<>();
+        for (int i = 0; i < sent; i++) {
+            ordinals.add(lane.nextOrdinal());
+        }
+        ordinals.subList(0, completed).forEach(lane::complete);
+    }
+
+    private static SettableListenableFuture<SendResult<Object, Object>> acked(Object key, Object value) {
+        SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("strings", 0), 0, 0, 0, 0L, 0, 0);
+        future.set(new SendResult<>(new ProducerRecord<>("strings", key, value), metadata));
+        return future;
+    }
+}
@@ -0,0 +1,292 @@
+package io.nadkarni.streamsproducer.chunking;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.Producer;
+import io.nadkarni.streamsproducer.SendMode;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.checkpoint.RunCheckpoints;
+import io.nadkarni.streamsproducer.encoding.PassThroughSerializer;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.ParallelProducerEngine;
+import io.nadkarni.streamsproducer.fanout.FanOutProducer;
+import io.nadkarni.streamsproducer.fanout.FanOutProperties;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.payload.Workload;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import io.nadkarni.streamsproducer.sessions.SessionSimulator;
+import io.nadkarni.streamsproducer.spool.RecordSpools;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link MessageChunker} and {@link ChunkReassembler}, and for chunked runs
+ * of the pipelined mode.
+ *
+ * <p>Chunks are sent through a mocked template that acknowledges every record and keeps
+ * the records it was given, which are then serialized and put back together as a consumer
+ * would.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class ChunkingTests {
+
+    private KafkaTemplate<Object, Object> kafkaTemplate;
+    private List<ProducerRecord<Object, Object>> records;
+    private MessageChunker chunker;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        records = Collections.synchronizedList(new ArrayList<>());
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<Object, Object> record = invocation.getArgument(0);
+            byte[] key = record.key() instanceof byte[] ? ((byte[]) record.key()).clone() : null;
+            records.add(new ProducerRecord<>(record.topic(), record.partition(), key, record.value(),
+                    record.headers()));
+            return acked(record);
+        });
+        when(kafkaTemplate.send(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            byte[] key = ((byte[]) invocation.getArgument(2)).clone();
+            ProducerRecord<Object, Object> record = new ProducerRecord<>(invocation.getArgument(0),
+                    invocation.getArgument(1), key, invocation.getArgument(3));
+            records.add(record);
+            return acked(record);
+        });
+        chunker = new MessageChunker();
+        ReflectionTestUtils.setField(chunker, "chunkBytes", 1000);
+    }
+
+    /**
+     * A large value is sent as chunks that are views of the original array, all with the
+     * message's key and partition and headers describing the whole value.
+     */
+    @Test
+    void chunksAreViewsOfTheValue() throws InterruptedException {
+        byte[] key = {'7'};
+        byte[] value = randomBytes(2500, 1);
+        assertThat(chunker.send(sender(), "strings", 3, key, value, System.nanoTime())).isEqualTo(3);
+
+        assertThat(records).hasSize(3);
+        for (int index = 0; index < 3; index++) {
+            ProducerRecord<Object, Object> record = records.get(index);
+            ByteBuffer chunk = (ByteBuffer) record.value();
+            assertThat(chunk.array()).isSameAs(value);
+            assertThat(chunk.position()).isEqualTo(index * 1000);
+            assertThat(chunk.remaining()).isEqualTo(index < 2 ? 1000 : 500);
+            assertThat(record.partition()).isEqualTo(3);
+            assertThat((byte[]) record.key()).isEqualTo(key);
+            assertThat(intHeader(record.headers(), MessageChunker.INDEX_HEADER)).isEqualTo(index);
+            assertThat(intHeader(record.headers(), MessageChunker.COUNT_HEADER)).isEqualTo(3);
+            assertThat(intHeader(record.headers(), MessageChunker.SIZE_HEADER)).isEqualTo(2500);
+            assertThat(record.headers().lastHeader(MessageChunker.ID_HEADER).value())
+                    .isEqualTo(records.get(0).headers().lastHeader(MessageChunker.ID_HEADER).value());
+        }
+    }
+
+    /**
+     * Values up to {@code chunkBytes} are sent as one record without headers, and a larger
+     * value needs a key or a partition to keep its chunks together.
+     */
+    @Test
+    void smallValuesAreNotChunked() throws InterruptedException {
+        byte[] value = randomBytes(1000, 2);
+        assertThat(chunker.send(sender(), "strings", null, new byte[]{'1'}, value, 0)).isEqualTo(1);
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).value()).isSameAs(value);
+        assertThat(records.get(0).headers().toArray()).isEmpty();
+        assertThat(chunker.chunks(1000)).isEqualTo(1);
+        assertThat(chunker.chunks(1001)).isEqualTo(2);
+        assertThatThrownBy(() -> chunker.send(sender(), "strings", null, null, randomBytes(1001, 3), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        ReflectionTestUtils.setField(chunker, "chunkBytes", -1);
+        assertThatThrownBy(chunker::isEnabled).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Chunks put back together in any order, and repeated, give the original value once.
+     */
+    @Test
+    void reassemblesChunksInAnyOrder() throws InterruptedException {
+        byte[] value = randomBytes(4321, 4);
+        chunker.send(sender(), "strings", null, new byte[]{'1'}, value, 0);
+        List<ProducerRecord<Object, Object>> shuffled = new ArrayList<>(records);
+        Collections.shuffle(shuffled, new Random(5));
+        shuffled.add(1, shuffled.get(0));
+        ChunkReassembler reassembler = new ChunkReassembler(1 << 20, Duration.ZERO);
+        List<byte[]> complete = new ArrayList<>();
+        for (ProducerRecord<Object, Object> record : shuffled) {
+            byte[] whole = reassembler.accept(record.headers(), serialize(record), 0);
+            if (whole != null) {
+                complete.add(whole);
+            }
+        }
+        assertThat(complete).hasSize(1);
+        assertThat(complete.get(0)).isEqualTo(value);
+        assertThat(reassembler.getCompleted()).isEqualTo(1);
+        assertThat(reassembler.getIncomplete()).isZero();
+        assertThat(reassembler.getBufferedBytes()).isZero();
+
+        byte[] plain = randomBytes(10, 6);
+        assertThat(reassembler.accept(new RecordHeaders(), plain, 0)).isSameAs(plain);
+    }
+
+    /**
+     * Incomplete messages are evicted, oldest first, to stay within {@code maxBytes} and
+     * once they are older than {@code maxAge}; messages above {@code maxBytes} are rejected.
+     */
+    @Test
+    void evictsIncompleteMessagesWithinBounds() throws InterruptedException {
+        for (int message = 0; message < 3; message++) {
+            chunker.send(sender(), "strings", null, new byte[]{'1'}, randomBytes(3000, message), 0);
+        }
+        chunker.send(sender(), "strings", null, new byte[]{'1'}, randomBytes(9000, 9), 0);
+        ChunkReassembler reassembler = new ChunkReassembler(7000, Duration.ofNanos(100));
+        reassembler.accept(records.get(0).headers(), serialize(records.get(0)), 0);
+        reassembler.accept(records.get(3).headers(), serialize(records.get(3)), 10);
+        assertThat(reassembler.getBufferedBytes()).isEqualTo(6000);
+        reassembler.accept(records.get(6).headers(), serialize(records.get(6)), 20);
+        assertThat(reassembler.getEvicted()).isEqualTo(1);
+        assertThat(reassembler.getBufferedBytes()).isEqualTo(6000);
+
+        assertThat(reassembler.accept(records.get(9).headers(), serialize(records.get(9)), 30)).isNull();
+        assertThat(reassembler.getRejected()).isEqualTo(1);
+
+        reassembler.accept(records.get(7).headers(), serialize(records.get(7)), 115);
+        assertThat(reassembler.getEvicted()).isEqualTo(2);
+        assertThat(reassembler.getIncomplete()).isEqualTo(1);
+        reassembler.accept(records.get(8).headers(), serialize(records.get(8)), 200);
+        assertThat(reassembler.getEvicted()).isEqualTo(3);
+        assertThat(reassembler.getIncomplete()).isEqualTo(1);
+        assertThat(reassembler.getCompleted()).isZero();
+    }
+
+    /**
+     * A message whose bytes do not match its checksum is dropped and counted.
+     */
+    @Test
+    void dropsMessagesWithWrongChecksum() throws InterruptedException {
+        chunker.send(sender(), "strings", null, new byte[]{'1'}, randomBytes(1500, 7), 0);
+        ChunkReassembler reassembler = new ChunkReassembler(1 << 20, Duration.ZERO);
+        byte[] corrupt = serialize(records.get(1));
+        corrupt[0] ^= 1;
+        assertThat(reassembler.accept(records.get(0).headers(), serialize(records.get(0)), 0)).isNull();
+        assertThat(reassembler.accept(records.get(1).headers(), corrupt, 0)).isNull();
+        assertThat(reassembler.getChecksumFailures()).isEqualTo(1);
+        assertThat(reassembler.getCompleted()).isZero();
+    }
+
+    /**
+     * The serializer passes a buffer covering its whole array through and copies only the
+     * range of a chunk.
+     */
+    @Test
+    void serializesByteBuffers() {
+        PassThroughSerializer serializer = new PassThroughSerializer();
+        byte[] value = randomBytes(100, 8);
+        assertThat(serializer.serialize("strings", ByteBuffer.wrap(value))).isSameAs(value);
+        assertThat(serializer.serialize("strings", ByteBuffer.wrap(value, 10, 20)))
+                .isEqualTo(Arrays.copyOfRange(value, 10, 30));
+    }
+
+    /**
+     * A chunked run of generated payloads sends every value in chunks that put back together
+     * to the corpus values, in order.
+     */
+    @Test
+    void chunkedRunSendsWholeValues() {
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        ReflectionTestUtils.setField(workloadFactory, "payloadGenerator", "random");
+        ReflectionTestUtils.setField(workloadFactory, "payloadSize", "uniform:500-5000");
+        ReflectionTestUtils.setField(workloadFactory, "payloadCorpusSize", 7);
+        Producer producer = producer(workloadFactory);
+
+        SendStatistics statistics = producer.send();
+
+        Workload workload = workloadFactory.create(null);
+        ChunkReassembler reassembler = new ChunkReassembler(1 << 20, Duration.ZERO);
+        List<byte[]> values = new ArrayList<>();
+        for (ProducerRecord<Object, Object> record : records) {
+            byte[] whole = reassembler.accept(record.headers(), serialize(record), 0);
+            if (whole != null) {
+                values.add(whole);
+            }
+        }
+        assertThat(values).hasSize(20);
+        for (int seq = 0; seq < 20; seq++) {
+            assertThat(values.get(seq)).isEqualTo(workload.cursor(0).value(seq));
+        }
+        assertThat(statistics.getSent()).isEqualTo(records.size());
+        assertThat(statistics.getAcked()).isEqualTo(records.size());
+    }
+
+    private PipelinedSender<Object, Object> sender() {
+        return new PipelinedSender<>(kafkaTemplate, new InFlightWindow(100, 1 << 20), new SendStatistics());
+    }
+
+    private Producer producer(WorkloadFactory workloadFactory) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SendLatencyRecorders latencyRecorders = new SendLatencyRecorders(registry);
+        Producer producer = new Producer(kafkaTemplate, new ParallelProducerEngine(kafkaTemplate, null, null),
+                new SessionSimulator(kafkaTemplate),
+                new FanOutProducer(kafkaTemplate, new FanOutProperties(), null, workloadFactory, latencyRecorders),
+                latencyRecorders, workloadFactory, new RecordSpools(registry), new RunCheckpoints(), chunker);
+        ReflectionTestUtils.setField(producer, "topicName", "strings");
+        ReflectionTestUtils.setField(producer, "numEvents", 20);
+        ReflectionTestUtils.setField(producer, "sendMode", SendMode.PIPELINED);
+        ReflectionTestUtils.setField(producer, "maxInFlightRecords", 1000);
+        ReflectionTestUtils.setField(producer, "maxInFlightBytes", 1 << 20);
+        ReflectionTestUtils.setField(producer, "drainTimeoutMs", 100L);
+        ReflectionTestUtils.setField(producer, "recordEncoding", RecordEncoding.ASCII);
+        return producer;
+    }
+
+    private static byte[] serialize(ProducerRecord<Object, Object> record) {
+        return new PassThroughSerializer().serialize(record.topic(), record.value());
+    }
+
+    private static int intHeader(Headers headers, String name) {
+        return ByteBuffer.wrap(headers.lastHeader(name).value()).getInt();
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static SettableListenableFuture<SendResult<Object, Object>> acked(ProducerRecord<Object, Object> record) {
+        SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("strings", 0), 0, 0, 0, 0L, 0, 0);
+        future.set(new SendResult<>(record, metadata));
+        return future;
+    }
+}
@@ -0,0 +1,90 @@
+package io.nadkarni.streamsproducer.control;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.engine.LoadRun;
+import io.nadkarni.streamsproducer.engine.RunSpec;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Request mapping and error handling of {@link RunController}, with a mocked {@link RunManager}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class RunControllerTests {
+
+    private RunManager runManager;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        runManager = mock(RunManager.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new RunController(runManager)).build();
+    }
+
+    /**
+     * A start request is bound to a {@link RunSpec} and answered with the run's status.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void startsRunFromRequestBody() throws Exception {
+        RunSpec spec = new RunSpec();
+        spec.setTopic("orders");
+        spec.setNumberOfEvents(10L);
+        spec.setProducerThreads(2);
+        spec.setMaxInFlightRecords(100);
+        spec.setMaxInFlightBytes(1 << 20);
+        LoadRun run = new LoadRun(spec, mock(KafkaTemplate.class), null,
+                new SendLatencyRecorders(new SimpleMeterRegistry()).forTopic("orders"), null);
+        when(runManager.start(argThat(request -> request != null && "orders".equals(request.getTopic())
+                && Double.valueOf(5000).equals(request.getTargetRate())
+                && Integer.valueOf(2).equals(request.getProducerThreads())))).thenReturn(run);
+
+        mockMvc.perform(post("/runs").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"topic\":\"orders\",\"targetRate\":5000,\"producerThreads\":2}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.topic").value("orders"))
+                .andExpect(jsonPath("$.state").value("RUNNING"))
+                .andExpect(jsonPath("$.spec.numberOfEvents").value(10));
+    }
+
+    /**
+     * Unknown topics, invalid parameters and conflicting requests map to 404, 400 and 409.
+     */
+    @Test
+    void mapsErrorsToStatusCodes() throws Exception {
+        when(runManager.get("missing")).thenThrow(new NoSuchElementException("No run on topic 'missing'"));
+        when(runManager.start(any())).thenThrow(new IllegalArgumentException("producerThreads must be at least 1"));
+        when(runManager.update(any(), any())).thenThrow(new IllegalStateException("Run on 'orders' is FINISHED"));
+
+        mockMvc.perform(get("/runs/missing"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("No run on topic 'missing'"));
+        mockMvc.perform(post("/runs").contentType(MediaType.APPLICATION_JSON).content("{\"producerThreads\":0}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/runs/orders").contentType(MediaType.APPLICATION_JSON).content("{\"targetRate\":1}"))
+                .andExpect(status().isConflict());
+        when(runManager.list()).thenReturn(Collections.emptyList());
+        mockMvc.perform(get("/runs")).andExpect(status().isOk()).andExpect(jsonPath("$").isEmpty());
+    }
+}
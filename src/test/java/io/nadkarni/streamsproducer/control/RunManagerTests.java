@@ -0,0 +1,159 @@
+package io.nadkarni.streamsproducer.control;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.engine.LoadRun;
+import io.nadkarni.streamsproducer.engine.RunSpec;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link RunManager} and the {@link LoadRun}s it controls, using a mocked
+ * {@link KafkaTemplate} that acknowledges every record immediately.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class RunManagerTests {
+
+    private final Map<String, Integer> keys = new ConcurrentHashMap<>();
+    private KafkaTemplate<Object, Object> kafkaTemplate;
+    private RunManager runManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.partitionsFor(anyString())).thenAnswer(invocation -> Collections.singletonList(
+                new PartitionInfo(invocation.getArgument(0), 0, null, null, null)));
+        when(kafkaTemplate.send(anyString(), isNull(), any(), any())).thenAnswer(invocation -> {
+            String topic = invocation.getArgument(0);
+            keys.merge(topic + "/" + invocation.getArgument(2), 1, Integer::sum);
+            SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+            RecordMetadata metadata = new RecordMetadata(new TopicPartition(topic, 0), 0, 0, 0, 0L, 0, 0);
+            future.set(new SendResult<>(new ProducerRecord<>(topic, invocation.getArgument(2),
+                    invocation.getArgument(3)), metadata));
+            return future;
+        });
+        runManager = new RunManager(kafkaTemplate, null, new SendLatencyRecorders(new SimpleMeterRegistry()),
+                new WorkloadFactory());
+        ReflectionTestUtils.setField(runManager, "topic", "strings");
+        ReflectionTestUtils.setField(runManager, "numberOfEvents", 1000L);
+        ReflectionTestUtils.setField(runManager, "producerThreads", 1);
+        ReflectionTestUtils.setField(runManager, "recordEncoding", RecordEncoding.STRING);
+        ReflectionTestUtils.setField(runManager, "maxInFlightRecords", 1000);
+        ReflectionTestUtils.setField(runManager, "maxInFlightBytes", 1 << 20);
+        ReflectionTestUtils.setField(runManager, "drainTimeoutMs", 1000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runManager.stopAll();
+    }
+
+    /**
+     * Workers sharing the sequence counter send every key exactly once.
+     */
+    @Test
+    void runsToCompletionWithSeveralWorkers() throws Exception {
+        RunSpec spec = new RunSpec();
+        spec.setProducerThreads(3);
+
+        LoadRun run = runManager.start(spec);
+
+        assertThat(run.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(run.getState()).isEqualTo(LoadRun.State.FINISHED);
+        assertThat(run.getStatistics().getAcked()).isEqualTo(1000);
+        assertThat(keys).hasSize(1000).allSatisfy((key, count) -> assertThat(count).isEqualTo(1));
+        assertThat(run.getLatency().overallHistogram().getTotalCount()).isEqualTo(1000);
+        assertThat(RunStatus.of(run).getPartitions()).isEqualTo(1);
+    }
+
+    /**
+     * Rate and worker count change while the run is in progress; a stopped run rejects changes.
+     */
+    @Test
+    void changesRateAndWorkersWhileRunning() throws Exception {
+        RunSpec spec = new RunSpec();
+        spec.setTopic("orders");
+        spec.setNumberOfEvents(Long.MAX_VALUE);
+        spec.setTargetRate(100.0);
+        LoadRun run = runManager.start(spec);
+        Thread.sleep(200);
+        long pacedSent = run.getStatistics().getSent();
+        assertThat(pacedSent).isBetween(5L, 50L);
+
+        RunUpdate update = new RunUpdate();
+        update.setProducerThreads(3);
+        update.setTargetRate(0.0);
+        runManager.update("orders", update);
+        assertThat(run.getWorkerCount()).isEqualTo(3);
+        assertThat(run.getTargetRate()).isZero();
+        Thread.sleep(200);
+        assertThat(run.getStatistics().getSent()).isGreaterThan(pacedSent + 1000);
+
+        update.setProducerThreads(1);
+        update.setTargetRate(50.0);
+        runManager.update("orders", update);
+        assertThat(run.getWorkerCount()).isEqualTo(1);
+        assertThat(run.getTargetRate()).isEqualTo(50.0);
+
+        runManager.stop("orders");
+        assertThat(run.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(run.getState()).isEqualTo(LoadRun.State.STOPPED);
+        assertThat(run.getStatistics().getAcked()).isEqualTo(run.getStatistics().getSent());
+        assertThatThrownBy(() -> runManager.update("orders", update)).isInstanceOf(IllegalStateException.class);
+    }
+
+    /**
+     * Runs on different topics execute side by side, but a topic takes only one run at a time.
+     */
+    @Test
+    void allowsOneActiveRunPerTopic() throws Exception {
+        RunSpec first = new RunSpec();
+        first.setTopic("a");
+        first.setNumberOfEvents(Long.MAX_VALUE);
+        first.setTargetRate(10.0);
+        RunSpec second = new RunSpec();
+        second.setTopic("b");
+        second.setNumberOfEvents(Long.MAX_VALUE);
+        second.setTargetRate(10.0);
+
+        LoadRun a = runManager.start(first);
+        LoadRun b = runManager.start(second);
+
+        assertThat(runManager.list()).containsExactlyInAnyOrder(a, b);
+        assertThatThrownBy(() -> runManager.start(first)).isInstanceOf(IllegalStateException.class);
+        runManager.stop("a");
+        assertThat(a.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(runManager.start(first)).isNotSameAs(a);
+        assertThat(b.getState()).isEqualTo(LoadRun.State.RUNNING);
+        assertThatThrownBy(() -> runManager.get("c")).isInstanceOf(NoSuchElementException.class);
+    }
+}
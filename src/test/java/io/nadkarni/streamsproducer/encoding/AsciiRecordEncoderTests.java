@@ -0,0 +1,69 @@
+package io.nadkarni.streamsproducer.encoding;
+
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link AsciiRecordEncoder} and {@link PassThroughSerializer}.
+ *
+ * <p>The encoded bytes are compared against {@link StringSerializer}, which is what the
+ * original send path used, so the two paths are known to be byte-for-byte identical.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class AsciiRecordEncoderTests {
+
+    private final StringSerializer stringSerializer = new StringSerializer();
+    private final PassThroughSerializer passThroughSerializer = new PassThroughSerializer();
+
+    /**
+     * Keys and values match the string format at every digit-count boundary.
+     */
+    @Test
+    void encodesSameBytesAsStringSerializer() {
+        AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+        long[] samples = {0, 1, 9, 10, 99, 100, 12345, 999_999, 1_000_000, Integer.MAX_VALUE,
+                1L << 40, 999_999_999_999_999_999L, Long.MAX_VALUE};
+        for (long seq : samples) {
+            assertThat(encoder.key(seq)).isEqualTo(stringSerializer.serialize("t", Long.toString(seq)));
+            assertThat(encoder.value(seq)).isEqualTo(stringSerializer.serialize("t", "Message " + seq));
+        }
+    }
+
+    /**
+     * Records with the same number of digits share one array.
+     */
+    @Test
+    void reusesArraysPerDigitCount() {
+        AsciiRecordEncoder encoder = new AsciiRecordEncoder();
+        byte[] first = encoder.value(10);
+        byte[] second = encoder.value(42);
+        assertThat(second).isSameAs(first);
+        assertThat(encoder.value(100)).isNotSameAs(first);
+    }
+
+    /**
+     * Negative sequence numbers are rejected.
+     */
+    @Test
+    void rejectsNegativeSequence() {
+        assertThatThrownBy(() -> new AsciiRecordEncoder().key(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Byte arrays pass through untouched and strings serialize like {@link StringSerializer}.
+     */
+    @Test
+    void passThroughSerializerHandlesBytesAndStrings() {
+        byte[] bytes = {1, 2, 3};
+        assertThat(passThroughSerializer.serialize("t", bytes)).isSameAs(bytes);
+        assertThat(passThroughSerializer.serialize("t", "Message 7"))
+                .isEqualTo(stringSerializer.serialize("t", "Message 7"));
+        assertThat(passThroughSerializer.serialize("t", null)).isNull();
+    }
+}
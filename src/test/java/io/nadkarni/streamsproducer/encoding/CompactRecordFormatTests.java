@@ -0,0 +1,168 @@
+package io.nadkarni.streamsproducer.encoding;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the {@link CompactRecordFormat}: the {@link CompactRecordEncoder}, the
+ * {@link CompactRecordSerializer} / {@link CompactRecordDeserializer} pair and the
+ * {@link RecordSizeReport}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class CompactRecordFormatTests {
+
+    private static final long TIMESTAMP = 1_600_000_000_000L;
+
+    /**
+     * Zig-zag varints round-trip at the size boundaries and keep small magnitudes short.
+     */
+    @Test
+    void varintsRoundTrip() {
+        long[] samples = {0, 1, -1, 63, -64, 64, 8191, 8192, Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        CompactRecordDeserializer keys = deserializer(true, Collections.emptyMap());
+        for (long sample : samples) {
+            long zigZag = CompactRecordFormat.zigZag(sample);
+            byte[] bytes = new byte[CompactRecordFormat.varintSize(zigZag)];
+            assertThat(CompactRecordFormat.writeVarint(zigZag, bytes, 0)).isEqualTo(bytes.length);
+            assertThat(CompactRecordFormat.unZigZag(zigZag)).isEqualTo(sample);
+            assertThat(keys.deserialize("t", bytes)).isEqualTo(sample);
+        }
+        assertThat(CompactRecordFormat.varintSize(CompactRecordFormat.zigZag(-64))).isEqualTo(1);
+        assertThat(CompactRecordFormat.varintSize(CompactRecordFormat.zigZag(Long.MIN_VALUE)))
+                .isEqualTo(CompactRecordFormat.MAX_VARINT_SIZE);
+    }
+
+    /**
+     * Encoded records decode to the string format, with the header fields, in fewer bytes.
+     */
+    @Test
+    void encoderRecordsDecodeToStringFormat() {
+        CompactRecordEncoder encoder = new CompactRecordEncoder(7);
+        CompactRecordDeserializer keys = deserializer(true, Collections.emptyMap());
+        CompactRecordDeserializer values = deserializer(false, Collections.emptyMap());
+        long[] samples = {0, 1, 63, 64, 123_456, Integer.MAX_VALUE, Long.MAX_VALUE};
+        for (long seq : samples) {
+            byte[] key = encoder.key(seq);
+            byte[] value = encoder.value(seq, TIMESTAMP);
+            CompactRecord record = (CompactRecord) values.deserialize("t", value);
+
+            assertThat(keys.deserialize("t", key)).isEqualTo(seq);
+            assertThat(record.getValue()).isEqualTo("Message " + seq);
+            assertThat(record.getNumber()).isEqualTo(seq);
+            assertThat(record.getSchemaId()).isEqualTo(7);
+            assertThat(record.getTimestamp()).isEqualTo(TIMESTAMP);
+            assertThat(CompactRecordFormat.messageNumber(value)).isEqualTo(seq);
+        }
+        assertThat(encoder.key(123_456).length + encoder.value(123_456, TIMESTAMP).length).isEqualTo(15);
+    }
+
+    /**
+     * Records of the same size share one pooled array.
+     */
+    @Test
+    void reusesArraysPerSize() {
+        CompactRecordEncoder encoder = new CompactRecordEncoder();
+        byte[] first = encoder.value(100, TIMESTAMP);
+        assertThat(encoder.value(200, TIMESTAMP)).isSameAs(first);
+        assertThat(encoder.value(100_000, TIMESTAMP)).isNotSameAs(first);
+        assertThat(encoder.key(100)).isSameAs(encoder.key(200));
+        assertThatThrownBy(() -> encoder.key(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * The serializer compresses configured prefixes and numeric suffixes, keeps any other
+     * text, and passes byte arrays through.
+     */
+    @Test
+    void serializerRoundTripsThroughDeserializer() {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(CompactRecordSerializer.SCHEMA_ID_CONFIG, "3");
+        configs.put(CompactRecordSerializer.DICTIONARY_CONFIG, "order-,order-eu-");
+        CompactRecordSerializer serializer = serializer(false, configs);
+        CompactRecordDeserializer deserializer = deserializer(false, configs);
+        String[] samples = {"Message 42", "order-eu-0001", "order-17", "Message ", "Messages", "", "grüße 08"};
+        for (String sample : samples) {
+            CompactRecord record = (CompactRecord) deserializer.deserialize("t",
+                    serializer.value(sample, TIMESTAMP));
+            assertThat(record.getValue()).isEqualTo(sample);
+            assertThat(record.getSchemaId()).isEqualTo(3);
+        }
+        assertThat(serializer.value("order-eu-12345", TIMESTAMP)).hasSize(1 + 1 + 6 + 1 + 3);
+        assertThat(((CompactRecord) deserializer.deserialize("t", serializer.value("order-17", TIMESTAMP)))
+                .getNumber()).isEqualTo(17);
+        assertThat(((CompactRecord) deserializer.deserialize("t", serializer.value("order-017", TIMESTAMP)))
+                .getNumber()).isEqualTo(-1);
+
+        byte[] bytes = {1, 2, 3};
+        assertThat(serializer.serialize("t", bytes)).isSameAs(bytes);
+        assertThat(serializer.serialize("t", null)).isNull();
+        assertThat(serializer(true, configs).serialize("t", "12345")).hasSize(3);
+        assertThatThrownBy(() -> serializer(true, configs).serialize("t", "abc"))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    /**
+     * Text, truncated values and unknown dictionary entries are rejected.
+     */
+    @Test
+    void deserializerRejectsMalformedValues() {
+        CompactRecordDeserializer values = deserializer(false, Collections.emptyMap());
+        byte[] unknownPrefix = serializer(false, Collections.singletonMap(CompactRecordSerializer.DICTIONARY_CONFIG,
+                "order-")).value("order-1", TIMESTAMP);
+        byte[] valid = new CompactRecordEncoder().value(300, TIMESTAMP);
+        byte[] truncated = new byte[valid.length - 1];
+        System.arraycopy(valid, 0, truncated, 0, truncated.length);
+
+        assertThatThrownBy(() -> values.deserialize("t", "Message 1".getBytes(StandardCharsets.US_ASCII)))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> values.deserialize("t", truncated)).isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> values.deserialize("t", unknownPrefix)).isInstanceOf(SerializationException.class);
+        assertThat(CompactRecordFormat.messageNumber(truncated)).isEqualTo(-1);
+        assertThat(CompactRecordFormat.messageNumber(unknownPrefix)).isEqualTo(-1);
+    }
+
+    /**
+     * The string format's size is summed exactly across digit counts, and the report
+     * compares against it.
+     */
+    @Test
+    void reportsSizeAgainstStringFormat() {
+        assertThat(RecordSizeReport.stringFormatBytes(0)).isZero();
+        assertThat(RecordSizeReport.stringFormatBytes(12)).isEqualTo(10 * (1 + 9) + 2 * (2 + 10));
+        long sum = 0;
+        for (long seq = 0; seq < 1234; seq++) {
+            sum += 2 * Long.toString(seq).length() + 8;
+        }
+        assertThat(RecordSizeReport.stringFormatBytes(1234)).isEqualTo(sum);
+
+        RecordSizeReport report = new RecordSizeReport(RecordEncoding.COMPACT, 1234, sum / 2, true, 4096, 1000);
+        assertThat(report.getStringFormatBytesPerRecord()).isEqualTo((double) sum / 1234);
+        assertThat(report.getWireBytesPerSecond()).isEqualTo(4096);
+        assertThat(report.summary()).contains("Record size (compact)", "(50%)", "4.0 KiB/sec");
+        assertThat(new RecordSizeReport(RecordEncoding.ASCII, 10, 100, false, -1, 0).summary())
+                .doesNotContain("string format", "brokers");
+    }
+
+    private static CompactRecordSerializer serializer(boolean isKey, Map<String, ?> configs) {
+        CompactRecordSerializer serializer = new CompactRecordSerializer();
+        serializer.configure(configs, isKey);
+        return serializer;
+    }
+
+    private static CompactRecordDeserializer deserializer(boolean isKey, Map<String, ?> configs) {
+        CompactRecordDeserializer deserializer = new CompactRecordDeserializer();
+        deserializer.configure(configs, isKey);
+        return deserializer;
+    }
+}
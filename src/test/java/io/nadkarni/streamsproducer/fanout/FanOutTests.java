@@ -0,0 +1,247 @@
+package io.nadkarni.streamsproducer.fanout;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.encoding.RecordEncoding;
+import io.nadkarni.streamsproducer.metrics.SendLatencyRecorders;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.CreatePartitionsResult;
+import org.apache.kafka.clients.admin.CreateTopicsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.ListTopicsResult;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TopicSchedule}, {@link TopicSpec}, {@link TopicProvisioner} and
+ * {@link FanOutProducer}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class FanOutTests {
+
+    /**
+     * Topics get their weighted share, interleaved within one record of the exact ratio,
+     * and each topic's sequence numbers are gap-free across cycles.
+     */
+    @Test
+    void scheduleInterleavesTopicsByWeight() {
+        double[] weights = {10, 85, 5};
+        TopicSchedule schedule = new TopicSchedule(weights);
+        long[] counts = new long[weights.length];
+        List<List<Long>> sequences = Arrays.asList(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        double firstCycleDeviation = 0;
+        for (long seq = 0; seq < 3L * TopicSchedule.SLOTS; seq++) {
+            int topic = schedule.topic(seq);
+            sequences.get(topic).add(schedule.topicSequence(seq));
+            counts[topic]++;
+            for (int t = 0; t < weights.length && seq < TopicSchedule.SLOTS; t++) {
+                firstCycleDeviation = Math.max(firstCycleDeviation,
+                        Math.abs(counts[t] - (seq + 1) * weights[t] / 100));
+            }
+        }
+        assertThat(firstCycleDeviation).isLessThan(1);
+        for (int t = 0; t < weights.length; t++) {
+            assertThat(schedule.share(t)).isCloseTo(weights[t] / 100, within(1e-4));
+            List<Long> topicSequence = sequences.get(t);
+            for (int n = 0; n < topicSequence.size(); n++) {
+                assertThat(topicSequence.get(n)).isEqualTo(n);
+            }
+        }
+        assertThatThrownBy(() -> new TopicSchedule(new double[]{1_000_000, 1}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Unset properties come from the top-level ones; invalid and duplicate topics are rejected.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void completesAndValidatesTopics() {
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        TopicSpec orders = topic("orders", 2);
+        orders.setPartitions(12);
+        orders.setPayloadGenerator("random");
+        TopicSpec completed = orders.withDefaults(workloadFactory.defaults(), 5, (short) 1);
+        assertThat(completed.getPartitions()).isEqualTo(12);
+        assertThat(completed.getReplicationFactor()).isEqualTo((short) 1);
+        assertThat(completed.getPayloadGenerator()).isEqualTo("random");
+        assertThat(completed.getPayloadSize()).isEqualTo("fixed:100");
+        assertThat(completed.getWeight()).isEqualTo(2);
+
+        assertThatThrownBy(() -> topic(" ", 1).withDefaults(workloadFactory.defaults(), 5, (short) 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> topic("t", 0).withDefaults(workloadFactory.defaults(), 5, (short) 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> topic("t", 1).withDefaults(workloadFactory.defaults(), 0, (short) 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        FanOutProducer duplicates = producer(mock(KafkaTemplate.class), 1, topic("t", 1), topic("t", 2));
+        assertThatThrownBy(duplicates::getTopics).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Missing topics are created, smaller ones get more partitions and larger ones are left alone.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void provisionsMissingTopicsAndPartitions() {
+        Admin admin = mock(Admin.class);
+        ListTopicsResult listed = mock(ListTopicsResult.class);
+        when(listed.names()).thenReturn(KafkaFuture.completedFuture(new HashSet<>(Arrays.asList("small", "large"))));
+        when(admin.listTopics()).thenReturn(listed);
+        CreateTopicsResult created = mock(CreateTopicsResult.class);
+        when(created.all()).thenReturn(KafkaFuture.completedFuture(null));
+        when(admin.createTopics(anyCollection())).thenReturn(created);
+        DescribeTopicsResult described = mock(DescribeTopicsResult.class);
+        Map<String, TopicDescription> descriptions = new ConcurrentHashMap<>();
+        descriptions.put("small", description("small", 2));
+        descriptions.put("large", description("large", 8));
+        when(described.all()).thenReturn(KafkaFuture.completedFuture(descriptions));
+        when(admin.describeTopics(anyCollection())).thenReturn(described);
+        CreatePartitionsResult increased = mock(CreatePartitionsResult.class);
+        when(increased.all()).thenReturn(KafkaFuture.completedFuture(null));
+        when(admin.createPartitions(anyMap())).thenReturn(increased);
+
+        WorkloadFactory workloadFactory = new WorkloadFactory();
+        List<TopicSpec> topics = new ArrayList<>();
+        for (String name : new String[]{"missing", "small", "large"}) {
+            topics.add(topic(name, 1).withDefaults(workloadFactory.defaults(), 4, (short) 1));
+        }
+        new TopicProvisioner(null).provision(admin, topics);
+
+        ArgumentCaptor<Collection<NewTopic>> newTopics = ArgumentCaptor.forClass(Collection.class);
+        verify(admin).createTopics(newTopics.capture());
+        assertThat(newTopics.getValue()).extracting(NewTopic::name, NewTopic::numPartitions)
+                .containsExactly(tuple("missing", 4));
+        ArgumentCaptor<Map<String, NewPartitions>> partitions = ArgumentCaptor.forClass(Map.class);
+        verify(admin).createPartitions(partitions.capture());
+        assertThat(partitions.getValue()).containsOnlyKeys("small");
+        assertThat(partitions.getValue().get("small").totalCount()).isEqualTo(4);
+
+        Admin failing = mock(Admin.class);
+        ListTopicsResult unreachable = mock(ListTopicsResult.class);
+        KafkaFutureImpl<Set<String>> failed = new KafkaFutureImpl<>();
+        failed.completeExceptionally(new TimeoutException("No brokers"));
+        when(unreachable.names()).thenReturn(failed);
+        when(failing.listTopics()).thenReturn(unreachable);
+        assertThatThrownBy(() -> new TopicProvisioner(null).provision(failing, topics))
+                .isInstanceOf(IllegalStateException.class);
+        verify(failing, never()).createTopics(anyCollection());
+    }
+
+    /**
+     * One run reaches every topic in proportion to its weight, through the one template,
+     * with a gap-free sequence per sequential topic and generated values for the others.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void sendsWeightedRunThroughOneTemplate() throws InterruptedException {
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        Map<String, List<String>> valuesByTopic = new ConcurrentHashMap<>();
+        when(kafkaTemplate.send(anyString(), isNull(), any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> {
+                    String topic = invocation.getArgument(0);
+                    byte[] value = invocation.getArgument(3);
+                    valuesByTopic.computeIfAbsent(topic, t -> Collections.synchronizedList(new ArrayList<>()))
+                            .add(new String(value, StandardCharsets.ISO_8859_1));
+                    SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                    RecordMetadata metadata = new RecordMetadata(new TopicPartition(topic, 0), 0, 0, 0, 0L, 0, 0);
+                    future.set(new SendResult<>(new ProducerRecord<>(topic, value), metadata));
+                    return future;
+                });
+        TopicSpec generated = topic("generated", 1);
+        generated.setPayloadGenerator("random");
+        generated.setPayloadSize("fixed:50");
+        generated.setPayloadCorpusSize(100);
+        FanOutProducer producer = producer(kafkaTemplate, 3, topic("sequential", 3), generated);
+        SendStatistics statistics = new SendStatistics();
+        RunLimit limit = new RunLimit(40_000, 0);
+        limit.start();
+
+        producer.send(limit, null, RecordEncoding.ASCII, new InFlightWindow(1000, 1 << 20), statistics, 1000);
+
+        assertThat(statistics.getAcked()).isEqualTo(40_000);
+        long[] numbers = valuesByTopic.get("sequential").stream()
+                .mapToLong(value -> Long.parseLong(value.substring("Message ".length()))).sorted().toArray();
+        assertThat(numbers).hasSize(30_000);
+        for (int n = 0; n < numbers.length; n++) {
+            assertThat(numbers[n]).isEqualTo(n);
+        }
+        assertThat(valuesByTopic.get("generated")).hasSize(10_000).allSatisfy(value -> assertThat(value).hasSize(50));
+        assertThat(FanOutProducer.summary("t", 25, 100, 250,
+                new SendLatencyRecorders(new SimpleMeterRegistry()).forTopic("t").overallHistogram()))
+                .contains("Topic t: 25 records (25.0%), 10.0 key and value bytes/record");
+    }
+
+    private static FanOutProducer producer(KafkaTemplate<Object, Object> kafkaTemplate, int threads,
+                                           TopicSpec... topics) {
+        FanOutProperties properties = new FanOutProperties();
+        properties.setThreads(threads);
+        properties.setTopics(Arrays.asList(topics));
+        FanOutProducer producer = new FanOutProducer(kafkaTemplate, properties, null, new WorkloadFactory(),
+                new SendLatencyRecorders(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(producer, "numPartitions", 3);
+        return producer;
+    }
+
+    private static TopicSpec topic(String name, double weight) {
+        TopicSpec topic = new TopicSpec();
+        topic.setName(name);
+        topic.setWeight(weight);
+        return topic;
+    }
+
+    private static TopicDescription description(String name, int partitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<TopicPartitionInfo> infos = new ArrayList<>();
+        for (int p = 0; p < partitions; p++) {
+            infos.add(new TopicPartitionInfo(p, node, Collections.singletonList(node), Collections.singletonList(node)));
+        }
+        return new TopicDescription(name, false, infos);
+    }
+}
@@ -0,0 +1,234 @@
+package io.nadkarni.streamsproducer.group;
+
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link GroupShard}, {@link GroupMember} and {@link GroupReport}.
+ *
+ * <p>The members write to a {@link ControlLog}, which appends every message to the
+ * {@link MockConsumer} of each member, like the single-partition control topic.</p>
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class GroupTests {
+
+    private static final String TOPIC = "group-control";
+    private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+
+    /**
+     * The ranges of all members cover every sequence number exactly once.
+     */
+    @Test
+    void shardsCoverEveryRecordOnce() {
+        long next = 0;
+        for (int index = 0; index < 3; index++) {
+            GroupShard shard = GroupShard.of(index, 3, 100);
+            assertThat(shard.getFirst()).isEqualTo(next);
+            assertThat(shard.getCount()).isEqualTo(index == 0 ? 34 : 33);
+            next += shard.getCount();
+        }
+        assertThat(next).isEqualTo(100);
+        assertThat(GroupShard.of(4, 5, 3).getCount()).isZero();
+        assertThatThrownBy(() -> GroupShard.of(3, 3, 100)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> GroupShard.of(0, 1, -1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Members join in the order of their JOINs, start together and all end with the same
+     * aggregated report.
+     */
+    @Test
+    void membersJoinStartAndReportTogether() throws Exception {
+        ControlLog log = new ControlLog();
+        List<GroupMember> members = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            members.add(log.member("g", "instance-" + i, 3));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        List<CompletableFuture<GroupReport>> reports = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            GroupMember member = members.get(i);
+            long acked = 10 * (i + 1);
+            reports.add(CompletableFuture.supplyAsync(() -> {
+                GroupShard shard = member.join(90);
+                member.awaitStart();
+                return member.finish(statistics(shard.getCount(), acked), latency(acked));
+            }, executor));
+        }
+
+        List<Long> firsts = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            GroupReport report = reports.get(i).get(10, TimeUnit.SECONDS);
+            assertThat(report.isComplete()).isTrue();
+            assertThat(report.getSent()).isEqualTo(90);
+            assertThat(report.getAcked()).isEqualTo(60);
+            assertThat(report.getLatency().getTotalCount()).isEqualTo(60);
+            assertThat(report.summary()).contains("3 of 3 members reported", "member 2");
+            assertThat(members.get(i).getRound()).isZero();
+            firsts.add(members.get(i).getShard().getFirst());
+        }
+        assertThat(firsts).containsExactlyInAnyOrder(0L, 30L, 60L);
+        members.forEach(GroupMember::close);
+        executor.shutdown();
+    }
+
+    /**
+     * A later run with the same group id forms the next round, and a member expecting a
+     * different group is refused.
+     */
+    @Test
+    void laterJoinsFormTheNextRound() throws Exception {
+        ControlLog log = new ControlLog();
+        GroupMember first = log.member("g", "a", 1);
+        assertThat(first.join(10).getFirst()).isZero();
+        assertThat(first.getRound()).isZero();
+
+        GroupMember second = log.member("g", "b", 1);
+        assertThat(second.join(10).getCount()).isEqualTo(10);
+        assertThat(second.getRound()).isEqualTo(1);
+
+        GroupMember other = log.member("other", "c", 2);
+        GroupMember mismatched = log.member("other", "d", 2);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CompletableFuture<GroupShard> joining = CompletableFuture.supplyAsync(() -> other.join(10), executor);
+        assertThatThrownBy(() -> mismatched.join(20))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("expects");
+        assertThatThrownBy(() -> joining.get(10, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        executor.shutdown();
+
+        first.awaitStart();
+        GroupMember unjoined = log.member("g", "e", 1);
+        assertThatThrownBy(unjoined::awaitStart).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("has not joined");
+    }
+
+    /**
+     * JOINs more than the timeout after those of a round that never filled form a round of
+     * their own instead of completing the abandoned one.
+     */
+    @Test
+    void abandonedRoundDoesNotShiftLaterRounds() throws Exception {
+        ControlLog log = new ControlLog();
+        GroupMessage stale = new GroupMessage();
+        stale.type = GroupMessage.Type.JOIN;
+        stale.memberId = "stale";
+        stale.instance = "crashed";
+        stale.size = 2;
+        stale.records = 10;
+        stale.joinedMillis = System.currentTimeMillis() - 60_000;
+        log.append(new ProducerRecord<>(TOPIC, 0, "g", stale.toJson()));
+
+        GroupMember first = log.member("g", "a", 2);
+        GroupMember second = log.member("g", "b", 2);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CompletableFuture<GroupShard> joining = CompletableFuture.supplyAsync(() -> first.join(10), executor);
+        GroupShard shard = second.join(10);
+        assertThat(joining.get(10, TimeUnit.SECONDS).getFirst() + shard.getFirst()).isEqualTo(5);
+        assertThat(first.getRound()).isEqualTo(1);
+        assertThat(second.getRound()).isEqualTo(1);
+        executor.shutdown();
+    }
+
+    /**
+     * A group needs an id.
+     */
+    @Test
+    void requiresGroupId() {
+        LoadGroup group = new LoadGroup(null, null);
+        ReflectionTestUtils.setField(group, "groupSize", 2);
+        assertThat(group.isEnabled()).isTrue();
+        assertThatThrownBy(() -> group.join(10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static SendStatistics statistics(long sent, long acked) {
+        SendStatistics statistics = new SendStatistics();
+        statistics.start();
+        for (long i = 0; i < sent; i++) {
+            statistics.recordSent();
+        }
+        for (long i = 0; i < acked; i++) {
+            statistics.recordAcked();
+        }
+        statistics.finish();
+        return statistics;
+    }
+
+    private static Histogram latency(long records) {
+        Histogram histogram = new Histogram(3);
+        for (long i = 1; i <= records; i++) {
+            histogram.recordValue(i * 100);
+        }
+        return histogram;
+    }
+
+    /**
+     * Single-partition topic shared by the members of a test: every message written by a
+     * member's producer is appended to the consumers of all members, and a new member's
+     * consumer starts with the messages written before.
+     */
+    private static final class ControlLog {
+
+        private final List<MockConsumer<String, String>> consumers = new ArrayList<>();
+        private final List<ProducerRecord<String, String>> records = new ArrayList<>();
+
+        private GroupMember member(String groupId, String instance, int size) {
+            MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+            consumer.updateBeginningOffsets(Collections.singletonMap(PARTITION, 0L));
+            MockProducer<String, String> producer = new MockProducer<String, String>(true, new StringSerializer(),
+                    new StringSerializer()) {
+                @Override
+                public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record,
+                                                                Callback callback) {
+                    append(record);
+                    return super.send(record, callback);
+                }
+            };
+            GroupMember member = new GroupMember(producer, consumer, TOPIC, groupId, instance, size, 2000);
+            synchronized (this) {
+                for (int offset = 0; offset < records.size(); offset++) {
+                    consumer.addRecord(consumerRecord(offset, records.get(offset)));
+                }
+                consumers.add(consumer);
+            }
+            return member;
+        }
+
+        private synchronized void append(ProducerRecord<String, String> record) {
+            for (MockConsumer<String, String> consumer : consumers) {
+                consumer.addRecord(consumerRecord(records.size(), record));
+            }
+            records.add(record);
+        }
+
+        private static ConsumerRecord<String, String> consumerRecord(long offset, ProducerRecord<String, String> record) {
+            return new ConsumerRecord<>(TOPIC, 0, offset, record.key(), record.value());
+        }
+    }
+}
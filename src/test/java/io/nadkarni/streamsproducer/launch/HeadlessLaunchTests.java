@@ -0,0 +1,84 @@
+package io.nadkarni.streamsproducer.launch;
+
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for {@link HeadlessConfiguration} and {@link StartupClock}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class HeadlessLaunchTests {
+
+    /**
+     * Under lazy initialization the admin and the topic definitions become eager again, and
+     * every other bean stays lazy.
+     */
+    @Test
+    void keepsTopicCreationEager() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerBeanDefinition("kafkaAdmin", BeanDefinitionBuilder
+                .genericBeanDefinition(KafkaAdmin.class, () -> new KafkaAdmin(Collections.emptyMap()))
+                .setLazyInit(true).getBeanDefinition());
+        beanFactory.registerBeanDefinition("newTopic", BeanDefinitionBuilder
+                .genericBeanDefinition(NewTopic.class, () -> new NewTopic("t", 1, (short) 1))
+                .setLazyInit(true).getBeanDefinition());
+        beanFactory.registerBeanDefinition("statistics", BeanDefinitionBuilder
+                .genericBeanDefinition(SendStatistics.class).setLazyInit(true).getBeanDefinition());
+
+        HeadlessConfiguration.initializeEagerly(beanFactory);
+
+        assertThat(beanFactory.getBeanDefinition("kafkaAdmin").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("newTopic").isLazyInit()).isFalse();
+        assertThat(beanFactory.getBeanDefinition("statistics").isLazyInit()).isTrue();
+        assertThat(beanFactory.getSingletonCount()).isZero();
+    }
+
+    /**
+     * The first acknowledgement of a run is kept until the next run starts.
+     */
+    @Test
+    void recordsFirstAcknowledgement() {
+        SendStatistics statistics = new SendStatistics();
+        statistics.start();
+        assertThat(statistics.getFirstAckNanos()).isZero();
+
+        long before = System.nanoTime();
+        statistics.recordAcked();
+        long first = statistics.getFirstAckNanos();
+        statistics.recordAcked();
+
+        assertThat(first).isBetween(before, System.nanoTime());
+        assertThat(statistics.getFirstAckNanos()).isEqualTo(first);
+        statistics.start();
+        assertThat(statistics.getFirstAckNanos()).isZero();
+    }
+
+    /**
+     * Readings are converted to milliseconds since the JVM's launch, and reported in the
+     * line the startup benchmark parses.
+     */
+    @Test
+    void measuresFromJvmLaunch() {
+        long now = System.nanoTime();
+        long sinceLaunch = StartupClock.millisSinceLaunch(now);
+        long earlier = StartupClock.millisSinceLaunch(now - TimeUnit.SECONDS.toNanos(1));
+
+        assertThat(sinceLaunch).isPositive();
+        assertThat((double) (sinceLaunch - earlier)).isCloseTo(1000, within(20.0));
+        assertThat(StartupClock.report(850, 1240)).isEqualTo(
+                "Startup: context ready after 850 ms, first record acknowledged 1240 ms after JVM launch");
+    }
+}
@@ -0,0 +1,90 @@
+package io.nadkarni.streamsproducer.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for {@link SendLatencyRecorder}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class SendLatencyRecorderTests {
+
+    private MeterRegistry registry;
+    private SendLatencyRecorder latency;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        latency = new SendLatencyRecorder(registry, "strings");
+    }
+
+    /**
+     * Latency is charged from the intended send time, not from when the record was recorded.
+     */
+    @Test
+    void measuresFromIntendedSendTime() {
+        long intended = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+        latency.record(2, intended);
+
+        Histogram overall = latency.overallHistogram();
+        assertThat(overall.getTotalCount()).isEqualTo(1);
+        assertThat(overall.getMaxValue()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(49));
+        assertThat(gauge("producer.send.latency.max", "2")).isGreaterThanOrEqualTo(49.0);
+    }
+
+    /**
+     * Percentile gauges are published per partition and overall, in milliseconds.
+     */
+    @Test
+    void publishesPercentilesPerPartition() {
+        long now = System.nanoTime();
+        for (int ii = 1; ii <= 1000; ii++) {
+            latency.record(ii % 2, now - TimeUnit.MILLISECONDS.toNanos(ii));
+        }
+
+        assertThat(latency.partitionHistogram(0).getTotalCount()).isEqualTo(500);
+        assertThat(latency.partitionHistogram(1).getTotalCount()).isEqualTo(500);
+        assertThat(latency.partitionHistogram(2)).isNull();
+        assertThat(registry.get("producer.send.latency.percentile").tag("partition", "all").tag("phi", "0.5")
+                .gauge().value()).isCloseTo(500.0, within(50.0));
+        assertThat(registry.get("producer.send.latency.percentile").tag("partition", "all").tag("phi", "0.99")
+                .gauge().value()).isCloseTo(990.0, within(50.0));
+        assertThat(gauge("producer.send.latency.count", "1")).isEqualTo(500.0);
+    }
+
+    /**
+     * Latencies beyond the trackable range are clamped rather than rejected, and a reset
+     * starts a new run from empty histograms.
+     */
+    @Test
+    void clampsOutOfRangeValuesAndResets() {
+        latency.record(0, System.nanoTime() - TimeUnit.HOURS.toNanos(1));
+        latency.record(-1, System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        Histogram overall = latency.overallHistogram();
+        assertThat(overall.getTotalCount()).isEqualTo(2);
+        assertThat(overall.getMinValue()).isZero();
+        long highest = SendLatencyRecorder.HIGHEST_TRACKABLE_MICROS;
+        assertThat(overall.getMaxValue()).isCloseTo(highest, within(highest / 100));
+
+        latency.reset();
+
+        assertThat(latency.overallHistogram().getTotalCount()).isZero();
+        assertThat(gauge("producer.send.latency.count", "0")).isZero();
+    }
+
+    private double gauge(String name, String partition) {
+        return registry.get(name).tag("partition", partition).gauge().value();
+    }
+}
@@ -0,0 +1,104 @@
+package io.nadkarni.streamsproducer.pacing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for {@link LoadProfile}, {@link RatePacer} and {@link RunLimit}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class RatePacerTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Step profiles accumulate records segment by segment.
+     */
+    @Test
+    void stepProfileAccumulatesTokens() {
+        LoadProfile profile = LoadProfile.parse("1000:2s, 3000:1s");
+
+        assertThat(profile.durationNanos()).isEqualTo(3 * SECOND);
+        assertThat(profile.rateAt(SECOND)).isEqualTo(1000.0);
+        assertThat(profile.rateAt(2 * SECOND + 1)).isEqualTo(3000.0);
+        assertThat(profile.tokensAt(2 * SECOND)).isCloseTo(2000.0, within(1e-6));
+        assertThat(profile.tokensAt(3 * SECOND)).isCloseTo(5000.0, within(1e-6));
+        assertThat(profile.timeOfToken(2000)).isEqualTo(2 * SECOND);
+        assertThat(profile.timeOfToken(5000)).isEqualTo(LoadProfile.END);
+        assertThat(profile.rateAt(4 * SECOND)).isZero();
+    }
+
+    /**
+     * A linear ramp's token schedule is the inverse of its token count.
+     */
+    @Test
+    void rampProfileInvertsTokenCount() {
+        LoadProfile profile = LoadProfile.parse("0-2000:2s");
+
+        assertThat(profile.rateAt(SECOND)).isCloseTo(1000.0, within(1e-6));
+        assertThat(profile.tokensAt(2 * SECOND)).isCloseTo(2000.0, within(1e-6));
+        for (long token = 1; token < 2000; token += 97) {
+            double roundTrip = profile.tokensAt(profile.timeOfToken(token));
+            assertThat(roundTrip).isCloseTo(token, within(0.01));
+        }
+    }
+
+    /**
+     * Malformed profile entries are rejected.
+     */
+    @Test
+    void rejectsMalformedProfiles() {
+        assertThatThrownBy(() -> LoadProfile.parse("1000")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadProfile.parse("0:10s")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadProfile.parse("1000:0s")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * A paced run releases roughly rate x duration records and then finishes.
+     */
+    @Test
+    void pacerHoldsRateAndFinishes() throws InterruptedException {
+        RatePacer pacer = new RatePacer(LoadProfile.parse("2000:250ms"), 0, 0);
+        pacer.start();
+        long start = System.nanoTime();
+        int released = 0;
+        long previousIntended = 0;
+        long intended;
+        while ((intended = pacer.acquire()) != RatePacer.FINISHED) {
+            assertThat(intended).isGreaterThanOrEqualTo(previousIntended);
+            assertThat(System.nanoTime()).isGreaterThanOrEqualTo(intended);
+            previousIntended = intended;
+            released++;
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(released).isEqualTo(500);
+        assertThat(elapsedMillis).isBetween(240L, 1000L);
+    }
+
+    /**
+     * The duration limit ends an unpaced run even though the count was not reached.
+     */
+    @Test
+    void runLimitStopsOnDuration() throws InterruptedException {
+        RunLimit limit = new RunLimit(Long.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(50));
+        limit.start();
+        long seq = 0;
+        while (limit.allows(seq)) {
+            seq++;
+            if ((seq & 1023) == 0) {
+                Thread.sleep(1);
+            }
+        }
+        assertThat(seq).isLessThan(Long.MAX_VALUE);
+        assertThat(new RunLimit(10, 0).allows(10)).isFalse();
+    }
+}
@@ -0,0 +1,121 @@
+package io.nadkarni.streamsproducer.partitioning;
+
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link PartitionTable}, {@link PartitionPlan} and {@link PartitionCounts}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class PartitioningTests {
+
+    /**
+     * The table places every key where Kafka's default partitioner puts it, including keys
+     * beyond the precomputed range.
+     */
+    @Test
+    void tableMatchesDefaultPartitioner() {
+        Cluster cluster = cluster("strings", 7);
+        DefaultPartitioner partitioner = new DefaultPartitioner();
+        PartitionTable table = PartitionTable.build(7, 1000);
+
+        for (long key = 0; key < 2000; key++) {
+            byte[] keyBytes = Long.toString(key).getBytes(StandardCharsets.US_ASCII);
+            assertThat(table.partition(key)).as("key %d", key)
+                    .isEqualTo(partitioner.partition("strings", null, keyBytes, null, null, cluster));
+        }
+        assertThat(table.size()).isEqualTo(1000);
+        assertThat(PartitionPlan.create(Partitioning.TABLE, 7, 1_000_000, 500, 16384).selector(0).partition(42, 10))
+                .isEqualTo(table.partition(42));
+        assertThatThrownBy(() -> PartitionTable.build(0, 10)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PartitionPlan.create(Partitioning.STICKY, 0, 10, 10, 16384))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * A sticky selector fills one batch per partition, then moves to the next partition;
+     * different workers start on different partitions.
+     */
+    @Test
+    void stickySelectorFillsBatchesRoundRobin() {
+        PartitionPlan plan = PartitionPlan.create(Partitioning.STICKY, 3, 0, 0, 1000);
+        PartitionSelector first = plan.selector(0);
+        PartitionSelector second = plan.selector(1);
+
+        List<Integer> placement = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            placement.add(first.partition(i, 100));
+        }
+
+        assertThat(placement.subList(0, 10)).containsOnly(0);
+        assertThat(placement.subList(10, 20)).containsOnly(1);
+        assertThat(placement.subList(20, 30)).containsOnly(2);
+        assertThat(placement.subList(30, 40)).containsOnly(0);
+        assertThat(second.partition(0, 100)).isEqualTo(1);
+        assertThat(PartitionPlan.create(Partitioning.DEFAULT, 3, 0, 0, 1000).selector(0)).isNull();
+    }
+
+    /**
+     * When its batch is full, a load-aware selector moves to the partition with the fewest
+     * unacknowledged bytes.
+     */
+    @Test
+    void loadAwareSelectorAvoidsBackedUpPartitions() {
+        PartitionPlan plan = PartitionPlan.create(Partitioning.LOAD_AWARE, 3, 0, 0, 100);
+        PartitionCounts counts = plan.getCounts();
+        PartitionSelector selector = plan.selector(0);
+        counts.sent(1, 5000);
+        counts.sent(2, 1000);
+        counts.sent(0, 3000);
+
+        assertThat(selector.partition(0, 100)).isEqualTo(0);
+        assertThat(selector.partition(1, 100)).isEqualTo(2);
+
+        counts.completed(1, 5000);
+        assertThat(selector.partition(2, 100)).isEqualTo(1);
+    }
+
+    /**
+     * Acknowledged records and bytes are counted per partition and summarized with the
+     * imbalance ratio; unknown partitions are ignored.
+     */
+    @Test
+    void countsSummarizeBalance() {
+        PartitionCounts counts = new PartitionCounts(2);
+        counts.acknowledged(0, 10);
+        counts.acknowledged(0, 10);
+        counts.acknowledged(0, 10);
+        counts.acknowledged(1, 30);
+        counts.acknowledged(-1, 10);
+        counts.acknowledged(5, 10);
+
+        assertThat(counts.records(0)).isEqualTo(3);
+        assertThat(counts.bytes(1)).isEqualTo(30);
+        assertThat(counts.summary()).contains("Records per partition: [3, 1]", "bytes per partition: [30, 30]",
+                "busiest/mean 1.50 records, 1.00 bytes");
+    }
+
+    private static Cluster cluster(String topic, int partitions) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> infos = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            infos.add(new PartitionInfo(topic, p, node, new Node[]{node}, new Node[]{node}));
+        }
+        return new Cluster("test", Collections.singletonList(node), infos, Collections.emptySet(),
+                Collections.emptySet());
+    }
+}
@@ -0,0 +1,131 @@
+package io.nadkarni.streamsproducer.payload;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for the built-in {@link PayloadGenerator}s, {@link SizeDistribution} and
+ * {@link KeyModel}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class PayloadGeneratorTests {
+
+    private static final int SAMPLES = 100_000;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /**
+     * Sizes stay within their bounds and follow the shape of the distribution.
+     */
+    @Test
+    void sizeDistributionsMatchTheirSpecification() {
+        assertThat(SizeDistribution.parse("128").sample(random)).isEqualTo(128);
+        assertThat(SizeDistribution.parse("fixed:64").sample(random)).isEqualTo(64);
+
+        SizeDistribution uniform = SizeDistribution.parse("uniform:100-200");
+        SizeDistribution normal = SizeDistribution.parse("normal:500,50");
+        SizeDistribution zipf = SizeDistribution.parse("zipf:100-10000,1.2");
+        long uniformSum = 0;
+        long normalSum = 0;
+        int zipfSmallest = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            int u = uniform.sample(random);
+            assertThat(u).isBetween(100, 200);
+            uniformSum += u;
+            normalSum += normal.sample(random);
+            int z = zipf.sample(random);
+            assertThat(z).isBetween(100, 10000);
+            if (z == 100) {
+                zipfSmallest++;
+            }
+        }
+        assertThat((double) uniformSum / SAMPLES).isCloseTo(150, within(1.0));
+        assertThat((double) normalSum / SAMPLES).isCloseTo(500, within(1.0));
+        // P(rank 1) = 1 / H(9901, 1.2), about 0.208
+        double harmonic = 0;
+        for (int rank = 1; rank <= 9901; rank++) {
+            harmonic += Math.pow(rank, -1.2);
+        }
+        assertThat((double) zipfSmallest / SAMPLES).isCloseTo(1 / harmonic, within(0.01));
+
+        assertThatThrownBy(() -> SizeDistribution.parse("uniform:200-100")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SizeDistribution.parse("pareto:1,2")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Random values are incompressible bytes of the sampled size.
+     */
+    @Test
+    void randomBytesHaveTheSampledSize() {
+        RandomBytesGenerator generator = new RandomBytesGenerator(SizeDistribution.parse("uniform:1-33"));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(generator.generate(i, random).length).isBetween(1, 33);
+        }
+        byte[] value = new RandomBytesGenerator(SizeDistribution.fixed(4096)).generate(0, random);
+        assertThat(value).hasSize(4096);
+        assertThat(value).containsAnyOf((byte) 0x80, (byte) 0xFF).containsAnyOf((byte) 0x01, (byte) 0x7F);
+    }
+
+    /**
+     * Every generated document is valid JSON whose fields vary within their placeholders.
+     */
+    @Test
+    void jsonTemplateProducesValidDocuments() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        JsonTemplateGenerator generator = new JsonTemplateGenerator(JsonTemplateGenerator.DEFAULT_TEMPLATE);
+        for (int i = 0; i < 1000; i++) {
+            JsonNode document = mapper.readTree(generator.generate(i, random));
+            assertThat(document.get("sequence").asLong()).isEqualTo(i);
+            assertThat(document.get("customerId").asInt()).isBetween(1, 100000);
+            assertThat(document.get("status").asText()).isIn("NEW", "PAID", "SHIPPED", "DELIVERED", "CANCELLED");
+            assertThat(document.get("amount").decimalValue()).isBetween(
+                    java.math.BigDecimal.ONE, java.math.BigDecimal.valueOf(500));
+            assertThat(document.get("note").asText()).hasSizeLessThanOrEqualTo(80).matches("[a-z ]*");
+            assertThat(document.get("orderId").asText()).matches("[0-9a-f-]{36}");
+        }
+        JsonTemplateGenerator negative = new JsonTemplateGenerator("{\"delta\":{{int:-5-5}}}");
+        assertThat(mapper.readTree(negative.generate(0, random)).get("delta").asInt()).isBetween(-5, 5);
+
+        assertThatThrownBy(() -> new JsonTemplateGenerator("{\"a\":{{date}}}")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new JsonTemplateGenerator("{\"a\":{{int:5}")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Keys are unique by default, bounded by the cardinality, and concentrated on the first
+     * keys when skewed.
+     */
+    @Test
+    void keyModelControlsCardinalityAndSkew() {
+        assertThat(new KeyModel(0, 0).keyOf(123, random)).isEqualTo(123);
+
+        KeyModel uniform = new KeyModel(10, 0);
+        KeyModel skewed = new KeyModel(1000, 1.0);
+        int[] uniformCounts = new int[10];
+        int hottest = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            uniformCounts[(int) uniform.keyOf(i, random)]++;
+            long key = skewed.keyOf(i, random);
+            assertThat(key).isBetween(0L, 999L);
+            if (key == 0) {
+                hottest++;
+            }
+        }
+        for (int count : uniformCounts) {
+            assertThat(count).isBetween(9_000, 11_000);
+        }
+        // P(key 0) = 1 / H(1000, 1), about 0.134
+        assertThat((double) hottest / SAMPLES).isCloseTo(0.134, within(0.01));
+
+        assertThatThrownBy(() -> new KeyModel(-1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,74 @@
+package io.nadkarni.streamsproducer.payload;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link WorkloadFactory}, {@link PayloadCorpus} and {@link Workload}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class WorkloadFactoryTests {
+
+    private final WorkloadFactory factory = new WorkloadFactory();
+
+    /**
+     * The sequential generator keeps the original records, so there is no workload.
+     */
+    @Test
+    void sequentialGeneratorHasNoWorkload() {
+        assertThat(factory.create(null)).isNull();
+    }
+
+    /**
+     * A corpus is reproducible from its seed, cycled by sequence number, and reused for
+     * identical parameters.
+     */
+    @Test
+    void corpusIsCycledAndCached() {
+        PayloadSpec spec = new PayloadSpec();
+        spec.setPayloadGenerator("json");
+        spec.setPayloadCorpusSize(50);
+
+        Workload workload = factory.create(spec);
+        Workload.Cursor cursor = workload.cursor(0);
+
+        assertThat(workload.getCorpus().size()).isEqualTo(50);
+        assertThat(cursor.value(3)).isSameAs(cursor.value(53)).isNotSameAs(cursor.value(4));
+        assertThat(new String(cursor.key(12345), StandardCharsets.US_ASCII)).isEqualTo("12345");
+        assertThat(factory.create(spec)).isSameAs(workload);
+        PayloadCorpus rebuilt = PayloadCorpus.build(new JsonTemplateGenerator(JsonTemplateGenerator.DEFAULT_TEMPLATE), 50, 1);
+        assertThat(rebuilt.value(3)).isEqualTo(cursor.value(3));
+
+        spec.setPayloadSeed(2L);
+        assertThat(factory.create(spec)).isNotSameAs(workload);
+    }
+
+    /**
+     * Generator beans are selected by name; unknown names are rejected.
+     */
+    @Test
+    void resolvesCustomGeneratorsByBeanName() {
+        PayloadGenerator constant = (index, random) -> new byte[] {(byte) index};
+        ReflectionTestUtils.setField(factory, "generators", Collections.singletonMap("constant", constant));
+        PayloadSpec spec = new PayloadSpec();
+        spec.setPayloadGenerator("constant");
+        spec.setPayloadCorpusSize(3);
+
+        Workload workload = factory.create(spec);
+
+        assertThat(workload.cursor(1).value(5)).containsExactly(2);
+        spec.setPayloadGenerator("missing");
+        assertThatThrownBy(() -> factory.create(spec))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("missing");
+    }
+}
@@ -0,0 +1,186 @@
+package io.nadkarni.streamsproducer.replay;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.PipelinedSender;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link CaptureWriter}, {@link CaptureReader}, {@link CaptureReplayer} and
+ * {@link TopicCapture}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class CaptureReplayTests {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Records come back in order, including null keys and records that straddle the end of
+     * the mapped window.
+     */
+    @Test
+    void readsWhatWasWrittenAcrossWindows() throws Exception {
+        Path file = directory.resolve("capture.bin");
+        try (CaptureWriter writer = CaptureWriter.create(file)) {
+            for (int i = 0; i < 1000; i++) {
+                writer.append(1000L + i, i % 10 == 0 ? null : bytes("key-" + i), bytes("value-" + i));
+            }
+            assertThat(writer.getRecords()).isEqualTo(1000);
+        }
+
+        try (CaptureReader reader = new CaptureReader(file, 64)) {
+            for (int i = 0; i < 1000; i++) {
+                assertThat(reader.next()).isTrue();
+                assertThat(reader.timestamp()).isEqualTo(1000L + i);
+                assertThat(reader.key()).isEqualTo(i % 10 == 0 ? null : bytes("key-" + i));
+                assertThat(reader.value()).isEqualTo(bytes("value-" + i));
+            }
+            assertThat(reader.next()).isFalse();
+            assertThat(reader.isTruncated()).isFalse();
+        }
+    }
+
+    /**
+     * An incomplete final record ends the replay instead of failing it; a file without the
+     * header is rejected.
+     */
+    @Test
+    void stopsBeforeTruncatedRecord() throws Exception {
+        Path file = directory.resolve("truncated.bin");
+        try (CaptureWriter writer = CaptureWriter.create(file)) {
+            writer.append(1, bytes("a"), bytes("first"));
+            writer.append(2, bytes("b"), bytes("second"));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (CaptureReader reader = CaptureReader.open(file)) {
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.next()).isFalse();
+            assertThat(reader.isTruncated()).isTrue();
+            assertThat(reader.getRecords()).isEqualTo(1);
+        }
+
+        Path other = directory.resolve("other.bin");
+        try (FileChannel channel = FileChannel.open(other, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.write(java.nio.ByteBuffer.wrap(bytes("not a capture")));
+        }
+        assertThatThrownBy(() -> CaptureReader.open(other)).hasMessageContaining("not a capture file");
+    }
+
+    /**
+     * With a speed factor the records keep their original spacing divided by the speed.
+     */
+    @Test
+    void replayKeepsScaledTiming() throws Exception {
+        Path file = directory.resolve("timed.bin");
+        try (CaptureWriter writer = CaptureWriter.create(file)) {
+            writer.append(10_000, bytes("0"), bytes("v"));
+            writer.append(10_400, bytes("1"), bytes("v"));
+            writer.append(10_200, bytes("2"), bytes("v"));
+        }
+        @SuppressWarnings("unchecked")
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        List<Long> sentAt = Collections.synchronizedList(new ArrayList<>());
+        when(kafkaTemplate.send(eq("replayed"), isNull(), any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> {
+                    sentAt.add(System.nanoTime());
+                    SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                    future.set(null);
+                    return future;
+                });
+        SendStatistics statistics = new SendStatistics();
+        PipelinedSender<Object, Object> sender = new PipelinedSender<>(kafkaTemplate,
+                new InFlightWindow(100, 1 << 20), statistics);
+        RunLimit limit = new RunLimit(100, 0);
+        limit.start();
+
+        long sent;
+        try (CaptureReader reader = CaptureReader.open(file)) {
+            sent = new CaptureReplayer("replayed", 4).replay(reader, sender, limit, null);
+        }
+
+        assertThat(sent).isEqualTo(3);
+        assertThat(statistics.getAcked()).isEqualTo(3);
+        assertThat(sentAt.get(1) - sentAt.get(0)).isGreaterThanOrEqualTo(90_000_000L);
+        assertThat(sentAt.get(2) - sentAt.get(1)).isLessThan(50_000_000L);
+    }
+
+    /**
+     * The capture stops at the end offsets found when it started, skips nothing before them
+     * and can be read back.
+     */
+    @Test
+    void capturesTopicUpToEndOffsets() throws Exception {
+        MockConsumer<byte[], byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        TopicPartition p0 = new TopicPartition("orders", 0);
+        TopicPartition p1 = new TopicPartition("orders", 1);
+        consumer.updatePartitions("orders", List.of(new PartitionInfo("orders", 0, null, null, null),
+                new PartitionInfo("orders", 1, null, null, null)));
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        offsets.put(p0, 0L);
+        offsets.put(p1, 0L);
+        consumer.updateBeginningOffsets(offsets);
+        offsets.put(p0, 3L);
+        offsets.put(p1, 2L);
+        consumer.updateEndOffsets(offsets);
+        consumer.schedulePollTask(() -> {
+            for (int i = 0; i < 4; i++) {
+                consumer.addRecord(new ConsumerRecord<>("orders", 0, i, bytes("k" + i), bytes("p0-" + i)));
+            }
+            for (int i = 0; i < 2; i++) {
+                consumer.addRecord(new ConsumerRecord<>("orders", 1, i, bytes("k" + i), bytes("p1-" + i)));
+            }
+        });
+        Path file = directory.resolve("orders.bin");
+
+        long captured = new TopicCapture(new KafkaProperties()).capture(consumer, "orders", file, 0);
+
+        assertThat(captured).isEqualTo(5);
+        List<String> values = new ArrayList<>();
+        try (CaptureReader reader = CaptureReader.open(file)) {
+            while (reader.next()) {
+                values.add(new String(reader.value(), StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(values).containsExactlyInAnyOrder("p0-0", "p0-1", "p0-2", "p1-0", "p1-1");
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
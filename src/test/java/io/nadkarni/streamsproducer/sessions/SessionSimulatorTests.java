@@ -0,0 +1,134 @@
+package io.nadkarni.streamsproducer.sessions;
+
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.SendStatistics;
+import io.nadkarni.streamsproducer.pacing.RunLimit;
+import io.nadkarni.streamsproducer.partitioning.PartitionPlan;
+import io.nadkarni.streamsproducer.partitioning.Partitioning;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ThinkTime} and {@link SessionSimulator}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class SessionSimulatorTests {
+
+    private KafkaTemplate<Object, Object> kafkaTemplate;
+    private Map<String, List<String>> valuesByKey;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        kafkaTemplate = mock(KafkaTemplate.class);
+        valuesByKey = new ConcurrentHashMap<>();
+        when(kafkaTemplate.send(eq("sessions"), isNull(), any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> {
+                    String key = new String((byte[]) invocation.getArgument(2), StandardCharsets.US_ASCII);
+                    String value = new String((byte[]) invocation.getArgument(3), StandardCharsets.US_ASCII);
+                    valuesByKey.computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(value);
+                    SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                    RecordMetadata metadata = new RecordMetadata(new TopicPartition("sessions", 0), 0, 0, 0, 0L, 0, 0);
+                    future.set(new SendResult<>(new ProducerRecord<>("sessions", key, value), metadata));
+                    return future;
+                });
+    }
+
+    /**
+     * Think times follow their distribution; malformed specifications are rejected.
+     */
+    @Test
+    void parsesThinkTimes() {
+        SplittableRandom random = new SplittableRandom(7);
+        assertThat(ThinkTime.parse("250ms").sampleNanos(random)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(250));
+        ThinkTime uniform = ThinkTime.parse("uniform:100ms-2s");
+        ThinkTime exponential = ThinkTime.parse("exponential:1s");
+        double sum = 0;
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(uniform.sampleNanos(random)).isBetween(100_000_000L, 2_000_000_000L);
+            sum += exponential.sampleNanos(random);
+        }
+        assertThat(sum / 100_000).isCloseTo(1e9, within(3e7));
+        assertThat(uniform.meanNanos()).isEqualTo(1.05e9);
+        assertThatThrownBy(() -> ThinkTime.parse("poisson:1s")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ThinkTime.parse("uniform:2s-1s")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ThinkTime.parse("0s")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Every session sends under its own key, with values numbered per session and no gaps,
+     * and all sessions keep the same pace.
+     */
+    @Test
+    void sessionsSendGapFreeSequencesPerKey() throws InterruptedException {
+        SessionSimulator simulator = simulator(500, 2, "fixed:5ms");
+        SendStatistics statistics = new SendStatistics();
+
+        simulator.send("sessions", new RunLimit(5000, 0), null, new InFlightWindow(1000, 1 << 20), statistics,
+                null, PartitionPlan.create(Partitioning.DEFAULT, 0, 500, 0, 16384), 1000);
+
+        assertThat(statistics.getAcked()).isEqualTo(5000);
+        assertThat(valuesByKey).hasSize(500);
+        valuesByKey.forEach((key, values) -> {
+            assertThat(Integer.parseInt(key)).isBetween(0, 499);
+            assertThat(values).hasSizeBetween(5, 15);
+            for (int n = 0; n < values.size(); n++) {
+                assertThat(values.get(n)).isEqualTo("Message " + n);
+            }
+        });
+    }
+
+    /**
+     * Idle sessions do not hold the run past its duration.
+     */
+    @Test
+    void stopsIdleSessionsAtRunDuration() throws InterruptedException {
+        SessionSimulator simulator = simulator(3, 1, "fixed:10m");
+        RunLimit limit = new RunLimit(1000, TimeUnit.MILLISECONDS.toNanos(100));
+        SendStatistics statistics = new SendStatistics();
+        limit.start();
+        long start = System.nanoTime();
+
+        simulator.send("sessions", limit, null, new InFlightWindow(1000, 1 << 20), statistics, null,
+                PartitionPlan.create(Partitioning.DEFAULT, 0, 3, 0, 16384), 1000);
+
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(statistics.getSent()).isLessThanOrEqualTo(3);
+    }
+
+    private SessionSimulator simulator(int sessions, int threads, String thinkTime) {
+        SessionSimulator simulator = new SessionSimulator(kafkaTemplate);
+        ReflectionTestUtils.setField(simulator, "sessions", sessions);
+        ReflectionTestUtils.setField(simulator, "sessionThreads", threads);
+        ReflectionTestUtils.setField(simulator, "thinkTime", thinkTime);
+        return simulator;
+    }
+}
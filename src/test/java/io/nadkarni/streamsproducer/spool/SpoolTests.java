@@ -0,0 +1,326 @@
+package io.nadkarni.streamsproducer.spool;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nadkarni.streamsproducer.InFlightWindow;
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link RecordSpool}, {@link SpoolingSender} and {@link RecordSpools}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class SpoolTests {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Records come back in order across segments, and segments are deleted once drained.
+     */
+    @Test
+    void readsBackInOrderAndDeletesDrainedSegments() throws Exception {
+        try (RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 4 * SEGMENT_BYTES)) {
+            for (int i = 0; i < 200; i++) {
+                assertThat(spool.append(i % 2 == 0 ? null : 1, bytes("k" + i), bytes("value-" + i), i)).isTrue();
+            }
+            assertThat(segments()).hasSize(2);
+            assertThat(spool.depthRecords()).isEqualTo(200);
+            assertThat(spool.hasBacklog()).isTrue();
+
+            List<String> values = drain(spool, 200);
+
+            assertThat(values).hasSize(200).startsWith("value-0", "value-1").endsWith("value-199");
+            assertThat(spool.hasBacklog()).isFalse();
+            assertThat(spool.depthRecords()).isZero();
+            assertThat(spool.depthBytes()).isZero();
+            assertThat(spool.getDrained()).isEqualTo(200);
+            assertThat(segments()).hasSize(1);
+        }
+        assertThat(segments()).isEmpty();
+    }
+
+    /**
+     * A reopened spool resumes after the last drained record, and stops at a damaged one.
+     */
+    @Test
+    void recoversUndrainedRecordsAfterRestart() throws Exception {
+        try (RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 4 * SEGMENT_BYTES)) {
+            for (int i = 0; i < 150; i++) {
+                spool.append(null, null, bytes("value-" + i), i);
+            }
+            drain(spool, 50);
+        }
+        try (RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 4 * SEGMENT_BYTES)) {
+            assertThat(spool.getRecovered()).isEqualTo(100);
+            assertThat(spool.depthRecords()).isEqualTo(100);
+            SpoolRecord record = new SpoolRecord();
+            assertThat(spool.next(record)).isTrue();
+            assertThat(new String(record.value, StandardCharsets.UTF_8)).isEqualTo("value-50");
+            assertThat(record.key).isNull();
+            assertThat(record.partition).isNull();
+        }
+
+        Path last = segments().get(segments().size() - 1);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), SpoolFormat.HEADER_SIZE + 100);
+        }
+        try (RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 4 * SEGMENT_BYTES)) {
+            assertThat(spool.getRecovered()).isLessThan(100);
+            List<String> values = drain(spool, (int) spool.getRecovered());
+            assertThat(values.get(0)).isEqualTo("value-50");
+            assertThat(spool.append(null, null, bytes("after"), 0)).isTrue();
+            assertThat(segments()).doesNotContain(last);
+        }
+    }
+
+    /**
+     * The spool refuses records once it holds {@code maxBytes}, and rejects records and
+     * settings that cannot work.
+     */
+    @Test
+    void boundsDiskUsage() throws Exception {
+        try (RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 2 * SEGMENT_BYTES)) {
+            int appended = 0;
+            while (spool.append(null, null, new byte[100], 0)) {
+                appended++;
+            }
+            int perSegment = (SEGMENT_BYTES - SpoolFormat.HEADER_SIZE) / SpoolFormat.recordSize(-1, 100);
+            assertThat(appended).isEqualTo(2 * perSegment);
+            assertThat(segments()).hasSize(2);
+
+            drain(spool, 40);
+            assertThat(spool.append(null, null, new byte[100], 0)).isTrue();
+            assertThatThrownBy(() -> spool.append(null, null, new byte[SEGMENT_BYTES], 0))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> RecordSpool.open(directory, "t", SEGMENT_BYTES, SEGMENT_BYTES - 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * While the window stays full, records are spooled instead of blocking the caller, and
+     * sent in order once the window has room again.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void spoolsWhileTheWindowIsFull() throws Exception {
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        SettableListenableFuture<SendResult<Object, Object>> stalled = new SettableListenableFuture<>();
+        List<String> sent = new ArrayList<>();
+        when(kafkaTemplate.send(eq("t"), isNull(), any(), any())).thenAnswer(invocation -> {
+            String value = value(invocation.getArgument(3));
+            synchronized (sent) {
+                sent.add(value);
+            }
+            return value.equals("Message 0") ? stalled : acked(value);
+        });
+        SendStatistics statistics = new SendStatistics();
+        statistics.start();
+        InFlightWindow window = new InFlightWindow(1, 1 << 20);
+        RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 4 * SEGMENT_BYTES);
+        SpoolingSender sender = new SpoolingSender(kafkaTemplate, window, statistics, null, null, spool,
+                TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            sender.send("t", null, Integer.toString(i), "Message " + i, 10);
+        }
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(5));
+        assertThat(spool.getSpooled()).isEqualTo(4);
+        assertThat(sent).containsExactly("Message 0");
+
+        stalled.set(null);
+
+        assertThat(sender.drain(5000)).isTrue();
+        assertThat(sent).containsExactly("Message 0", "Message 1", "Message 2", "Message 3", "Message 4");
+        assertThat(statistics.getAcked()).isEqualTo(5);
+        assertThat(spool.getDrained()).isEqualTo(4);
+        assertThat(segments()).isEmpty();
+    }
+
+    /**
+     * Direct sends that time out during an outage are spooled from copies of their reused
+     * arrays and sent again, not counted as failed.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void spoolsDirectSendsThatTimeOut() throws Exception {
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        List<SettableListenableFuture<SendResult<Object, Object>>> pending = new ArrayList<>();
+        List<String> sent = new ArrayList<>();
+        when(kafkaTemplate.send(eq("t"), isNull(), any(), any())).thenAnswer(invocation -> {
+            String value = value(invocation.getArgument(3));
+            synchronized (sent) {
+                sent.add(value);
+                if (pending.size() < 3) {
+                    SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                    pending.add(future);
+                    return future;
+                }
+            }
+            return acked(value);
+        });
+        SendStatistics statistics = new SendStatistics();
+        statistics.start();
+        RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 4 * SEGMENT_BYTES);
+        SpoolingSender sender = new SpoolingSender(kafkaTemplate, new InFlightWindow(10, 1 << 20), statistics, null,
+                null, spool, TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(1));
+
+        byte[] value = new byte[7];
+        for (int i = 0; i < 3; i++) {
+            System.arraycopy(bytes("value-" + i), 0, value, 0, value.length);
+            sender.send("t", null, null, value, value.length);
+        }
+        assertThat(spool.getSpooled()).isZero();
+        synchronized (sent) {
+            pending.forEach(future -> future.setException(new TimeoutException("Expiring 1 record")));
+        }
+        System.arraycopy(bytes("value-3"), 0, value, 0, value.length);
+        sender.send("t", null, null, value, value.length);
+
+        assertThat(sender.drain(5000)).isTrue();
+        assertThat(sent).containsExactly("value-0", "value-1", "value-2", "value-0", "value-1", "value-2",
+                "value-3");
+        assertThat(statistics.getFailed()).isZero();
+        assertThat(statistics.getAcked()).isEqualTo(4);
+        assertThat(sender.getRespooled()).isEqualTo(3);
+        assertThat(spool.getSpooled()).isEqualTo(4);
+    }
+
+    /**
+     * Spooled records that fail with a retriable error are sent again, not counted as
+     * failed, and the spool's state is published per topic.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void retriesSpooledRecordsAfterRetriableFailures() throws Exception {
+        try (RecordSpool spool = RecordSpool.open(directory, "t", SEGMENT_BYTES, 4 * SEGMENT_BYTES)) {
+            for (int i = 0; i < 3; i++) {
+                spool.append(null, null, bytes("value-" + i), 0);
+            }
+        }
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        AtomicBoolean outage = new AtomicBoolean(true);
+        List<String> sent = new ArrayList<>();
+        when(kafkaTemplate.send(eq("t"), isNull(), any(), any())).thenAnswer(invocation -> {
+            String value = value(invocation.getArgument(3));
+            synchronized (sent) {
+                sent.add(value);
+            }
+            if (outage.getAndSet(false)) {
+                SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                future.setException(new TimeoutException("Expiring 1 record"));
+                return future;
+            }
+            return acked(value);
+        });
+        MeterRegistry registry = new SimpleMeterRegistry();
+        RecordSpools spools = new RecordSpools(registry);
+        ReflectionTestUtils.setField(spools, "spoolDir", directory.toString());
+        ReflectionTestUtils.setField(spools, "segmentBytes", SEGMENT_BYTES);
+        ReflectionTestUtils.setField(spools, "retryBackoff", Duration.ofMillis(1));
+        SendStatistics statistics = new SendStatistics();
+        statistics.start();
+
+        SpoolingSender sender = spools.open("t", kafkaTemplate, new InFlightWindow(10, 1 << 20), statistics,
+                null, null);
+        assertThat(sender.getSpool().getRecovered()).isEqualTo(3);
+
+        assertThat(sender.drain(5000)).isTrue();
+        assertThat(sent).startsWith("value-0", "value-0").endsWith("value-1", "value-2");
+        assertThat(statistics.getFailed()).isZero();
+        assertThat(statistics.getAcked()).isEqualTo(3);
+        assertThat(registry.get("producer.spool.drained.records").tag("topic", "t").gauge().value())
+                .isEqualTo(3);
+        assertThat(registry.get("producer.spool.depth.records").tag("topic", "t").gauge().value()).isZero();
+        assertThat(SpoolDrainer.isRetriable(new RuntimeException(new TimeoutException("t")))).isTrue();
+        assertThat(SpoolDrainer.isRetriable(new IllegalStateException())).isFalse();
+    }
+
+    /**
+     * Reads and commits records the way the drainer does, one commit per segment.
+     */
+    private static List<String> drain(RecordSpool spool, int count) {
+        List<String> values = new ArrayList<>();
+        SpoolRecord record = new SpoolRecord();
+        SpoolSegment segment = null;
+        int end = 0;
+        long records = 0;
+        long bytes = 0;
+        while (values.size() < count && spool.next(record)) {
+            if (segment != null && segment != record.segment) {
+                spool.drained(segment, end, records, bytes);
+                records = 0;
+                bytes = 0;
+            }
+            segment = record.segment;
+            end = record.end;
+            records++;
+            bytes += record.size();
+            spool.handedOver();
+            values.add(new String(record.value, StandardCharsets.UTF_8));
+        }
+        if (segment != null) {
+            spool.drained(segment, end, records, bytes);
+        }
+        return values;
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static String value(Object value) {
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : (String) value;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static SettableListenableFuture<SendResult<Object, Object>> acked(String value) {
+        SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition("t", 0), 0, 0, 0, 0L, 0, 0);
+        future.set(new SendResult<>(new ProducerRecord<>("t", null, value), metadata));
+        return future;
+    }
+}
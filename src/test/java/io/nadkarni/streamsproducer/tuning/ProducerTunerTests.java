@@ -0,0 +1,156 @@
+package io.nadkarni.streamsproducer.tuning;
+
+import io.nadkarni.streamsproducer.engine.ProducerPool;
+import io.nadkarni.streamsproducer.payload.WorkloadFactory;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TuningGrid}, {@link TuningReport} and {@link ProducerTuner}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class ProducerTunerTests {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * The grid is the cartesian product of the candidate lists; invalid candidates are
+     * rejected before any trial runs.
+     */
+    @Test
+    void expandsAndValidatesGrid() {
+        TuningGrid grid = TuningGrid.parse("0, 10", "16384", "none,lz4,zstd", "1,all", "1,5");
+
+        List<Map<String, Object>> combinations = grid.combinations();
+
+        assertThat(grid.size()).isEqualTo(24);
+        assertThat(combinations).hasSize(24).doesNotHaveDuplicates();
+        assertThat(combinations.get(0)).containsEntry(ProducerConfig.LINGER_MS_CONFIG, 0)
+                .containsEntry(ProducerConfig.BATCH_SIZE_CONFIG, 16384)
+                .containsEntry(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none")
+                .containsEntry(ProducerConfig.ACKS_CONFIG, "1")
+                .containsEntry(ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 1);
+        assertThatThrownBy(() -> TuningGrid.parse("0", "16384", "brotli", "1", "5"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TuningGrid.parse("0", "0", "none", "1", "5"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("batch.size");
+        assertThatThrownBy(() -> TuningGrid.parse("0", "16384", "none", "2", "5"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("acks");
+        assertThatThrownBy(() -> TuningGrid.parse(" ", "16384", "none", "1", "5"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("linger.ms");
+    }
+
+    /**
+     * Trials that fail records or miss the latency bound rank after the others, whatever
+     * their throughput; the snippet holds the winner's settings.
+     */
+    @Test
+    void ranksQualifyingTrialsFirst() {
+        List<Map<String, Object>> settings = TuningGrid.parse("0,5,20,50", "16384", "lz4", "all", "5").combinations();
+        TrialResult slow = result(settings.get(0), 10_000, 0, 2_000);
+        TrialResult fast = result(settings.get(1), 20_000, 0, 4_000);
+        TrialResult tooSlowP99 = result(settings.get(2), 30_000, 0, 9_000);
+        TrialResult failing = result(settings.get(3), 40_000, 5, 1_000);
+
+        TuningReport report = new TuningReport(List.of(slow, fast, tooSlowP99, failing), 5_000);
+
+        assertThat(report.getRanked()).containsExactly(fast, slow, failing, tooSlowP99);
+        assertThat(report.getWinner()).isSameAs(fast);
+        assertThat(report.yamlSnippet()).contains("acks: all", "batch-size: 16384", "compression-type: lz4",
+                "linger.ms: 5", "max.in.flight.requests.per.connection: 5");
+        assertThat(report.format()).contains("2 qualifying", "5 failed", "p99 above bound");
+
+        TuningReport none = new TuningReport(List.of(failing), 0);
+        assertThat(none.getWinner()).isNull();
+        assertThat(none.yamlSnippet()).isNull();
+    }
+
+    /**
+     * Every combination runs on its own pooled producer, which is released afterwards; wire
+     * bytes come from the producer's metrics and the report is written to the file.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void runsOneTrialPerCombination() throws Exception {
+        KafkaTemplate<Object, Object> template = mock(KafkaTemplate.class);
+        when(template.send(eq("tuned"), isNull(), any(byte[].class), any(byte[].class)))
+                .thenAnswer(invocation -> {
+                    SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+                    RecordMetadata metadata = new RecordMetadata(new TopicPartition("tuned", 0), 0, 0, 0, 0L, 0, 0);
+                    future.set(new SendResult<>(new ProducerRecord<>("tuned", invocation.getArgument(2),
+                            invocation.getArgument(3)), metadata));
+                    return future;
+                });
+        Metric outgoing = mock(Metric.class);
+        when(outgoing.metricValue()).thenReturn(1_000.0, 51_000.0, 2_000.0, 12_000.0);
+        doReturn(Map.of(new MetricName(ProducerTuner.OUTGOING_BYTES_METRIC, "producer-metrics", "", Map.of()),
+                outgoing)).when(template).metrics();
+        ProducerPool pool = mock(ProducerPool.class);
+        when(pool.<Object, Object>template(anyString(), anyMap())).thenReturn(template);
+        Path reportFile = directory.resolve("tuning.txt");
+
+        ProducerTuner tuner = new ProducerTuner(pool, new WorkloadFactory());
+        ReflectionTestUtils.setField(tuner, "topicName", "tuned");
+        ReflectionTestUtils.setField(tuner, "lingerMs", "0,5");
+        ReflectionTestUtils.setField(tuner, "compressionTypes", "lz4");
+        ReflectionTestUtils.setField(tuner, "acks", "all");
+        ReflectionTestUtils.setField(tuner, "trialDuration", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(tuner, "warmup", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(tuner, "reportFile", reportFile.toString());
+
+        TuningReport report = tuner.tune();
+
+        assertThat(report.getRanked()).hasSize(4);
+        assertThat(report.getRanked()).allSatisfy(result -> {
+            assertThat(result.getAcked()).isPositive();
+            assertThat(result.getFailed()).isZero();
+        });
+        assertThat(report.getRanked()).anySatisfy(result ->
+                assertThat(result.getWireBytesPerRecord() * result.getAcked()).isCloseTo(50_000.0, within(1.0)));
+        assertThat(report.getRanked()).anySatisfy(result ->
+                assertThat(result.getWireBytesPerRecord() * result.getAcked()).isCloseTo(10_000.0, within(1.0)));
+        verify(pool, times(4)).template(anyString(), anyMap());
+        verify(pool).release("tuner-0");
+        verify(pool).release("tuner-3");
+        assertThat(Files.readString(reportFile)).contains("Producer tuning: 4 trials", "spring:", "linger.ms:");
+    }
+
+    private static TrialResult result(Map<String, Object> settings, long acked, long failed, long p99Micros) {
+        return new TrialResult(settings, acked, failed, 1000, acked * 100, acked * 60, p99Micros / 2, p99Micros,
+                p99Micros * 2, p99Micros * 3);
+    }
+}
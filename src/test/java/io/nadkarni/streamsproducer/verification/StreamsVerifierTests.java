@@ -0,0 +1,146 @@
+package io.nadkarni.streamsproducer.verification;
+
+import io.nadkarni.streamsproducer.encoding.CompactRecordEncoder;
+import org.apache.kafka.streams.processor.ProcessorContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the verification topology's state: {@link SequenceBitmap},
+ * {@link VerificationProcessor} and the {@link DeliveryReport} built by
+ * {@link DeliveryTracker}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class StreamsVerifierTests {
+
+    private DeliveryTracker tracker;
+    private ProcessorContext context;
+    private VerificationProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new DeliveryTracker();
+        context = mock(ProcessorContext.class);
+        processor = new VerificationProcessor(tracker);
+        processor.init(context);
+    }
+
+    /**
+     * The bitmap reports duplicates, counts below a limit inside a word, finds the first
+     * gap and only allocates the pages it touches.
+     */
+    @Test
+    void bitmapTracksSequenceNumbers() {
+        SequenceBitmap bitmap = new SequenceBitmap();
+        for (long seq = 0; seq < 100; seq++) {
+            assertThat(bitmap.add(seq)).isTrue();
+        }
+        assertThat(bitmap.add(50)).isFalse();
+        assertThat(bitmap.add(10L * SequenceBitmap.PAGE_SIZE)).isTrue();
+
+        assertThat(bitmap.cardinality()).isEqualTo(101);
+        assertThat(bitmap.contains(99)).isTrue();
+        assertThat(bitmap.contains(100)).isFalse();
+        assertThat(bitmap.contains(Long.MAX_VALUE >>> 20)).isFalse();
+        assertThat(bitmap.countBelow(70)).isEqualTo(70);
+        assertThat(bitmap.countBelow(Long.MAX_VALUE)).isEqualTo(101);
+        assertThat(bitmap.firstMissing()).isEqualTo(100);
+        assertThat(bitmap.sizeInBytes()).isEqualTo(2L * SequenceBitmap.PAGE_SIZE / 8);
+
+        SequenceBitmap other = new SequenceBitmap();
+        other.add(100);
+        other.add(99);
+        bitmap.addAll(other);
+        assertThat(bitmap.cardinality()).isEqualTo(102);
+        assertThat(bitmap.firstMissing()).isEqualTo(101);
+        assertThatThrownBy(() -> bitmap.add(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Sequence numbers are parsed from the string and compact value forms; anything else has
+     * none.
+     */
+    @Test
+    void parsesSequenceNumbers() {
+        assertThat(VerificationProcessor.sequence(ascii("Message 42"))).isEqualTo(42);
+        assertThat(VerificationProcessor.sequence(ascii("7"))).isEqualTo(7);
+        assertThat(VerificationProcessor.sequence(new CompactRecordEncoder().value(300, 0))).isEqualTo(300);
+        assertThat(VerificationProcessor.sequence(ascii("Message 9223372036854775807"))).isEqualTo(-1);
+        assertThat(VerificationProcessor.sequence(ascii("Message "))).isEqualTo(-1);
+        assertThat(VerificationProcessor.sequence(ascii("{\"id\":1}"))).isEqualTo(-1);
+        assertThat(VerificationProcessor.sequence(null)).isEqualTo(-1);
+    }
+
+    /**
+     * Missing, duplicated, out-of-order and foreign records are all counted, including a
+     * sequence number that reached two partitions.
+     */
+    @Test
+    void reportsDeliveryProblems() {
+        consume(0, "Message 0", "Message 2", "Message 4", "Message 2", "Message 1");
+        consume(1, "Message 3", "Message 5", "Message 4", "Message 9", "not numbered");
+
+        DeliveryReport report = tracker.report(8, true);
+
+        assertThat(report.getConsumed()).isEqualTo(10);
+        assertThat(report.getDelivered()).isEqualTo(6);
+        assertThat(report.getMissing()).isEqualTo(2);
+        assertThat(report.getFirstMissing()).isEqualTo(6);
+        assertThat(report.getDuplicates()).isEqualTo(2);
+        assertThat(report.getOutOfOrder()).isEqualTo(2);
+        assertThat(report.getUnexpected()).isEqualTo(1);
+        assertThat(report.getUnsequenced()).isEqualTo(1);
+        assertThat(report.getLatency().getTotalCount()).isEqualTo(10);
+        assertThat(report.isExactlyOnce()).isFalse();
+        assertThat(report.summary()).contains("NOT exactly once", "first missing sequence number 6");
+        assertThat(tracker.report(8, false).getOutOfOrder()).isEqualTo(-1);
+    }
+
+    /**
+     * A complete run in order is reported as delivered exactly once.
+     */
+    @Test
+    void reportsExactlyOnceDelivery() {
+        for (int i = 0; i < 1000; i++) {
+            consume(i % 3, "Message " + i);
+        }
+
+        DeliveryReport report = tracker.report(1000, true);
+
+        assertThat(report.isExactlyOnce()).isTrue();
+        assertThat(report.getDelivered()).isEqualTo(1000);
+        assertThat(report.getOutOfOrder()).isZero();
+        assertThat(report.getFirstMissing()).isEqualTo(-1);
+        assertThat(report.summary()).contains("1000 of 1000 records delivered (exactly once)");
+    }
+
+    /**
+     * The topology reads the produced topic.
+     */
+    @Test
+    void topologyConsumesTopic() {
+        assertThat(StreamsVerifier.topology("strings", tracker).describe().toString()).contains("strings");
+    }
+
+    private void consume(int partition, String... values) {
+        when(context.partition()).thenReturn(partition);
+        when(context.timestamp()).thenReturn(System.currentTimeMillis() - 5);
+        for (String value : values) {
+            processor.process(null, ascii(value));
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
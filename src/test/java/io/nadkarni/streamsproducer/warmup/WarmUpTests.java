@@ -0,0 +1,219 @@
+package io.nadkarni.streamsproducer.warmup;
+
+import io.nadkarni.streamsproducer.SendStatistics;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.CreatePartitionsResult;
+import org.apache.kafka.clients.admin.DescribeTopicsResult;
+import org.apache.kafka.clients.admin.NewPartitions;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+import org.apache.kafka.common.internals.KafkaFutureImpl;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link StartupWarmUp} and {@link PartitionPlanner}.
+ *
+ * @author Utkarsh Nadkarni
+ * @version 1.0
+ * @since 1.0
+ */
+class WarmUpTests {
+
+    private static final Node BROKER_0 = new Node(0, "localhost", 9092);
+    private static final Node BROKER_1 = new Node(1, "localhost", 9093);
+
+    /**
+     * The partition count covers the target rate with headroom, rounded up and at least one.
+     */
+    @Test
+    void computesRequiredPartitions() {
+        assertThat(PartitionPlanner.requiredPartitions(10_000, 1_000, 1.25)).isEqualTo(13);
+        assertThat(PartitionPlanner.requiredPartitions(10_000, 1_000, 1)).isEqualTo(10);
+        assertThat(PartitionPlanner.requiredPartitions(10, 1_000, 1.25)).isEqualTo(1);
+        assertThatThrownBy(() -> PartitionPlanner.requiredPartitions(10_000, 0, 1.25))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> PartitionPlanner.requiredPartitions(10_000, 1_000, 0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * The first partitions in the send order have distinct leaders, so the first warm-up
+     * records reach every leader broker.
+     */
+    @Test
+    void ordersOnePartitionPerLeaderFirst() {
+        List<PartitionInfo> metadata = Arrays.asList(
+                partition(3, BROKER_1), partition(0, BROKER_0), partition(2, BROKER_0), partition(1, BROKER_1),
+                partition(4, null));
+
+        assertThat(StartupWarmUp.sendOrder(metadata)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(StartupWarmUp.sendOrder(Arrays.asList(partition(0, BROKER_0), partition(1, BROKER_0),
+                partition(2, BROKER_1)))).containsExactly(0, 2, 1);
+    }
+
+    /**
+     * The warm-up waits for a topic that does not exist yet, then sends the warm-up records
+     * with the warm-up header, starting with one partition per leader.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void waitsForTopicAndSendsWarmUpRecords() {
+        Admin admin = mock(Admin.class);
+        DescribeTopicsResult missing = mock(DescribeTopicsResult.class);
+        KafkaFutureImpl<Map<String, TopicDescription>> unknown = new KafkaFutureImpl<>();
+        unknown.completeExceptionally(new UnknownTopicOrPartitionException("Not yet"));
+        when(missing.all()).thenReturn(unknown);
+        DescribeTopicsResult present = mock(DescribeTopicsResult.class);
+        when(present.all()).thenReturn(KafkaFuture.completedFuture(
+                Collections.singletonMap("t", description("t", BROKER_0, BROKER_1, BROKER_0))));
+        when(admin.describeTopics(anyCollection())).thenReturn(missing, present);
+
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.partitionsFor("t")).thenReturn(Collections.emptyList(),
+                Arrays.asList(partition(0, BROKER_0), partition(1, BROKER_1), partition(2, BROKER_0)));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            ProducerRecord<Object, Object> record = invocation.getArgument(0);
+            SettableListenableFuture<SendResult<Object, Object>> future = new SettableListenableFuture<>();
+            RecordMetadata metadata = new RecordMetadata(new TopicPartition("t", record.partition()), 0, 0, 0, 0L, 0, 0);
+            future.set(new SendResult<>(record, metadata));
+            return future;
+        });
+        StartupWarmUp warmUp = new StartupWarmUp(kafkaTemplate, null);
+        ReflectionTestUtils.setField(warmUp, "timeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(warmUp, "warmUpRecords", 4);
+
+        warmUp.warmUp(admin, "t", 3);
+
+        verify(admin, times(2)).describeTopics(anyCollection());
+        ArgumentCaptor<ProducerRecord<Object, Object>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(4)).send(records.capture());
+        assertThat(records.getAllValues().stream().map(ProducerRecord::partition).collect(Collectors.toList()))
+                .containsExactly(0, 1, 2, 0);
+        assertThat(records.getAllValues())
+                .allSatisfy(record -> assertThat(record.headers().lastHeader(StartupWarmUp.WARM_UP_HEADER)).isNotNull());
+        verify(kafkaTemplate).flush();
+    }
+
+    /**
+     * A topic without leaders fails the warm-up once the timeout has passed, and no records
+     * are sent.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void failsWhenTopicIsNotLedInTime() {
+        Admin admin = mock(Admin.class);
+        DescribeTopicsResult leaderless = mock(DescribeTopicsResult.class);
+        when(leaderless.all()).thenReturn(KafkaFuture.completedFuture(
+                Collections.singletonMap("t", description("t", BROKER_0, null))));
+        when(admin.describeTopics(anyCollection())).thenReturn(leaderless);
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        StartupWarmUp warmUp = new StartupWarmUp(kafkaTemplate, null);
+        ReflectionTestUtils.setField(warmUp, "timeout", Duration.ofMillis(300));
+        ReflectionTestUtils.setField(warmUp, "warmUpRecords", 4);
+
+        assertThatThrownBy(() -> warmUp.warmUp(admin, "t", 2))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("partitions without a leader");
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+    }
+
+    /**
+     * The planner only recommends in recommend mode, adds partitions in apply mode, and can
+     * derive the rate per partition from a run's acknowledged rate.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void recommendsOrAppliesPartitionIncrease() {
+        Admin admin = mock(Admin.class);
+        DescribeTopicsResult described = mock(DescribeTopicsResult.class);
+        when(described.all()).thenReturn(KafkaFuture.completedFuture(
+                Collections.singletonMap("t", description("t", BROKER_0, BROKER_0, BROKER_0, BROKER_0, BROKER_0))));
+        when(admin.describeTopics(anyCollection())).thenReturn(described);
+        CreatePartitionsResult increased = mock(CreatePartitionsResult.class);
+        when(increased.all()).thenReturn(KafkaFuture.completedFuture(null));
+        when(admin.createPartitions(anyMap())).thenReturn(increased);
+
+        PartitionPlanner recommending = planner(PlannerMode.RECOMMEND, 10_000, 1_000);
+        assertThat(recommending.plan(admin, "t", 0)).isEqualTo(5);
+        verify(admin, never()).createPartitions(anyMap());
+
+        PartitionPlanner sufficient = planner(PlannerMode.APPLY, 3_000, 1_000);
+        assertThat(sufficient.plan(admin, "t", 0)).isEqualTo(5);
+        verify(admin, never()).createPartitions(anyMap());
+
+        PartitionPlanner applying = planner(PlannerMode.APPLY, 10_000, 0);
+        assertThat(applying.plan(admin, "t", 5_000)).isEqualTo(13);
+        ArgumentCaptor<Map<String, NewPartitions>> partitions = ArgumentCaptor.forClass(Map.class);
+        verify(admin).createPartitions(partitions.capture());
+        assertThat(partitions.getValue().get("t").totalCount()).isEqualTo(13);
+
+        PartitionPlanner untargeted = planner(PlannerMode.APPLY, 0, 1_000);
+        assertThat(untargeted.plan(admin, "t", 0)).isZero();
+    }
+
+    /**
+     * A paced run is not used to measure the rate per partition, and the planner does not
+     * run before the run without a configured rate.
+     */
+    @Test
+    void skipsMeasurementOfPacedRun() {
+        PartitionPlanner planner = planner(PlannerMode.APPLY, 10_000, 0);
+        ReflectionTestUtils.setField(planner, "targetRate", 500.0);
+
+        assertThat(planner.planBeforeRun("t")).isZero();
+        planner.planAfterRun("t", new SendStatistics());
+        assertThat(planner(PlannerMode.OFF, 10_000, 1_000).planBeforeRun("t")).isZero();
+    }
+
+    private static PartitionPlanner planner(PlannerMode mode, double targetRate, double partitionRate) {
+        PartitionPlanner planner = new PartitionPlanner(null);
+        ReflectionTestUtils.setField(planner, "mode", mode);
+        ReflectionTestUtils.setField(planner, "plannerTargetRate", targetRate);
+        ReflectionTestUtils.setField(planner, "plannerPartitionRate", partitionRate);
+        return planner;
+    }
+
+    private static PartitionInfo partition(int partition, Node leader) {
+        return new PartitionInfo("t", partition, leader, new Node[0], new Node[0]);
+    }
+
+    private static TopicDescription description(String name, Node... leaders) {
+        List<TopicPartitionInfo> partitions = new ArrayList<>();
+        for (int p = 0; p < leaders.length; p++) {
+            List<Node> replicas = leaders[p] == null ? Collections.emptyList() : Collections.singletonList(leaders[p]);
+            partitions.add(new TopicPartitionInfo(p, leaders[p], replicas, replicas));
+        }
+        return new TopicDescription(name, false, partitions);
+    }
+}